@@ -1,5 +1,24 @@
 package br.com.fotocastro;
 
+import br.com.fotocastro.config.DatabaseConfig;
+import br.com.fotocastro.config.ModoTerminal;
+import br.com.fotocastro.infra.Auditoria;
+import br.com.fotocastro.infra.MonitorAlteracoes;
+import br.com.fotocastro.infra.VendaJournal;
+import br.com.fotocastro.service.AgendadorService;
+import br.com.fotocastro.service.ArquivamentoService;
+import br.com.fotocastro.service.ConciliacaoService;
+import br.com.fotocastro.service.FechamentoAutomaticoService;
+import br.com.fotocastro.service.BackupService;
+import br.com.fotocastro.service.BomService;
+import br.com.fotocastro.service.BuscaIndex;
+import br.com.fotocastro.service.ExportacaoContabilService;
+import br.com.fotocastro.service.PdfExportService;
+import br.com.fotocastro.service.RankingDescricoes;
+import br.com.fotocastro.service.RelatorioService;
+import br.com.fotocastro.service.SincronizacaoFilialService;
+import br.com.fotocastro.service.VendasColunar;
+import br.com.fotocastro.ui.VendaEventBus;
 import javafx.application.Application;
 import javafx.application.Platform;
 import javafx.fxml.FXMLLoader;
@@ -10,26 +29,130 @@ import javafx.stage.Screen;
 import javafx.stage.Stage;
 import org.flywaydb.core.Flyway;
 
+import java.time.YearMonth;
+
 public class Boot extends Application {
-    // UMA URL para tudo (Flyway, DAO, Console H2)
-    private static final String JDBC_URL = "jdbc:h2:file:./data/fotocastro;AUTO_SERVER=TRUE;DB_CLOSE_DELAY=-1";
-    private static final String DB_USER  = "sa";
-    private static final String DB_PASS  = "";
 
     private void migrate() {
+        // Mesmo pool dos DAOs: no modo cliente as migrações rodam no banco do servidor
         Flyway.configure()
-                .dataSource(JDBC_URL, DB_USER, DB_PASS)
+                .dataSource(DatabaseConfig.getInstance().getDataSource())
                 .locations("classpath:db/migration")
                 .load()
                 .migrate();
     }
 
+    /**
+     * Confere os fechamentos com as vendas; o resultado vai para a aba Avisos
+     */
+    private static void conciliarFechamentos() {
+        try {
+            new ConciliacaoService().conciliar();
+            Platform.runLater(VendaEventBus::notificarConciliacao);
+        } catch (RuntimeException e) {
+            // já registrado; confere de novo na próxima virada
+        }
+    }
+
+    /**
+     * @return true se algum dia foi fechado agora
+     */
+    private static boolean fecharDiasPendentes() {
+        try {
+            return !new FechamentoAutomaticoService().fecharDiasPendentes().isEmpty();
+        } catch (RuntimeException e) {
+            return false; // já registrado; tenta de novo na próxima abertura ou virada
+        }
+    }
+
     @Override
     public void start(Stage stage) {
         try {
+            // 0) Restauração de backup pedida na sessão anterior (antes de abrir o banco)
+            ModoTerminal modo = ModoTerminal.atual();
+            if (!modo.isCliente()) {
+                BackupService.aplicarRestauracaoPendente();
+            }
+
             // 1) Migrações
             migrate();
 
+            // 1.0) Trilha de auditoria (operation_log) gravada em segundo plano
+            Auditoria.getInstance().iniciar();
+
+            // 1.1) Write-behind do caixa (opcional): reaplica o journal pendente
+            if (VendaJournal.habilitado()) {
+                VendaJournal.getInstance().iniciar();
+            }
+
+            // 1.2) Índice de busca carregado em segundo plano
+            Thread carga = new Thread(BuscaIndex::getInstance, "busca-index");
+            carga.setDaemon(true);
+            carga.start();
+
+            // 1.3) Arquivamento dos meses encerrados e cache colunar do Dashboard, em segundo plano
+            //      (nessa ordem: a carga do cache lê arquivo e tabela quente em consultas separadas)
+            Thread colunar = new Thread(() -> {
+                if (!modo.isCliente()) {
+                    try {
+                        new ArquivamentoService().arquivarMesesEncerrados();
+                    } catch (RuntimeException e) {
+                        // já registrado; segue com as vendas onde estão
+                    }
+                }
+                VendasColunar.getInstance();
+                RankingDescricoes.getInstance();
+                RelatorioService.getInstance().preCarregar();
+            }, "vendas-colunar");
+            colunar.setDaemon(true);
+            colunar.start();
+
+            // 1.4) Backup online periódico (feito pelo terminal que tem o banco)
+            if (!modo.isCliente()) {
+                BackupService.agendar();
+            }
+
+            // 1.5) Sincronização entre filiais (feita pelo terminal que tem o banco)
+            if (!modo.isCliente()) {
+                SincronizacaoFilialService.agendar();
+            }
+
+            // 1.6) Multi-terminal: alterações feitas pelos outros caixas
+            if (modo != ModoTerminal.LOCAL) {
+                MonitorAlteracoes monitor = MonitorAlteracoes.getInstance();
+                monitor.adicionarOuvinte(alteracoes -> BuscaIndex.getInstance().aplicarAlteracoes(alteracoes));
+                monitor.adicionarOuvinte(BomService::aplicarAlteracoes);
+                monitor.iniciar();
+            }
+
+            // 1.6.1) Fechamento automático dos dias que ficaram abertos e conferência dos fechamentos,
+            //        em segundo plano
+            if (!modo.isCliente()) {
+                Thread fechamento = new Thread(() -> {
+                    if (fecharDiasPendentes()) Platform.runLater(VendaEventBus::notificarVenda);
+                    conciliarFechamentos();
+                }, "fechamento-automatico");
+                fechamento.setDaemon(true);
+                fechamento.start();
+            }
+
+            // 1.7) Virada de dia: um agendador para o app inteiro; telas ouvem VendaEventBus.diaProperty()
+            AgendadorService.adicionarOuvinte((anterior, atual) -> {
+                // Fecha o dia que terminou antes de avisar as telas; depois a conferência noturna
+                if (!modo.isCliente()) fecharDiasPendentes();
+                Platform.runLater(() -> VendaEventBus.notificarDia(atual));
+                if (!modo.isCliente()) conciliarFechamentos();
+                // Mês novo: o mês que saiu da janela quente vai para o arquivo
+                if (!modo.isCliente() && !YearMonth.from(atual).equals(YearMonth.from(anterior))) {
+                    try {
+                        new ArquivamentoService().arquivarMesesEncerrados();
+                    } catch (RuntimeException e) {
+                        // já registrado; tenta de novo na próxima abertura
+                    }
+                }
+            });
+            AgendadorService.iniciar();
+
             // 2) UI principal
             var url = getClass().getResource("/ui/MainView.fxml");
             if (url == null) throw new IllegalStateException("FXML não encontrado em /ui/MainView.fxml");
@@ -83,6 +206,21 @@ public class Boot extends Application {
         }
     }
 
+    @Override
+    public void stop() {
+        MonitorAlteracoes.encerrar();
+        // Garante que vendas confirmadas no journal cheguem ao banco
+        VendaJournal.encerrar();
+        // Termina exportações já pedidas antes de sair
+        PdfExportService.encerrar();
+        ExportacaoContabilService.encerrar();
+        BackupService.encerrar();
+        SincronizacaoFilialService.encerrar();
+        AgendadorService.encerrar();
+        // Por último: grava a auditoria das operações feitas durante o encerramento
+        Auditoria.encerrar();
+    }
+
     public static void main(String[] args) {
         launch(args);
     }
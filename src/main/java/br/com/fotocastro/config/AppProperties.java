@@ -0,0 +1,83 @@
+package br.com.fotocastro.config;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Properties;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Propriedades da aplicação.
+ * Ordem de precedência: -Dchave=valor > ./fotocastro.properties > application.properties (classpath).
+ */
+public final class AppProperties {
+
+    private static final Logger logger = Logger.getLogger(AppProperties.class.getName());
+    private static final Path ARQUIVO_LOCAL = Path.of("fotocastro.properties");
+
+    private static final Properties props = carregar();
+
+    private AppProperties() {}
+
+    private static Properties carregar() {
+        Properties p = new Properties();
+
+        try (InputStream in = AppProperties.class.getResourceAsStream("/application.properties")) {
+            if (in != null) {
+                p.load(new InputStreamReader(in, StandardCharsets.UTF_8));
+            }
+        } catch (IOException e) {
+            logger.log(Level.WARNING, "Falha ao ler application.properties", e);
+        }
+
+        if (Files.isRegularFile(ARQUIVO_LOCAL)) {
+            try (Reader r = Files.newBufferedReader(ARQUIVO_LOCAL, StandardCharsets.UTF_8)) {
+                p.load(r);
+                logger.info("Configuração local carregada: " + ARQUIVO_LOCAL.toAbsolutePath());
+            } catch (IOException e) {
+                logger.log(Level.WARNING, "Falha ao ler " + ARQUIVO_LOCAL, e);
+            }
+        }
+
+        return p;
+    }
+
+    public static String get(String chave, String padrao) {
+        String v = System.getProperty(chave);
+        if (v == null) v = props.getProperty(chave);
+        return v != null ? v.trim() : padrao;
+    }
+
+    public static int getInt(String chave, int padrao) {
+        String v = get(chave, null);
+        if (v == null || v.isEmpty()) return padrao;
+        try {
+            return Integer.parseInt(v);
+        } catch (NumberFormatException e) {
+            logger.warning("Valor inválido para " + chave + ": " + v + " (usando " + padrao + ")");
+            return padrao;
+        }
+    }
+
+    public static long getLong(String chave, long padrao) {
+        String v = get(chave, null);
+        if (v == null || v.isEmpty()) return padrao;
+        try {
+            return Long.parseLong(v);
+        } catch (NumberFormatException e) {
+            logger.warning("Valor inválido para " + chave + ": " + v + " (usando " + padrao + ")");
+            return padrao;
+        }
+    }
+
+    public static boolean getBoolean(String chave, boolean padrao) {
+        String v = get(chave, null);
+        if (v == null || v.isEmpty()) return padrao;
+        return Boolean.parseBoolean(v);
+    }
+}
@@ -2,84 +2,193 @@ package br.com.fotocastro.config;
 
 import com.zaxxer.hikari.HikariConfig;
 import com.zaxxer.hikari.HikariDataSource;
+import org.h2.api.ErrorCode;
+import org.h2.tools.Server;
 
 import javax.sql.DataSource;
+import java.nio.file.Path;
 import java.sql.SQLException;
 
 import java.sql.Connection;
 import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.util.Locale;
+import java.util.logging.Logger;
 
 /**
  * Configuração centralizada do banco de dados com HikariCP.
  * Singleton para garantir um único pool de conexões.
+ * Parâmetros do pool vêm de {@link AppProperties} (chaves db.pool.*).
+ * No modo {@link ModoTerminal#SERVIDOR} também sobe o servidor TCP do H2 para os outros caixas.
+ * O servidor aceita conexões da rede com o usuário administrador do banco (que pode criar
+ * funções Java com CREATE ALIAS), então só sobe com db.pass preenchida; banco que ainda está
+ * com a senha vazia passa a usar db.pass na primeira abertura como servidor.
  */
 public class DatabaseConfig {
-    
+
+    private static final Logger logger = Logger.getLogger(DatabaseConfig.class.getName());
+
     private static DatabaseConfig instance;
     private final HikariDataSource dataSource;
-    
+    private final PoolMetrics metrics = new PoolMetrics();
+    private final ModoTerminal modo = ModoTerminal.atual();
+    private Server servidorTcp;
+
     private DatabaseConfig() {
         HikariConfig config = new HikariConfig();
-        
+
         // Configurações do H2
-        config.setJdbcUrl("jdbc:h2:file:./data/fotocastro;DB_CLOSE_DELAY=-1");
-        config.setUsername("sa");
-        config.setPassword("");
+        if (modo == ModoTerminal.SERVIDOR) {
+            iniciarServidorTcp();
+        }
+        config.setJdbcUrl(jdbcUrl(modo));
+        if (modo != ModoTerminal.LOCAL || !AppProperties.get("filial.nome", "").isBlank()) {
+            // Identifica o terminal nas alterações gravadas pelos triggers (tabela alteracao);
+            // sem terminal os triggers não gravam, então a sincronização entre filiais também liga
+            config.setConnectionInitSql("SET @TERMINAL = '" + ModoTerminal.nome().replace("'", "''") + "'");
+        }
+        config.setUsername(AppProperties.get("db.user", "sa"));
+        config.setPassword(AppProperties.get("db.pass", ""));
         config.setDriverClassName("org.h2.Driver");
-        
+
         // Configurações do pool
-        config.setMaximumPoolSize(10);
-        config.setMinimumIdle(2);
-        config.setConnectionTimeout(30000); // 30 segundos
-        config.setIdleTimeout(600000); // 10 minutos
-        config.setMaxLifetime(1800000); // 30 minutos
-        
+        config.setMaximumPoolSize(AppProperties.getInt("db.pool.maximumPoolSize", 10));
+        config.setMinimumIdle(AppProperties.getInt("db.pool.minimumIdle", 2));
+        config.setConnectionTimeout(AppProperties.getLong("db.pool.connectionTimeoutMs", 30000)); // 30 segundos
+        config.setIdleTimeout(AppProperties.getLong("db.pool.idleTimeoutMs", 600000)); // 10 minutos
+        config.setMaxLifetime(AppProperties.getLong("db.pool.maxLifetimeMs", 1800000)); // 30 minutos
+
         // Pool name para debug
         config.setPoolName("FotoCastroPool");
-        
+
         // Auto-commit
         config.setAutoCommit(true);
-        
-        // Validação de conexões
-        config.setConnectionTestQuery("SELECT 1");
-        
+
+        // Validação de conexões: sem connectionTestQuery o Hikari usa Connection.isValid() (JDBC4)
+
+        // Métricas (tela de diagnóstico)
+        config.setMetricsTrackerFactory(metrics);
+
         this.dataSource = new HikariDataSource(config);
     }
-    
+
+    private static String jdbcUrl(ModoTerminal modo) {
+        Path banco = ModoTerminal.arquivoBanco();
+        if (modo == ModoTerminal.CLIENTE) {
+            return "jdbc:h2:tcp://" + AppProperties.get("terminal.servidor", "localhost") + ":" + ModoTerminal.porta()
+                + "/" + banco.getFileName();
+        }
+        // Caminho absoluto: a sessão local e as sessões TCP abrem o mesmo banco neste processo
+        return "jdbc:h2:file:" + banco + ";DB_CLOSE_DELAY=-1";
+    }
+
+    private void iniciarServidorTcp() {
+        Path banco = ModoTerminal.arquivoBanco();
+        protegerComSenha(banco);
+        String endereco = AppProperties.get("terminal.enderecoServidor", "");
+        if (!endereco.isBlank()) {
+            // Escuta só na placa de rede da loja (lido pelo H2 ao abrir o socket)
+            System.setProperty("h2.bindAddress", endereco);
+        }
+        try {
+            servidorTcp = Server.createTcpServer("-tcp", "-tcpAllowOthers", "-ifExists",
+                "-tcpPort", String.valueOf(ModoTerminal.porta()),
+                "-baseDir", banco.getParent().toString()).start();
+            logger.info("Servidor H2 TCP: " + servidorTcp.getURL() + "/" + banco.getFileName());
+        } catch (SQLException e) {
+            throw new IllegalStateException("Não foi possível abrir o servidor TCP na porta " + ModoTerminal.porta(), e);
+        }
+    }
+
+    /**
+     * Exige db.pass no modo servidor e troca a senha vazia de um banco antigo pela configurada
+     */
+    private static void protegerComSenha(Path banco) {
+        String usuario = AppProperties.get("db.user", "sa");
+        String senha = AppProperties.get("db.pass", "");
+        if (senha.isBlank()) {
+            throw new IllegalStateException("Modo servidor exige db.pass preenchida em application.properties "
+                + "(a mesma em todos os caixas): sem senha qualquer PC da rede entra no banco como administrador");
+        }
+        String url = jdbcUrl(ModoTerminal.SERVIDOR);
+        try {
+            DriverManager.getConnection(url, usuario, senha).close();
+            return;
+        } catch (SQLException e) {
+            if (e.getErrorCode() != ErrorCode.WRONG_USER_OR_PASSWORD) {
+                throw new IllegalStateException("Não foi possível abrir o banco " + banco, e);
+            }
+        }
+        try (Connection c = DriverManager.getConnection(url, usuario, "");
+             PreparedStatement ps = c.prepareStatement("ALTER USER \"" + usuario.toUpperCase(Locale.ROOT) + "\" SET PASSWORD ?")) {
+            ps.setString(1, senha);
+            ps.execute();
+            logger.warning("Banco estava com senha vazia: senha do usuário " + usuario + " trocada para a de db.pass");
+        } catch (SQLException e) {
+            throw new IllegalStateException("Senha de db.pass não confere com a do banco " + banco, e);
+        }
+    }
+
     public static synchronized DatabaseConfig getInstance() {
         if (instance == null) {
             instance = new DatabaseConfig();
         }
         return instance;
     }
-    
+
     public DataSource getDataSource() {
         return dataSource;
     }
-    
+
     public Connection getConnection() throws SQLException {
         return dataSource.getConnection();
     }
-    
+
     public void shutdown() {
     if (dataSource != null && !dataSource.isClosed()) {
-        try (Connection c = dataSource.getConnection()) {
-            c.createStatement().execute("SHUTDOWN");
-        } catch (Exception ignored) {}
+        // Cliente não derruba o banco do servidor
+        if (!modo.isCliente()) {
+            try (Connection c = dataSource.getConnection()) {
+                c.createStatement().execute("SHUTDOWN");
+            } catch (Exception ignored) {}
+        }
         dataSource.close();
     }
-} 
+    if (servidorTcp != null) {
+        servidorTcp.stop();
+    }
+}
     // Métodos úteis para informações do pool
     public int getActiveConnections() {
         return dataSource.getHikariPoolMXBean().getActiveConnections();
     }
-    
+
     public int getIdleConnections() {
         return dataSource.getHikariPoolMXBean().getIdleConnections();
     }
-    
+
     public int getTotalConnections() {
         return dataSource.getHikariPoolMXBean().getTotalConnections();
     }
 
+    public int getThreadsAguardando() {
+        return dataSource.getHikariPoolMXBean().getThreadsAwaitingConnection();
+    }
+
+    public int getMaximumPoolSize() {
+        return dataSource.getMaximumPoolSize();
+    }
+
+    public int getMinimumIdle() {
+        return dataSource.getMinimumIdle();
+    }
+
+    public ModoTerminal getModo() {
+        return modo;
+    }
+
+    public PoolMetrics getMetrics() {
+        return metrics;
+    }
+
 }
@@ -0,0 +1,52 @@
+package br.com.fotocastro.config;
+
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+import java.nio.file.Path;
+import java.util.Locale;
+
+/**
+ * Modo multi-terminal (chave terminal.modo).
+ * LOCAL: banco só deste processo. SERVIDOR: abre o banco e o serve via TCP para os outros caixas.
+ * CLIENTE: conecta no servidor (terminal.servidor / terminal.porta) e não mexe em arquivos do banco.
+ */
+public enum ModoTerminal {
+    LOCAL, SERVIDOR, CLIENTE;
+
+    public static ModoTerminal atual() {
+        String v = AppProperties.get("terminal.modo", "local");
+        try {
+            return valueOf(v.toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException e) {
+            return LOCAL;
+        }
+    }
+
+    /**
+     * Nome gravado nas alterações (padrão: nome da máquina)
+     */
+    public static String nome() {
+        String nome = AppProperties.get("terminal.nome", "");
+        if (!nome.isEmpty()) return nome;
+        try {
+            return InetAddress.getLocalHost().getHostName();
+        } catch (UnknownHostException e) {
+            return "terminal";
+        }
+    }
+
+    public static int porta() {
+        return AppProperties.getInt("terminal.porta", 9092);
+    }
+
+    /**
+     * Caminho do banco no disco deste terminal (LOCAL e SERVIDOR)
+     */
+    public static Path arquivoBanco() {
+        return Path.of(AppProperties.get("db.path", "./data/fotocastro")).toAbsolutePath().normalize();
+    }
+
+    public boolean isCliente() {
+        return this == CLIENTE;
+    }
+}
@@ -0,0 +1,124 @@
+package br.com.fotocastro.config;
+
+import com.zaxxer.hikari.metrics.IMetricsTracker;
+import com.zaxxer.hikari.metrics.MetricsTrackerFactory;
+import com.zaxxer.hikari.metrics.PoolStats;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Métricas do pool HikariCP coletadas em memória.
+ * Guarda as últimas esperas por conexão num buffer circular para calcular percentis
+ * e contadores de criação/timeout para medir a rotatividade (churn) das conexões.
+ */
+public class PoolMetrics implements MetricsTrackerFactory {
+
+    private static final int AMOSTRAS = 1024;
+
+    private final AtomicLongArray esperasNanos = new AtomicLongArray(AMOSTRAS);
+    private final AtomicLong aquisicoes = new AtomicLong();
+    private final AtomicLong criadas = new AtomicLong();
+    private final AtomicLong criacaoTotalMillis = new AtomicLong();
+    private final AtomicLong timeouts = new AtomicLong();
+    private final AtomicLong usoTotalMillis = new AtomicLong();
+    private final AtomicLong usos = new AtomicLong();
+    private final long inicioNanos = System.nanoTime();
+
+    @Override
+    public IMetricsTracker create(String poolName, PoolStats poolStats) {
+        return new IMetricsTracker() {
+            @Override
+            public void recordConnectionCreatedMillis(long connectionCreatedMillis) {
+                criadas.incrementAndGet();
+                criacaoTotalMillis.addAndGet(connectionCreatedMillis);
+            }
+
+            @Override
+            public void recordConnectionAcquiredNanos(long elapsedAcquiredNanos) {
+                long n = aquisicoes.getAndIncrement();
+                esperasNanos.set((int) (n % AMOSTRAS), elapsedAcquiredNanos);
+            }
+
+            @Override
+            public void recordConnectionUsageMillis(long elapsedBorrowedMillis) {
+                usos.incrementAndGet();
+                usoTotalMillis.addAndGet(elapsedBorrowedMillis);
+            }
+
+            @Override
+            public void recordConnectionTimeout() {
+                timeouts.incrementAndGet();
+            }
+        };
+    }
+
+    /**
+     * Tira uma foto das métricas atuais (esperas em milissegundos).
+     */
+    public Snapshot snapshot() {
+        long total = aquisicoes.get();
+        int n = (int) Math.min(total, AMOSTRAS);
+
+        long[] amostras = new long[n];
+        for (int i = 0; i < n; i++) {
+            amostras[i] = esperasNanos.get(i);
+        }
+        Arrays.sort(amostras);
+
+        long nUsos = usos.get();
+        long nCriadas = criadas.get();
+        double minutos = Math.max(1e-9, (System.nanoTime() - inicioNanos) / 60e9);
+
+        return new Snapshot(
+            total,
+            percentilMillis(amostras, 0.50),
+            percentilMillis(amostras, 0.95),
+            percentilMillis(amostras, 0.99),
+            n > 0 ? amostras[n - 1] / 1e6 : 0.0,
+            nUsos > 0 ? (double) usoTotalMillis.get() / nUsos : 0.0,
+            nCriadas,
+            nCriadas > 0 ? (double) criacaoTotalMillis.get() / nCriadas : 0.0,
+            nCriadas / minutos,
+            timeouts.get()
+        );
+    }
+
+    private static double percentilMillis(long[] ordenado, double p) {
+        if (ordenado.length == 0) return 0.0;
+        int idx = (int) Math.ceil(p * ordenado.length) - 1;
+        return ordenado[Math.max(0, Math.min(idx, ordenado.length - 1))] / 1e6;
+    }
+
+    /**
+     * Valores imutáveis de um instante das métricas
+     */
+    public static class Snapshot {
+        public final long aquisicoes;
+        public final double esperaP50Ms;
+        public final double esperaP95Ms;
+        public final double esperaP99Ms;
+        public final double esperaMaxMs;
+        public final double usoMedioMs;
+        public final long conexoesCriadas;
+        public final double criacaoMediaMs;
+        public final double criadasPorMinuto;
+        public final long timeouts;
+
+        public Snapshot(long aquisicoes, double esperaP50Ms, double esperaP95Ms, double esperaP99Ms,
+                        double esperaMaxMs, double usoMedioMs, long conexoesCriadas, double criacaoMediaMs,
+                        double criadasPorMinuto, long timeouts) {
+            this.aquisicoes = aquisicoes;
+            this.esperaP50Ms = esperaP50Ms;
+            this.esperaP95Ms = esperaP95Ms;
+            this.esperaP99Ms = esperaP99Ms;
+            this.esperaMaxMs = esperaMaxMs;
+            this.usoMedioMs = usoMedioMs;
+            this.conexoesCriadas = conexoesCriadas;
+            this.criacaoMediaMs = criacaoMediaMs;
+            this.criadasPorMinuto = criadasPorMinuto;
+            this.timeouts = timeouts;
+        }
+    }
+}
@@ -0,0 +1,68 @@
+package br.com.fotocastro.infra;
+
+import org.h2.api.Trigger;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.Locale;
+
+/**
+ * Trigger H2 (FOR EACH ROW) que registra cada alteração na tabela alteracao (V14).
+ * Roda no processo que tem o banco (servidor), com a sessão de quem gravou:
+ * o terminal de origem vem da variável @TERMINAL definida pelo pool de cada caixa.
+ * Nas tabelas de venda guarda também descrição e data anteriores, que os caches
+ * dos outros terminais precisam para desfazer a contagem antiga.
+ */
+public class AlteracaoTrigger implements Trigger {
+
+    private String tabela;
+    private int colId = -1;
+    private int colDescricao = -1;
+    private int colDataHora = -1;
+
+    @Override
+    public void init(Connection conn, String schemaName, String triggerName, String tableName,
+                     boolean before, int type) throws SQLException {
+        // ALTER TABLE recria a tabela como <nome>_COPY_<n>_<n> e renomeia depois, sem reiniciar o trigger
+        this.tabela = tableName.toLowerCase(Locale.ROOT).replaceFirst("_copy_\\d+_\\d+$", "");
+        try (ResultSet rs = conn.getMetaData().getColumns(null, schemaName, tableName, null)) {
+            while (rs.next()) {
+                int i = rs.getInt("ORDINAL_POSITION") - 1;
+                switch (rs.getString("COLUMN_NAME").toUpperCase(Locale.ROOT)) {
+                    case "ID" -> colId = i;
+                    case "DESCRICAO" -> colDescricao = i;
+                    case "DATA_HORA" -> colDataHora = i;
+                    default -> { }
+                }
+            }
+        }
+    }
+
+    @Override
+    public void fire(Connection conn, Object[] oldRow, Object[] newRow) throws SQLException {
+        String terminal;
+        try (PreparedStatement ps = conn.prepareStatement("SELECT @TERMINAL, @SEM_ALTERACAO");
+             ResultSet rs = ps.executeQuery()) {
+            rs.next();
+            terminal = rs.getString(1);
+            if (terminal == null || rs.getBoolean(2)) return;
+        }
+
+        String operacao = oldRow == null ? "I" : newRow == null ? "D" : "U";
+        Object[] linha = newRow != null ? newRow : oldRow;
+
+        try (PreparedStatement ps = conn.prepareStatement("""
+                INSERT INTO alteracao (tabela, operacao, registro_id, terminal, descricao_anterior, data_hora_anterior)
+                VALUES (?, ?, ?, ?, ?, ?)""")) {
+            ps.setString(1, tabela);
+            ps.setString(2, operacao);
+            ps.setObject(3, colId >= 0 ? linha[colId] : null);
+            ps.setString(4, terminal);
+            ps.setObject(5, oldRow != null && colDescricao >= 0 ? oldRow[colDescricao] : null);
+            ps.setObject(6, oldRow != null && colDataHora >= 0 ? oldRow[colDataHora] : null);
+            ps.executeUpdate();
+        }
+    }
+}
@@ -0,0 +1,225 @@
+package br.com.fotocastro.infra;
+
+import br.com.fotocastro.config.AppProperties;
+import br.com.fotocastro.config.ModoTerminal;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+import java.util.logging.Level;
+
+/**
+ * Trilha de auditoria na tabela operation_log (V5), gravada em segundo plano.
+ *
+ * Quem faz a operação só enfileira a entrada (fila sem lock com limite por contador CAS);
+ * uma thread grava em lotes JDBC a cada auditoria.flushMs ou assim que a fila junta
+ * auditoria.tamanhoLote entradas. Com a fila cheia o chamador espera até
+ * auditoria.esperaMaxMs pelo escritor e, se ainda não couber, a entrada é descartada e
+ * contada: a auditoria nunca segura uma venda. No encerramento o que restou é gravado.
+ */
+public class Auditoria extends DAOBase {
+
+    private static final String SQL_INSERT = "INSERT INTO operation_log "
+        + "(operation, entity_type, entity_id, description, user_name, created_at) VALUES (?, ?, ?, ?, ?, ?)";
+    private static final int MAX_DESCRICAO = 200;
+
+    private static volatile Auditoria instance;
+
+    private final int capacidade;
+    private final int tamanhoLote;
+    private final long flushMs;
+    private final long esperaMaxNanos;
+    private final String terminal = ModoTerminal.nome();
+
+    private final ConcurrentLinkedQueue<Entrada> fila = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger tamanho = new AtomicInteger();
+    private final AtomicLong gravadas = new AtomicLong();
+    private final AtomicLong descartadas = new AtomicLong();
+    private List<Entrada> loteEmVoo = new ArrayList<>(); // só acessado pela thread do escritor (ou por parar, depois dela)
+
+    private volatile boolean ativo;
+    private volatile Thread escritor;
+
+    private Auditoria() {
+        this.capacidade = AppProperties.getInt("auditoria.capacidade", 10000);
+        this.tamanhoLote = AppProperties.getInt("auditoria.tamanhoLote", 200);
+        this.flushMs = AppProperties.getLong("auditoria.flushMs", 250);
+        this.esperaMaxNanos = TimeUnit.MILLISECONDS.toNanos(AppProperties.getLong("auditoria.esperaMaxMs", 50));
+    }
+
+    public static synchronized Auditoria getInstance() {
+        if (instance == null) {
+            instance = new Auditoria();
+        }
+        return instance;
+    }
+
+    /**
+     * Grava o que restou e para o escritor (seguro chamar mais de uma vez)
+     */
+    public static synchronized void encerrar() {
+        if (instance != null) {
+            instance.parar();
+        }
+    }
+
+    /**
+     * Enfileira uma entrada; sem o escritor iniciado não faz nada
+     * @param entidade tipo do registro (venda, estoque, template, caixa)
+     */
+    public static void registrar(String operacao, String entidade, Long entidadeId, String descricao) {
+        Auditoria a = instance;
+        if (a != null && a.ativo) {
+            a.enfileirar(new Entrada(operacao, entidade, entidadeId, descricao, LocalDateTime.now()));
+        }
+    }
+
+    // ========== CICLO DE VIDA ==========
+
+    public synchronized void iniciar() {
+        if (ativo) return;
+        ativo = true;
+        Thread t = new Thread(this::executar, "auditoria");
+        t.setDaemon(true);
+        escritor = t;
+        t.start();
+        logger.info("Auditoria ativa (lote " + tamanhoLote + ", a cada " + flushMs + " ms, fila até " + capacidade + ")");
+    }
+
+    public synchronized void parar() {
+        if (!ativo) return;
+        ativo = false;
+        Thread t = escritor;
+        LockSupport.unpark(t);
+        try {
+            t.join(5000);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        escritor = null;
+        if (t.isAlive()) {
+            // Escritor preso num lote (banco lento): loteEmVoo continua dele, não grava daqui
+            logger.warning("Auditoria encerrada com o escritor ainda gravando; " + tamanho.get()
+                + " entrada(s) na fila não serão gravadas");
+            return;
+        }
+        while (temPendentes() && gravarLote()) {
+            // grava até esvaziar ou falhar
+        }
+        logger.info("Auditoria encerrada: " + gravadas.get() + " gravadas, " + descartadas.get()
+            + " descartadas, " + (tamanho.get() + loteEmVoo.size()) + " perdidas no encerramento");
+    }
+
+    // ========== FILA ==========
+
+    private void enfileirar(Entrada entrada) {
+        long limite = 0;
+        int n;
+        while (true) {
+            n = tamanho.get();
+            if (n < capacidade) {
+                if (tamanho.compareAndSet(n, n + 1)) break;
+                continue;
+            }
+            // Fila cheia: acorda o escritor e espera um pouco antes de desistir
+            long agora = System.nanoTime();
+            if (limite == 0) {
+                limite = agora + esperaMaxNanos;
+            } else if (agora >= limite || !ativo) {
+                long total = descartadas.incrementAndGet();
+                if (total == 1 || total % 1000 == 0) {
+                    logger.warning("Fila de auditoria cheia: " + total + " entrada(s) descartada(s)");
+                }
+                return;
+            }
+            LockSupport.unpark(escritor);
+            LockSupport.parkNanos(TimeUnit.MICROSECONDS.toNanos(200));
+        }
+        fila.add(entrada);
+        if ((n + 1) % tamanhoLote == 0) {
+            LockSupport.unpark(escritor);
+        }
+    }
+
+    public int getPendentes() {
+        return tamanho.get();
+    }
+
+    public long getGravadas() {
+        return gravadas.get();
+    }
+
+    public long getDescartadas() {
+        return descartadas.get();
+    }
+
+    // ========== ESCRITOR ==========
+
+    private void executar() {
+        long intervalo = TimeUnit.MILLISECONDS.toNanos(flushMs);
+        while (ativo) {
+            LockSupport.parkNanos(this, intervalo);
+            while (ativo && temPendentes()) {
+                if (!gravarLote()) {
+                    LockSupport.parkNanos(this, intervalo); // banco fora: tenta de novo no próximo ciclo
+                    break;
+                }
+            }
+        }
+    }
+
+    private boolean temPendentes() {
+        return !loteEmVoo.isEmpty() || !fila.isEmpty();
+    }
+
+    /**
+     * Grava até tamanhoLote entradas numa transação; em caso de erro o lote fica para a próxima tentativa
+     */
+    private boolean gravarLote() {
+        if (loteEmVoo.isEmpty()) {
+            Entrada e;
+            while (loteEmVoo.size() < tamanhoLote && (e = fila.poll()) != null) {
+                loteEmVoo.add(e);
+            }
+            tamanho.addAndGet(-loteEmVoo.size());
+        }
+        if (loteEmVoo.isEmpty()) return true;
+
+        List<Object[]> linhas = new ArrayList<>(loteEmVoo.size());
+        for (Entrada e : loteEmVoo) {
+            linhas.add(new Object[]{e.operacao, e.entidade, e.entidadeId, e.descricao, terminal, Timestamp.valueOf(e.em)});
+        }
+        try {
+            executeBatch(SQL_INSERT, linhas);
+        } catch (RuntimeException ex) {
+            logger.log(Level.WARNING, "Falha ao gravar auditoria (" + loteEmVoo.size() + " entradas, nova tentativa depois)", ex);
+            return false;
+        }
+        gravadas.addAndGet(loteEmVoo.size());
+        loteEmVoo = new ArrayList<>();
+        return true;
+    }
+
+    private static final class Entrada {
+        final String operacao;
+        final String entidade;
+        final Long entidadeId;
+        final String descricao;
+        final LocalDateTime em;
+
+        Entrada(String operacao, String entidade, Long entidadeId, String descricao, LocalDateTime em) {
+            this.operacao = operacao;
+            this.entidade = entidade;
+            this.entidadeId = entidadeId;
+            this.descricao = descricao != null && descricao.length() > MAX_DESCRICAO
+                ? descricao.substring(0, MAX_DESCRICAO) : descricao;
+            this.em = em;
+        }
+    }
+}
@@ -0,0 +1,76 @@
+package br.com.fotocastro.infra;
+
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Operações de banco do backup: cópia online (BACKUP TO), contagens de conferência
+ * e a consulta-sonda usada para medir a latência do caixa durante a cópia.
+ */
+public class BackupDaoH2 extends DAOBase {
+
+    // Tabelas conferidas após restaurar um backup
+    static final List<String> TABELAS_CONFERIDAS = List.of(
+        "venda", "fechamento_caixa", "estoque", "stock_movements", "venda_descricao_dia", "venda_heatmap");
+
+    /**
+     * Cópia consistente do banco em uso para um zip (H2 BACKUP TO).
+     * Roda com o banco aberto: as vendas continuam sendo gravadas durante a cópia.
+     */
+    public void backupPara(Path destino) {
+        try (Connection conn = getConnection();
+             var ps = conn.prepareStatement("BACKUP TO ?")) {
+            ps.setString(1, destino.toAbsolutePath().toString());
+            ps.execute();
+        } catch (SQLException e) {
+            logger.severe("Erro no BACKUP TO " + destino + ": " + e.getMessage());
+            throw new DAOException("Erro ao gerar backup", e);
+        }
+    }
+
+    /**
+     * Mesma leitura que o caixa faz ao registrar (vendas do dia por índice de data); devolve a duração em ms
+     */
+    public double sondarLatencia() {
+        long inicio = System.nanoTime();
+        executeScalar("SELECT COUNT(*) FROM venda WHERE data_hora >= ?", Long.class,
+            Timestamp.valueOf(LocalDate.now().atStartOfDay()));
+        return (System.nanoTime() - inicio) / 1e6;
+    }
+
+    /**
+     * Abre um banco restaurado (fora do pool) e conta as linhas das tabelas principais
+     * e a última migração aplicada. Falha se o arquivo estiver corrompido ou incompleto.
+     * @param arquivoBase caminho do banco sem a extensão .mv.db
+     */
+    public static Map<String, Long> conferir(Path arquivoBase) {
+        String url = "jdbc:h2:file:" + arquivoBase.toAbsolutePath() + ";IFEXISTS=TRUE;ACCESS_MODE_DATA=r";
+        Map<String, Long> contagens = new LinkedHashMap<>();
+        try (Connection conn = DriverManager.getConnection(url, "sa", "");
+             Statement st = conn.createStatement()) {
+            for (String tabela : TABELAS_CONFERIDAS) {
+                try (ResultSet rs = st.executeQuery("SELECT COUNT(*) FROM " + tabela)) {
+                    rs.next();
+                    contagens.put(tabela, rs.getLong(1));
+                }
+            }
+            try (ResultSet rs = st.executeQuery(
+                    "SELECT MAX(\"installed_rank\") FROM \"flyway_schema_history\" WHERE \"success\"")) {
+                rs.next();
+                contagens.put("migracoes", rs.getLong(1));
+            }
+        } catch (SQLException e) {
+            throw new DAOException("Backup não pôde ser aberto: " + e.getMessage(), e);
+        }
+        return contagens;
+    }
+}
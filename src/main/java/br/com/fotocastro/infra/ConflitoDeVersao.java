@@ -0,0 +1,31 @@
+package br.com.fotocastro.infra;
+
+/**
+ * Gravação recusada porque o registro mudou (em outro terminal) desde que foi lido.
+ * A tela decide entre recarregar e descartar a edição ou reaplicá-la sobre a versão atual.
+ */
+public class ConflitoDeVersao extends DAOBase.DAOException {
+
+    private final String tabela;
+    private final Long id;
+    private final int versaoLida;
+
+    public ConflitoDeVersao(String tabela, Long id, int versaoLida) {
+        super("Registro " + id + " de " + tabela + " foi alterado por outro terminal (versão lida: " + versaoLida + ")");
+        this.tabela = tabela;
+        this.id = id;
+        this.versaoLida = versaoLida;
+    }
+
+    public String getTabela() {
+        return tabela;
+    }
+
+    public Long getId() {
+        return id;
+    }
+
+    public int getVersaoLida() {
+        return versaoLida;
+    }
+}
@@ -152,6 +152,147 @@ public abstract class DAOBase {
         return getDefaultValue(type);
     }
     
+    /**
+     * Percorre o resultado linha a linha sem montar lista (cargas grandes).
+     * O ResultSet só é válido durante a chamada do handler.
+     */
+    protected void executeForEach(String sql, RowHandler handler, Object... params) {
+        try (Connection conn = getConnection();
+             PreparedStatement ps = conn.prepareStatement(sql)) {
+            
+            ps.setFetchSize(1000);
+            setParameters(ps, params);
+            
+            try (ResultSet rs = ps.executeQuery()) {
+                while (rs.next()) {
+                    handler.handle(rs);
+                }
+            }
+            
+        } catch (SQLException e) {
+            logger.log(Level.SEVERE, "Erro ao percorrer query: " + sql, e);
+            throw new DAOException("Erro ao executar consulta", e);
+        }
+    }
+    
+    /**
+     * Executa um bloco dentro de uma única transação.
+     * Commit ao final; rollback se o bloco lançar exceção.
+     */
+    protected <T> T executeInTransaction(TransactionCallback<T> callback) {
+        try (Connection conn = getConnection()) {
+            boolean autoCommit = conn.getAutoCommit();
+            conn.setAutoCommit(false);
+            try {
+                T result = callback.execute(conn);
+                conn.commit();
+                return result;
+            } catch (SQLException | RuntimeException e) {
+                conn.rollback();
+                throw e;
+            } finally {
+                conn.setAutoCommit(autoCommit);
+            }
+        } catch (SQLException e) {
+            logger.log(Level.SEVERE, "Erro ao executar transação", e);
+            throw new DAOException("Erro ao executar transação", e);
+        }
+    }
+
+    /**
+     * Query de lista na conexão informada (uso dentro de transação)
+     */
+    protected <T> List<T> executeQuery(Connection conn, String sql, RowMapper<T> mapper, Object... params) throws SQLException {
+        List<T> result = new ArrayList<>();
+        try (PreparedStatement ps = conn.prepareStatement(sql)) {
+            setParameters(ps, params);
+            try (ResultSet rs = ps.executeQuery()) {
+                while (rs.next()) {
+                    result.add(mapper.map(rs));
+                }
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Percorre o resultado linha a linha na conexão informada (uso dentro de transação)
+     */
+    protected void executeForEach(Connection conn, String sql, RowHandler handler, Object... params) throws SQLException {
+        try (PreparedStatement ps = conn.prepareStatement(sql)) {
+            ps.setFetchSize(1000);
+            setParameters(ps, params);
+            try (ResultSet rs = ps.executeQuery()) {
+                while (rs.next()) {
+                    handler.handle(rs);
+                }
+            }
+        }
+    }
+
+    /**
+     * Query de um único objeto na conexão informada (uso dentro de transação)
+     */
+    protected <T> Optional<T> executeQuerySingle(Connection conn, String sql, RowMapper<T> mapper, Object... params) throws SQLException {
+        try (PreparedStatement ps = conn.prepareStatement(sql)) {
+            setParameters(ps, params);
+            try (ResultSet rs = ps.executeQuery()) {
+                return rs.next() ? Optional.of(mapper.map(rs)) : Optional.empty();
+            }
+        }
+    }
+
+    /**
+     * UPDATE/INSERT/DELETE na conexão informada (uso dentro de transação)
+     */
+    protected int executeUpdate(Connection conn, String sql, Object... params) throws SQLException {
+        try (PreparedStatement ps = conn.prepareStatement(sql)) {
+            setParameters(ps, params);
+            return ps.executeUpdate();
+        }
+    }
+
+    /**
+     * INSERT na conexão informada, retornando a chave gerada (uso dentro de transação)
+     */
+    protected Long executeInsert(Connection conn, String sql, Object... params) throws SQLException {
+        try (PreparedStatement ps = conn.prepareStatement(sql, PreparedStatement.RETURN_GENERATED_KEYS)) {
+            setParameters(ps, params);
+            ps.executeUpdate();
+            try (ResultSet rs = ps.getGeneratedKeys()) {
+                if (rs.next()) {
+                    return rs.getLong(1);
+                }
+                throw new DAOException("INSERT falhou, nenhum ID gerado");
+            }
+        }
+    }
+
+    /**
+     * Executa o mesmo comando para várias linhas via JDBC batch, na conexão informada
+     * @return número de linhas afetadas por comando
+     */
+    protected int[] executeBatch(Connection conn, String sql, List<Object[]> linhas) throws SQLException {
+        if (linhas.isEmpty()) {
+            return new int[0];
+        }
+
+        try (PreparedStatement ps = conn.prepareStatement(sql)) {
+            for (Object[] params : linhas) {
+                setParameters(ps, params);
+                ps.addBatch();
+            }
+            return ps.executeBatch();
+        }
+    }
+
+    /**
+     * Executa o mesmo comando para várias linhas via JDBC batch, numa transação própria
+     */
+    protected int[] executeBatch(String sql, List<Object[]> linhas) {
+        return executeInTransaction(conn -> executeBatch(conn, sql, linhas));
+    }
+
     /**
      * Define os parâmetros no PreparedStatement
      */
@@ -189,6 +330,22 @@ public abstract class DAOBase {
         T map(ResultSet rs) throws SQLException;
     }
     
+    /**
+     * Interface funcional para consumir uma linha do ResultSet
+     */
+    @FunctionalInterface
+    protected interface RowHandler {
+        void handle(ResultSet rs) throws SQLException;
+    }
+    
+    /**
+     * Interface funcional para blocos executados em transação
+     */
+    @FunctionalInterface
+    protected interface TransactionCallback<T> {
+        T execute(Connection conn) throws SQLException;
+    }
+    
     /**
      * Exception customizada para erros de DAO
      */
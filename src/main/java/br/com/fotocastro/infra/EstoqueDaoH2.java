@@ -1,18 +1,33 @@
 package br.com.fotocastro.infra;
 
+import br.com.fotocastro.config.AppProperties;
 import br.com.fotocastro.model.ItemEstoque;
+import br.com.fotocastro.model.MovimentoEstoque;
+import br.com.fotocastro.model.Venda;
 
+import java.sql.Connection;
 import java.sql.ResultSet;
 import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
 import java.util.Optional;
+import java.util.TreeSet;
 
 /**
  * DAO para gerenciamento de estoque.
  * Versão refatorada usando DAOBase e connection pool.
+ * Toda mudança de quantidade/custo grava um movimento em stock_movements na mesma transação.
  */
 public class EstoqueDaoH2 extends DAOBase {
 
+    private static final int SNAPSHOT_INTERVALO = AppProperties.getInt("estoque.snapshotIntervalo", 50);
+
     /**
      * Lista todos os itens de estoque ordenados
      */
@@ -30,20 +45,83 @@ public class EstoqueDaoH2 extends DAOBase {
     }
 
     /**
-     * Adiciona um novo item ao estoque
+     * Adiciona um novo item ao estoque (saldo inicial entra no ledger)
      */
     public Long adicionar(ItemEstoque item) {
         validateItem(item);
         
         String sql = "INSERT INTO estoque (nome, cor, tamanho, quantidade, custo_total) VALUES (?, ?, ?, ?, ?)";
         
-        return executeInsert(sql,
-            item.getNome(),
-            item.getCor(),
-            item.getTamanho(),
-            item.getQuantidade(),
-            item.getCustoTotal()
-        );
+        double custoTotal = Math.round(item.getCustoTotal() * 100) / 100.0;
+        
+        Long novoId = executeInTransaction(conn -> {
+            Long id = executeInsert(conn, sql,
+                item.getNome(),
+                item.getCor(),
+                item.getTamanho(),
+                item.getQuantidade(),
+                custoTotal
+            );
+            if (item.getQuantidade() != 0 || custoTotal != 0) {
+                inserirMovimento(conn, id, MovimentoEstoque.Tipo.ADJUST,
+                    item.getQuantidade(), custoTotal, "Cadastro", null);
+            }
+            return id;
+        });
+        Auditoria.registrar("ITEM_ADICIONADO", "estoque", novoId,
+            String.format("%s (Qtd: %d, Custo: R$ %.2f)", item.getNome(), item.getQuantidade(), custoTotal));
+        return novoId;
+    }
+
+    /**
+     * Importação em lote numa única transação: itens com mesmo nome/cor/tamanho
+     * já cadastrados recebem entrada (quantidade e custo somados); os demais são criados.
+     * Tudo passa pelo ledger com o motivo informado.
+     * @return itens criados (com ID preenchido)
+     */
+    public List<ItemEstoque> importarLote(List<ItemEstoque> itens, String motivo) {
+        for (ItemEstoque item : itens) {
+            validateItem(item);
+        }
+        
+        List<ItemEstoque> novos = executeInTransaction(conn -> {
+            Map<String, Long> existentes = new HashMap<>();
+            for (ItemEstoque e : executeQuery(conn, "SELECT * FROM estoque", this::mapToItemEstoque)) {
+                existentes.put(chaveImportacao(e), e.getId());
+            }
+            
+            List<ItemEstoque> criados = new ArrayList<>();
+            for (ItemEstoque item : itens) {
+                double custoTotal = Math.round(item.getCustoTotal() * 100) / 100.0;
+                Long id = existentes.get(chaveImportacao(item));
+                
+                if (id != null) {
+                    ItemEstoque atual = bloquear(conn, id);
+                    registrarMovimento(conn, atual,
+                        atual.getQuantidade() + item.getQuantidade(),
+                        atual.getCustoTotal() + custoTotal,
+                        MovimentoEstoque.Tipo.IN, motivo, null);
+                } else {
+                    id = executeInsert(conn, "INSERT INTO estoque (nome, cor, tamanho, quantidade, custo_total) VALUES (?, ?, ?, ?, ?)",
+                        item.getNome(), item.getCor(), item.getTamanho(), item.getQuantidade(), custoTotal);
+                    if (item.getQuantidade() != 0 || custoTotal != 0) {
+                        inserirMovimento(conn, id, MovimentoEstoque.Tipo.ADJUST, item.getQuantidade(), custoTotal, motivo, null);
+                    }
+                    item.setId(id);
+                    existentes.put(chaveImportacao(item), id);
+                    criados.add(item);
+                }
+            }
+            return criados;
+        });
+        Auditoria.registrar("ESTOQUE_IMPORTADO", "estoque", null,
+            String.format("%d linha(s), %d item(ns) novo(s) (%s)", itens.size(), novos.size(), motivo));
+        return novos;
+    }
+    
+    private static String chaveImportacao(ItemEstoque item) {
+        return (item.getNome().trim() + "|" + Objects.toString(item.getCor(), "").trim() + "|"
+            + Objects.toString(item.getTamanho(), "").trim()).toLowerCase();
     }
 
     /**
@@ -56,24 +134,38 @@ public class EstoqueDaoH2 extends DAOBase {
             throw new IllegalArgumentException("ID do item não pode ser nulo");
         }
         
-        String sql = "UPDATE estoque SET nome = ?, cor = ?, tamanho = ? WHERE id = ?";
+        // Versão cobre só o cadastro: entradas e baixas de quantidade não conflitam com a edição
+        String sql = "UPDATE estoque SET nome = ?, cor = ?, tamanho = ?, versao = versao + 1 WHERE id = ? AND versao = ?";
         
         int affected = executeUpdate(sql,
             item.getNome(),
             item.getCor(),
             item.getTamanho(),
-            item.getId()
+            item.getId(),
+            item.getVersao()
         );
         
         if (affected == 0) {
+            if (buscarPorId(item.getId()).isPresent()) {
+                throw new ConflitoDeVersao("estoque", item.getId(), item.getVersao());
+            }
             throw new DAOException("Item não encontrado para atualização: " + item.getId());
         }
+        item.setVersao(item.getVersao() + 1);
+        Auditoria.registrar("ITEM_ALTERADO", "estoque", item.getId(), item.getNome());
     }
 
     /**
-     * Atualiza quantidade e custo total diretamente
+     * Atualiza quantidade e custo total diretamente (ajuste manual)
      */
     public void atualizarQuantidadeECusto(Long id, int quantidade, double custoTotal) {
+        atualizarQuantidadeECusto(id, quantidade, custoTotal, "Ajuste manual");
+    }
+
+    /**
+     * Atualiza quantidade e custo total, registrando o ajuste no ledger com o motivo informado
+     */
+    public void atualizarQuantidadeECusto(Long id, int quantidade, double custoTotal, String motivo) {
         if (id == null) {
             throw new IllegalArgumentException("ID não pode ser nulo");
         }
@@ -86,13 +178,18 @@ public class EstoqueDaoH2 extends DAOBase {
             throw new IllegalArgumentException("Custo total não pode ser negativo");
         }
         
-        String sql = "UPDATE estoque SET quantidade = ?, custo_total = ? WHERE id = ?";
-        
-        int affected = executeUpdate(sql, quantidade, custoTotal, id);
-        
-        if (affected == 0) {
-            throw new DAOException("Item não encontrado: " + id);
-        }
+        ItemEstoque antes = executeInTransaction(conn -> {
+            ItemEstoque atual = bloquear(conn, id);
+            ItemEstoque a = new ItemEstoque(atual.getNome(), atual.getCor(), atual.getTamanho(),
+                atual.getQuantidade(), atual.getCustoTotal());
+            if (atual.getQuantidade() != quantidade || atual.getCustoTotal() != custoTotal) {
+                registrarMovimento(conn, atual, quantidade, custoTotal, MovimentoEstoque.Tipo.ADJUST, motivo, null);
+            }
+            return a;
+        });
+        Auditoria.registrar("AJUSTE_ESTOQUE", "estoque", id,
+            String.format("%s: Qtd %d -> %d, Custo R$ %.2f -> R$ %.2f (%s)", antes.getNome(),
+                antes.getQuantidade(), quantidade, antes.getCustoTotal(), custoTotal, motivo));
     }
 
     /**
@@ -111,13 +208,16 @@ public class EstoqueDaoH2 extends DAOBase {
             throw new IllegalArgumentException("Custo total não pode ser negativo");
         }
         
-        String sql = "UPDATE estoque SET quantidade = quantidade + ?, custo_total = custo_total + ? WHERE id = ?";
-        
-        int affected = executeUpdate(sql, quantidade, custoTotalLote, id);
-        
-        if (affected == 0) {
-            throw new DAOException("Item não encontrado: " + id);
-        }
+        String nome = executeInTransaction(conn -> {
+            ItemEstoque atual = bloquear(conn, id);
+            registrarMovimento(conn, atual,
+                atual.getQuantidade() + quantidade,
+                atual.getCustoTotal() + custoTotalLote,
+                MovimentoEstoque.Tipo.IN, "Entrada de lote", null);
+            return atual.getNome();
+        });
+        Auditoria.registrar("ENTRADA_ESTOQUE", "estoque", id,
+            String.format("%s +%d (R$ %.2f)", nome, quantidade, custoTotalLote));
         
         logger.info(String.format("Entrada de lote: ID=%d, Qtd=%d, Custo=%.2f", id, quantidade, custoTotalLote));
     }
@@ -126,6 +226,13 @@ public class EstoqueDaoH2 extends DAOBase {
      * Saída/consumo: reduz quantidade e custo proporcional
      */
     public void saidaConsumo(Long id, int quantidade) {
+        saidaConsumo(id, quantidade, null);
+    }
+
+    /**
+     * Saída/consumo vinculada a uma venda (ref_sale_id no ledger)
+     */
+    public void saidaConsumo(Long id, int quantidade, Long refVendaId) {
         if (id == null) {
             throw new IllegalArgumentException("ID não pode ser nulo");
         }
@@ -134,14 +241,22 @@ public class EstoqueDaoH2 extends DAOBase {
             throw new IllegalArgumentException("Quantidade deve ser maior que zero");
         }
         
-        // Busca item atual
-        Optional<ItemEstoque> opt = buscarPorId(id);
-        if (opt.isEmpty()) {
-            throw new DAOException("Item não encontrado: " + id);
-        }
-        
-        ItemEstoque item = opt.get();
+        ItemEstoque depois = executeInTransaction(conn -> {
+            ItemEstoque item = bloquear(conn, id);
+            saidaConsumo(conn, item, quantidade, refVendaId);
+            return item;
+        });
+        double custoUnitario = depois.getCustoUnitario();
+        Auditoria.registrar("SAIDA_ESTOQUE", "estoque", id, String.format("%s -%d (%s)", depois.getNome(), quantidade,
+            refVendaId != null ? "venda " + refVendaId : "consumo"));
         
+        logger.info(String.format("Saída de estoque: ID=%d, Qtd=%d, Custo Unit=%.2f", id, quantidade, custoUnitario));
+    }
+
+    /**
+     * Saída sobre um item já bloqueado, dentro da transação do chamador
+     */
+    void saidaConsumo(Connection conn, ItemEstoque item, int quantidade, Long refVendaId) throws SQLException {
         if (quantidade > item.getQuantidade()) {
             throw new IllegalArgumentException(
                 String.format("Quantidade insuficiente em estoque. Disponível: %d, Solicitado: %d",
@@ -149,32 +264,257 @@ public class EstoqueDaoH2 extends DAOBase {
             );
         }
         
-        // Calcula novo custo proporcional
-        double custoUnitario = item.getCustoUnitario();
+        registrarMovimento(conn, item, item.getQuantidade() - quantidade, custoAposSaida(item, quantidade),
+            MovimentoEstoque.Tipo.OUT, refVendaId != null ? "Venda" : "Consumo", refVendaId);
+    }
+
+    /**
+     * Custo total restante após a saída: reduz pelo custo unitário médio (zera se esgotar)
+     */
+    private double custoAposSaida(ItemEstoque item, int quantidade) {
         int novaQuantidade = item.getQuantidade() - quantidade;
-        double novoCusto = Math.max(0.0, item.getCustoTotal() - (custoUnitario * quantidade));
+        double novoCusto = novaQuantidade == 0 ? 0.0 : Math.max(0.0, item.getCustoTotal() - (item.getCustoUnitario() * quantidade));
+        return Math.round(novoCusto * 100) / 100.0;
+    }
+
+    // ========== CONSUMO POR COMPOSIÇÃO (BOM) ==========
+
+    /**
+     * Grava a venda e baixa todos os componentes numa única transação.
+     * Se algum componente faltar, nada é gravado.
+     * @param consumo estoque_id -> quantidade total a baixar
+     * @return ID da venda
+     */
+    public Long registrarVendaComConsumo(Venda venda, Map<Long, Integer> consumo) {
+        VendaDaoH2 vendaDao = new VendaDaoH2();
         
-        String sql = "UPDATE estoque SET quantidade = ?, custo_total = ? WHERE id = ?";
-        executeUpdate(sql, novaQuantidade, novoCusto, id);
+        Long vendaId = executeInTransaction(conn -> {
+            Long id = vendaDao.inserir(conn, venda);
+            consumirComponentes(conn, consumo, id);
+            return id;
+        });
         
-        logger.info(String.format("Saída de estoque: ID=%d, Qtd=%d, Custo Unit=%.2f", id, quantidade, custoUnitario));
+        Auditoria.registrar("VENDA_REGISTRADA", "venda", vendaId,
+            VendaDaoH2.descreverVenda(venda) + " com baixa de " + consumo.size() + " componente(s)");
+        VendaDaoH2.notificarInseridas(List.of(venda));
+        logger.info(String.format("Venda %d com baixa de %d componente(s)", vendaId, consumo.size()));
+        return vendaId;
+    }
+
+    /**
+     * Valida todos os componentes com uma única consulta (lock das linhas em ordem de ID)
+     * e aplica as baixas e os movimentos do ledger em lote.
+     */
+    void consumirComponentes(Connection conn, Map<Long, Integer> consumo, Long refVendaId) throws SQLException {
+        consumirComponentes(conn, consumo, refVendaId, "Venda");
+    }
+
+    /**
+     * Idem, com o motivo gravado no ledger (ex.: "Pedido 12" para o consumo somado de um carrinho)
+     */
+    void consumirComponentes(Connection conn, Map<Long, Integer> consumo, Long refVendaId, String motivo) throws SQLException {
+        if (consumo.isEmpty()) {
+            return;
+        }
+        
+        List<Long> ids = new ArrayList<>(new TreeSet<>(consumo.keySet()));
+        String marcadores = String.join(", ", Collections.nCopies(ids.size(), "?"));
+        
+        Map<Long, ItemEstoque> itens = new HashMap<>();
+        for (ItemEstoque item : executeQuery(conn,
+                "SELECT * FROM estoque WHERE id IN (" + marcadores + ") ORDER BY id FOR UPDATE",
+                this::mapToItemEstoque, ids.toArray())) {
+            itens.put(item.getId(), item);
+        }
+        
+        // Reúne todas as faltas numa mensagem só
+        List<String> faltas = new ArrayList<>();
+        for (Long id : ids) {
+            ItemEstoque item = itens.get(id);
+            int necessario = consumo.get(id);
+            if (item == null) {
+                faltas.add(String.format("Item %d não encontrado", id));
+            } else if (necessario > item.getQuantidade()) {
+                faltas.add(String.format("%s: necessário %d, disponível %d",
+                    item.getNome(), necessario, item.getQuantidade()));
+            }
+        }
+        if (!faltas.isEmpty()) {
+            throw new IllegalArgumentException("Estoque insuficiente:\n" + String.join("\n", faltas));
+        }
+        
+        List<Object[]> saldos = new ArrayList<>(ids.size());
+        List<Object[]> movimentos = new ArrayList<>(ids.size());
+        for (Long id : ids) {
+            ItemEstoque item = itens.get(id);
+            int quantidade = consumo.get(id);
+            double novoCusto = custoAposSaida(item, quantidade);
+            double custoDelta = novoCusto - item.getCustoTotal();
+            
+            saldos.add(new Object[]{ item.getQuantidade() - quantidade, novoCusto, id });
+            movimentos.add(new Object[]{ id, MovimentoEstoque.Tipo.OUT.name(), -quantidade,
+                Math.abs(custoDelta / quantidade), custoDelta, motivo, refVendaId });
+        }
+        
+        executeBatch(conn, "UPDATE estoque SET quantidade = ?, custo_total = ? WHERE id = ?", saldos);
+        executeBatch(conn, """
+            INSERT INTO stock_movements (estoque_id, mtype, quantity, unit_cost, total_cost, reason, ref_sale_id)
+            VALUES (?, ?, ?, ?, ?, ?, ?)
+            """, movimentos);
+        
+        snapshotsEmLote(conn, ids, marcadores);
+    }
+
+    /**
+     * Versão em lote de talvezSnapshot: uma consulta agrupada encontra os itens que passaram do intervalo
+     */
+    private void snapshotsEmLote(Connection conn, List<Long> ids, String marcadores) throws SQLException {
+        List<long[]> pendentes = executeQuery(conn,
+            "SELECT m.estoque_id, MAX(m.id) FROM stock_movements m " +
+            "WHERE m.estoque_id IN (" + marcadores + ") " +
+            "AND m.id > COALESCE((SELECT MAX(s.ultimo_movimento_id) FROM estoque_snapshot s WHERE s.estoque_id = m.estoque_id), 0) " +
+            "GROUP BY m.estoque_id HAVING COUNT(*) >= " + SNAPSHOT_INTERVALO,
+            rs -> new long[]{ rs.getLong(1), rs.getLong(2) }, ids.toArray());
+        
+        List<Object[]> linhas = new ArrayList<>();
+        for (long[] p : pendentes) {
+            linhas.add(new Object[]{ p[1], p[0] });
+        }
+        executeBatch(conn, """
+            INSERT INTO estoque_snapshot (estoque_id, ultimo_movimento_id, quantidade, custo_total, ate)
+            SELECT e.id, m.id, e.quantidade, e.custo_total, m.created_at
+            FROM estoque e INNER JOIN stock_movements m ON m.id = ?
+            WHERE e.id = ?
+            """, linhas);
+    }
+
+    // ========== LEDGER ==========
+
+    /**
+     * Lê o item com lock de linha (SELECT ... FOR UPDATE) dentro da transação
+     */
+    ItemEstoque bloquear(Connection conn, Long id) throws SQLException {
+        return executeQuerySingle(conn, "SELECT * FROM estoque WHERE id = ? FOR UPDATE", this::mapToItemEstoque, id)
+            .orElseThrow(() -> new DAOException("Item não encontrado: " + id));
+    }
+
+    /**
+     * Grava o novo saldo do item e o movimento correspondente (delta) no ledger.
+     * O objeto item é atualizado para refletir o novo saldo.
+     */
+    private void registrarMovimento(Connection conn, ItemEstoque item, int novaQuantidade, double novoCusto,
+                                    MovimentoEstoque.Tipo tipo, String motivo, Long refVendaId) throws SQLException {
+        // custo_total é DECIMAL(10,2): arredonda antes para o delta bater com o saldo gravado
+        novoCusto = Math.round(novoCusto * 100) / 100.0;
+        executeUpdate(conn, "UPDATE estoque SET quantidade = ?, custo_total = ? WHERE id = ?",
+            novaQuantidade, novoCusto, item.getId());
+        
+        inserirMovimento(conn, item.getId(), tipo,
+            novaQuantidade - item.getQuantidade(), novoCusto - item.getCustoTotal(), motivo, refVendaId);
+        
+        item.setQuantidade(novaQuantidade);
+        item.setCustoTotal(novoCusto);
+    }
+
+    private void inserirMovimento(Connection conn, Long estoqueId, MovimentoEstoque.Tipo tipo, int qtdDelta,
+                                  double custoDelta, String motivo, Long refVendaId) throws SQLException {
+        String sql = """
+            INSERT INTO stock_movements (estoque_id, mtype, quantity, unit_cost, total_cost, reason, ref_sale_id)
+            VALUES (?, ?, ?, ?, ?, ?, ?)
+            """;
+        double custoUnitario = qtdDelta != 0 ? Math.abs(custoDelta / qtdDelta) : 0.0;
+        
+        Long movimentoId = executeInsert(conn, sql,
+            estoqueId, tipo.name(), qtdDelta, custoUnitario, custoDelta, motivo, refVendaId);
+        
+        talvezSnapshot(conn, estoqueId, movimentoId);
     }
 
     /**
-     * Remove um item do estoque
+     * Tira um snapshot do item a cada SNAPSHOT_INTERVALO movimentos,
+     * limitando a varredura de deltas na reconstrução histórica
+     */
+    private void talvezSnapshot(Connection conn, Long estoqueId, Long movimentoId) throws SQLException {
+        long ultimo = executeQuerySingle(conn,
+            "SELECT COALESCE(MAX(ultimo_movimento_id), 0) FROM estoque_snapshot WHERE estoque_id = ?",
+            rs -> rs.getLong(1), estoqueId).orElse(0L);
+        
+        long desde = executeQuerySingle(conn,
+            "SELECT COUNT(*) FROM stock_movements WHERE estoque_id = ? AND id > ?",
+            rs -> rs.getLong(1), estoqueId, ultimo).orElse(0L);
+        
+        if (desde >= SNAPSHOT_INTERVALO) {
+            executeUpdate(conn, """
+                INSERT INTO estoque_snapshot (estoque_id, ultimo_movimento_id, quantidade, custo_total, ate)
+                SELECT e.id, m.id, e.quantidade, e.custo_total, m.created_at
+                FROM estoque e INNER JOIN stock_movements m ON m.id = ?
+                WHERE e.id = ?
+                """, movimentoId, estoqueId);
+        }
+    }
+
+    /**
+     * Reconstrói quantidade e custo do item num instante passado:
+     * último snapshot até o instante + soma dos movimentos posteriores a ele
+     */
+    public Optional<ItemEstoque> posicaoEm(Long id, LocalDateTime instante) {
+        Optional<ItemEstoque> opt = buscarPorId(id);
+        if (opt.isEmpty()) {
+            return opt;
+        }
+        
+        Timestamp ts = Timestamp.valueOf(instante);
+        
+        Object[] base = executeQuerySingle("""
+            SELECT ultimo_movimento_id, quantidade, custo_total FROM estoque_snapshot
+            WHERE estoque_id = ? AND ate <= ?
+            ORDER BY ate DESC, id DESC LIMIT 1
+            """,
+            rs -> new Object[]{ rs.getLong(1), rs.getInt(2), rs.getDouble(3) }, id, ts)
+            .orElse(new Object[]{ 0L, 0, 0.0 });
+        
+        Object[] delta = executeQuerySingle("""
+            SELECT COALESCE(SUM(quantity), 0), COALESCE(SUM(total_cost), 0) FROM stock_movements
+            WHERE estoque_id = ? AND id > ? AND created_at <= ?
+            """,
+            rs -> new Object[]{ rs.getInt(1), rs.getDouble(2) }, id, base[0], ts)
+            .orElse(new Object[]{ 0, 0.0 });
+        
+        ItemEstoque item = opt.get();
+        item.setQuantidade((int) base[1] + (int) delta[0]);
+        item.setCustoTotal(Math.max(0.0, Math.round(((double) base[2] + (double) delta[1]) * 100) / 100.0));
+        return Optional.of(item);
+    }
+
+    /**
+     * Lista os movimentos do item, mais recentes primeiro
+     */
+    public List<MovimentoEstoque> listarMovimentos(Long id, int limite) {
+        String sql = "SELECT * FROM stock_movements WHERE estoque_id = ? ORDER BY id DESC LIMIT ?";
+        return executeQuery(sql, this::mapToMovimento, id, limite);
+    }
+
+    /**
+     * Remove um item do estoque. O saldo restante sai do ledger como um ADJUST de
+     * fechamento na mesma transação; os movimentos anteriores são mantidos.
      */
     public void remover(Long id) {
         if (id == null) {
             throw new IllegalArgumentException("ID não pode ser nulo");
         }
         
-        String sql = "DELETE FROM estoque WHERE id = ?";
+        ItemEstoque item = executeInTransaction(conn -> {
+            ItemEstoque atual = executeQuerySingle(conn, "SELECT * FROM estoque WHERE id = ? FOR UPDATE",
+                    this::mapToItemEstoque, id)
+                .orElseThrow(() -> new DAOException("Item não encontrado para remoção: " + id));
+            inserirMovimento(conn, id, MovimentoEstoque.Tipo.ADJUST,
+                -atual.getQuantidade(), -atual.getCustoTotal(), "Item removido: " + atual.getNome(), null);
+            executeUpdate(conn, "DELETE FROM estoque WHERE id = ?", id);
+            return atual;
+        });
         
-        int affected = executeUpdate(sql, id);
-        
-        if (affected == 0) {
-            throw new DAOException("Item não encontrado para remoção: " + id);
-        }
+        Auditoria.registrar("ITEM_REMOVIDO", "estoque", id,
+            String.format("%s (Qtd: %d)", item.getNome(), item.getQuantidade()));
         
         logger.info("Item removido do estoque: ID=" + id);
     }
@@ -214,13 +554,33 @@ public class EstoqueDaoH2 extends DAOBase {
         item.setTamanho(rs.getString("tamanho"));
         item.setQuantidade(rs.getInt("quantidade"));
         item.setCustoTotal(rs.getDouble("custo_total"));
+        item.setVersao(rs.getInt("versao"));
         return item;
     }
 
+    /**
+     * Mapeia ResultSet para MovimentoEstoque
+     */
+    private MovimentoEstoque mapToMovimento(ResultSet rs) throws SQLException {
+        MovimentoEstoque m = new MovimentoEstoque();
+        m.setId(rs.getLong("id"));
+        m.setEstoqueId(rs.getLong("estoque_id"));
+        m.setTipo(MovimentoEstoque.Tipo.valueOf(rs.getString("mtype")));
+        m.setQuantidade(rs.getInt("quantity"));
+        m.setCustoUnitario(rs.getDouble("unit_cost"));
+        m.setCustoTotal(rs.getDouble("total_cost"));
+        m.setMotivo(rs.getString("reason"));
+        long ref = rs.getLong("ref_sale_id");
+        m.setRefVendaId(rs.wasNull() ? null : ref);
+        Timestamp ts = rs.getTimestamp("created_at");
+        m.setCriadoEm(ts != null ? ts.toLocalDateTime() : null);
+        return m;
+    }
+
     /**
      * Valida campos obrigatórios do item
      */
-    private void validateItem(ItemEstoque item) {
+    public void validateItem(ItemEstoque item) {
         if (item == null) {
             throw new IllegalArgumentException("Item não pode ser nulo");
         }
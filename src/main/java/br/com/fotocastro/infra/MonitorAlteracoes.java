@@ -0,0 +1,285 @@
+package br.com.fotocastro.infra;
+
+import br.com.fotocastro.config.AppProperties;
+import br.com.fotocastro.config.ModoTerminal;
+import br.com.fotocastro.model.Venda;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.logging.Level;
+
+/**
+ * Acompanha a tabela alteracao (V14) e repassa o que os outros terminais gravaram.
+ *
+ * Uma única consulta por intervalo (seq > último visto, pela chave primária) substitui
+ * o polling de cada tela. Vendas de outros terminais chegam aos {@link VendaListener}
+ * como se tivessem sido gravadas aqui, então caches e índices se atualizam
+ * incrementalmente; as demais tabelas são avisadas aos ouvintes.
+ *
+ * Um seq pode aparecer depois de outros maiores (transação que commitou mais tarde):
+ * o cursor só avança sobre seqs contíguos e uma lacuna é abandonada depois de
+ * terminal.esperaLacunaMs (seq de transação desfeita).
+ */
+public class MonitorAlteracoes extends DAOBase {
+
+    private static MonitorAlteracoes instance;
+
+    private final String terminal = ModoTerminal.nome();
+    private final long intervaloMs;
+    private final long esperaLacunaMs;
+    private final int tamanhoLote;
+    private final int retencaoHoras;
+    private final boolean limpaAntigas;
+    private final VendaDaoH2 vendaDao = new VendaDaoH2();
+    private final List<Consumer<List<Alteracao>>> ouvintes = new CopyOnWriteArrayList<>();
+
+    // Só acessados pela thread do monitor
+    private long cursor;
+    private final TreeSet<Long> vistos = new TreeSet<>();
+    private long lacunaDesde;
+    private long proximaLimpeza;
+
+    private ScheduledExecutorService executor;
+
+    private MonitorAlteracoes() {
+        this.intervaloMs = AppProperties.getLong("terminal.monitorMs", 500);
+        this.esperaLacunaMs = AppProperties.getLong("terminal.esperaLacunaMs", 5000);
+        this.tamanhoLote = AppProperties.getInt("terminal.tamanhoLote", 2000);
+        this.retencaoHoras = AppProperties.getInt("terminal.retencaoHoras", 24);
+        this.limpaAntigas = ModoTerminal.atual() == ModoTerminal.SERVIDOR;
+    }
+
+    public static synchronized MonitorAlteracoes getInstance() {
+        if (instance == null) {
+            instance = new MonitorAlteracoes();
+        }
+        return instance;
+    }
+
+    /**
+     * Para o monitor se ele chegou a ser iniciado (seguro chamar mais de uma vez)
+     */
+    public static synchronized void encerrar() {
+        if (instance != null) {
+            instance.parar();
+        }
+    }
+
+    /**
+     * Chamado na thread do monitor com as alterações de outros terminais, em ordem de seq
+     */
+    public void adicionarOuvinte(Consumer<List<Alteracao>> ouvinte) {
+        ouvintes.add(ouvinte);
+    }
+
+    public void removerOuvinte(Consumer<List<Alteracao>> ouvinte) {
+        ouvintes.remove(ouvinte);
+    }
+
+    // ========== CICLO DE VIDA ==========
+
+    /**
+     * Começa a partir da última alteração existente: os caches acabaram de ser carregados do banco
+     */
+    public synchronized void iniciar() {
+        if (executor != null) return;
+
+        cursor = executeScalar("SELECT COALESCE(MAX(seq), 0) FROM alteracao", Long.class);
+        executor = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "monitor-alteracoes");
+            t.setDaemon(true);
+            return t;
+        });
+        executor.scheduleWithFixedDelay(this::verificar, intervaloMs, intervaloMs, TimeUnit.MILLISECONDS);
+        logger.info("Monitor de alterações ativo: terminal " + terminal + ", a partir do seq " + cursor);
+    }
+
+    public synchronized void parar() {
+        if (executor == null) return;
+        executor.shutdownNow();
+        executor = null;
+    }
+
+    // ========== VERIFICAÇÃO ==========
+
+    private void verificar() {
+        try {
+            List<Alteracao> lidas = executeQuery(
+                "SELECT * FROM alteracao WHERE seq > ? ORDER BY seq FETCH FIRST ? ROWS ONLY",
+                this::mapToAlteracao, cursor, tamanhoLote);
+
+            List<Alteracao> externas = new ArrayList<>();
+            for (Alteracao a : lidas) {
+                if (vistos.add(a.seq) && !terminal.equals(a.terminal)) {
+                    externas.add(a);
+                }
+            }
+            avancarCursor();
+
+            if (!externas.isEmpty()) {
+                repassarVendas(externas);
+                for (Consumer<List<Alteracao>> o : ouvintes) {
+                    try {
+                        o.accept(externas);
+                    } catch (RuntimeException e) {
+                        logger.log(Level.WARNING, "Erro em ouvinte de alterações", e);
+                    }
+                }
+            }
+
+            if (limpaAntigas && System.currentTimeMillis() >= proximaLimpeza) {
+                // Não apaga o que a sincronização entre filiais (V16) ainda não exportou
+                executeUpdate("""
+                    DELETE FROM alteracao WHERE em < ?
+                      AND seq <= COALESCE((SELECT ultimo_seq FROM filial_exportacao WHERE id = 1), 9223372036854775807)
+                    """, LocalDateTime.now().minusHours(retencaoHoras));
+                proximaLimpeza = System.currentTimeMillis() + TimeUnit.HOURS.toMillis(1);
+            }
+        } catch (RuntimeException e) {
+            // Servidor fora do ar ou rede instável: tenta de novo no próximo ciclo
+            logger.log(Level.WARNING, "Falha ao ler alterações de outros terminais", e);
+        }
+    }
+
+    private void avancarCursor() {
+        while (true) {
+            while (!vistos.isEmpty() && vistos.first() == cursor + 1) {
+                vistos.pollFirst();
+                cursor++;
+            }
+            if (vistos.isEmpty()) {
+                lacunaDesde = 0;
+                return;
+            }
+            long agora = System.currentTimeMillis();
+            if (lacunaDesde == 0) {
+                lacunaDesde = agora;
+                return;
+            }
+            if (agora - lacunaDesde < esperaLacunaMs) return;
+            // Seq que nunca vai aparecer: pula até o próximo visto
+            cursor = vistos.first() - 1;
+            lacunaDesde = 0;
+        }
+    }
+
+    /**
+     * Vendas: busca as linhas atuais de inserções/edições numa consulta e avisa os listeners na ordem das alterações
+     */
+    private void repassarVendas(List<Alteracao> alteracoes) {
+        Set<Long> ids = new HashSet<>();
+        boolean arquivoMudou = false;
+        for (Alteracao a : alteracoes) {
+            if (a.isVenda() && !a.operacao.equals("D")) ids.add(a.registroId);
+            if (a.tabela.equals("venda_arquivo") || a.tabela.equals("venda_arquivo_corte")) arquivoMudou = true;
+        }
+        if (arquivoMudou) VendaDaoH2.invalidarCacheArquivo();
+        if (ids.isEmpty() && alteracoes.stream().noneMatch(Alteracao::isVenda)) return;
+
+        Map<Long, Venda> atuais = new HashMap<>();
+        for (Venda v : vendaDao.listarPorIds(ids)) atuais.put(v.getId(), v);
+
+        List<Venda> inseridas = new ArrayList<>();
+        Set<Long> ignoradas = new HashSet<>(); // já entram pelo estado atual (inseridas aqui ou já apagadas)
+        for (Alteracao a : alteracoes) {
+            if (!a.isVenda()) continue;
+            Venda atual = atuais.get(a.registroId);
+            switch (a.operacao) {
+                case "I" -> {
+                    ignoradas.add(a.registroId);
+                    if (atual != null) inseridas.add(atual);
+                }
+                case "U" -> {
+                    if (atual != null && !ignoradas.contains(a.registroId)) {
+                        VendaDaoH2.notificarInseridas(drenar(inseridas));
+                        VendaDaoH2.notificarAtualizada(a.anterior(), atual);
+                    }
+                }
+                case "D" -> {
+                    if (!ignoradas.contains(a.registroId)) {
+                        VendaDaoH2.notificarInseridas(drenar(inseridas));
+                        VendaDaoH2.notificarRemovidas(List.of(a.anterior()));
+                    }
+                }
+                default -> { }
+            }
+        }
+        VendaDaoH2.notificarInseridas(inseridas);
+    }
+
+    private static List<Venda> drenar(List<Venda> lista) {
+        List<Venda> copia = List.copyOf(lista);
+        lista.clear();
+        return copia;
+    }
+
+    private Alteracao mapToAlteracao(ResultSet rs) throws SQLException {
+        long registro = rs.getLong("registro_id");
+        Long registroId = rs.wasNull() ? null : registro;
+        Timestamp dataAnterior = rs.getTimestamp("data_hora_anterior");
+        return new Alteracao(rs.getLong("seq"), rs.getString("tabela"), rs.getString("operacao"),
+            registroId, rs.getString("terminal"),
+            rs.getString("descricao_anterior"), dataAnterior != null ? dataAnterior.toLocalDateTime() : null);
+    }
+
+    // ========== MODELO ==========
+
+    /**
+     * Uma linha da tabela alteracao: operacao é I, U ou D
+     */
+    public static final class Alteracao {
+        private final long seq;
+        private final String tabela;
+        private final String operacao;
+        private final Long registroId;
+        private final String terminal;
+        private final String descricaoAnterior;
+        private final LocalDateTime dataHoraAnterior;
+
+        Alteracao(long seq, String tabela, String operacao, Long registroId, String terminal,
+                  String descricaoAnterior, LocalDateTime dataHoraAnterior) {
+            this.seq = seq;
+            this.tabela = tabela;
+            this.operacao = operacao;
+            this.registroId = registroId;
+            this.terminal = terminal;
+            this.descricaoAnterior = descricaoAnterior;
+            this.dataHoraAnterior = dataHoraAnterior;
+        }
+
+        public long getSeq() { return seq; }
+        public String getTabela() { return tabela; }
+        public String getOperacao() { return operacao; }
+        public Long getRegistroId() { return registroId; }
+        public String getTerminal() { return terminal; }
+
+        boolean isVenda() {
+            return tabela.equals("venda") || tabela.equals("venda_arquivo");
+        }
+
+        /**
+         * Venda como estava antes (só ID, descrição e data): o que os listeners usam para desfazer contagens
+         */
+        Venda anterior() {
+            Venda v = new Venda();
+            v.setId(registroId);
+            v.setDescricao(descricaoAnterior);
+            v.setDataHora(dataHoraAnterior);
+            return v;
+        }
+    }
+}
@@ -0,0 +1,99 @@
+package br.com.fotocastro.infra;
+
+import br.com.fotocastro.model.Pagamento;
+import br.com.fotocastro.model.Pedido;
+import br.com.fotocastro.model.PaymentMethod;
+import br.com.fotocastro.model.Venda;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Pedidos do carrinho nas tabelas sales, sale_items e payments (V1/V17).
+ * Cabeçalho, itens, pagamentos, linhas de venda e baixas de estoque vão numa única transação.
+ */
+public class PedidoDaoH2 extends DAOBase {
+
+    private static final int MAX_NOME = 120;
+
+    private final VendaDaoH2 vendaDao;
+    private final EstoqueDaoH2 estoqueDao;
+
+    public PedidoDaoH2() {
+        this.vendaDao = new VendaDaoH2();
+        this.estoqueDao = new EstoqueDaoH2();
+    }
+
+    // Construtor para injeção de dependência (testes)
+    public PedidoDaoH2(VendaDaoH2 vendaDao, EstoqueDaoH2 estoqueDao) {
+        this.vendaDao = vendaDao;
+        this.estoqueDao = estoqueDao;
+    }
+
+    /**
+     * Grava o pedido inteiro ou nada: se algum componente faltar no estoque, nenhuma linha fica.
+     * @param vendas uma linha de venda por item, na ordem de {@link Pedido#getItens()}
+     * @param consumo estoque_id -> quantidade total de todos os itens
+     * @return ID do pedido (sales.id)
+     * @throws IllegalArgumentException se algum componente não tiver saldo (lista todos)
+     */
+    public Long registrar(Pedido pedido, List<Venda> vendas, Map<Long, Integer> consumo) {
+        if (pedido.getDataHora() == null) {
+            pedido.setDataHora(LocalDateTime.now());
+        }
+
+        Long pedidoId = executeInTransaction(conn -> {
+            Long id = executeInsert(conn,
+                "INSERT INTO sales (created_at, total_gross, discount, total_net) VALUES (?, ?, 0, ?)",
+                Timestamp.valueOf(pedido.getDataHora()), pedido.getTotalBruto(), pedido.getTotalLiquido());
+
+            List<Object[]> itens = new ArrayList<>(pedido.getItens().size());
+            for (Pedido.Item item : pedido.getItens()) {
+                String nome = item.getTemplate().getDescricaoCompleta();
+                if (nome.length() > MAX_NOME) nome = nome.substring(0, MAX_NOME);
+                itens.add(new Object[]{ id, nome, item.getQuantidade(), item.getPrecoUnitario(), item.getTotal(),
+                    item.getTemplate().getId() });
+            }
+            executeBatch(conn, """
+                INSERT INTO sale_items (sale_id, name_snap, qty, unit_price, total_price, template_id)
+                VALUES (?, ?, ?, ?, ?, ?)
+                """, itens);
+
+            List<Object[]> pagamentos = new ArrayList<>(pedido.getPagamentos().size());
+            for (Pagamento p : pedido.getPagamentos()) {
+                pagamentos.add(new Object[]{ id, codigoPagamento(p.getMetodo()), p.getValor(), p.getTaxa(),
+                    Timestamp.valueOf(pedido.getDataHora()) });
+            }
+            executeBatch(conn, "INSERT INTO payments (sale_id, method, amount, taxa, data_hora) VALUES (?, ?, ?, ?, ?)",
+                pagamentos);
+
+            for (Venda v : vendas) {
+                v.setPedidoId(id);
+                v.setDataHora(pedido.getDataHora());
+            }
+            vendaDao.inserirLote(conn, vendas);
+            estoqueDao.consumirComponentes(conn, consumo, vendas.get(0).getId(), "Pedido " + id);
+            return id;
+        });
+
+        pedido.setId(pedidoId);
+        VendaDaoH2.notificarInseridas(vendas);
+        logger.info(String.format("Pedido %d: %d item(ns), %d pagamento(s), baixa de %d componente(s)",
+            pedidoId, vendas.size(), pedido.getPagamentos().size(), consumo.size()));
+        return pedidoId;
+    }
+
+    /**
+     * Código de payments.method (CHECK de V1); o caixa não separa débito de crédito
+     */
+    static String codigoPagamento(PaymentMethod metodo) {
+        return switch (metodo) {
+            case DINHEIRO -> "CASH";
+            case CARTAO -> "CREDIT";
+            case PIX -> "PIX";
+        };
+    }
+}
@@ -0,0 +1,252 @@
+package br.com.fotocastro.infra;
+
+import java.sql.Connection;
+import java.sql.Date;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Operações de banco da sincronização entre filiais (V16).
+ * Lê da tabela alteracao quais registros mudaram, busca o estado atual só desses registros
+ * e aplica os lotes das outras filiais nas tabelas filial_*.
+ */
+public class ReplicacaoDaoH2 extends DAOBase {
+
+    /**
+     * Tabelas replicadas e colunas copiadas (a primeira é sempre o id).
+     * venda inclui venda_arquivo: o arquivamento não gera alteração e a réplica não separa as duas.
+     */
+    public static final Map<String, List<String>> COLUNAS = new LinkedHashMap<>();
+    static {
+        COLUNAS.put("venda", List.of("id", "data_hora", "descricao", "valor_bruto", "metodo", "taxa", "valor_liq", "observacao"));
+        COLUNAS.put("estoque", List.of("id", "nome", "cor", "tamanho", "quantidade", "custo_total"));
+        COLUNAS.put("fechamento_caixa", List.of("id", "data", "bruto", "taxas", "liquido", "dinheiro", "cartao", "pix",
+            "valor_contado", "diferenca", "observacao", "fechado_em"));
+        COLUNAS.put("sale_templates", List.of("id", "name", "price", "size", "icon", "tag", "active"));
+    }
+
+    private static final Map<String, String> REPLICA = Map.of(
+        "venda", "filial_venda",
+        "estoque", "filial_estoque",
+        "fechamento_caixa", "filial_fechamento",
+        "sale_templates", "filial_template");
+
+    // IDs por consulta ao buscar o estado atual dos registros alterados
+    private static final int IDS_POR_CONSULTA = 5000;
+
+    // ========== EXPORTAÇÃO ==========
+
+    /**
+     * Último seq exportado, ou null se esta filial nunca exportou (próximo lote é completo)
+     */
+    public Long getSeqExportado() {
+        return executeQuerySingle("SELECT ultimo_seq FROM filial_exportacao WHERE id = 1", rs -> rs.getLong(1))
+            .orElse(null);
+    }
+
+    public long getUltimoLoteExportado() {
+        return executeScalar("SELECT COALESCE(MAX(ultimo_lote), 0) FROM filial_exportacao", Long.class);
+    }
+
+    public void registrarExportacao(long seq, long lote) {
+        executeUpdate("MERGE INTO filial_exportacao (id, ultimo_seq, ultimo_lote, exportado_em) KEY (id) "
+            + "VALUES (1, ?, ?, CURRENT_TIMESTAMP)", seq, lote);
+    }
+
+    /**
+     * Próximo lote exportado será completo (filial nova ou lotes antigos já apagados da pasta)
+     */
+    public void reiniciarExportacao() {
+        executeUpdate("UPDATE filial_exportacao SET ultimo_seq = -1 WHERE id = 1");
+    }
+
+    /**
+     * Maior seq gravado há mais de {@code margemMs}: transações ainda abertas podem commitar
+     * seqs menores que o último visto, então o lote para antes delas
+     */
+    public long getSeqEstavel(long margemMs) {
+        return executeScalar("SELECT COALESCE(MAX(seq), 0) FROM alteracao WHERE em < ?", Long.class,
+            LocalDateTime.now().minusNanos(margemMs * 1_000_000L));
+    }
+
+    public long getUltimoSeq() {
+        return executeScalar("SELECT COALESCE(MAX(seq), 0) FROM alteracao", Long.class);
+    }
+
+    /**
+     * IDs alterados em (desde, ate], por tabela replicada; cada registro aparece uma vez
+     * mesmo que tenha mudado muitas vezes
+     */
+    public Map<String, Set<Long>> alteradosEntre(long desde, long ate) {
+        Map<String, Set<Long>> ids = new LinkedHashMap<>();
+        for (String tabela : COLUNAS.keySet()) ids.put(tabela, new HashSet<>());
+        executeForEach("""
+            SELECT DISTINCT tabela, registro_id FROM alteracao
+            WHERE seq > ? AND seq <= ? AND registro_id IS NOT NULL
+              AND tabela IN ('venda', 'venda_arquivo', 'estoque', 'fechamento_caixa', 'sale_templates')
+            """, rs -> {
+                String tabela = rs.getString(1);
+                ids.get(tabela.equals("venda_arquivo") ? "venda" : tabela).add(rs.getLong(2));
+            }, desde, ate);
+        return ids;
+    }
+
+    /**
+     * Estado atual dos registros informados, na ordem de {@link #COLUNAS}; IDs que não
+     * aparecem foram apagados
+     */
+    public void paraCadaLinha(String tabela, Collection<Long> ids, LinhaHandler handler) {
+        List<Long> todos = new ArrayList<>(ids);
+        String colunas = String.join(", ", COLUNAS.get(tabela));
+        String sql = tabela.equals("venda")
+            ? "SELECT " + colunas + " FROM venda WHERE id = ANY(?) UNION ALL SELECT " + colunas + " FROM venda_arquivo WHERE id = ANY(?)"
+            : "SELECT " + colunas + " FROM " + tabela + " WHERE id = ANY(?)";
+        for (int i = 0; i < todos.size(); i += IDS_POR_CONSULTA) {
+            Long[] parte = todos.subList(i, Math.min(todos.size(), i + IDS_POR_CONSULTA)).toArray(new Long[0]);
+            Object[] params = tabela.equals("venda") ? new Object[]{parte, parte} : new Object[]{parte};
+            executeForEach(sql, rs -> handler.handle(valores(rs, tabela)), params);
+        }
+    }
+
+    /**
+     * Todas as linhas da tabela (lote completo)
+     */
+    public void paraCadaLinha(String tabela, LinhaHandler handler) {
+        String colunas = String.join(", ", COLUNAS.get(tabela));
+        String sql = tabela.equals("venda")
+            ? "SELECT " + colunas + " FROM venda UNION ALL SELECT " + colunas + " FROM venda_arquivo"
+            : "SELECT " + colunas + " FROM " + tabela;
+        executeForEach(sql, rs -> handler.handle(valores(rs, tabela)));
+    }
+
+    /**
+     * Apaga alterações já exportadas e mais antigas que a retenção do multi-terminal
+     */
+    public int podarAlteracoes(long ateSeq, LocalDateTime antesDe) {
+        return executeUpdate("DELETE FROM alteracao WHERE seq <= ? AND em < ?", ateSeq, antesDe);
+    }
+
+    private static Object[] valores(ResultSet rs, String tabela) throws SQLException {
+        int n = COLUNAS.get(tabela).size();
+        Object[] v = new Object[n];
+        for (int i = 0; i < n; i++) {
+            Object o = rs.getObject(i + 1);
+            if (o instanceof Timestamp ts) o = ts.toLocalDateTime();
+            else if (o instanceof Date d) o = d.toLocalDate();
+            v[i] = o;
+        }
+        return v;
+    }
+
+    // ========== IMPORTAÇÃO ==========
+
+    public long getUltimoLoteImportado(String origem) {
+        return executeScalar("SELECT COALESCE(MAX(ultimo_lote), 0) FROM filial_importacao WHERE origem = ?",
+            Long.class, origem);
+    }
+
+    public void registrarImportacao(String origem, long lote) {
+        executeUpdate("MERGE INTO filial_importacao (origem, ultimo_lote, importado_em) KEY (origem) "
+            + "VALUES (?, ?, CURRENT_TIMESTAMP)", origem, lote);
+    }
+
+    /**
+     * Lote completo: remove tudo o que havia da origem antes de aplicar
+     */
+    public void limparReplica(String origem) {
+        executeInTransaction(conn -> {
+            for (String replica : REPLICA.values()) {
+                executeUpdate(conn, "DELETE FROM " + replica + " WHERE filial = ?", origem);
+            }
+            return null;
+        });
+    }
+
+    /**
+     * Aplica um trecho de lote numa transação (MERGE por filial + id, então reaplicar é seguro)
+     * @param linhas por tabela: valores na ordem de {@link #COLUNAS}
+     * @param removidos por tabela: IDs apagados na origem
+     */
+    public void aplicar(String origem, Map<String, List<Object[]>> linhas, Map<String, List<Long>> removidos) {
+        executeInTransaction(conn -> {
+            for (Map.Entry<String, List<Object[]>> e : linhas.entrySet()) {
+                aplicarLinhas(conn, origem, e.getKey(), e.getValue());
+            }
+            for (Map.Entry<String, List<Long>> e : removidos.entrySet()) {
+                List<Object[]> params = new ArrayList<>(e.getValue().size());
+                for (Long id : e.getValue()) params.add(new Object[]{origem, id});
+                executeBatch(conn, "DELETE FROM " + REPLICA.get(e.getKey()) + " WHERE filial = ? AND id = ?", params);
+            }
+            return null;
+        });
+    }
+
+    private void aplicarLinhas(Connection conn, String origem, String tabela, List<Object[]> linhas) throws SQLException {
+        List<String> colunas = COLUNAS.get(tabela);
+        String sql = "MERGE INTO " + REPLICA.get(tabela) + " (filial, " + String.join(", ", colunas) + ") KEY (filial, id) VALUES (?"
+            + ", ?".repeat(colunas.size()) + ")";
+        List<Object[]> params = new ArrayList<>(linhas.size());
+        for (Object[] v : linhas) {
+            Object[] p = new Object[v.length + 1];
+            p[0] = origem;
+            System.arraycopy(v, 0, p, 1, v.length);
+            params.add(p);
+        }
+        executeBatch(conn, sql, params);
+    }
+
+    // ========== CONSOLIDADO ==========
+
+    /**
+     * Vendas do período por filial: esta (tabela venda + arquivo) e as importadas
+     * @param local nome desta filial no resultado
+     */
+    public List<ResumoFilial> resumoPorFilial(String local, LocalDate inicio, LocalDate fim) {
+        String sql = """
+            SELECT filial, COUNT(*) AS qtd, COALESCE(SUM(valor_bruto), 0) AS bruto, COALESCE(SUM(valor_liq), 0) AS liquido
+            FROM (
+                SELECT CAST(? AS VARCHAR(60)) AS filial, valor_bruto, valor_liq FROM venda WHERE data_hora >= ? AND data_hora < ?
+                UNION ALL
+                SELECT CAST(? AS VARCHAR(60)), valor_bruto, valor_liq FROM venda_arquivo WHERE data_hora >= ? AND data_hora < ?
+                UNION ALL
+                SELECT filial, valor_bruto, valor_liq FROM filial_venda WHERE data_hora >= ? AND data_hora < ?
+            ) v
+            GROUP BY filial
+            ORDER BY filial
+        """;
+        LocalDateTime de = inicio.atStartOfDay();
+        LocalDateTime ate = fim.plusDays(1).atStartOfDay();
+        return executeQuery(sql, rs -> new ResumoFilial(rs.getString("filial"), rs.getLong("qtd"),
+                rs.getDouble("bruto"), rs.getDouble("liquido")),
+            local, de, ate, local, de, ate, de, ate);
+    }
+
+    @FunctionalInterface
+    public interface LinhaHandler {
+        void handle(Object[] valores);
+    }
+
+    public static class ResumoFilial {
+        public final String filial;
+        public final long quantidade;
+        public final double bruto;
+        public final double liquido;
+
+        public ResumoFilial(String filial, long quantidade, double bruto, double liquido) {
+            this.filial = filial;
+            this.quantidade = quantidade;
+            this.bruto = bruto;
+            this.liquido = liquido;
+        }
+    }
+}
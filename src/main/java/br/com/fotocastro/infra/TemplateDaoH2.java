@@ -3,9 +3,13 @@ package br.com.fotocastro.infra;
 import br.com.fotocastro.model.TemplateVenda;
 import br.com.fotocastro.template.TemplateIcon;
 
+import java.sql.Connection;
 import java.sql.ResultSet;
 import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 
 /**
@@ -54,19 +58,28 @@ public class TemplateDaoH2 extends DAOBase {
         String sql = "INSERT INTO sale_templates (name, price, size, icon, tag, estoque_item_id, quantidade_uso, active) " +
                      "VALUES (?, ?, ?, ?, ?, ?, ?, ?)";
         
-        Long id = executeInsert(sql,
-            template.getNome().trim(),
-            template.getPreco(),
-            template.getTamanho(),
-            template.getIcone() != null ? template.getIcone().name() : null,
-            template.getTag(),
-            template.getEstoqueItemId(),
-            template.getQuantidadeUso(),
-            template.isAtivo()
-        );
+        List<TemplateVenda.Componente> componentes = template.getComponentes();
+        sincronizarPrincipal(template, componentes);
+        
+        Long id = executeInTransaction(conn -> {
+            Long novoId = executeInsert(conn, sql,
+                template.getNome().trim(),
+                template.getPreco(),
+                template.getTamanho(),
+                template.getIcone() != null ? template.getIcone().name() : null,
+                template.getTag(),
+                template.getEstoqueItemId(),
+                template.getQuantidadeUso(),
+                template.isAtivo()
+            );
+            salvarComponentes(conn, novoId, componentes);
+            return novoId;
+        });
         
         logger.info(String.format("Template criado: %s - R$ %.2f (ID: %d)", 
             template.getNome(), template.getPreco(), id));
+        Auditoria.registrar("TEMPLATE_CRIADO", "template", id,
+            String.format("%s - R$ %.2f", template.getNome(), template.getPreco()));
         return id;
     }
 
@@ -81,26 +94,42 @@ public class TemplateDaoH2 extends DAOBase {
         }
         
         String sql = "UPDATE sale_templates SET name = ?, price = ?, size = ?, icon = ?, tag = ?, " +
-                     "estoque_item_id = ?, quantidade_uso = ?, active = ?, updated_at = CURRENT_TIMESTAMP " +
-                     "WHERE id = ?";
-        
-        int affected = executeUpdate(sql,
-            template.getNome().trim(),
-            template.getPreco(),
-            template.getTamanho(),
-            template.getIcone() != null ? template.getIcone().name() : null,
-            template.getTag(),
-            template.getEstoqueItemId(),
-            template.getQuantidadeUso(),
-            template.isAtivo(),
-            template.getId()
-        );
+                     "estoque_item_id = ?, quantidade_uso = ?, active = ?, updated_at = CURRENT_TIMESTAMP, " +
+                     "versao = versao + 1 WHERE id = ? AND versao = ?";
+        
+        List<TemplateVenda.Componente> componentes = template.getComponentes();
+        sincronizarPrincipal(template, componentes);
+        
+        int affected = executeInTransaction(conn -> {
+            int n = executeUpdate(conn, sql,
+                template.getNome().trim(),
+                template.getPreco(),
+                template.getTamanho(),
+                template.getIcone() != null ? template.getIcone().name() : null,
+                template.getTag(),
+                template.getEstoqueItemId(),
+                template.getQuantidadeUso(),
+                template.isAtivo(),
+                template.getId(),
+                template.getVersao()
+            );
+            if (n > 0) {
+                salvarComponentes(conn, template.getId(), componentes);
+            }
+            return n;
+        });
         
         if (affected == 0) {
+            if (buscarPorId(template.getId()).isPresent()) {
+                throw new ConflitoDeVersao("sale_templates", template.getId(), template.getVersao());
+            }
             throw new DAOException("Template não encontrado para atualização: " + template.getId());
         }
+        template.setVersao(template.getVersao() + 1);
         
         logger.info("Template atualizado: ID=" + template.getId());
+        Auditoria.registrar("TEMPLATE_ALTERADO", "template", template.getId(),
+            String.format("%s - R$ %.2f%s", template.getNome(), template.getPreco(), template.isAtivo() ? "" : " (inativo)"));
     }
 
     /**
@@ -111,7 +140,8 @@ public class TemplateDaoH2 extends DAOBase {
             throw new IllegalArgumentException("ID não pode ser nulo");
         }
         
-        String sql = "UPDATE sale_templates SET active = FALSE WHERE id = ?";
+        // Incrementa a versão: uma edição aberta em outro terminal não reativa o template
+        String sql = "UPDATE sale_templates SET active = FALSE, versao = versao + 1 WHERE id = ?";
         
         int affected = executeUpdate(sql, id);
         
@@ -120,6 +150,7 @@ public class TemplateDaoH2 extends DAOBase {
         }
         
         logger.info("Template desativado: ID=" + id);
+        Auditoria.registrar("TEMPLATE_DESATIVADO", "template", id, null);
     }
 
     /**
@@ -139,6 +170,7 @@ public class TemplateDaoH2 extends DAOBase {
         }
         
         logger.info("Template removido permanentemente: ID=" + id);
+        Auditoria.registrar("TEMPLATE_REMOVIDO", "template", id, null);
     }
 
     /**
@@ -199,6 +231,61 @@ public class TemplateDaoH2 extends DAOBase {
         return executeQuery(sql, this::mapToTemplateComEstoque);
     }
 
+    // ========== COMPOSIÇÃO (BOM) ==========
+
+    /**
+     * Lista os componentes de estoque do template, com o nome do item, na ordem gravada
+     * (o primeiro é o principal)
+     */
+    public List<TemplateVenda.Componente> listarComponentes(Long templateId) {
+        String sql =
+            "SELECT b.estoque_id, b.quantidade, e.nome " +
+            "FROM sale_template_bom b " +
+            "INNER JOIN estoque e ON e.id = b.estoque_id " +
+            "WHERE b.template_id = ? " +
+            "ORDER BY b.ordem, b.estoque_id";
+        
+        return executeQuery(sql, rs -> {
+            TemplateVenda.Componente c = new TemplateVenda.Componente(rs.getLong("estoque_id"), rs.getInt("quantidade"));
+            c.setNome(rs.getString("nome"));
+            return c;
+        }, templateId);
+    }
+
+    /**
+     * Substitui a BOM do template (mesma transação do cadastro)
+     */
+    private void salvarComponentes(Connection conn, Long templateId, List<TemplateVenda.Componente> componentes) throws SQLException {
+        executeUpdate(conn, "DELETE FROM sale_template_bom WHERE template_id = ?", templateId);
+        
+        // Agrupa itens repetidos somando as quantidades
+        Map<Long, Integer> porItem = new LinkedHashMap<>();
+        for (TemplateVenda.Componente c : componentes) {
+            porItem.merge(c.getEstoqueId(), c.getQuantidade(), Integer::sum);
+        }
+        
+        List<Object[]> linhas = new ArrayList<>();
+        porItem.forEach((estoqueId, qtd) -> linhas.add(new Object[]{ templateId, estoqueId, qtd, linhas.size() }));
+        executeBatch(conn, "INSERT INTO sale_template_bom (template_id, estoque_id, quantidade, ordem) VALUES (?, ?, ?, ?)", linhas);
+    }
+
+    /**
+     * Mantém estoque_item_id/quantidade_uso apontando para o primeiro componente (exibição e compatibilidade)
+     */
+    private void sincronizarPrincipal(TemplateVenda template, List<TemplateVenda.Componente> componentes) {
+        for (TemplateVenda.Componente c : componentes) {
+            if (c.getEstoqueId() == null || c.getQuantidade() < 1) {
+                throw new IllegalArgumentException("Componente de estoque inválido no template " + template.getNome());
+            }
+        }
+        if (componentes.isEmpty()) {
+            template.setEstoqueItemId(null);
+        } else {
+            template.setEstoqueItemId(componentes.get(0).getEstoqueId());
+            template.setQuantidadeUso(componentes.get(0).getQuantidade());
+        }
+    }
+
     // ========== MAPPERS ==========
 
     /**
@@ -237,6 +324,7 @@ public class TemplateDaoH2 extends DAOBase {
         
         t.setQuantidadeUso(rs.getInt("quantidade_uso"));
         t.setAtivo(rs.getBoolean("active"));
+        t.setVersao(rs.getInt("versao"));
         
         return t;
     }
@@ -1,40 +1,225 @@
 package br.com.fotocastro.infra;
 
+import br.com.fotocastro.model.MapaCalorVendas;
 import br.com.fotocastro.model.PaymentMethod;
 import br.com.fotocastro.model.Venda;
 
+import java.sql.Connection;
+import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.sql.Timestamp;
 import java.time.LocalDate;
 import java.time.LocalDateTime;
+import java.time.YearMonth;
 import java.util.*;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+import java.util.logging.Level;
 import java.math.BigDecimal;
 import java.time.format.DateTimeFormatter;
+import java.time.temporal.ChronoUnit;
 /**
  * DAO para gerenciamento de vendas e fechamentos de caixa.
  */
 public class VendaDaoH2 extends DAOBase {
 
+    // Observadores de alterações (índices em memória, caches)
+    private static final List<VendaListener> listeners = new CopyOnWriteArrayList<>();
+
+    private static final String COLUNAS = "id, data_hora, descricao, valor_bruto, metodo, taxa, valor_liq, observacao, versao, sale_id";
+    private static final String TODAS_AS_VENDAS =
+        "(SELECT " + COLUNAS + " FROM venda UNION ALL SELECT " + COLUNAS + " FROM venda_arquivo) v";
+    // Método (PaymentMethod) de uma linha de payments
+    private static final String METODO_DO_PAGAMENTO =
+        "CASE method WHEN 'CASH' THEN 'DINHEIRO' WHEN 'PIX' THEN 'PIX' ELSE 'CARTAO' END";
+
+    // venda_arquivo não tem vendas com data >= corte (carregado sob demanda)
+    private static volatile LocalDate corteArquivo;
+    // Totais do arquivo: bruto, taxas, líquido e líquido das avulsas por método (ordinal); null = recalcular
+    private static volatile double[] totaisArquivo;
+
+    // ========== LISTENERS ==========
+
+    public static void adicionarListener(VendaListener listener) {
+        listeners.add(listener);
+    }
+
+    public static void removerListener(VendaListener listener) {
+        listeners.remove(listener);
+    }
+
+    /**
+     * Avisa os listeners sobre vendas já commitadas (também usado por quem grava via conexão própria)
+     */
+    static void notificarInseridas(List<Venda> vendas) {
+        if (vendas.isEmpty()) return;
+        for (VendaListener l : listeners) {
+            try {
+                l.vendasInseridas(vendas);
+            } catch (RuntimeException e) {
+                logger.log(Level.WARNING, "Erro em listener de vendas", e);
+            }
+        }
+    }
+
+    static void notificarAtualizada(Venda anterior, Venda atual) {
+        for (VendaListener l : listeners) {
+            try {
+                l.vendaAtualizada(anterior, atual);
+            } catch (RuntimeException e) {
+                logger.log(Level.WARNING, "Erro em listener de vendas", e);
+            }
+        }
+    }
+
+    /**
+     * Corte e totais do arquivo mudaram em outro terminal: relê na próxima consulta
+     */
+    static void invalidarCacheArquivo() {
+        corteArquivo = null;
+        totaisArquivo = null;
+    }
+
+    static void notificarRemovidas(List<Venda> vendas) {
+        if (vendas.isEmpty()) return;
+        for (VendaListener l : listeners) {
+            try {
+                l.vendasRemovidas(vendas);
+            } catch (RuntimeException e) {
+                logger.log(Level.WARNING, "Erro em listener de vendas", e);
+            }
+        }
+    }
+
     // ========== VENDAS ==========
 
     public Long inserir(Venda venda) {
+        Long id = executeInTransaction(conn -> inserir(conn, venda));
+        Auditoria.registrar("VENDA_REGISTRADA", "venda", id, descreverVenda(venda));
+        notificarInseridas(List.of(venda));
+        return id;
+    }
+
+    /**
+     * Texto da venda na trilha de auditoria
+     */
+    static String descreverVenda(Venda v) {
+        return String.format("%s - R$ %.2f (%s)", v.getDescricao(), v.getValorBruto(), v.getMetodo());
+    }
+
+    /**
+     * Insere a venda na conexão/transação informada (ex.: junto com a baixa de estoque)
+     */
+    Long inserir(Connection conn, Venda venda) throws SQLException {
         validateVenda(venda);
         
-        String sql = "INSERT INTO venda (data_hora, descricao, valor_bruto, metodo, taxa, valor_liq, observacao) " +
-                     "VALUES (?, ?, ?, ?, ?, ?, ?)";
+        String sql = "INSERT INTO venda (data_hora, descricao, valor_bruto, metodo, taxa, valor_liq, observacao, sale_id) " +
+                     "VALUES (?, ?, ?, ?, ?, ?, ?, ?)";
         
-        LocalDateTime dataHora = venda.getDataHora() != null ? venda.getDataHora() : LocalDateTime.now();
+        if (venda.getDataHora() == null) {
+            venda.setDataHora(LocalDateTime.now());
+        }
         
-        return executeInsert(sql,
-            Timestamp.valueOf(dataHora),
+        Long id = executeInsert(conn, sql,
+            Timestamp.valueOf(venda.getDataHora()),
             venda.getDescricao(),
             venda.getValorBruto(),
             venda.getMetodo().name(),
             venda.getTaxa(),
             venda.getValorLiquido(),
-            null // observacao
+            null, // observacao
+            venda.getPedidoId()
         );
+        venda.setId(id);
+        contarDescricao(conn, venda.getDataHora().toLocalDate(), venda.getDescricao(), 1);
+        acumularHeatmap(conn, venda.getDataHora(), 1, BigDecimal.valueOf(venda.getValorLiquido()));
+        recuarVerificacao(conn, venda.getDataHora().toLocalDate());
+        return id;
+    }
+
+    /**
+     * Insere várias vendas numa única transação (JDBC batch); na auditoria entra um resumo do lote
+     */
+    public void inserirLote(List<Venda> vendas) {
+        executeInTransaction(conn -> {
+            inserirLote(conn, vendas);
+            return null;
+        });
+        if (!vendas.isEmpty()) {
+            Auditoria.registrar("VENDAS_LOTE_INSERIDAS", "venda", null, String.format("%d venda(s) de %s a %s, bruto R$ %.2f",
+                vendas.size(),
+                vendas.stream().map(v -> v.getDataHora().toLocalDate()).min(Comparator.naturalOrder()).get(),
+                vendas.stream().map(v -> v.getDataHora().toLocalDate()).max(Comparator.naturalOrder()).get(),
+                vendas.stream().mapToDouble(Venda::getValorBruto).sum()));
+        }
+        notificarInseridas(vendas);
+    }
+
+    /**
+     * Insere várias vendas via batch na conexão/transação informada
+     */
+    void inserirLote(Connection conn, List<Venda> vendas) throws SQLException {
+        String sql = "INSERT INTO venda (data_hora, descricao, valor_bruto, metodo, taxa, valor_liq, observacao, sale_id) " +
+                     "VALUES (?, ?, ?, ?, ?, ?, ?, ?)";
+
+        if (vendas.isEmpty()) {
+            return;
+        }
+
+        try (PreparedStatement ps = conn.prepareStatement(sql, PreparedStatement.RETURN_GENERATED_KEYS)) {
+            for (Venda venda : vendas) {
+                validateVenda(venda);
+                if (venda.getDataHora() == null) {
+                    venda.setDataHora(LocalDateTime.now());
+                }
+                ps.setTimestamp(1, Timestamp.valueOf(venda.getDataHora()));
+                ps.setString(2, venda.getDescricao());
+                ps.setDouble(3, venda.getValorBruto());
+                ps.setString(4, venda.getMetodo().name());
+                ps.setDouble(5, venda.getTaxa());
+                ps.setDouble(6, venda.getValorLiquido());
+                ps.setString(7, null); // observacao
+                ps.setObject(8, venda.getPedidoId());
+                ps.addBatch();
+            }
+            ps.executeBatch();
+
+            // IDs gerados voltam na ordem do lote
+            try (ResultSet keys = ps.getGeneratedKeys()) {
+                for (Venda venda : vendas) {
+                    if (!keys.next()) break;
+                    venda.setId(keys.getLong(1));
+                }
+            }
+        }
+
+        // Contadores por descrição/dia: uma linha por par distinto do lote
+        Map<Map.Entry<LocalDate, String>, Long> deltas = new LinkedHashMap<>();
+        for (Venda venda : vendas) {
+            deltas.merge(Map.entry(venda.getDataHora().toLocalDate(), venda.getDescricao()), 1L, Long::sum);
+        }
+        List<Object[]> linhas = new ArrayList<>(deltas.size());
+        deltas.forEach((chave, delta) -> linhas.add(new Object[]{chave.getKey(), chave.getValue(), delta}));
+        executeBatch(conn, SQL_CONTAR_DESCRICAO, linhas);
+
+        // Mapa de calor: uma linha por mês/dia da semana/hora do lote
+        Map<List<Object>, BigDecimal[]> celulas = new LinkedHashMap<>();
+        for (Venda venda : vendas) {
+            BigDecimal[] acc = celulas.computeIfAbsent(chaveHeatmap(venda.getDataHora()),
+                k -> new BigDecimal[]{BigDecimal.ZERO, BigDecimal.ZERO});
+            acc[0] = acc[0].add(BigDecimal.ONE);
+            acc[1] = acc[1].add(BigDecimal.valueOf(venda.getValorLiquido()));
+        }
+        List<Object[]> linhasHeatmap = new ArrayList<>(celulas.size());
+        celulas.forEach((k, acc) -> linhasHeatmap.add(new Object[]{k.get(0), k.get(1), k.get(2), acc[0].longValue(), acc[1]}));
+        executeBatch(conn, SQL_HEATMAP, linhasHeatmap);
+
+        recuarVerificacao(conn, vendas.stream().map(v -> v.getDataHora().toLocalDate())
+            .min(Comparator.naturalOrder()).get());
     }
 
     public void atualizar(Venda venda) {
@@ -44,20 +229,46 @@ public class VendaDaoH2 extends DAOBase {
             throw new IllegalArgumentException("ID da venda não pode ser nulo");
         }
         
-        String sql = "UPDATE venda SET descricao = ?, valor_bruto = ?, metodo = ?, taxa = ?, valor_liq = ? WHERE id = ?";
+        Venda anterior = executeInTransaction(conn -> {
+            String tabela = tabelaDaVenda(conn, venda.getId());
+            if (tabela == null) throw new DAOException("Venda não encontrada para atualização: " + venda.getId());
+            Venda a = executeQuerySingle(conn, "SELECT * FROM " + tabela + " WHERE id = ?", this::mapToVenda, venda.getId())
+                .orElseThrow(() -> new DAOException("Venda não encontrada para atualização: " + venda.getId()));
+            
+            // Compare-and-set pela versão lida na tela (sem lock): contadores usam "a", que é a mesma versão
+            int n = a.getVersao() != venda.getVersao() ? 0 : executeUpdate(conn,
+                "UPDATE " + tabela + " SET descricao = ?, valor_bruto = ?, metodo = ?, taxa = ?, valor_liq = ?, versao = versao + 1 " +
+                "WHERE id = ? AND versao = ?",
+                venda.getDescricao(),
+                venda.getValorBruto(),
+                venda.getMetodo().name(),
+                venda.getTaxa(),
+                venda.getValorLiquido(),
+                venda.getId(),
+                venda.getVersao()
+            );
+            if (n == 0) throw new ConflitoDeVersao(tabela, venda.getId(), venda.getVersao());
+            
+            if (!a.getDescricao().equals(venda.getDescricao())) {
+                LocalDate dia = a.getDataHora().toLocalDate();
+                contarDescricao(conn, dia, a.getDescricao(), -1);
+                contarDescricao(conn, dia, venda.getDescricao(), 1);
+            }
+            BigDecimal deltaLiquido = BigDecimal.valueOf(venda.getValorLiquido())
+                .subtract(BigDecimal.valueOf(a.getValorLiquido()));
+            if (deltaLiquido.signum() != 0) {
+                acumularHeatmap(conn, a.getDataHora(), 0, deltaLiquido);
+            }
+            if (tabela.equals("venda_arquivo")) totaisArquivo = null;
+            return a;
+        });
         
-        int affected = executeUpdate(sql,
-            venda.getDescricao(),
-            venda.getValorBruto(),
-            venda.getMetodo().name(),
-            venda.getTaxa(),
-            venda.getValorLiquido(),
-            venda.getId()
-        );
-        
-        if (affected == 0) {
-            throw new DAOException("Venda não encontrada para atualização: " + venda.getId());
+        if (venda.getDataHora() == null) {
+            venda.setDataHora(anterior.getDataHora());
         }
+        venda.setVersao(anterior.getVersao() + 1);
+        Auditoria.registrar("VENDA_ALTERADA", "venda", venda.getId(), descreverVenda(venda));
+        notificarAtualizada(anterior, venda);
     }
 
     public void remover(Long id) {
@@ -65,145 +276,524 @@ public class VendaDaoH2 extends DAOBase {
             throw new IllegalArgumentException("ID não pode ser nulo");
         }
         
-        String sql = "DELETE FROM venda WHERE id = ?";
-        int affected = executeUpdate(sql, id);
+        List<Venda> removidas = executeInTransaction(conn -> {
+            String tabela = tabelaDaVenda(conn, id);
+            if (tabela == null) throw new DAOException("Venda não encontrada para remoção: " + id);
+            Venda a = executeQuerySingle(conn, "SELECT * FROM " + tabela + " WHERE id = ? FOR UPDATE", this::mapToVenda, id)
+                .orElseThrow(() -> new DAOException("Venda não encontrada para remoção: " + id));
+            
+            // Venda de pedido: os pagamentos são do pedido inteiro, então sai o pedido todo
+            List<Venda> linhas = a.getPedidoId() == null ? List.of(a)
+                : executeQuery(conn, "SELECT * FROM " + tabela + " WHERE sale_id = ? ORDER BY id FOR UPDATE",
+                    this::mapToVenda, a.getPedidoId());
+            for (Venda v : linhas) {
+                executeUpdate(conn, "DELETE FROM " + tabela + " WHERE id = ?", v.getId());
+                contarDescricao(conn, v.getDataHora().toLocalDate(), v.getDescricao(), -1);
+                acumularHeatmap(conn, v.getDataHora(), -1, BigDecimal.valueOf(v.getValorLiquido()).negate());
+            }
+            if (a.getPedidoId() != null) {
+                executeUpdate(conn, "DELETE FROM sales WHERE id = ?", a.getPedidoId()); // itens e pagamentos em cascata
+            }
+            if (tabela.equals("venda_arquivo")) totaisArquivo = null;
+            return linhas;
+        });
         
-        if (affected == 0) {
-            throw new DAOException("Venda não encontrada para remoção: " + id);
-        }
+        Auditoria.registrar("VENDA_REMOVIDA", "venda", id, descreverVenda(removidas.get(0))
+            + (removidas.size() > 1 ? " (pedido #" + removidas.get(0).getPedidoId() + ", " + removidas.size() + " itens)" : ""));
+        notificarRemovidas(removidas);
         
-        logger.info("Venda removida: ID=" + id);
+        logger.info("Venda removida: ID=" + id + (removidas.size() > 1 ? " (pedido com " + removidas.size() + " itens)" : ""));
     }
 
     public Optional<Venda> buscarPorId(Long id) {
-        String sql = "SELECT * FROM venda WHERE id = ?";
+        String sql = "SELECT * FROM " + TODAS_AS_VENDAS + " WHERE id = ?";
         return executeQuerySingle(sql, this::mapToVenda, id);
     }
 
+    /**
+     * Vendas com os IDs informados, na tabela quente ou no arquivo (ausentes são ignoradas)
+     */
+    public List<Venda> listarPorIds(Collection<Long> ids) {
+        if (ids.isEmpty()) return List.of();
+        String sql = "SELECT * FROM " + TODAS_AS_VENDAS + " WHERE id = ANY(?)";
+        return executeQuery(sql, this::mapToVenda, (Object) ids.toArray(new Long[0]));
+    }
+
     public List<Venda> listarRecentes(int limit) {
         String sql = "SELECT * FROM venda ORDER BY data_hora DESC LIMIT ?";
-        return executeQuery(sql, this::mapToVenda, limit);
+        List<Venda> r = executeQuery(sql, this::mapToVenda, limit);
+        if (r.size() < limit) {
+            // Tabela quente com poucas vendas: completa com as mais novas do arquivo
+            r = new ArrayList<>(r);
+            r.addAll(executeQuery("SELECT * FROM venda_arquivo ORDER BY data_hora DESC LIMIT ?",
+                this::mapToVenda, limit - r.size()));
+        }
+        return r;
     }
 
     public List<Venda> listarTodas() {
-        String sql = "SELECT * FROM venda ORDER BY data_hora DESC";
+        String sql = "SELECT * FROM " + TODAS_AS_VENDAS + " ORDER BY data_hora DESC";
         return executeQuery(sql, this::mapToVenda);
     }
 
     public List<Venda> listarPorPeriodo(LocalDate inicio, LocalDate fim) {
-        String sql = "SELECT * FROM venda WHERE CAST(data_hora AS DATE) BETWEEN ? AND ? ORDER BY data_hora DESC";
-        return executeQuery(sql, this::mapToVenda, inicio, fim);
+        String sql = "SELECT * FROM " + vendasDesde(inicio) + " WHERE data_hora >= ? AND data_hora < ? ORDER BY data_hora DESC";
+        return executeQuery(sql, this::mapToVenda, inicio.atStartOfDay(), fim.plusDays(1).atStartOfDay());
     }
 
     public List<Venda> listarHoje() {
-        String sql = "SELECT * FROM venda WHERE CAST(data_hora AS DATE) = CURRENT_DATE ORDER BY data_hora DESC";
-        return executeQuery(sql, this::mapToVenda);
+        LocalDate hoje = LocalDate.now();
+        return listarPorPeriodo(hoje, hoje);
     }
 
     // ========== AGREGAÇÕES VENDAS ==========
 
+    // Totais gerais: tabela quente + totais do arquivo (calculados uma vez e guardados)
+
     public double somaBruto() {
         String sql = "SELECT COALESCE(SUM(valor_bruto), 0.0) FROM venda";
         BigDecimal bd = executeScalar(sql, BigDecimal.class);
-        return bd != null ? bd.doubleValue() : 0.0;
+        return (bd != null ? bd.doubleValue() : 0.0) + totaisArquivo()[0];
     }
 
     public double somaTaxas() {
         String sql = "SELECT COALESCE(SUM(taxa), 0.0) FROM venda";
         BigDecimal bd = executeScalar(sql, BigDecimal.class);
-        return bd != null ? bd.doubleValue() : 0.0;
+        return (bd != null ? bd.doubleValue() : 0.0) + totaisArquivo()[1];
     }
 
     public double somaLiquido() {
         String sql = "SELECT COALESCE(SUM(valor_liq), 0.0) FROM venda";
         BigDecimal bd = executeScalar(sql, BigDecimal.class);
-        return bd != null ? bd.doubleValue() : 0.0;
+        return (bd != null ? bd.doubleValue() : 0.0) + totaisArquivo()[2];
     }
 
-    public double somaPorMetodo(PaymentMethod metodo) {
-        String sql = "SELECT COALESCE(SUM(valor_liq), 0.0) FROM venda WHERE metodo = ?";
-        BigDecimal bd = executeScalar(sql, BigDecimal.class, metodo.name());
-        return bd != null ? bd.doubleValue() : 0.0;
+    /**
+     * Líquido geral por método, na divisão de {@link #ramosPorDiaEMetodo}: vendas avulsas pelo
+     * método delas e pedidos pelos pagamentos (um pedido dividido entra em cada método pela sua parte)
+     */
+    public Map<PaymentMethod, Double> somaPorMetodo() {
+        Map<PaymentMethod, Double> r = new EnumMap<>(PaymentMethod.class);
+        double[] arquivo = totaisArquivo();
+        for (PaymentMethod m : PaymentMethod.values()) {
+            r.put(m, arquivo[3 + m.ordinal()]);
+        }
+        String sql = """
+            SELECT metodo, SUM(liquido) AS liquido
+            FROM (
+                SELECT metodo, SUM(valor_liq) AS liquido FROM venda WHERE COALESCE(sale_id, 0) = 0
+                GROUP BY metodo
+                UNION ALL
+                SELECT %s AS metodo, SUM(amount - taxa) AS liquido FROM payments
+                GROUP BY metodo
+            ) t
+            GROUP BY metodo
+            """.formatted(METODO_DO_PAGAMENTO);
+        executeForEach(sql, rs -> r.merge(PaymentMethod.valueOf(rs.getString("metodo")),
+            rs.getDouble("liquido"), Double::sum));
+        return r;
     }
 
+    // Totais de hoje: mesmas consultas por faixa de data_hora dos totais por dia (usam o índice)
+
     public double somaLiquidoHoje() {
-        String sql = "SELECT COALESCE(SUM(valor_liq), 0.0) FROM venda WHERE CAST(data_hora AS DATE) = CURRENT_DATE";
-        BigDecimal bd = executeScalar(sql, BigDecimal.class);
-        return bd != null ? bd.doubleValue() : 0.0;
+        return somaLiquidoPorDia(LocalDate.now());
     }
 
     public int contarVendasHoje() {
-        String sql = "SELECT COUNT(*) FROM venda WHERE CAST(data_hora AS DATE) = CURRENT_DATE";
-        return executeScalar(sql, Integer.class);
+        LocalDate hoje = LocalDate.now();
+        String sql = "SELECT COUNT(*) FROM venda WHERE data_hora >= ? AND data_hora < ?";
+        Long n = executeScalar(sql, Long.class, hoje.atStartOfDay(), hoje.plusDays(1).atStartOfDay());
+        return n != null ? n.intValue() : 0;
     }
 
     public double somaPorPeriodo(LocalDate inicio, LocalDate fim) {
-        String sql = "SELECT COALESCE(SUM(valor_liq), 0.0) FROM venda WHERE CAST(data_hora AS DATE) BETWEEN ? AND ?";
-        BigDecimal bd = executeScalar(sql, BigDecimal.class, inicio, fim);
-        return bd != null ? bd.doubleValue() : 0.0;
-    }
-
-    public double somaPorMetodoHoje(PaymentMethod metodo) {
-        String sql = "SELECT COALESCE(SUM(valor_liq), 0.0) FROM venda WHERE metodo = ? AND CAST(data_hora AS DATE) = CURRENT_DATE";
-        BigDecimal bd = executeScalar(sql, BigDecimal.class, metodo.name());
+        String sql = "SELECT COALESCE(SUM(valor_liq), 0.0) FROM " + vendasDesde(inicio) + " WHERE data_hora >= ? AND data_hora < ?";
+        BigDecimal bd = executeScalar(sql, BigDecimal.class, inicio.atStartOfDay(), fim.plusDays(1).atStartOfDay());
         return bd != null ? bd.doubleValue() : 0.0;
     }
 
     public double somaBrutoPorDia(LocalDate data) {
-        String sql = "SELECT COALESCE(SUM(valor_bruto), 0.0) FROM venda WHERE CAST(data_hora AS DATE) = ?";
-        BigDecimal bd = executeScalar(sql, BigDecimal.class, data);
+        String sql = "SELECT COALESCE(SUM(valor_bruto), 0.0) FROM " + vendasDesde(data) + " WHERE data_hora >= ? AND data_hora < ?";
+        BigDecimal bd = executeScalar(sql, BigDecimal.class, data.atStartOfDay(), data.plusDays(1).atStartOfDay());
         return bd != null ? bd.doubleValue() : 0.0;
     }
 
     public double somaTaxasPorDia(LocalDate data) {
-        String sql = "SELECT COALESCE(SUM(taxa), 0.0) FROM venda WHERE CAST(data_hora AS DATE) = ?";
-        BigDecimal bd = executeScalar(sql, BigDecimal.class, data);
+        String sql = "SELECT COALESCE(SUM(taxa), 0.0) FROM " + vendasDesde(data) + " WHERE data_hora >= ? AND data_hora < ?";
+        BigDecimal bd = executeScalar(sql, BigDecimal.class, data.atStartOfDay(), data.plusDays(1).atStartOfDay());
         return bd != null ? bd.doubleValue() : 0.0;
     }
 
     public double somaLiquidoPorDia(LocalDate data) {
-        String sql = "SELECT COALESCE(SUM(valor_liq), 0.0) FROM venda WHERE CAST(data_hora AS DATE) = ?";
-        BigDecimal bd = executeScalar(sql, BigDecimal.class, data);
+        String sql = "SELECT COALESCE(SUM(valor_liq), 0.0) FROM " + vendasDesde(data) + " WHERE data_hora >= ? AND data_hora < ?";
+        BigDecimal bd = executeScalar(sql, BigDecimal.class, data.atStartOfDay(), data.plusDays(1).atStartOfDay());
         return bd != null ? bd.doubleValue() : 0.0;
     }
 
-    public double somaPorMetodoPorDia(PaymentMethod metodo, LocalDate data) {
-        String sql = "SELECT COALESCE(SUM(valor_liq), 0.0) FROM venda WHERE metodo = ? AND CAST(data_hora AS DATE) = ?";
-        BigDecimal bd = executeScalar(sql, BigDecimal.class, metodo.name(), data);
-        return bd != null ? bd.doubleValue() : 0.0;
+    /**
+     * Totais do dia para o fechamento numa consulta agrupada por método: pagamentos dos pedidos
+     * (podem dividir o valor entre métodos) mais as vendas avulsas, que têm um método só.
+     * As linhas de venda dos pedidos ficam de fora para não contar o valor duas vezes.
+     */
+    public TotaisCaixa totaisDoDia(LocalDate data) {
+        return totaisPorDia(data, data.plusDays(1), false).getOrDefault(data, new TotaisCaixa());
+    }
+
+    public TotaisCaixa totaisDeHoje() {
+        return totaisDoDia(LocalDate.now());
+    }
+
+    /**
+     * Totais recalculados de cada dia de [desde, ate) com vendas, numa única consulta agrupada
+     */
+    public Map<LocalDate, TotaisCaixa> totaisPorDia(LocalDate desde, LocalDate ate) {
+        return totaisPorDia(desde, ate, false);
+    }
+
+    /**
+     * Totais por dia de [desde, ate), agrupados por dia e método numa única consulta
+     * @param soAbertos só dias sem linha em fechamento_caixa
+     */
+    private Map<LocalDate, TotaisCaixa> totaisPorDia(LocalDate desde, LocalDate ate, boolean soAbertos) {
+        List<Object> params = new ArrayList<>();
+        String sql = """
+            SELECT dia, metodo, SUM(bruto) AS bruto, SUM(taxa) AS taxa, SUM(liquido) AS liquido
+            FROM (
+            %s) t
+            %s
+            GROUP BY dia, metodo
+            ORDER BY dia
+            """.formatted(ramosPorDiaEMetodo(desde, ate, params),
+                soAbertos ? "WHERE NOT EXISTS (SELECT 1 FROM fechamento_caixa f WHERE f.data = t.dia)" : "");
+
+        Map<LocalDate, TotaisCaixa> dias = new TreeMap<>();
+        executeForEach(sql, rs -> dias.computeIfAbsent(rs.getDate("dia").toLocalDate(), d -> new TotaisCaixa())
+            .somar(PaymentMethod.valueOf(rs.getString("metodo")),
+                rs.getDouble("bruto"), rs.getDouble("taxa"), rs.getDouble("liquido")), params.toArray());
+        return dias;
+    }
+
+    /**
+     * Resumo (quantidade, bruto, taxas, líquido) de cada dia de [inicio, fim] com vendas;
+     * pedido dividido entre métodos conta uma vez
+     */
+    public Map<LocalDate, Resumo> resumoPorDia(LocalDate inicio, LocalDate fim) {
+        List<Object> params = new ArrayList<>();
+        String sql = """
+            SELECT dia, SUM(pedidos) AS qtd, SUM(bruto) AS bruto, SUM(taxa) AS taxa, SUM(liquido) AS liquido
+            FROM (
+            %s    UNION ALL
+            %s) t
+            GROUP BY dia
+            ORDER BY dia
+            """.formatted(ramosPorDiaEMetodo(inicio, fim.plusDays(1), params), ramoPedidosPorDia(inicio, fim.plusDays(1), params));
+        Map<LocalDate, Resumo> r = new TreeMap<>();
+        executeForEach(sql, rs -> r.put(rs.getDate("dia").toLocalDate(), mapToResumo(rs)), params.toArray());
+        return r;
+    }
+
+    /**
+     * Resumo de [inicio, fim]: total e divisão por método de pagamento
+     */
+    public ResumoMetodos resumoPorMetodo(LocalDate inicio, LocalDate fim) {
+        return resumoPorPeriodos(List.of(new Periodo(inicio, fim))).get(0);
+    }
+
+    /**
+     * Resumo (total e por método) de cada período [inicio, fim], na ordem recebida, numa única consulta:
+     * os ramos por dia e método cobrem só os dias dos períodos (períodos sobrepostos ou colados
+     * viram uma faixa só) e cada dia é somado nos períodos que o contêm (tabela VALUES).
+     */
+    public List<ResumoMetodos> resumoPorPeriodos(List<Periodo> periodos) {
+        List<ResumoMetodos> r = new ArrayList<>(periodos.size());
+        for (int i = 0; i < periodos.size(); i++) r.add(new ResumoMetodos());
+        if (periodos.isEmpty()) return r;
+
+        List<Periodo> ordenados = new ArrayList<>(periodos);
+        ordenados.sort(Comparator.comparing(Periodo::getInicio));
+        List<Object> params = new ArrayList<>();
+        StringJoiner ramos = new StringJoiner("    UNION ALL\n");
+        LocalDate desde = null, ate = null;
+        for (Periodo p : ordenados) {
+            if (desde != null && p.getInicio().isAfter(ate)) {
+                ramos.add(ramosPorDiaEMetodo(desde, ate, params));
+                ramos.add(ramoPedidosPorDia(desde, ate, params));
+                desde = null;
+            }
+            if (desde == null) {
+                desde = p.getInicio();
+                ate = p.getFim().plusDays(1);
+            } else if (p.getFim().plusDays(1).isAfter(ate)) {
+                ate = p.getFim().plusDays(1);
+            }
+        }
+        ramos.add(ramosPorDiaEMetodo(desde, ate, params));
+        ramos.add(ramoPedidosPorDia(desde, ate, params));
+
+        StringJoiner valores = new StringJoiner(", ");
+        for (int i = 0; i < periodos.size(); i++) {
+            valores.add("(" + i + ", CAST(? AS DATE), CAST(? AS DATE))");
+            params.add(periodos.get(i).getInicio());
+            params.add(periodos.get(i).getFim());
+        }
+        String sql = """
+            SELECT p.idx, t.metodo, SUM(t.qtd) AS qtd, SUM(t.pedidos) AS pedidos,
+                   SUM(t.bruto) AS bruto, SUM(t.taxa) AS taxa, SUM(t.liquido) AS liquido
+            FROM (
+            %s) t
+            JOIN (VALUES %s) AS p(idx, inicio, fim) ON t.dia BETWEEN p.inicio AND p.fim
+            GROUP BY p.idx, t.metodo
+            """.formatted(ramos, valores);
+        executeForEach(sql, rs -> {
+            ResumoMetodos resumo = r.get(rs.getInt("idx"));
+            String metodo = rs.getString("metodo");
+            if (metodo != null) resumo.porMetodo.put(PaymentMethod.valueOf(metodo), mapToResumo(rs));
+            resumo.somar(rs.getLong("pedidos"), rs.getDouble("bruto"), rs.getDouble("taxa"), rs.getDouble("liquido"));
+        }, params.toArray());
+        return r;
+    }
+
+    private Resumo mapToResumo(ResultSet rs) throws SQLException {
+        return new Resumo(rs.getLong("qtd"), rs.getDouble("bruto"), rs.getDouble("taxa"), rs.getDouble("liquido"));
+    }
+
+    /**
+     * Vendas avulsas (venda, e venda_arquivo quando a faixa chega nele) e pagamentos dos pedidos de
+     * [desde, ate), cada tabela já agrupada por dia e método no próprio ramo: a consulta de fora só
+     * soma as poucas linhas resultantes (agrupar a união das linhas cruas custa o dobro).
+     * Colunas: dia, metodo, qtd, pedidos, bruto, taxa, liquido. As linhas de venda dos pedidos ficam de fora,
+     * o valor deles vem dos pagamentos (que podem dividir o pedido entre métodos).
+     * qtd conta o pedido dividido uma vez em cada método (divisão por método); pedidos só conta as
+     * avulsas, os pedidos do dia vêm de {@link #ramoPedidosPorDia} (para totais).
+     * Avulsas filtradas por COALESCE(sale_id, 0) = 0 e não por sale_id IS NULL: com IS NULL o H2
+     * escolhe idx_venda_sale, onde quase todas as linhas são nulas, e lê a tabela inteira.
+     * @param params recebe os parâmetros dos ramos, na ordem
+     */
+    private String ramosPorDiaEMetodo(LocalDate desde, LocalDate ate, List<Object> params) {
+        String avulsas = """
+                SELECT CAST(data_hora AS DATE) AS dia, metodo, COUNT(*) AS qtd, COUNT(*) AS pedidos,
+                       SUM(valor_bruto) AS bruto, SUM(taxa) AS taxa, SUM(valor_liq) AS liquido
+                FROM %s WHERE data_hora >= ? AND data_hora < ? AND COALESCE(sale_id, 0) = 0
+                GROUP BY dia, metodo
+            """;
+        LocalDateTime de = desde.atStartOfDay();
+        LocalDateTime fim = ate.atStartOfDay();
+
+        StringBuilder ramos = new StringBuilder(avulsas.formatted("venda"));
+        params.addAll(List.of(de, fim));
+        if (desde.isBefore(getCorteArquivo())) {
+            ramos.append("    UNION ALL\n").append(avulsas.formatted("venda_arquivo"));
+            params.addAll(List.of(de, fim));
+        }
+        ramos.append("""
+                UNION ALL
+                SELECT CAST(data_hora AS DATE) AS dia, %s AS metodo,
+                       COUNT(DISTINCT sale_id), 0, SUM(amount), SUM(taxa), SUM(amount - taxa)
+                FROM payments WHERE data_hora >= ? AND data_hora < ?
+                GROUP BY dia, metodo
+            """.formatted(METODO_DO_PAGAMENTO));
+        params.addAll(List.of(de, fim));
+        return ramos.toString();
+    }
+
+    /**
+     * Pedidos de cada dia de [desde, ate), sem agrupar por método (um pedido dividido conta uma vez),
+     * nas colunas de {@link #ramosPorDiaEMetodo}: metodo nulo e só a coluna pedidos preenchida
+     */
+    private String ramoPedidosPorDia(LocalDate desde, LocalDate ate, List<Object> params) {
+        params.addAll(List.of(desde.atStartOfDay(), ate.atStartOfDay()));
+        return """
+                SELECT CAST(data_hora AS DATE) AS dia, CAST(NULL AS VARCHAR(20)) AS metodo, 0 AS qtd,
+                       COUNT(DISTINCT sale_id) AS pedidos, 0 AS bruto, 0 AS taxa, 0 AS liquido
+                FROM payments WHERE data_hora >= ? AND data_hora < ?
+                GROUP BY dia
+            """;
     }
 
+    /**
+     * Apaga as vendas de hoje (ação manual "Limpar Hoje"); o fechamento de caixa não usa mais isto.
+     * Recusa com o caixa de hoje fechado: o fechamento gravado deixaria de bater com as vendas.
+     */
     public void limparVendasHoje() {
+        if (caixaJaFechado(LocalDate.now())) {
+            throw new DAOException("O caixa de hoje já foi fechado; as vendas não podem ser limpas");
+        }
+        List<Venda> removidas = listeners.isEmpty() ? List.of() : listarHoje();
+        
         String sql = "DELETE FROM venda WHERE CAST(data_hora AS DATE) = CURRENT_DATE";
-        int affected = executeUpdate(sql);
+        int affected = executeInTransaction(conn -> {
+            // Fechamento gravado por outro terminal depois da conferência acima
+            if (executeQuerySingle(conn, "SELECT COUNT(*) FROM fechamento_caixa WHERE data = CURRENT_DATE",
+                    rs -> rs.getLong(1)).orElse(0L) > 0) {
+                throw new DAOException("O caixa de hoje já foi fechado; as vendas não podem ser limpas");
+            }
+            executeUpdate(conn, """
+                MERGE INTO venda_heatmap t
+                USING (SELECT CAST(DATE_TRUNC('MONTH', data_hora) AS DATE) AS mes, ISO_DAY_OF_WEEK(data_hora) AS dia_semana,
+                              HOUR(data_hora) AS hora, COUNT(*) AS qtd, SUM(valor_liq) AS liq
+                       FROM venda WHERE CAST(data_hora AS DATE) = CURRENT_DATE
+                       GROUP BY mes, dia_semana, hora) s
+                ON t.mes = s.mes AND t.dia_semana = s.dia_semana AND t.hora = s.hora
+                WHEN MATCHED THEN UPDATE SET quantidade = t.quantidade - s.qtd, liquido = t.liquido - s.liq
+            """);
+            executeUpdate(conn, "DELETE FROM venda_heatmap WHERE quantidade <= 0");
+            int n = executeUpdate(conn, sql);
+            executeUpdate(conn, "DELETE FROM sales WHERE CAST(created_at AS DATE) = CURRENT_DATE");
+            executeUpdate(conn, "DELETE FROM venda_descricao_dia WHERE dia = CURRENT_DATE");
+            return n;
+        });
         logger.info("Vendas de hoje limpas: " + affected + " registros removidos");
+        Auditoria.registrar("VENDAS_HOJE_LIMPAS", "venda", null, affected + " venda(s) de " + LocalDate.now());
+        
+        notificarRemovidas(removidas);
     }
 
     public double somaBrutoHoje() {
-        String sql = "SELECT COALESCE(SUM(valor_bruto), 0.0) FROM venda WHERE CAST(data_hora AS DATE) = CURRENT_DATE";
-        BigDecimal bd = executeScalar(sql, BigDecimal.class);
-        return bd != null ? bd.doubleValue() : 0.0;
+        return somaBrutoPorDia(LocalDate.now());
     }
 
     public double somaTaxasHoje() {
-        String sql = "SELECT COALESCE(SUM(taxa), 0.0) FROM venda WHERE CAST(data_hora AS DATE) = CURRENT_DATE";
-        BigDecimal bd = executeScalar(sql, BigDecimal.class);
-        return bd != null ? bd.doubleValue() : 0.0;
+        return somaTaxasPorDia(LocalDate.now());
     }
 
     // ========== FECHAMENTOS DE CAIXA ==========
 
+    // A linha em fechamento_caixa é a marca de dia fechado; as vendas do dia continuam em venda.
+    // Dias fechados não reabrem, então cada dia consultado com sucesso fica guardado aqui.
+    private static final Set<LocalDate> diasFechados = ConcurrentHashMap.newKeySet();
+
     public void inserirFechamento(LocalDate data, double bruto, double taxas, double liquido,
                                   double dinheiro, double cartao, double pix) {
         String sql = "INSERT INTO fechamento_caixa (data, bruto, taxas, liquido, dinheiro, cartao, pix) VALUES (?, ?, ?, ?, ?, ?, ?)";
-        executeInsert(sql, data, bruto, taxas, liquido, dinheiro, cartao, pix);
+        Long id = executeInsert(sql, data, bruto, taxas, liquido, dinheiro, cartao, pix);
+        diasFechados.add(data);
+        Auditoria.registrar("CAIXA_FECHADO", "caixa", id, descreverFechamento(data, bruto, liquido));
+    }
+
+    /**
+     * Venda gravada num dia que o fechamento automático já conferiu (importação CSV, journal
+     * drenado depois da virada): a marca volta para esse dia, e a próxima execução fecha o dia
+     * se ele ainda estiver aberto. Venda de hoje não mexe na marca (nem na linha).
+     */
+    private void recuarVerificacao(Connection conn, LocalDate dia) throws SQLException {
+        if (!dia.isBefore(LocalDate.now())) return;
+        executeUpdate(conn, "UPDATE fechamento_verificado SET ate = ? WHERE id = 1 AND ate > ?", dia, dia);
+    }
+
+    /**
+     * Dias anteriores a este já passaram pelo fechamento automático (vazio = nunca rodou)
+     */
+    public Optional<LocalDate> getFechamentoVerificadoAte() {
+        return executeQuerySingle("SELECT ate FROM fechamento_verificado WHERE id = 1",
+            rs -> rs.getDate(1).toLocalDate());
+    }
+
+    /**
+     * Dia da venda mais antiga (tabela quente ou arquivo), pelo índice de data_hora
+     */
+    public Optional<LocalDate> primeiroDiaComVenda() {
+        return executeQuerySingle("""
+            SELECT CAST(MIN(d) AS DATE) FROM (
+                SELECT MIN(data_hora) AS d FROM venda
+                UNION ALL
+                SELECT MIN(data_hora) FROM venda_arquivo
+            ) t
+            HAVING MIN(d) IS NOT NULL
+            """, rs -> rs.getDate(1).toLocalDate());
+    }
+
+    /**
+     * Dias de [desde, antesDe) com vendas e sem fechamento, com os totais de cada um,
+     * numa única consulta agrupada por dia e método
+     */
+    public Map<LocalDate, TotaisCaixa> diasSemFechamento(LocalDate desde, LocalDate antesDe) {
+        if (!desde.isBefore(antesDe)) return Map.of();
+        return totaisPorDia(desde, antesDe, true);
+    }
+
+    /**
+     * Fechamentos automáticos de vários dias numa transação (lote JDBC), junto com a marca de
+     * até onde a verificação foi feita. Dia fechado à mão nesse meio-tempo fica como está.
+     * A marca só avança se nenhuma venda a recuou para antes de {@code conferidoDesde} depois
+     * da leitura dos dias pendentes (a próxima execução confere a partir dela).
+     * @param conferidoDesde primeiro dia conferido nesta execução
+     * @param verificadoAte dias anteriores a este ficam conferidos
+     * @return dias efetivamente fechados
+     */
+    public List<LocalDate> inserirFechamentosAutomaticos(Map<LocalDate, TotaisCaixa> dias, LocalDate conferidoDesde,
+                                                         LocalDate verificadoAte) {
+        List<LocalDate> ordem = new ArrayList<>(dias.keySet());
+        List<Object[]> linhas = new ArrayList<>(ordem.size());
+        for (LocalDate d : ordem) {
+            TotaisCaixa t = dias.get(d);
+            linhas.add(new Object[]{ d, t.bruto, t.taxas, t.liquido, t.dinheiro, t.cartao, t.pix, d });
+        }
+        int[] resultado = executeInTransaction(conn -> {
+            int[] r = executeBatch(conn, """
+                INSERT INTO fechamento_caixa (data, bruto, taxas, liquido, dinheiro, cartao, pix, automatico)
+                SELECT ?, ?, ?, ?, ?, ?, ?, TRUE FROM DUAL
+                WHERE NOT EXISTS (SELECT 1 FROM fechamento_caixa WHERE data = ?)
+                """, linhas);
+            int n = executeUpdate(conn, "UPDATE fechamento_verificado SET ate = ?, verificado_em = CURRENT_TIMESTAMP "
+                + "WHERE id = 1 AND ate >= ?", verificadoAte, conferidoDesde);
+            if (n == 0) {
+                executeUpdate(conn, "INSERT INTO fechamento_verificado (id, ate) SELECT 1, ? FROM DUAL "
+                    + "WHERE NOT EXISTS (SELECT 1 FROM fechamento_verificado WHERE id = 1)", verificadoAte);
+            }
+            return r;
+        });
+
+        List<LocalDate> fechados = new ArrayList<>();
+        for (int i = 0; i < ordem.size(); i++) {
+            LocalDate d = ordem.get(i);
+            diasFechados.add(d);
+            if (resultado[i] > 0) {
+                fechados.add(d);
+                TotaisCaixa t = dias.get(d);
+                Auditoria.registrar("CAIXA_FECHADO_AUTOMATICO", "caixa", null, descreverFechamento(d, t.bruto, t.liquido));
+            }
+        }
+        return fechados;
+    }
+
+    private static String descreverFechamento(LocalDate data, double bruto, double liquido) {
+        return String.format("%s - Bruto R$ %.2f, Líquido R$ %.2f",
+            data.format(DateTimeFormatter.ofPattern("dd/MM/yyyy")), bruto, liquido);
+    }
+
+    /**
+     * Totais gravados nos fechamentos de [desde, ate), como estavam no fechamento
+     */
+    public Map<LocalDate, TotaisCaixa> fechamentosPorDia(LocalDate desde, LocalDate ate) {
+        Map<LocalDate, TotaisCaixa> dias = new TreeMap<>();
+        executeForEach("""
+            SELECT data, bruto, taxas, liquido, dinheiro, cartao, pix
+            FROM fechamento_caixa WHERE data >= ? AND data < ?
+            """, rs -> {
+                TotaisCaixa t = new TotaisCaixa();
+                t.bruto = rs.getDouble("bruto");
+                t.taxas = rs.getDouble("taxas");
+                t.liquido = rs.getDouble("liquido");
+                t.dinheiro = rs.getDouble("dinheiro");
+                t.cartao = rs.getDouble("cartao");
+                t.pix = rs.getDouble("pix");
+                dias.put(rs.getDate("data").toLocalDate(), t);
+            }, desde, ate);
+        return dias;
+    }
+
+    public Optional<LocalDate> primeiroFechamento() {
+        return executeQuerySingle("SELECT data FROM fechamento_caixa ORDER BY data LIMIT 1",
+            rs -> rs.getDate(1).toLocalDate());
     }
 
-    public void inserirFechamentoAutomatico(LocalDate data, double bruto, double taxas, double liquido,
-                                            double dinheiro, double cartao, double pix) {
-        String sql = "INSERT INTO fechamento_caixa (data, bruto, taxas, liquido, dinheiro, cartao, pix, automatico) VALUES (?, ?, ?, ?, ?, ?, ?, TRUE)";
-        executeInsert(sql, data, bruto, taxas, liquido, dinheiro, cartao, pix);
-        logger.info("Fechamento automático inserido para " + data);
+    /**
+     * Primeiro dia em que o fechamento manteve as vendas (V21); fechamentos anteriores não são conferidos
+     */
+    public Optional<LocalDate> getConciliacaoDesde() {
+        return executeQuerySingle("SELECT desde FROM conciliacao_desde WHERE id = 1",
+            rs -> rs.getDate(1).toLocalDate());
     }
 
     public List<FechamentoResumo> listarFechamentos(int limit) {
@@ -226,21 +816,7 @@ public class VendaDaoH2 extends DAOBase {
             LIMIT ?
         """;
 
-        return executeQuery(sql, rs -> {
-            LocalDate data = rs.getDate("data").toLocalDate();
-            Timestamp fechadoEmTs = rs.getTimestamp("fechado_em");
-            LocalDateTime fechadoEm = fechadoEmTs != null ? fechadoEmTs.toLocalDateTime() : null;
-            double bruto = rs.getDouble("bruto");
-            double liquido = rs.getDouble("liquido");
-            double totalPagamentos = rs.getDouble("dinheiro") + rs.getDouble("cartao") + rs.getDouble("pix");
-            double valorContado = rs.getDouble("valor_contado");
-            double diferenca = rs.getDouble("diferenca");
-            String obs = rs.getString("observacao");
-            boolean auto = rs.getBoolean("automatico");
-
-            return new FechamentoResumo(data, fechadoEm, bruto, liquido, totalPagamentos,
-                                        valorContado, diferenca, obs, auto ? "Automático" : "Manual");
-        }, limit);
+        return executeQuery(sql, this::mapToFechamento, limit);
     }
 
     public Optional<FechamentoResumo> buscarFechamentoPorData(LocalDate data) {
@@ -262,31 +838,51 @@ public class VendaDaoH2 extends DAOBase {
             WHERE data = ?
         """;
 
-        return executeQuerySingle(sql, rs -> {
-            // mesmo mapping do listar
-            LocalDate d = rs.getDate("data").toLocalDate();
-            Timestamp ts = rs.getTimestamp("fechado_em");
-            LocalDateTime fe = ts != null ? ts.toLocalDateTime() : null;
-            double b = rs.getDouble("bruto");
-            double l = rs.getDouble("liquido");
-            double tp = rs.getDouble("dinheiro") + rs.getDouble("cartao") + rs.getDouble("pix");
-            double vc = rs.getDouble("valor_contado");
-            double dif = rs.getDouble("diferenca");
-            String o = rs.getString("observacao");
-            boolean a = rs.getBoolean("automatico");
+        return executeQuerySingle(sql, this::mapToFechamento, data);
+    }
 
-            return new FechamentoResumo(d, fe, b, l, tp, vc, dif, o, a ? "Automático" : "Manual");
-        }, data);
+    /**
+     * Entrega os fechamentos do intervalo em ordem de data, um por vez (relatórios grandes)
+     */
+    public void paraCadaFechamento(LocalDate inicio, LocalDate fim, Consumer<FechamentoResumo> consumidor) {
+        String sql = """
+            SELECT data, fechado_em, bruto, taxas, liquido, dinheiro, cartao, pix,
+                   valor_contado, diferenca, observacao, automatico
+            FROM fechamento_caixa
+            WHERE data BETWEEN ? AND ?
+            ORDER BY data
+        """;
+        executeForEach(sql, rs -> consumidor.accept(mapToFechamento(rs)), inicio, fim);
+    }
+
+    public int contarFechamentos(LocalDate inicio, LocalDate fim) {
+        String sql = "SELECT COUNT(*) FROM fechamento_caixa WHERE data BETWEEN ? AND ?";
+        return executeScalar(sql, Long.class, inicio, fim).intValue();
     }
 
     public boolean caixaJaFechado(LocalDate data) {
+        if (diasFechados.contains(data)) return true;
         String sql = "SELECT COUNT(*) FROM fechamento_caixa WHERE data = ?";
         Long count = executeScalar(sql, Long.class, data);
-        return count != null && count > 0;
+        boolean fechado = count != null && count > 0;
+        if (fechado) diasFechados.add(data);
+        return fechado;
     }
 
     // ========== MAPPERS ==========
 
+    private FechamentoResumo mapToFechamento(ResultSet rs) throws SQLException {
+        LocalDate data = rs.getDate("data").toLocalDate();
+        Timestamp fechadoEmTs = rs.getTimestamp("fechado_em");
+        LocalDateTime fechadoEm = fechadoEmTs != null ? fechadoEmTs.toLocalDateTime() : null;
+        double totalPagamentos = rs.getDouble("dinheiro") + rs.getDouble("cartao") + rs.getDouble("pix");
+        boolean auto = rs.getBoolean("automatico");
+
+        return new FechamentoResumo(data, fechadoEm, rs.getDouble("bruto"), rs.getDouble("liquido"), totalPagamentos,
+                                    rs.getDouble("valor_contado"), rs.getDouble("diferenca"), rs.getString("observacao"),
+                                    auto ? "Automático" : "Manual");
+    }
+
     private Venda mapToVenda(ResultSet rs) throws SQLException {
         Venda v = new Venda();
         v.setId(rs.getLong("id"));
@@ -296,22 +892,26 @@ public class VendaDaoH2 extends DAOBase {
         v.setMetodo(PaymentMethod.valueOf(rs.getString("metodo")));
         v.setTaxa(rs.getDouble("taxa"));
         v.setValorLiquido(rs.getDouble("valor_liq"));
+        v.setVersao(rs.getInt("versao"));
+        long pedidoId = rs.getLong("sale_id");
+        v.setPedidoId(rs.wasNull() ? null : pedidoId);
         return v;
     }
 
     // ========== GRÁFICOS E ESTATÍSTICAS (já existentes) ==========
 
     public Map<LocalDate, Double> vendasLiquidasPorDiaUltimos30() {
+        LocalDateTime desde = LocalDateTime.now().minusDays(30);
         String sql = """
             SELECT CAST(data_hora AS DATE) AS dia, COALESCE(SUM(valor_liq), 0.0) AS total
-            FROM venda
-            WHERE data_hora >= DATEADD('DAY', -30, CURRENT_TIMESTAMP)
+            FROM %s
+            WHERE data_hora >= ?
             GROUP BY dia
             ORDER BY dia DESC
-        """;
+        """.formatted(vendasDesde(desde.toLocalDate()));
 
         List<Map.Entry<LocalDate, Double>> rows = executeQuery(sql, rs ->
-            Map.entry(rs.getDate("dia").toLocalDate(), rs.getDouble("total"))
+            Map.entry(rs.getDate("dia").toLocalDate(), rs.getDouble("total")), desde
         );
 
         Map<LocalDate, Double> result = new LinkedHashMap<>();
@@ -320,27 +920,39 @@ public class VendaDaoH2 extends DAOBase {
     }
 
     public Map<Integer, Double> vendasPorHora() {
+        MapaCalorVendas mapa = mapaCalor(null, null);
+
+        Map<Integer, Double> result = new LinkedHashMap<>();
+        for (int hora = 0; hora < 24; hora++) {
+            if (mapa.getQuantidadeNaHora(hora) > 0) result.put(hora, mapa.getLiquidoNaHora(hora));
+        }
+        return result;
+    }
+
+    /**
+     * Mapa de calor dia da semana × hora dos meses [inicio, fim] (nulos = sem limite)
+     */
+    public MapaCalorVendas mapaCalor(YearMonth inicio, YearMonth fim) {
         String sql = """
-            SELECT EXTRACT(HOUR FROM data_hora) AS hora, COALESCE(SUM(valor_liq), 0.0) AS total
-            FROM venda
-            GROUP BY hora
-            ORDER BY hora
+            SELECT dia_semana, hora, SUM(quantidade) AS qtd, SUM(liquido) AS liq
+            FROM venda_heatmap
+            WHERE mes >= ? AND mes <= ?
+            GROUP BY dia_semana, hora
         """;
 
-        List<Map.Entry<Integer, Double>> rows = executeQuery(sql, rs ->
-            Map.entry(rs.getInt("hora"), rs.getDouble("total"))
-        );
+        LocalDate de = inicio != null ? inicio.atDay(1) : LocalDate.of(1900, 1, 1);
+        LocalDate ate = fim != null ? fim.atDay(1) : LocalDate.of(9999, 12, 1);
 
-        Map<Integer, Double> result = new LinkedHashMap<>();
-        for (var e : rows) result.put(e.getKey(), e.getValue());
-        return result;
+        MapaCalorVendas mapa = new MapaCalorVendas();
+        executeForEach(sql, rs -> mapa.somar(rs.getInt("dia_semana"), rs.getInt("hora"),
+            rs.getLong("qtd"), rs.getDouble("liq")), de, ate);
+        return mapa;
     }
 
     public List<Map.Entry<String, Long>> topDescricoes(int limit) {
         String sql = """
-            SELECT descricao, COUNT(*) AS qtd
-            FROM venda
-            WHERE descricao IS NOT NULL AND TRIM(descricao) != ''
+            SELECT descricao, SUM(quantidade) AS qtd
+            FROM venda_descricao_dia
             GROUP BY descricao
             ORDER BY qtd DESC
             LIMIT ?
@@ -349,7 +961,267 @@ public class VendaDaoH2 extends DAOBase {
         return executeQuery(sql, rs -> Map.entry(rs.getString("descricao"), rs.getLong("qtd")), limit);
     }
 
-    private void validateVenda(Venda venda) {
+    /**
+     * Carga do ranking em memória numa leitura só do banco (transação SERIALIZABLE): total por
+     * descrição, contadores por dia desde {@code desde} e, por último, as vendas de {@code ids}
+     * como essa mesma leitura as via (as apagadas não vêm). Com elas o ranking acerta as vendas
+     * que mudaram enquanto ele carregava, sem contar duas vezes as que a leitura já incluía.
+     */
+    public void lerContagensDescricao(LocalDate desde, BiConsumer<String, Long> total, ContagemHandler porDia,
+                                      Supplier<Collection<Long>> ids, Consumer<Venda> vendaLida) {
+        executeInTransaction(conn -> {
+            // O Hikari devolve o isolamento padrão quando a conexão volta ao pool
+            conn.setTransactionIsolation(Connection.TRANSACTION_SERIALIZABLE);
+            executeForEach(conn, "SELECT descricao, SUM(quantidade) AS qtd FROM venda_descricao_dia GROUP BY descricao",
+                rs -> total.accept(rs.getString("descricao"), rs.getLong("qtd")));
+            executeForEach(conn, "SELECT dia, descricao, quantidade FROM venda_descricao_dia WHERE dia >= ?",
+                rs -> porDia.handle(rs.getDate("dia").toLocalDate(), rs.getString("descricao"), rs.getLong("quantidade")),
+                desde);
+
+            lerVendas(conn, ids.get(), vendaLida);
+            return null;
+        });
+    }
+
+    /**
+     * Vendas de {@code ids} como a transação de {@code conn} as vê, em lotes de 500
+     */
+    private void lerVendas(Connection conn, Collection<Long> ids, Consumer<Venda> vendaLida) throws SQLException {
+        List<Long> lista = new ArrayList<>(ids);
+        for (int i = 0; i < lista.size(); i += 500) {
+            List<Long> lote = lista.subList(i, Math.min(i + 500, lista.size()));
+            String marcadores = String.join(", ", Collections.nCopies(lote.size(), "?"));
+            executeForEach(conn, "SELECT " + COLUNAS + " FROM " + TODAS_AS_VENDAS + " WHERE id IN (" + marcadores + ")",
+                rs -> vendaLida.accept(mapToVenda(rs)), lote.toArray());
+        }
+    }
+
+    /**
+     * Total de vendas por descrição no intervalo de dias [inicio, fim]
+     */
+    public Map<String, Long> contagemPorDescricao(LocalDate inicio, LocalDate fim) {
+        String sql = "SELECT descricao, SUM(quantidade) AS qtd FROM venda_descricao_dia WHERE dia BETWEEN ? AND ? GROUP BY descricao";
+        Map<String, Long> result = new HashMap<>();
+        executeForEach(sql, rs -> result.put(rs.getString("descricao"), rs.getLong("qtd")), inicio, fim);
+        return result;
+    }
+
+    private static final String SQL_CONTAR_DESCRICAO = """
+        MERGE INTO venda_descricao_dia t
+        USING (VALUES (CAST(? AS DATE), CAST(? AS VARCHAR(200)), CAST(? AS BIGINT))) s(dia, descricao, delta)
+        ON t.dia = s.dia AND t.descricao = s.descricao
+        WHEN MATCHED THEN UPDATE SET quantidade = t.quantidade + s.delta
+        WHEN NOT MATCHED THEN INSERT (dia, descricao, quantidade) VALUES (s.dia, s.descricao, s.delta)
+    """;
+
+    private static final String SQL_HEATMAP = """
+        MERGE INTO venda_heatmap t
+        USING (VALUES (CAST(? AS DATE), CAST(? AS TINYINT), CAST(? AS TINYINT), CAST(? AS BIGINT), CAST(? AS DECIMAL(14,2))))
+              s(mes, dia_semana, hora, qtd, liq)
+        ON t.mes = s.mes AND t.dia_semana = s.dia_semana AND t.hora = s.hora
+        WHEN MATCHED THEN UPDATE SET quantidade = t.quantidade + s.qtd, liquido = t.liquido + s.liq
+        WHEN NOT MATCHED THEN INSERT (mes, dia_semana, hora, quantidade, liquido) VALUES (s.mes, s.dia_semana, s.hora, s.qtd, s.liq)
+    """;
+
+    /**
+     * Ajusta a célula mês/dia da semana/hora da venda (deltas negativos em remoções)
+     */
+    private void acumularHeatmap(Connection conn, LocalDateTime dataHora, long qtd, BigDecimal liquido) throws SQLException {
+        List<Object> k = chaveHeatmap(dataHora);
+        executeUpdate(conn, SQL_HEATMAP, k.get(0), k.get(1), k.get(2), qtd, liquido);
+        if (qtd < 0) {
+            executeUpdate(conn, "DELETE FROM venda_heatmap WHERE mes = ? AND dia_semana = ? AND hora = ? AND quantidade <= 0",
+                k.get(0), k.get(1), k.get(2));
+        }
+    }
+
+    private static List<Object> chaveHeatmap(LocalDateTime dataHora) {
+        return List.of(dataHora.toLocalDate().withDayOfMonth(1), dataHora.getDayOfWeek().getValue(), dataHora.getHour());
+    }
+
+    /**
+     * Ajusta o contador descrição/dia na transação da venda (delta negativo em remoções)
+     */
+    private void contarDescricao(Connection conn, LocalDate dia, String descricao, long delta) throws SQLException {
+        executeUpdate(conn, SQL_CONTAR_DESCRICAO, dia, descricao, delta);
+        if (delta < 0) {
+            executeUpdate(conn, "DELETE FROM venda_descricao_dia WHERE dia = ? AND descricao = ? AND quantidade <= 0",
+                dia, descricao);
+        }
+    }
+
+    /**
+     * Entrega todas as vendas, uma por vez, sem montar lista (carga de caches):
+     * primeiro o arquivo, depois a tabela quente, cada um em ordem de ID
+     */
+    public void paraCadaVenda(Consumer<Venda> consumidor) {
+        executeForEach("SELECT * FROM venda_arquivo ORDER BY id", rs -> consumidor.accept(mapToVenda(rs)));
+        executeForEach("SELECT * FROM venda ORDER BY id", rs -> consumidor.accept(mapToVenda(rs)));
+    }
+
+    /**
+     * Vendas do intervalo de dias [inicio, fim] em ordem de data, uma por vez (exportações grandes)
+     */
+    public void paraCadaVenda(LocalDate inicio, LocalDate fim, Consumer<Venda> consumidor) {
+        String sql = "SELECT " + COLUNAS + " FROM " + vendasDesde(inicio) +
+                     " WHERE data_hora >= ? AND data_hora < ? ORDER BY data_hora, id";
+        executeForEach(sql, rs -> consumidor.accept(mapToVenda(rs)), inicio.atStartOfDay(), fim.plusDays(1).atStartOfDay());
+    }
+
+    /**
+     * Maior id de venda (quente ou arquivo); vendas gravadas depois terão id maior
+     */
+    public long getUltimoIdVenda() {
+        return executeScalar("SELECT COALESCE(MAX(id), 0) FROM " + TODAS_AS_VENDAS, Long.class);
+    }
+
+    /**
+     * Vendas do dia com id até {@code ateId}, contadas por data/hora (ao segundo), descrição e
+     * bruto em centavos: a chave com que a importação CSV reconhece uma linha já gravada
+     * (a exportação contábil grava a data/hora ao segundo)
+     */
+    public Map<List<Object>, Integer> contarVendasDoDia(LocalDate dia, long ateId) {
+        Map<List<Object>, Integer> r = new HashMap<>();
+        executeForEach("SELECT data_hora, descricao, valor_bruto FROM " + vendasDesde(dia)
+                + " WHERE data_hora >= ? AND data_hora < ? AND id <= ?",
+            rs -> r.merge(chaveImportacao(rs.getTimestamp(1).toLocalDateTime(), rs.getString(2),
+                rs.getBigDecimal(3).doubleValue()), 1, Integer::sum),
+            dia.atStartOfDay(), dia.plusDays(1).atStartOfDay(), ateId);
+        return r;
+    }
+
+    public static List<Object> chaveImportacao(LocalDateTime dataHora, String descricao, double bruto) {
+        return List.of(dataHora.truncatedTo(ChronoUnit.SECONDS), descricao, Math.round(bruto * 100));
+    }
+
+    public int contarVendas(LocalDate inicio, LocalDate fim) {
+        String sql = "SELECT COUNT(*) FROM " + vendasDesde(inicio) + " WHERE data_hora >= ? AND data_hora < ?";
+        return executeScalar(sql, Long.class, inicio.atStartOfDay(), fim.plusDays(1).atStartOfDay()).intValue();
+    }
+
+    /**
+     * Descrições agrupadas (quantidade e última venda) e, na mesma leitura (SERIALIZABLE), as vendas
+     * de {@code ids}: como em {@link #lerContagensDescricao}, quem carrega acerta as vendas que
+     * mudaram durante a carga sem contar duas vezes as que o agrupamento já incluía.
+     */
+    public void lerDescricoesAgrupadas(Consumer<DescricaoResumo> lida, Supplier<Collection<Long>> ids,
+                                       Consumer<Venda> vendaLida) {
+        String sql = """
+            SELECT descricao, COUNT(*) AS qtd, MAX(id) AS ultimo_id
+            FROM %s
+            WHERE descricao IS NOT NULL AND TRIM(descricao) != ''
+            GROUP BY descricao
+        """.formatted(TODAS_AS_VENDAS);
+
+        executeInTransaction(conn -> {
+            conn.setTransactionIsolation(Connection.TRANSACTION_SERIALIZABLE);
+            executeForEach(conn, sql, rs -> lida.accept(new DescricaoResumo(
+                rs.getString("descricao"), rs.getInt("qtd"), rs.getLong("ultimo_id"))));
+            lerVendas(conn, ids.get(), vendaLida);
+            return null;
+        });
+    }
+
+    // ========== ARQUIVO ==========
+
+    /**
+     * Data a partir da qual o arquivo está vazio: períodos que começam nela ou depois só leem a tabela quente
+     */
+    public LocalDate getCorteArquivo() {
+        LocalDate c = corteArquivo;
+        if (c == null) {
+            c = executeQuerySingle("SELECT corte FROM venda_arquivo_corte WHERE id = 1", rs -> rs.getDate(1).toLocalDate())
+                .orElse(LocalDate.MIN);
+            corteArquivo = c;
+        }
+        return c;
+    }
+
+    /**
+     * Move para venda_arquivo as vendas com data anterior a novoCorte, em transações de cerca de tamanhoLote vendas.
+     * O corte é avançado antes da cópia: durante a movimentação, consultas de períodos antigos leem as duas
+     * tabelas e nenhuma venda fica invisível. Contadores (descrição/dia, mapa de calor) não mudam.
+     * @return vendas movidas
+     */
+    public int arquivarAntesDe(LocalDate novoCorte, int tamanhoLote) {
+        if (novoCorte.isAfter(getCorteArquivo())) {
+            executeUpdate("UPDATE venda_arquivo_corte SET corte = ? WHERE id = 1", novoCorte);
+            corteArquivo = novoCorte;
+        }
+        LocalDateTime limite = getCorteArquivo().atStartOfDay();
+
+        int total = 0;
+        while (true) {
+            int movidas = executeInTransaction(conn -> {
+                // Movimentação interna: não vira alteração para os outros terminais
+                executeUpdate(conn, "SET @SEM_ALTERACAO = TRUE");
+                try {
+                    return moverLote(conn, limite, tamanhoLote);
+                } finally {
+                    executeUpdate(conn, "SET @SEM_ALTERACAO = NULL");
+                }
+            });
+            if (movidas == 0) break;
+            total += movidas;
+            totaisArquivo = null;
+        }
+        if (total > 0) {
+            // Avisa os outros terminais que os totais do arquivo mudaram
+            executeUpdate("UPDATE venda_arquivo_corte SET corte = corte WHERE id = 1");
+        }
+        return total;
+    }
+
+    private int moverLote(Connection conn, LocalDateTime limite, int tamanhoLote) throws SQLException {
+        // Fronteira do lote: data da N-ésima venda mais antiga, pelo índice de data (empates entram juntos)
+        Optional<Timestamp> fronteira = executeQuerySingle(conn,
+            "SELECT data_hora FROM venda WHERE data_hora < ? ORDER BY data_hora OFFSET ? ROWS FETCH NEXT 1 ROW ONLY",
+            rs -> rs.getTimestamp(1), limite, tamanhoLote - 1);
+        String filtro = fronteira.isPresent() ? "data_hora < ? AND data_hora <= ?" : "data_hora < ?";
+        Object[] params = fronteira.isPresent() ? new Object[]{limite, fronteira.get()} : new Object[]{limite};
+
+        executeUpdate(conn, "INSERT INTO venda_arquivo (" + COLUNAS + ") SELECT " + COLUNAS +
+            " FROM venda WHERE " + filtro, params);
+        return executeUpdate(conn, "DELETE FROM venda WHERE " + filtro, params);
+    }
+
+    /**
+     * Origem das vendas para um período que começa em inicio: só a tabela quente, ou as duas unidas
+     */
+    private String vendasDesde(LocalDate inicio) {
+        return inicio.isBefore(getCorteArquivo()) ? TODAS_AS_VENDAS : "venda";
+    }
+
+    private String tabelaDaVenda(Connection conn, Long id) throws SQLException {
+        if (executeQuerySingle(conn, "SELECT id FROM venda WHERE id = ?", rs -> rs.getLong(1), id).isPresent()) {
+            return "venda";
+        }
+        if (executeQuerySingle(conn, "SELECT id FROM venda_arquivo WHERE id = ?", rs -> rs.getLong(1), id).isPresent()) {
+            return "venda_arquivo";
+        }
+        return null;
+    }
+
+    private double[] totaisArquivo() {
+        double[] t = totaisArquivo;
+        if (t == null) {
+            double[] novo = new double[3 + PaymentMethod.values().length];
+            executeForEach("""
+                SELECT metodo, SUM(valor_bruto), SUM(taxa), SUM(valor_liq),
+                       SUM(CASE WHEN COALESCE(sale_id, 0) = 0 THEN valor_liq ELSE 0 END)
+                FROM venda_arquivo GROUP BY metodo
+                """, rs -> {
+                    novo[0] += rs.getDouble(2);
+                    novo[1] += rs.getDouble(3);
+                    novo[2] += rs.getDouble(4);
+                    novo[3 + PaymentMethod.valueOf(rs.getString(1)).ordinal()] += rs.getDouble(5);
+                });
+            totaisArquivo = t = novo;
+        }
+        return t;
+    }
+
+    public void validateVenda(Venda venda) {
         if (venda == null) throw new IllegalArgumentException("Venda não pode ser nula");
         if (venda.getDescricao() == null || venda.getDescricao().trim().isEmpty()) 
             throw new IllegalArgumentException("Descrição da venda é obrigatória");
@@ -359,7 +1231,126 @@ public class VendaDaoH2 extends DAOBase {
         if (venda.getValorLiquido() < 0) throw new IllegalArgumentException("Valor líquido não pode ser negativo");
     }
 
-    // Classe auxiliar para fechamentos (pode mover pra fora se quiser)
+    @FunctionalInterface
+    public interface ContagemHandler {
+        void handle(LocalDate dia, String descricao, long quantidade);
+    }
+
+    /**
+     * Vendas de uma descrição: quantidade e id da mais recente
+     */
+    public static class DescricaoResumo {
+        public final String descricao;
+        public final int quantidade;
+        public final long ultimoId;
+
+        public DescricaoResumo(String descricao, int quantidade, long ultimoId) {
+            this.descricao = descricao;
+            this.quantidade = quantidade;
+            this.ultimoId = ultimoId;
+        }
+    }
+
+    /**
+     * Totais de um dia de caixa; líquido por método nos campos dinheiro/cartao/pix
+     */
+    public static class TotaisCaixa {
+        private double bruto;
+        private double taxas;
+        private double liquido;
+        private double dinheiro;
+        private double cartao;
+        private double pix;
+
+        public double getBruto() { return bruto; }
+        public double getTaxas() { return taxas; }
+        public double getLiquido() { return liquido; }
+        public double getDinheiro() { return dinheiro; }
+        public double getCartao() { return cartao; }
+        public double getPix() { return pix; }
+
+        void somar(PaymentMethod metodo, double bruto, double taxas, double liquido) {
+            this.bruto += bruto;
+            this.taxas += taxas;
+            this.liquido += liquido;
+            switch (metodo) {
+                case DINHEIRO -> dinheiro += liquido;
+                case CARTAO -> cartao += liquido;
+                case PIX -> pix += liquido;
+            }
+        }
+    }
+
+    /**
+     * Resumo de um período: total, em que o pedido dividido entre métodos conta uma vez, e a divisão
+     * por método, em que ele conta uma vez em cada método (a soma das quantidades passa do total)
+     */
+    public static class ResumoMetodos {
+        private final Map<PaymentMethod, Resumo> porMetodo = new EnumMap<>(PaymentMethod.class);
+        private long quantidade;
+        private double bruto;
+        private double taxas;
+        private double liquido;
+
+        public Resumo getTotal() { return new Resumo(quantidade, bruto, taxas, liquido); }
+        public Map<PaymentMethod, Resumo> getPorMetodo() { return Collections.unmodifiableMap(porMetodo); }
+
+        void somar(long quantidade, double bruto, double taxas, double liquido) {
+            this.quantidade += quantidade;
+            this.bruto += bruto;
+            this.taxas += taxas;
+            this.liquido += liquido;
+        }
+    }
+
+    /**
+     * Agregado de vendas de um grupo (dia, método)
+     */
+    public static class Resumo {
+        private final long quantidade;
+        private final double bruto;
+        private final double taxas;
+        private final double liquido;
+
+        public Resumo(long quantidade, double bruto, double taxas, double liquido) {
+            this.quantidade = quantidade;
+            this.bruto = bruto;
+            this.taxas = taxas;
+            this.liquido = liquido;
+        }
+
+        public long getQuantidade() { return quantidade; }
+        public double getBruto() { return bruto; }
+        public double getTaxas() { return taxas; }
+        public double getLiquido() { return liquido; }
+    }
+
+    /**
+     * Período de datas [inicio, fim], ambas inclusivas
+     */
+    public static class Periodo {
+        private final LocalDate inicio;
+        private final LocalDate fim;
+
+        public Periodo(LocalDate inicio, LocalDate fim) {
+            if (inicio == null || fim == null) {
+                throw new IllegalArgumentException("Datas não podem ser nulas");
+            }
+            if (inicio.isAfter(fim)) {
+                throw new IllegalArgumentException("Data inicial deve ser anterior à final");
+            }
+            this.inicio = inicio;
+            this.fim = fim;
+        }
+
+        public static Periodo doMes(YearMonth mes) {
+            return new Periodo(mes.atDay(1), mes.atEndOfMonth());
+        }
+
+        public LocalDate getInicio() { return inicio; }
+        public LocalDate getFim() { return fim; }
+    }
+
     public static class FechamentoResumo {
         public final LocalDate data;
         public final LocalDateTime fechadoEm;
@@ -0,0 +1,440 @@
+package br.com.fotocastro.infra;
+
+import br.com.fotocastro.config.AppProperties;
+import br.com.fotocastro.config.ModoTerminal;
+import br.com.fotocastro.model.PaymentMethod;
+import br.com.fotocastro.model.Venda;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Level;
+import java.util.zip.CRC32;
+
+/**
+ * Journal local de vendas para o modo write-behind do caixa (caixa.writeBehind=true).
+ *
+ * A venda é gravada num arquivo mapeado em memória e confirmada na hora. O force (fsync)
+ * é feito em lote a cada journal.flushMs e uma thread de fundo drena o journal para a
+ * tabela venda em lotes. O último seq gravado fica em system_config (uma chave por terminal
+ * no multi-terminal) na mesma transação do lote, então o replay na inicialização não duplica vendas.
+ *
+ * Formato do registro: [int tamanho][long seq][int crc32][payload]. Um tamanho 0 marca o fim.
+ */
+public class VendaJournal extends DAOBase {
+
+    private static final int HEADER = 16;
+    private static final int CABECALHO_REGISTRO = 4 + 8 + 4;
+    private static final String CHAVE_CHECKPOINT = "JOURNAL_VENDA_CHECKPOINT";
+    private static final int TAMANHO_CHAVE_CONFIG = 60; // system_config.config_key
+
+    private static VendaJournal instance;
+
+    private final String chaveCheckpoint = chaveCheckpoint();
+
+    private final Path arquivo;
+    private final int capacidade;
+    private final long flushMs;
+    private final int tamanhoLote;
+    private final VendaDaoH2 vendaDao = new VendaDaoH2();
+
+    private final Object lock = new Object();
+    private final Object drenagem = new Object(); // uma drenagem por vez (thread de fundo ou drenarTudo)
+    private FileChannel canal;
+    private MappedByteBuffer buffer;
+    private int posicao = HEADER;
+    private long proximoSeq = 1;
+    private volatile boolean sujo;
+    private volatile boolean ativo;
+
+    private final ConcurrentLinkedQueue<Registro> pendentes = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger qtdPendentes = new AtomicInteger();
+    private final List<Runnable> listeners = new CopyOnWriteArrayList<>();
+    private List<Registro> loteEmVoo = new ArrayList<>(); // só acessado com o lock de drenagem
+    private ScheduledExecutorService executor;
+
+    private VendaJournal() {
+        this.arquivo = Path.of(AppProperties.get("journal.path", "./data/vendas.journal"));
+        this.capacidade = AppProperties.getInt("journal.capacidadeBytes", 8 * 1024 * 1024);
+        this.flushMs = AppProperties.getLong("journal.flushMs", 20);
+        this.tamanhoLote = AppProperties.getInt("journal.tamanhoLote", 500);
+    }
+
+    public static synchronized VendaJournal getInstance() {
+        if (instance == null) {
+            instance = new VendaJournal();
+        }
+        return instance;
+    }
+
+    /**
+     * Modo write-behind ligado na configuração?
+     */
+    public static boolean habilitado() {
+        return AppProperties.getBoolean("caixa.writeBehind", false);
+    }
+
+    /**
+     * Grava no banco as vendas ainda pendentes no journal, se ele foi aberto
+     * @return false se sobrou venda pendente (banco fora)
+     */
+    public static boolean drenarPendentes() {
+        VendaJournal j;
+        synchronized (VendaJournal.class) {
+            j = instance;
+        }
+        return j == null || j.drenarTudo();
+    }
+
+    /**
+     * Fecha o journal se ele chegou a ser aberto (seguro chamar mais de uma vez)
+     */
+    public static synchronized void encerrar() {
+        if (instance != null) {
+            instance.fechar();
+        }
+    }
+
+    // ========== CICLO DE VIDA ==========
+
+    /**
+     * Abre o arquivo, reaplica o que ficou pendente e inicia as threads de fsync e drenagem
+     */
+    public synchronized void iniciar() {
+        if (ativo) return;
+
+        try {
+            if (arquivo.getParent() != null) {
+                Files.createDirectories(arquivo.getParent());
+            }
+            canal = FileChannel.open(arquivo, StandardOpenOption.CREATE,
+                    StandardOpenOption.READ, StandardOpenOption.WRITE);
+            buffer = canal.map(FileChannel.MapMode.READ_WRITE, 0, capacidade);
+        } catch (IOException e) {
+            logger.log(Level.SEVERE, "Falha ao abrir journal de vendas: " + arquivo, e);
+            throw new DAOException("Falha ao abrir journal de vendas", e);
+        }
+
+        recuperar(lerCheckpoint());
+
+        executor = Executors.newScheduledThreadPool(2, r -> {
+            Thread t = new Thread(r, "venda-journal");
+            t.setDaemon(true);
+            return t;
+        });
+        executor.scheduleWithFixedDelay(this::sincronizar, flushMs, flushMs, TimeUnit.MILLISECONDS);
+        executor.scheduleWithFixedDelay(this::drenar, flushMs, flushMs, TimeUnit.MILLISECONDS);
+
+        ativo = true;
+        logger.info("Journal de vendas ativo: " + arquivo + " (" + qtdPendentes.get() + " pendentes)");
+    }
+
+    /**
+     * Para de aceitar vendas, drena o que restou e fecha o arquivo
+     */
+    public synchronized void fechar() {
+        if (!ativo) return;
+
+        synchronized (lock) {
+            ativo = false;
+        }
+
+        executor.shutdown();
+        try {
+            executor.awaitTermination(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+
+        drenarTudo(); // o que falhar fica para o replay
+
+        try {
+            buffer.force();
+            canal.close();
+        } catch (IOException e) {
+            logger.log(Level.WARNING, "Falha ao fechar journal de vendas", e);
+        }
+
+        logger.info("Journal de vendas fechado (" + qtdPendentes.get() + " pendentes)");
+    }
+
+    // ========== REGISTRO ==========
+
+    /**
+     * Grava a venda no journal.
+     * @return false se o journal está inativo ou cheio (o chamador deve gravar direto no banco)
+     */
+    public boolean registrar(Venda venda) {
+        vendaDao.validateVenda(venda);
+        if (venda.getDataHora() == null) {
+            venda.setDataHora(LocalDateTime.now());
+        }
+        byte[] payload = serializar(venda);
+        int tamanho = CABECALHO_REGISTRO + payload.length;
+
+        synchronized (lock) {
+            if (!ativo) return false;
+
+            // espaço para o registro + terminador
+            if (posicao + tamanho + 4 > capacidade) {
+                logger.warning("Journal de vendas cheio, gravando direto no banco");
+                return false;
+            }
+
+            long seq = proximoSeq++;
+            CRC32 crc = new CRC32();
+            crc.update(payload);
+
+            buffer.putInt(posicao + tamanho, 0);
+            buffer.position(posicao + 4);
+            buffer.putLong(seq);
+            buffer.putInt((int) crc.getValue());
+            buffer.put(payload);
+            buffer.putInt(posicao, tamanho - 4);
+            posicao += tamanho;
+
+            pendentes.add(new Registro(seq, venda));
+            qtdPendentes.incrementAndGet();
+            sujo = true;
+        }
+        return true;
+    }
+
+    /**
+     * Vendas confirmadas que ainda não chegaram à tabela venda
+     */
+    public int getPendentes() {
+        return qtdPendentes.get();
+    }
+
+    /**
+     * Drena na thread atual até esvaziar (ex.: antes de calcular um fechamento de caixa)
+     * @return false se um lote falhou e ainda há vendas pendentes
+     */
+    public boolean drenarTudo() {
+        synchronized (drenagem) {
+            while (qtdPendentes.get() > 0) {
+                if (!drenarLote()) return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Listener chamado (na thread do journal) sempre que um lote é gravado no banco
+     */
+    public void adicionarListener(Runnable listener) {
+        listeners.add(listener);
+    }
+
+    public void removerListener(Runnable listener) {
+        listeners.remove(listener);
+    }
+
+    // ========== THREADS DE FUNDO ==========
+
+    private void sincronizar() {
+        if (!sujo) return;
+        sujo = false;
+        buffer.force();
+    }
+
+    private void drenar() {
+        if (qtdPendentes.get() > 0) {
+            synchronized (drenagem) {
+                drenarLote();
+            }
+        }
+    }
+
+    /**
+     * Grava um lote no banco junto com o checkpoint. Em caso de erro, o lote é mantido e
+     * reenviado no próximo ciclo.
+     */
+    private boolean drenarLote() {
+        if (loteEmVoo.isEmpty()) {
+            Registro r;
+            while (loteEmVoo.size() < tamanhoLote && (r = pendentes.poll()) != null) {
+                loteEmVoo.add(r);
+            }
+        }
+        if (loteEmVoo.isEmpty()) return true;
+
+        List<Venda> vendas = new ArrayList<>(loteEmVoo.size());
+        for (Registro r : loteEmVoo) vendas.add(r.venda);
+        long ultimoSeq = loteEmVoo.get(loteEmVoo.size() - 1).seq;
+
+        try {
+            executeInTransaction(conn -> {
+                vendaDao.inserirLote(conn, vendas);
+                gravarCheckpoint(conn, ultimoSeq);
+                return null;
+            });
+        } catch (RuntimeException e) {
+            logger.log(Level.WARNING, "Falha ao drenar journal de vendas (nova tentativa em seguida)", e);
+            return false;
+        }
+
+        qtdPendentes.addAndGet(-loteEmVoo.size());
+        loteEmVoo = new ArrayList<>();
+        for (Venda v : vendas) {
+            Auditoria.registrar("VENDA_REGISTRADA", "venda", v.getId(), VendaDaoH2.descreverVenda(v));
+        }
+        VendaDaoH2.notificarInseridas(vendas);
+
+        // Tudo gravado: recomeça o arquivo do início
+        synchronized (lock) {
+            if (pendentes.isEmpty()) {
+                posicao = HEADER;
+                buffer.putInt(HEADER, 0);
+                sujo = true;
+            }
+        }
+
+        for (Runnable l : listeners) {
+            try {
+                l.run();
+            } catch (RuntimeException e) {
+                logger.log(Level.WARNING, "Erro em listener do journal", e);
+            }
+        }
+        return true;
+    }
+
+    // ========== RECUPERAÇÃO ==========
+
+    /**
+     * Percorre o arquivo e enfileira os registros com seq acima do checkpoint do banco
+     */
+    private void recuperar(long checkpoint) {
+        int pos = HEADER;
+        long maiorSeq = checkpoint;
+
+        while (pos + CABECALHO_REGISTRO <= capacidade) {
+            int tamanho = buffer.getInt(pos);
+            if (tamanho <= 0 || pos + 4 + tamanho > capacidade) break;
+
+            long seq = buffer.getLong(pos + 4);
+            int crcGravado = buffer.getInt(pos + 12);
+            byte[] payload = new byte[tamanho - 12];
+            buffer.get(pos + CABECALHO_REGISTRO, payload);
+
+            CRC32 crc = new CRC32();
+            crc.update(payload);
+            if ((int) crc.getValue() != crcGravado) {
+                logger.warning("Registro corrompido no journal (seq " + seq + "), ignorando o restante");
+                break;
+            }
+
+            if (seq > checkpoint) {
+                pendentes.add(new Registro(seq, desserializar(payload)));
+                qtdPendentes.incrementAndGet();
+            }
+            maiorSeq = Math.max(maiorSeq, seq);
+            pos += 4 + tamanho;
+        }
+
+        proximoSeq = maiorSeq + 1;
+        if (pendentes.isEmpty()) {
+            posicao = HEADER;
+            buffer.putInt(HEADER, 0);
+        } else {
+            posicao = pos;
+            logger.warning("Journal de vendas: " + pendentes.size() + " venda(s) recuperada(s) para gravação");
+        }
+    }
+
+    /**
+     * Cada terminal tem o próprio journal (e a própria sequência): com o banco compartilhado,
+     * o checkpoint é por terminal. No modo local fica a chave de sempre.
+     */
+    private static String chaveCheckpoint() {
+        if (ModoTerminal.atual() == ModoTerminal.LOCAL) return CHAVE_CHECKPOINT;
+        String chave = CHAVE_CHECKPOINT + ":" + ModoTerminal.nome();
+        return chave.length() > TAMANHO_CHAVE_CONFIG ? chave.substring(0, TAMANHO_CHAVE_CONFIG) : chave;
+    }
+
+    private long lerCheckpoint() {
+        String sql = "SELECT config_value FROM system_config WHERE config_key = ?";
+        String valor = executeScalar(sql, String.class, chaveCheckpoint);
+        return valor != null ? Long.parseLong(valor) : 0L;
+    }
+
+    private void gravarCheckpoint(Connection conn, long seq) throws SQLException {
+        String sql = "MERGE INTO system_config (config_key, config_value, updated_at) KEY (config_key) " +
+                     "VALUES (?, ?, CURRENT_TIMESTAMP)";
+        try (PreparedStatement ps = conn.prepareStatement(sql)) {
+            ps.setString(1, chaveCheckpoint);
+            ps.setString(2, Long.toString(seq));
+            ps.executeUpdate();
+        }
+    }
+
+    // ========== SERIALIZAÇÃO ==========
+
+    private static byte[] serializar(Venda v) {
+        try {
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream(128);
+            DataOutputStream out = new DataOutputStream(bytes);
+            out.writeLong(v.getDataHora().toEpochSecond(ZoneOffset.UTC));
+            out.writeInt(v.getDataHora().getNano());
+            out.writeUTF(v.getDescricao());
+            out.writeDouble(v.getValorBruto());
+            out.writeUTF(v.getMetodo().name());
+            out.writeDouble(v.getTaxa());
+            out.writeDouble(v.getValorLiquido());
+            out.flush();
+            return bytes.toByteArray();
+        } catch (IOException e) {
+            throw new IllegalStateException("Falha ao serializar venda", e);
+        }
+    }
+
+    private static Venda desserializar(byte[] payload) {
+        try {
+            DataInputStream in = new DataInputStream(new ByteArrayInputStream(payload));
+            Venda v = new Venda();
+            long epoch = in.readLong();
+            int nano = in.readInt();
+            v.setDataHora(LocalDateTime.ofEpochSecond(epoch, nano, ZoneOffset.UTC));
+            v.setDescricao(in.readUTF());
+            v.setValorBruto(in.readDouble());
+            v.setMetodo(PaymentMethod.valueOf(in.readUTF()));
+            v.setTaxa(in.readDouble());
+            v.setValorLiquido(in.readDouble());
+            return v;
+        } catch (IOException e) {
+            throw new IllegalStateException("Falha ao ler venda do journal", e);
+        }
+    }
+
+    private static class Registro {
+        final long seq;
+        final Venda venda;
+
+        Registro(long seq, Venda venda) {
+            this.seq = seq;
+            this.venda = venda;
+        }
+    }
+}
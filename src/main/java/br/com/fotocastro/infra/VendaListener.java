@@ -0,0 +1,18 @@
+package br.com.fotocastro.infra;
+
+import br.com.fotocastro.model.Venda;
+
+import java.util.List;
+
+/**
+ * Observador de alterações na tabela venda, notificado após o commit.
+ * Registrado em {@link VendaDaoH2#adicionarListener(VendaListener)}; chamado na thread que gravou.
+ */
+public interface VendaListener {
+
+    default void vendasInseridas(List<Venda> vendas) {}
+
+    default void vendaAtualizada(Venda anterior, Venda atual) {}
+
+    default void vendasRemovidas(List<Venda> vendas) {}
+}
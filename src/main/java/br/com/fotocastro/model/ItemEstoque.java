@@ -7,6 +7,7 @@ public class ItemEstoque {
     private String tamanho;
     private int quantidade;
     private double custoTotal;
+    private int versao;
 
     public ItemEstoque() {}
 
@@ -40,4 +41,7 @@ public class ItemEstoque {
 
     public double getCustoTotal() { return custoTotal; }
     public void setCustoTotal(double custoTotal) { this.custoTotal = custoTotal; }
+
+    public int getVersao() { return versao; }
+    public void setVersao(int versao) { this.versao = versao; }
 }
@@ -0,0 +1,53 @@
+package br.com.fotocastro.model;
+
+import java.time.DayOfWeek;
+
+/**
+ * Vendas agregadas por dia da semana × hora (tabela venda_heatmap).
+ * Índices: [dia da semana ISO - 1][hora], ou seja, [0] = segunda.
+ */
+public class MapaCalorVendas {
+
+    private final long[][] quantidade = new long[7][24];
+    private final double[][] liquido = new double[7][24];
+
+    public void somar(int diaSemanaIso, int hora, long qtd, double valorLiquido) {
+        quantidade[diaSemanaIso - 1][hora] += qtd;
+        liquido[diaSemanaIso - 1][hora] += valorLiquido;
+    }
+
+    public long getQuantidade(DayOfWeek dia, int hora) {
+        return quantidade[dia.getValue() - 1][hora];
+    }
+
+    public double getLiquido(DayOfWeek dia, int hora) {
+        return liquido[dia.getValue() - 1][hora];
+    }
+
+    public long getMaiorQuantidade() {
+        long max = 0;
+        for (long[] linha : quantidade) for (long q : linha) max = Math.max(max, q);
+        return max;
+    }
+
+    public double getMaiorLiquido() {
+        double max = 0;
+        for (double[] linha : liquido) for (double v : linha) max = Math.max(max, v);
+        return max;
+    }
+
+    /**
+     * Líquido por hora somando todos os dias da semana
+     */
+    public double getLiquidoNaHora(int hora) {
+        double total = 0;
+        for (double[] linha : liquido) total += linha[hora];
+        return total;
+    }
+
+    public long getQuantidadeNaHora(int hora) {
+        long total = 0;
+        for (long[] linha : quantidade) total += linha[hora];
+        return total;
+    }
+}
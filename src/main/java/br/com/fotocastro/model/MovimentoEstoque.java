@@ -0,0 +1,50 @@
+package br.com.fotocastro.model;
+
+import java.time.LocalDateTime;
+
+/**
+ * Linha do ledger de estoque (tabela stock_movements).
+ * Quantidade e custo são deltas com sinal: saídas são negativas.
+ */
+public class MovimentoEstoque {
+
+    public enum Tipo { IN, OUT, ADJUST }
+
+    private Long id;
+    private Long estoqueId;
+    private Tipo tipo;
+    private int quantidade;
+    private double custoUnitario;
+    private double custoTotal;
+    private String motivo;
+    private Long refVendaId;
+    private LocalDateTime criadoEm;
+
+    // Getters/Setters
+    public Long getId() { return id; }
+    public void setId(Long id) { this.id = id; }
+
+    public Long getEstoqueId() { return estoqueId; }
+    public void setEstoqueId(Long estoqueId) { this.estoqueId = estoqueId; }
+
+    public Tipo getTipo() { return tipo; }
+    public void setTipo(Tipo tipo) { this.tipo = tipo; }
+
+    public int getQuantidade() { return quantidade; }
+    public void setQuantidade(int quantidade) { this.quantidade = quantidade; }
+
+    public double getCustoUnitario() { return custoUnitario; }
+    public void setCustoUnitario(double custoUnitario) { this.custoUnitario = custoUnitario; }
+
+    public double getCustoTotal() { return custoTotal; }
+    public void setCustoTotal(double custoTotal) { this.custoTotal = custoTotal; }
+
+    public String getMotivo() { return motivo; }
+    public void setMotivo(String motivo) { this.motivo = motivo; }
+
+    public Long getRefVendaId() { return refVendaId; }
+    public void setRefVendaId(Long refVendaId) { this.refVendaId = refVendaId; }
+
+    public LocalDateTime getCriadoEm() { return criadoEm; }
+    public void setCriadoEm(LocalDateTime criadoEm) { this.criadoEm = criadoEm; }
+}
@@ -0,0 +1,27 @@
+package br.com.fotocastro.model;
+
+/**
+ * Parte do pagamento de um pedido (tabela payments); um pedido pode ter várias
+ */
+public class Pagamento {
+    private PaymentMethod metodo;
+    private double valor;
+    private double taxa;
+
+    public Pagamento() {
+    }
+
+    public Pagamento(PaymentMethod metodo, double valor) {
+        this.metodo = metodo;
+        this.valor = valor;
+    }
+
+    public PaymentMethod getMetodo() { return metodo; }
+    public void setMetodo(PaymentMethod metodo) { this.metodo = metodo; }
+
+    public double getValor() { return valor; }
+    public void setValor(double valor) { this.valor = valor; }
+
+    public double getTaxa() { return taxa; }
+    public void setTaxa(double taxa) { this.taxa = taxa; }
+}
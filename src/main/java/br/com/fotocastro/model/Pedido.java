@@ -0,0 +1,101 @@
+package br.com.fotocastro.model;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * Pedido com vários itens (carrinho do caixa): cabeçalho em sales, itens em sale_items
+ * e pagamentos em payments. Cada item gera uma linha em venda ao finalizar.
+ */
+public class Pedido {
+    private Long id;
+    private LocalDateTime dataHora;
+    private final List<Item> itens = new ArrayList<>();
+    private final List<Pagamento> pagamentos = new ArrayList<>();
+
+    public Long getId() { return id; }
+    public void setId(Long id) { this.id = id; }
+
+    public LocalDateTime getDataHora() { return dataHora; }
+    public void setDataHora(LocalDateTime dataHora) { this.dataHora = dataHora; }
+
+    public List<Item> getItens() { return itens; }
+    public List<Pagamento> getPagamentos() { return pagamentos; }
+
+    /**
+     * Adiciona o template ao pedido (soma à linha existente se o template já estiver nele)
+     */
+    public void adicionar(TemplateVenda template, int quantidade) {
+        for (Item i : itens) {
+            if (i.template.getId() != null && Objects.equals(i.template.getId(), template.getId())) {
+                i.quantidade += quantidade;
+                return;
+            }
+        }
+        itens.add(new Item(template, quantidade));
+    }
+
+    /**
+     * Item digitado no caixa, sem template (não baixa estoque)
+     */
+    public void adicionarAvulso(String descricao, double valor) {
+        itens.add(new Item(new TemplateVenda(descricao, valor), 1));
+    }
+
+    public boolean isVazio() {
+        return itens.isEmpty();
+    }
+
+    public int getQuantidadeTotal() {
+        int total = 0;
+        for (Item i : itens) total += i.quantidade;
+        return total;
+    }
+
+    public double getTotalBruto() {
+        double total = 0;
+        for (Item i : itens) total += i.getTotal();
+        return Math.round(total * 100.0) / 100.0;
+    }
+
+    public double getTotalTaxas() {
+        double total = 0;
+        for (Pagamento p : pagamentos) total += p.getTaxa();
+        return Math.round(total * 100.0) / 100.0;
+    }
+
+    public double getTotalLiquido() {
+        return Math.round((getTotalBruto() - getTotalTaxas()) * 100.0) / 100.0;
+    }
+
+    public void limpar() {
+        id = null;
+        dataHora = null;
+        itens.clear();
+        pagamentos.clear();
+    }
+
+    /**
+     * Linha do pedido: template e quantidade, com o preço do momento da venda
+     */
+    public static class Item {
+        private final TemplateVenda template;
+        private int quantidade;
+
+        public Item(TemplateVenda template, int quantidade) {
+            this.template = template;
+            this.quantidade = quantidade;
+        }
+
+        public TemplateVenda getTemplate() { return template; }
+        public boolean isAvulso() { return template.getId() == null; }
+        public int getQuantidade() { return quantidade; }
+        public double getPrecoUnitario() { return template.getPreco(); }
+
+        public double getTotal() {
+            return Math.round(template.getPreco() * quantidade * 100.0) / 100.0;
+        }
+    }
+}
@@ -2,6 +2,10 @@ package br.com.fotocastro.model;
 
 import br.com.fotocastro.template.TemplateIcon;
 
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+
 /**
  * Template de venda com suporte a ícones, tags e vinculação a estoque.
  */
@@ -16,6 +20,9 @@ public class TemplateVenda {
     private Long estoqueItemId;          // FK para item de estoque
     private int quantidadeUso;           // quantas unidades de estoque consome
     private boolean ativo;
+    private int versao;                  // controle otimista (V15)
+    
+    private List<Componente> componentes;  // BOM; null = usa estoqueItemId/quantidadeUso
     
     // Campos transientes (não persistidos, apenas para exibição)
     private String estoqueItemNome;      // nome do item de estoque
@@ -114,6 +121,33 @@ public class TemplateVenda {
         this.ativo = ativo;
     }
     
+    public int getVersao() {
+        return versao;
+    }
+    
+    public void setVersao(int versao) {
+        this.versao = versao;
+    }
+    
+    /**
+     * Componentes de estoque consumidos por unidade vendida.
+     * Sem BOM explícita, retorna o item único legado (ou lista vazia).
+     */
+    public List<Componente> getComponentes() {
+        if (componentes != null) {
+            return componentes;
+        }
+        List<Componente> legado = new ArrayList<>();
+        if (estoqueItemId != null) {
+            legado.add(new Componente(estoqueItemId, Math.max(1, quantidadeUso)));
+        }
+        return legado;
+    }
+    
+    public void setComponentes(List<Componente> componentes) {
+        this.componentes = componentes;
+    }
+    
     public String getEstoqueItemNome() {
         return estoqueItemNome;
     }
@@ -172,4 +206,37 @@ public class TemplateVenda {
     public String toString() {
         return String.format("%s - R$ %.2f", getDescricaoCompleta(), preco);
     }
+    
+    /**
+     * Linha da BOM: item de estoque e quantidade consumida por unidade vendida
+     */
+    public static class Componente {
+        private final Long estoqueId;
+        private final int quantidade;
+        private String nome;              // transiente, para exibição
+        
+        public Componente(Long estoqueId, int quantidade) {
+            this.estoqueId = estoqueId;
+            this.quantidade = quantidade;
+        }
+        
+        public Long getEstoqueId() { return estoqueId; }
+        public int getQuantidade() { return quantidade; }
+        
+        public String getNome() { return nome; }
+        public void setNome(String nome) { this.nome = nome; }
+
+        // Igualdade pela composição (estoqueId + quantidade); o nome é só exibição
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (!(o instanceof Componente c)) return false;
+            return quantidade == c.quantidade && Objects.equals(estoqueId, c.estoqueId);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(estoqueId, quantidade);
+        }
+    }
 }
\ No newline at end of file
@@ -10,6 +10,8 @@ public class Venda {
     private PaymentMethod metodo;
     private double taxa;
     private double valorLiquido;
+    private int versao;
+    private Long pedidoId;        // sale_id: pedido do carrinho (null = venda avulsa)
 
     public Long getId() { return id; }
     public void setId(Long id) { this.id = id; }
@@ -31,4 +33,10 @@ public class Venda {
 
     public double getValorLiquido() { return valorLiquido; }
     public void setValorLiquido(double valorLiquido) { this.valorLiquido = valorLiquido; }
+
+    public int getVersao() { return versao; }
+    public void setVersao(int versao) { this.versao = versao; }
+
+    public Long getPedidoId() { return pedidoId; }
+    public void setPedidoId(Long pedidoId) { this.pedidoId = pedidoId; }
 }
@@ -0,0 +1,125 @@
+package br.com.fotocastro.service;
+
+import br.com.fotocastro.config.AppProperties;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.time.ZonedDateTime;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Virada de dia da aplicação inteira, numa única thread agendada.
+ *
+ * A próxima verificação é marcada para a meia-noite local (fuso lido a cada agendamento).
+ * O executor conta tempo monotônico, então relógio ajustado, horário de verão ou PC suspenso
+ * podem deslocar o disparo: a espera nunca passa de agendador.revisaoMin minutos e cada
+ * disparo confere a data de novo (cedo demais reagenda o restante; atrasado avisa na hora).
+ * Vários dias pulados (PC desligado) geram um único evento com o dia anterior conhecido.
+ */
+public class AgendadorService {
+
+    private static final Logger logger = Logger.getLogger(AgendadorService.class.getName());
+
+    /**
+     * Ouvinte da virada de dia; chamado na thread do agendador (telas usam Platform.runLater)
+     */
+    @FunctionalInterface
+    public interface DiaListener {
+        void diaVirou(LocalDate anterior, LocalDate atual);
+    }
+
+    private static final List<DiaListener> ouvintes = new CopyOnWriteArrayList<>();
+
+    private static ScheduledExecutorService executor;
+    private static ScheduledFuture<?> proxima;
+    private static volatile LocalDate diaAtual;
+
+    private AgendadorService() {
+    }
+
+    public static synchronized void iniciar() {
+        if (executor != null) return;
+        executor = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "agendador");
+            t.setDaemon(true);
+            return t;
+        });
+        diaAtual = LocalDate.now();
+        agendarProxima();
+        logger.info("Agendador ativo: virada de dia às 00:00 (" + ZoneId.systemDefault() + ")");
+    }
+
+    public static synchronized void encerrar() {
+        if (executor == null) return;
+        executor.shutdownNow();
+        executor = null;
+        proxima = null;
+    }
+
+    public static void adicionarOuvinte(DiaListener ouvinte) {
+        ouvintes.add(ouvinte);
+    }
+
+    public static void removerOuvinte(DiaListener ouvinte) {
+        ouvintes.remove(ouvinte);
+    }
+
+    /**
+     * Dia corrente segundo o agendador (o do relógio se ainda não foi iniciado)
+     */
+    public static LocalDate hoje() {
+        LocalDate d = diaAtual;
+        return d != null ? d : LocalDate.now();
+    }
+
+    /**
+     * Confere a data agora (ex.: ao voltar de suspensão); avisa os ouvintes se o dia mudou
+     */
+    public static void verificarAgora() {
+        ScheduledExecutorService e;
+        synchronized (AgendadorService.class) {
+            e = executor;
+        }
+        if (e != null) e.execute(AgendadorService::verificar);
+    }
+
+    // ========== INTERNO ==========
+
+    private static void verificar() {
+        LocalDate agora = LocalDate.now();
+        LocalDate anterior = diaAtual;
+        if (!agora.equals(anterior)) {
+            diaAtual = agora;
+            logger.info("Virada de dia: " + anterior + " -> " + agora);
+            for (DiaListener l : ouvintes) {
+                try {
+                    l.diaVirou(anterior, agora);
+                } catch (RuntimeException ex) {
+                    logger.log(Level.WARNING, "Erro em ouvinte da virada de dia", ex);
+                }
+            }
+        }
+        synchronized (AgendadorService.class) {
+            if (executor != null) agendarProxima();
+        }
+    }
+
+    private static synchronized void agendarProxima() {
+        if (proxima != null) proxima.cancel(false);
+        ZoneId zona = ZoneId.systemDefault();
+        ZonedDateTime agora = ZonedDateTime.now(zona);
+        ZonedDateTime meiaNoite = agora.toLocalDate().plusDays(1).atStartOfDay(zona);
+        long ateMeiaNoite = Duration.between(agora, meiaNoite).toMillis();
+        long revisaoMs = TimeUnit.MINUTES.toMillis(Math.max(1, AppProperties.getLong("agendador.revisaoMin", 60)));
+        long atraso = Math.max(1, Math.min(ateMeiaNoite, revisaoMs));
+        proxima = executor.schedule(AgendadorService::verificar, atraso, TimeUnit.MILLISECONDS);
+    }
+}
@@ -0,0 +1,63 @@
+package br.com.fotocastro.service;
+
+import br.com.fotocastro.config.AppProperties;
+import br.com.fotocastro.infra.VendaDaoH2;
+
+import java.time.LocalDate;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Arquivamento de vendas de meses encerrados: a tabela venda fica só com os
+ * últimos {@code arquivo.mesesQuentes} meses (o atual incluído) e o resto vai
+ * para venda_arquivo. O VendaDaoH2 decide pela data do período qual tabela ler.
+ */
+public class ArquivamentoService {
+
+    private static final Logger logger = Logger.getLogger(ArquivamentoService.class.getName());
+
+    private final VendaDaoH2 vendaDao;
+    private final int mesesQuentes;
+    private final int tamanhoLote;
+
+    public ArquivamentoService() {
+        this(new VendaDaoH2(),
+             AppProperties.getInt("arquivo.mesesQuentes", 3),
+             AppProperties.getInt("arquivo.tamanhoLote", 5000));
+    }
+
+    // Construtor para injeção de dependência (testes)
+    public ArquivamentoService(VendaDaoH2 vendaDao, int mesesQuentes, int tamanhoLote) {
+        this.vendaDao = vendaDao;
+        this.mesesQuentes = Math.max(1, mesesQuentes);
+        this.tamanhoLote = Math.max(1, tamanhoLote);
+    }
+
+    /**
+     * Primeiro dia do mês mais antigo que continua na tabela quente
+     */
+    public LocalDate corteAtual(LocalDate hoje) {
+        return hoje.withDayOfMonth(1).minusMonths(mesesQuentes - 1);
+    }
+
+    /**
+     * Move para o arquivo as vendas anteriores ao corte (também as que entraram com data antiga
+     * depois da última execução, ex.: importação CSV)
+     * @return vendas movidas
+     */
+    public int arquivarMesesEncerrados() {
+        LocalDate corte = corteAtual(LocalDate.now());
+        long inicio = System.nanoTime();
+        try {
+            int movidas = vendaDao.arquivarAntesDe(corte, tamanhoLote);
+            if (movidas > 0) {
+                logger.info(String.format("Arquivamento: %d vendas anteriores a %s movidas em %.0f ms",
+                    movidas, corte, (System.nanoTime() - inicio) / 1e6));
+            }
+            return movidas;
+        } catch (RuntimeException e) {
+            logger.log(Level.SEVERE, "Falha no arquivamento de vendas", e);
+            throw e;
+        }
+    }
+}
@@ -0,0 +1,442 @@
+package br.com.fotocastro.service;
+
+import br.com.fotocastro.config.AppProperties;
+import br.com.fotocastro.infra.BackupDaoH2;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.YearMonth;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipInputStream;
+
+/**
+ * Backup online do banco, sem parar o caixa.
+ * A cópia (H2 BACKUP TO, já compactada em zip enquanto é escrita) roda num worker próprio;
+ * ao terminar, o arquivo é restaurado num banco de rascunho e conferido, e os antigos são
+ * rotacionados (um por dia nos últimos N dias, um por mês nos últimos M meses).
+ * Durante a cópia uma sonda mede a latência da consulta do caixa e compara com o orçamento.
+ * A restauração é aplicada na próxima inicialização, antes de o banco ser aberto.
+ */
+public class BackupService {
+
+    private static final Logger logger = Logger.getLogger(BackupService.class.getName());
+    private static final String PREFIXO = "fotocastro_";
+    private static final String EXTENSAO = ".zip";
+    private static final String MARCADOR_RESTAURACAO = "restaurar.pendente";
+    private static final DateTimeFormatter FORMATO_NOME = DateTimeFormatter.ofPattern("yyyyMMdd_HHmmss");
+    private static final long INTERVALO_SONDA_MS = 200;
+
+    private static ScheduledExecutorService executor;
+    private static final AtomicBoolean emAndamento = new AtomicBoolean();
+
+    private final BackupDaoH2 dao;
+    private final Path pasta;
+    private final int manterDiarios;
+    private final int manterMensais;
+    private final double orcamentoLatenciaMs;
+
+    public BackupService() {
+        this(new BackupDaoH2(),
+             Path.of(AppProperties.get("backup.pasta", "./data/backups")),
+             AppProperties.getInt("backup.manterDiarios", 7),
+             AppProperties.getInt("backup.manterMensais", 12),
+             AppProperties.getInt("backup.orcamentoLatenciaMs", 200));
+    }
+
+    // Construtor para injeção de dependência (testes)
+    public BackupService(BackupDaoH2 dao, Path pasta, int manterDiarios, int manterMensais, double orcamentoLatenciaMs) {
+        this.dao = dao;
+        this.pasta = pasta;
+        this.manterDiarios = manterDiarios;
+        this.manterMensais = manterMensais;
+        this.orcamentoLatenciaMs = orcamentoLatenciaMs;
+    }
+
+    // ========== BACKUP ==========
+
+    /**
+     * Gera, confere e rotaciona um backup em segundo plano
+     */
+    public CompletableFuture<Resultado> fazerBackup() {
+        return CompletableFuture.supplyAsync(this::executarBackup, executor());
+    }
+
+    /**
+     * Backup periódico (backup.intervaloHoras; 0 desliga). O primeiro sai alguns minutos após a abertura.
+     */
+    public static synchronized void agendar() {
+        int horas = AppProperties.getInt("backup.intervaloHoras", 24);
+        if (horas <= 0) return;
+        long atrasoMin = AppProperties.getLong("backup.atrasoInicialMin", 5);
+        BackupService service = new BackupService();
+        executor().scheduleWithFixedDelay(() -> {
+            try {
+                service.executarBackup();
+            } catch (RuntimeException e) {
+                // Já registrado; não cancela os próximos
+            }
+        }, atrasoMin, TimeUnit.HOURS.toMinutes(horas), TimeUnit.MINUTES);
+        logger.info("Backup agendado a cada " + horas + " h");
+    }
+
+    private Resultado executarBackup() {
+        if (!emAndamento.compareAndSet(false, true)) {
+            throw new IllegalStateException("Já existe um backup em andamento");
+        }
+        Sonda sonda = null;
+        Path parcial = null;
+        try {
+            Files.createDirectories(pasta);
+            LocalDateTime agora = LocalDateTime.now();
+            Path destino = pasta.resolve(PREFIXO + agora.format(FORMATO_NOME) + EXTENSAO);
+            parcial = pasta.resolve(destino.getFileName() + ".parcial");
+
+            sonda = new Sonda();
+            sonda.start();
+            long inicio = System.nanoTime();
+            dao.backupPara(parcial);
+            double duracaoMs = (System.nanoTime() - inicio) / 1e6;
+            sonda.parar();
+
+            // Só entra na lista (e na rotação) depois de completo
+            Files.move(parcial, destino, StandardCopyOption.ATOMIC_MOVE);
+
+            Map<String, Long> contagens = verificar(destino);
+            List<Path> removidos = rotacionar();
+
+            Resultado r = new Resultado(destino, Files.size(destino), duracaoMs, contagens,
+                                        sonda.percentil(0.50), sonda.percentil(0.95), sonda.maximo(),
+                                        sonda.amostras.size(), orcamentoLatenciaMs, removidos.size());
+            logger.info("Backup concluído: " + r.resumo());
+            if (!r.isDentroDoOrcamento()) {
+                logger.warning(String.format("Latência do caixa passou do orçamento durante o backup: máx. %.1f ms (orçamento %.0f ms)",
+                    r.latenciaMaxMs, orcamentoLatenciaMs));
+            }
+            return r;
+        } catch (IOException e) {
+            logger.log(Level.SEVERE, "Falha no backup", e);
+            throw new UncheckedIOException("Erro ao gravar backup", e);
+        } catch (RuntimeException e) {
+            logger.log(Level.SEVERE, "Falha no backup", e);
+            throw e;
+        } finally {
+            if (sonda != null) sonda.parar();
+            if (parcial != null) {
+                try {
+                    Files.deleteIfExists(parcial);
+                } catch (IOException ignored) {
+                }
+            }
+            emAndamento.set(false);
+        }
+    }
+
+    public static boolean isEmAndamento() {
+        return emAndamento.get();
+    }
+
+    // ========== VERIFICAÇÃO ==========
+
+    /**
+     * Restaura o backup num banco de rascunho (pasta temporária) e confere se abre e está completo
+     * @return contagens das tabelas principais e número da última migração
+     */
+    public Map<String, Long> verificar(Path backup) throws IOException {
+        Path rascunho = Files.createTempDirectory("fotocastro-verificacao");
+        try {
+            Path base = rascunho.resolve("verificacao");
+            extrairBanco(backup, Path.of(base + ".mv.db"));
+            return BackupDaoH2.conferir(base);
+        } finally {
+            apagarPasta(rascunho);
+        }
+    }
+
+    // ========== ROTAÇÃO ==========
+
+    /**
+     * Backups existentes, do mais novo para o mais antigo
+     */
+    public List<Path> listarBackups() {
+        List<Path> r = new ArrayList<>();
+        if (!Files.isDirectory(pasta)) return r;
+        try (DirectoryStream<Path> ds = Files.newDirectoryStream(pasta, PREFIXO + "*" + EXTENSAO)) {
+            for (Path p : ds) {
+                if (dataDoBackup(p) != null) r.add(p);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Erro ao listar backups em " + pasta, e);
+        }
+        r.sort(Comparator.comparing(BackupService::dataDoBackup).reversed());
+        return r;
+    }
+
+    /**
+     * Mantém o mais novo de cada um dos últimos {@code manterDiarios} dias e de cada um dos
+     * últimos {@code manterMensais} meses; apaga o resto, menos o marcado para restauração
+     * @return arquivos removidos
+     */
+    public List<Path> rotacionar() {
+        Set<LocalDate> dias = new HashSet<>();
+        Set<YearMonth> meses = new HashSet<>();
+        List<Path> removidos = new ArrayList<>();
+        Path pendente = restauracaoPendente();
+
+        for (Path p : listarBackups()) {
+            LocalDateTime data = dataDoBackup(p);
+            boolean manter = pendente != null && pendente.equals(p.toAbsolutePath().normalize());
+            if (dias.size() < manterDiarios && dias.add(data.toLocalDate())) manter = true;
+            if (meses.size() < manterMensais && meses.add(YearMonth.from(data))) manter = true;
+            if (manter) continue;
+
+            try {
+                Files.deleteIfExists(p);
+                removidos.add(p);
+            } catch (IOException e) {
+                logger.warning("Não foi possível remover backup antigo " + p + ": " + e.getMessage());
+            }
+        }
+        if (!removidos.isEmpty()) {
+            logger.info("Rotação de backups: " + removidos.size() + " removido(s)");
+        }
+        return removidos;
+    }
+
+    private static LocalDateTime dataDoBackup(Path p) {
+        String nome = p.getFileName().toString();
+        if (!nome.startsWith(PREFIXO) || !nome.endsWith(EXTENSAO)) return null;
+        try {
+            return LocalDateTime.parse(nome.substring(PREFIXO.length(), nome.length() - EXTENSAO.length()), FORMATO_NOME);
+        } catch (DateTimeParseException e) {
+            return null;
+        }
+    }
+
+    // ========== RESTAURAÇÃO ==========
+
+    /**
+     * Marca o backup para ser restaurado na próxima inicialização (o banco em uso não pode ser trocado aberto).
+     * O backup é conferido antes de ser aceito.
+     */
+    public void agendarRestauracao(Path backup) throws IOException {
+        verificar(backup);
+        Files.createDirectories(pasta);
+        Files.writeString(pasta.resolve(MARCADOR_RESTAURACAO), backup.toAbsolutePath().toString());
+        logger.info("Restauração agendada para a próxima inicialização: " + backup);
+    }
+
+    /**
+     * Backup marcado para restauração (caminho absoluto), ou null se não há nenhuma pendente
+     */
+    private Path restauracaoPendente() {
+        Path marcador = pasta.resolve(MARCADOR_RESTAURACAO);
+        if (!Files.exists(marcador)) return null;
+        try {
+            return Path.of(Files.readString(marcador).trim()).toAbsolutePath().normalize();
+        } catch (IOException e) {
+            logger.warning("Não foi possível ler " + marcador + ": " + e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * Aplica a restauração agendada. Deve rodar antes das migrações e do pool.
+     * O backup é extraído primeiro para um arquivo ao lado do banco; só com a extração completa
+     * o banco atual é preservado (sufixo .antes-restauracao-DATA) e trocado. Se algo falhar o
+     * banco atual fica onde estava e o marcador continua, para nova tentativa na próxima abertura.
+     */
+    public static void aplicarRestauracaoPendente() {
+        Path marcador = Path.of(AppProperties.get("backup.pasta", "./data/backups")).resolve(MARCADOR_RESTAURACAO);
+        if (!Files.exists(marcador)) return;
+        Path banco = Path.of(AppProperties.get("db.path", "./data/fotocastro") + ".mv.db");
+        Path extraido = Path.of(banco + ".restaurando");
+        Path anterior = null;
+        try {
+            Path backup = Path.of(Files.readString(marcador).trim());
+            extrairBanco(backup, extraido);
+
+            if (Files.exists(banco)) {
+                anterior = Path.of(banco + ".antes-restauracao-" + LocalDateTime.now().format(FORMATO_NOME));
+                Files.move(banco, anterior);
+            }
+            Files.move(extraido, banco);
+            Files.deleteIfExists(marcador);
+            if (anterior != null) logger.info("Banco atual preservado em " + anterior);
+            logger.info("Banco restaurado a partir de " + backup);
+        } catch (IOException e) {
+            logger.log(Level.SEVERE, "Falha ao aplicar restauração pendente; banco atual mantido", e);
+            try {
+                Files.deleteIfExists(extraido);
+                if (anterior != null && !Files.exists(banco)) Files.move(anterior, banco);
+            } catch (IOException ex) {
+                logger.log(Level.SEVERE, "Não foi possível devolver o banco original " + anterior, ex);
+            }
+        }
+    }
+
+    private static void extrairBanco(Path backup, Path destino) throws IOException {
+        try (ZipInputStream zip = new ZipInputStream(Files.newInputStream(backup))) {
+            ZipEntry e;
+            while ((e = zip.getNextEntry()) != null) {
+                if (e.getName().endsWith(".mv.db")) {
+                    Files.copy(zip, destino, StandardCopyOption.REPLACE_EXISTING);
+                    return;
+                }
+            }
+        }
+        throw new IOException("Backup sem arquivo de banco: " + backup);
+    }
+
+    private static void apagarPasta(Path pasta) {
+        try (var arquivos = Files.walk(pasta)) {
+            arquivos.sorted(Comparator.reverseOrder()).forEach(p -> {
+                try {
+                    Files.deleteIfExists(p);
+                } catch (IOException ignored) {
+                }
+            });
+        } catch (IOException ignored) {
+        }
+    }
+
+    // ========== SONDA DE LATÊNCIA ==========
+
+    /**
+     * Repete a consulta do caixa em intervalos fixos enquanto a cópia corre
+     */
+    private class Sonda extends Thread {
+        final List<Double> amostras = Collections.synchronizedList(new ArrayList<>());
+        private volatile boolean ativa = true;
+
+        Sonda() {
+            super("backup-sonda");
+            setDaemon(true);
+        }
+
+        @Override
+        public void run() {
+            while (ativa) {
+                try {
+                    amostras.add(dao.sondarLatencia());
+                    Thread.sleep(INTERVALO_SONDA_MS);
+                } catch (InterruptedException e) {
+                    return;
+                } catch (RuntimeException e) {
+                    logger.fine("Sonda de latência falhou: " + e.getMessage());
+                }
+            }
+        }
+
+        void parar() {
+            ativa = false;
+            interrupt();
+            try {
+                join(1000);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+
+        double percentil(double p) {
+            List<Double> copia;
+            synchronized (amostras) {
+                copia = new ArrayList<>(amostras);
+            }
+            if (copia.isEmpty()) return 0;
+            Collections.sort(copia);
+            return copia.get((int) Math.min(copia.size() - 1, Math.ceil(p * copia.size()) - 1));
+        }
+
+        double maximo() {
+            synchronized (amostras) {
+                return amostras.stream().mapToDouble(Double::doubleValue).max().orElse(0);
+            }
+        }
+    }
+
+    // ========== CICLO DE VIDA ==========
+
+    /**
+     * Deixa terminar o backup em andamento e encerra o worker (chamado no shutdown do app)
+     */
+    public static synchronized void encerrar() {
+        if (executor == null) return;
+        executor.shutdown(); // cancela os periódicos; a cópia em curso termina
+        try {
+            if (!executor.awaitTermination(60, TimeUnit.SECONDS)) {
+                logger.warning("Backup ainda em andamento no encerramento");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        executor = null;
+    }
+
+    private static synchronized ScheduledExecutorService executor() {
+        if (executor == null) {
+            executor = Executors.newSingleThreadScheduledExecutor(r -> {
+                Thread t = new Thread(r, "backup");
+                t.setDaemon(true);
+                t.setPriority(Thread.MIN_PRIORITY);
+                return t;
+            });
+        }
+        return executor;
+    }
+
+    // ========== RESULTADO ==========
+
+    public static final class Resultado {
+        public final Path arquivo;
+        public final long bytes;
+        public final double duracaoMs;
+        public final Map<String, Long> contagens;
+        public final double latenciaP50Ms;
+        public final double latenciaP95Ms;
+        public final double latenciaMaxMs;
+        public final int amostras;
+        public final double orcamentoMs;
+        public final int removidos;
+
+        Resultado(Path arquivo, long bytes, double duracaoMs, Map<String, Long> contagens,
+                  double latenciaP50Ms, double latenciaP95Ms, double latenciaMaxMs, int amostras,
+                  double orcamentoMs, int removidos) {
+            this.arquivo = arquivo;
+            this.bytes = bytes;
+            this.duracaoMs = duracaoMs;
+            this.contagens = contagens;
+            this.latenciaP50Ms = latenciaP50Ms;
+            this.latenciaP95Ms = latenciaP95Ms;
+            this.latenciaMaxMs = latenciaMaxMs;
+            this.amostras = amostras;
+            this.orcamentoMs = orcamentoMs;
+            this.removidos = removidos;
+        }
+
+        public boolean isDentroDoOrcamento() {
+            return latenciaMaxMs <= orcamentoMs;
+        }
+
+        public String resumo() {
+            return String.format("%s (%.1f MB) em %.1f s; %d vendas conferidas; caixa p50 %.1f ms, p95 %.1f ms, máx. %.1f ms (%d amostras)",
+                arquivo.getFileName(), bytes / 1048576.0, duracaoMs / 1000, contagens.getOrDefault("venda", 0L),
+                latenciaP50Ms, latenciaP95Ms, latenciaMaxMs, amostras);
+        }
+    }
+}
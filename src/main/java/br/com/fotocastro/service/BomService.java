@@ -0,0 +1,115 @@
+package br.com.fotocastro.service;
+
+import br.com.fotocastro.infra.EstoqueDaoH2;
+import br.com.fotocastro.infra.MonitorAlteracoes;
+import br.com.fotocastro.infra.TemplateDaoH2;
+import br.com.fotocastro.model.TemplateVenda;
+import br.com.fotocastro.model.Venda;
+
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.logging.Logger;
+
+/**
+ * Resolução da composição (BOM) dos templates de venda.
+ * Expande uma venda de template em todas as baixas de componentes
+ * e aplica tudo junto com a venda numa única transação.
+ */
+public class BomService {
+
+    private static final Logger logger = Logger.getLogger(BomService.class.getName());
+
+    // Cache compartilhado: template_id -> componentes resolvidos
+    private static final Map<Long, List<TemplateVenda.Componente>> cache = new ConcurrentHashMap<>();
+
+    private final TemplateDaoH2 templateDao;
+    private final EstoqueDaoH2 estoqueDao;
+
+    public BomService() {
+        this.templateDao = new TemplateDaoH2();
+        this.estoqueDao = new EstoqueDaoH2();
+    }
+
+    // Construtor para injeção de dependência (testes)
+    public BomService(TemplateDaoH2 templateDao, EstoqueDaoH2 estoqueDao) {
+        this.templateDao = templateDao;
+        this.estoqueDao = estoqueDao;
+    }
+
+    /**
+     * Componentes do template (cacheados). Templates sem BOM gravada usam o item único legado.
+     */
+    public List<TemplateVenda.Componente> resolver(TemplateVenda template) {
+        if (template.getId() == null) {
+            return template.getComponentes();
+        }
+        return cache.computeIfAbsent(template.getId(), id -> {
+            List<TemplateVenda.Componente> componentes = templateDao.listarComponentes(id);
+            return List.copyOf(componentes.isEmpty() ? template.getComponentes() : componentes);
+        });
+    }
+
+    /**
+     * Quantidade total de cada item de estoque para vender N unidades do template.
+     * Ordenado por ID para que os locks sejam sempre tomados na mesma ordem.
+     */
+    public Map<Long, Integer> expandir(TemplateVenda template, int quantidadeVenda) {
+        if (quantidadeVenda <= 0) {
+            throw new IllegalArgumentException("Quantidade deve ser maior que zero");
+        }
+
+        Map<Long, Integer> consumo = new TreeMap<>();
+        for (TemplateVenda.Componente c : resolver(template)) {
+            consumo.merge(c.getEstoqueId(), Math.multiplyExact(c.getQuantidade(), quantidadeVenda), Integer::sum);
+        }
+        return consumo;
+    }
+
+    /**
+     * Grava a venda e baixa todos os componentes do template atomicamente
+     * @return ID da venda
+     * @throws IllegalArgumentException se algum componente não tiver saldo (lista todos)
+     */
+    public Long venderComConsumo(Venda venda, TemplateVenda template, int quantidadeVenda) {
+        Map<Long, Integer> consumo = expandir(template, quantidadeVenda);
+        Long vendaId = estoqueDao.registrarVendaComConsumo(venda, consumo);
+
+        logger.info(String.format("Template %s × %d: %d componente(s) baixado(s)",
+            template.getNome(), quantidadeVenda, consumo.size()));
+        return vendaId;
+    }
+
+    /**
+     * Descarta a composição cacheada de um template (após editar/remover)
+     */
+    public static void invalidar(Long templateId) {
+        if (templateId != null) {
+            cache.remove(templateId);
+        }
+    }
+
+    /**
+     * Descarta todo o cache (ex.: item de estoque removido, o que apaga linhas de BOM em cascata)
+     */
+    public static void invalidarTudo() {
+        cache.clear();
+    }
+
+    /**
+     * Templates e estoque alterados em outro terminal: a composição é regravada junto com o
+     * template (uma alteração em sale_templates), e item removido leva as linhas de BOM
+     */
+    public static void aplicarAlteracoes(List<MonitorAlteracoes.Alteracao> alteracoes) {
+        for (MonitorAlteracoes.Alteracao a : alteracoes) {
+            switch (a.getTabela()) {
+                case "sale_templates" -> invalidar(a.getRegistroId());
+                case "estoque" -> {
+                    if (a.getOperacao().equals("D")) invalidarTudo();
+                }
+                default -> { }
+            }
+        }
+    }
+}
@@ -0,0 +1,562 @@
+package br.com.fotocastro.service;
+
+import br.com.fotocastro.infra.EstoqueDaoH2;
+import br.com.fotocastro.infra.MonitorAlteracoes;
+import br.com.fotocastro.infra.TemplateDaoH2;
+import br.com.fotocastro.infra.VendaDaoH2;
+import br.com.fotocastro.infra.VendaListener;
+import br.com.fotocastro.model.ItemEstoque;
+import br.com.fotocastro.model.TemplateVenda;
+import br.com.fotocastro.model.Venda;
+
+import java.text.Normalizer;
+import java.util.*;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.logging.Logger;
+import java.util.regex.Pattern;
+
+/**
+ * Índice de busca em memória sobre nomes de templates, itens de estoque e descrições de vendas.
+ * Termos ficam num dicionário ordenado (busca por prefixo) e num índice de trigramas
+ * (busca aproximada para erros de digitação). Vendas são agrupadas por descrição normalizada,
+ * então o índice cresce com as descrições distintas e não com o número de vendas.
+ * Atualizado incrementalmente via {@link VendaListener} e pelas telas de cadastro.
+ */
+public class BuscaIndex implements VendaListener {
+
+    private static final Logger logger = Logger.getLogger(BuscaIndex.class.getName());
+    private static final Pattern ACENTOS = Pattern.compile("\\p{M}+");
+    private static final Pattern SEPARADORES = Pattern.compile("[^a-z0-9]+");
+
+    private static BuscaIndex instance;
+
+    public enum Tipo { TEMPLATE, ESTOQUE, VENDA }
+
+    private final Map<String, Doc> docs = new HashMap<>();
+    private final NavigableMap<String, NavigableSet<Doc>> termos = new TreeMap<>();
+    private final Map<String, Set<String>> trigramas = new HashMap<>();
+    private final ReentrantReadWriteLock rw = new ReentrantReadWriteLock();
+
+    // Vendas que mudaram durante a carga, por id (null depois da carga)
+    private Map<Long, Mudanca> mudancasNaCarga = new LinkedHashMap<>();
+    private long semId; // chaves negativas para vendas sem id
+
+    private BuscaIndex() {
+    }
+
+    public static synchronized BuscaIndex getInstance() {
+        if (instance == null) {
+            BuscaIndex idx = new BuscaIndex();
+            // Listener antes da carga: venda gravada durante a leitura não se perde
+            VendaDaoH2.adicionarListener(idx);
+            idx.carregar();
+            instance = idx;
+        }
+        return instance;
+    }
+
+    /**
+     * Carga inicial: catálogo completo + descrições de vendas agrupadas (uma consulta).
+     * As descrições são contagens, então os eventos da carga não são aplicados às cegas:
+     * no fim, cada venda que mudou troca o que a leitura via dela pelo estado do último evento.
+     */
+    private void carregar() {
+        long inicio = System.nanoTime();
+
+        for (TemplateVenda t : new TemplateDaoH2().listar()) {
+            indexarTemplate(t);
+        }
+        for (ItemEstoque i : new EstoqueDaoH2().listarTodos()) {
+            indexarItem(i);
+        }
+
+        List<VendaDaoH2.DescricaoResumo> lidas = new ArrayList<>();
+        Set<Long> conferidas = new HashSet<>();
+        Map<Long, Venda> comoLidas = new HashMap<>();
+        new VendaDaoH2().lerDescricoesAgrupadas(lidas::add,
+            () -> {
+                rw.writeLock().lock();
+                try {
+                    mudancasNaCarga.keySet().stream().filter(id -> id > 0).forEach(conferidas::add);
+                } finally {
+                    rw.writeLock().unlock();
+                }
+                return conferidas;
+            },
+            v -> comoLidas.put(v.getId(), v));
+
+        rw.writeLock().lock();
+        try {
+            for (VendaDaoH2.DescricaoResumo d : lidas) {
+                somarVenda(d.descricao, d.ultimoId, d.quantidade);
+            }
+            // Vendas conferidas partem do que a leitura via; as que mudaram depois, do estado antes do 1º evento
+            mudancasNaCarga.forEach((id, m) -> {
+                Venda base = conferidas.contains(id) ? comoLidas.get(id) : m.antes;
+                if (base != null) somarVenda(base.getDescricao(), idOuZero(base), -1);
+                if (m.depois != null) somarVenda(m.depois.getDescricao(), idOuZero(m.depois), 1);
+            });
+            mudancasNaCarga = null;
+        } finally {
+            rw.writeLock().unlock();
+        }
+
+        logger.info(String.format("Índice de busca carregado: %d documentos, %d termos (%.0f ms)",
+            docs.size(), termos.size(), (System.nanoTime() - inicio) / 1e6));
+    }
+
+    // ========== CONSULTA ==========
+
+    /**
+     * Busca por prefixo em todos os termos da consulta; termos sem correspondência
+     * caem para a busca aproximada. Templates vêm antes de estoque e vendas; depois
+     * as mais frequentes.
+     * <p>
+     * As listas de cada termo já estão ordenadas por relevância: o token mais seletivo
+     * é percorrido em ordem (merge das listas dos seus termos) e a busca para ao juntar
+     * {@code limite} documentos que também casam com os demais tokens.
+     * @param tipos tipos aceitos (vazio = todos)
+     */
+    public List<Resultado> buscar(String consulta, int limite, Tipo... tipos) {
+        List<String> tokens = tokenizar(consulta);
+        if (tokens.isEmpty() || limite <= 0) {
+            return List.of();
+        }
+        EnumSet<Tipo> aceitos = tipos.length == 0 ? EnumSet.allOf(Tipo.class) : EnumSet.copyOf(Arrays.asList(tipos));
+
+        rw.readLock().lock();
+        try {
+            // Termos do vocabulário aceitos para cada token
+            List<Collection<String>> aceitosPorToken = new ArrayList<>(tokens.size());
+            boolean aproximado = false;
+            int guia = -1;
+            long menorTotal = Long.MAX_VALUE;
+
+            for (int i = 0; i < tokens.size(); i++) {
+                String token = tokens.get(i);
+                Collection<String> porToken = termos.subMap(token, true, token + Character.MAX_VALUE, true).keySet();
+                if (porToken.isEmpty()) {
+                    porToken = semelhantes(token);
+                    aproximado = true;
+                }
+                if (porToken.isEmpty()) {
+                    return List.of();
+                }
+                long total = 0;
+                for (String t : porToken) {
+                    total += termos.get(t).size();
+                }
+                if (total < menorTotal) {
+                    menorTotal = total;
+                    guia = i;
+                }
+                aceitosPorToken.add(porToken);
+            }
+
+            // Merge em ordem de relevância das listas do token guia
+            PriorityQueue<Cursor> fila = new PriorityQueue<>();
+            for (String t : aceitosPorToken.get(guia)) {
+                Iterator<Doc> it = termos.get(t).iterator();
+                if (it.hasNext()) fila.add(new Cursor(it));
+            }
+
+            List<Resultado> resultado = new ArrayList<>(limite);
+            Set<Doc> vistos = new HashSet<>();
+            while (!fila.isEmpty() && resultado.size() < limite) {
+                Cursor c = fila.poll();
+                Doc d = c.atual;
+                if (c.avancar()) fila.add(c);
+
+                if (!aceitos.contains(d.tipo) || !vistos.add(d)) continue;
+                if (casaComTodos(d, aceitosPorToken, guia)) {
+                    resultado.add(new Resultado(d.tipo, d.id, d.texto, d.ocorrencias, aproximado));
+                }
+            }
+            return resultado;
+        } finally {
+            rw.readLock().unlock();
+        }
+    }
+
+    private static boolean casaComTodos(Doc d, List<Collection<String>> aceitosPorToken, int guia) {
+        for (int i = 0; i < aceitosPorToken.size(); i++) {
+            if (i == guia) continue;
+            Collection<String> aceitos = aceitosPorToken.get(i);
+            boolean casou = false;
+            for (String termo : d.termos) {
+                if (aceitos.contains(termo)) {
+                    casou = true;
+                    break;
+                }
+            }
+            if (!casou) return false;
+        }
+        return true;
+    }
+
+    /**
+     * Termos do vocabulário a até 1 (curtos) ou 2 edições do token, comparando também
+     * com o início do termo (o usuário ainda está digitando)
+     */
+    private Set<String> semelhantes(String token) {
+        Set<String> r = new HashSet<>();
+        if (token.length() < 3) {
+            return r;
+        }
+        int maxDist = token.length() <= 4 ? 1 : 2;
+
+        Set<String> vistos = new HashSet<>();
+        for (String g : trigramasDe(token)) {
+            for (String termo : trigramas.getOrDefault(g, Set.of())) {
+                if (!vistos.add(termo)) continue;
+                String inicio = termo.substring(0, Math.min(termo.length(), token.length()));
+                int dist = Math.min(distancia(token, termo, maxDist), distancia(token, inicio, maxDist));
+                if (dist <= maxDist) {
+                    r.add(termo);
+                }
+            }
+        }
+        return r;
+    }
+
+    // ========== ATUALIZAÇÃO ==========
+
+    public void indexarTemplate(TemplateVenda t) {
+        if (t == null || t.getId() == null) return;
+        substituir("T:" + t.getId(), Tipo.TEMPLATE, t.getId(), t.getDescricaoCompleta());
+    }
+
+    public void removerTemplate(Long id) {
+        remover("T:" + id);
+    }
+
+    public void indexarItem(ItemEstoque i) {
+        if (i == null || i.getId() == null) return;
+        StringBuilder texto = new StringBuilder(i.getNome());
+        if (i.getCor() != null && !i.getCor().isBlank()) texto.append(' ').append(i.getCor());
+        if (i.getTamanho() != null && !i.getTamanho().isBlank()) texto.append(' ').append(i.getTamanho());
+        substituir("E:" + i.getId(), Tipo.ESTOQUE, i.getId(), texto.toString());
+    }
+
+    /**
+     * Estoque e templates alterados em outro terminal; as vendas chegam pelo VendaListener
+     */
+    public void aplicarAlteracoes(List<MonitorAlteracoes.Alteracao> alteracoes) {
+        for (MonitorAlteracoes.Alteracao a : alteracoes) {
+            Long id = a.getRegistroId();
+            if (id == null) continue;
+            boolean removido = a.getOperacao().equals("D");
+            switch (a.getTabela()) {
+                case "estoque" -> {
+                    if (removido) removerItem(id);
+                    else new EstoqueDaoH2().buscarPorId(id).ifPresentOrElse(this::indexarItem, () -> removerItem(id));
+                }
+                case "sale_templates" -> {
+                    if (removido) removerTemplate(id);
+                    else new TemplateDaoH2().buscarPorId(id).filter(TemplateVenda::isAtivo)
+                        .ifPresentOrElse(this::indexarTemplate, () -> removerTemplate(id));
+                }
+                default -> { }
+            }
+        }
+    }
+
+    public void removerItem(Long id) {
+        remover("E:" + id);
+    }
+
+    @Override
+    public void vendasInseridas(List<Venda> vendas) {
+        rw.writeLock().lock();
+        try {
+            for (Venda v : vendas) {
+                if (!registrarDuranteCarga(null, v)) somarVenda(v.getDescricao(), idOuZero(v), 1);
+            }
+        } finally {
+            rw.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public void vendaAtualizada(Venda anterior, Venda atual) {
+        rw.writeLock().lock();
+        try {
+            if (registrarDuranteCarga(anterior, atual)) return;
+            somarVenda(anterior.getDescricao(), idOuZero(anterior), -1);
+            somarVenda(atual.getDescricao(), idOuZero(atual), 1);
+        } finally {
+            rw.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public void vendasRemovidas(List<Venda> vendas) {
+        rw.writeLock().lock();
+        try {
+            for (Venda v : vendas) {
+                if (!registrarDuranteCarga(v, null)) somarVenda(v.getDescricao(), idOuZero(v), -1);
+            }
+        } finally {
+            rw.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Durante a carga só registra a mudança da venda (estado antes do primeiro evento e depois
+     * do último). Exige o write lock.
+     */
+    private boolean registrarDuranteCarga(Venda antes, Venda depois) {
+        if (mudancasNaCarga == null) return false;
+        Venda v = depois != null ? depois : antes;
+        Long id = v.getId() != null ? v.getId() : --semId;
+        Mudanca m = mudancasNaCarga.get(id);
+        if (m == null) {
+            mudancasNaCarga.put(id, new Mudanca(antes, depois));
+        } else {
+            m.depois = depois;
+        }
+        return true;
+    }
+
+    private static long idOuZero(Venda v) {
+        return v.getId() != null ? v.getId() : 0L;
+    }
+
+    /**
+     * Ajusta a contagem da descrição (cria ou remove o documento). Exige o write lock.
+     */
+    private void somarVenda(String descricao, long id, int delta) {
+        List<String> tokens = tokenizar(descricao);
+        if (tokens.isEmpty()) return;
+        String chave = "V:" + String.join(" ", tokens);
+
+        Doc d = docs.get(chave);
+        if (d == null) {
+            if (delta <= 0) return;
+            d = new Doc(Tipo.VENDA, id, descricao.trim(), tokens);
+            d.ocorrencias = delta;
+            adicionar(chave, d);
+            return;
+        }
+        if (d.ocorrencias + delta <= 0) {
+            desindexar(chave);
+            return;
+        }
+
+        // A ordem nas listas depende da contagem/texto: retira, altera e reinsere
+        for (String termo : d.termos) termos.get(termo).remove(d);
+        d.ocorrencias += delta;
+        if (delta > 0 && id >= d.id) {
+            d.id = id;
+            d.texto = descricao.trim();
+        }
+        for (String termo : d.termos) termos.get(termo).add(d);
+    }
+
+    private void substituir(String chave, Tipo tipo, Long id, String texto) {
+        rw.writeLock().lock();
+        try {
+            desindexar(chave);
+            List<String> tokens = tokenizar(texto);
+            if (!tokens.isEmpty()) {
+                adicionar(chave, new Doc(tipo, id, texto, tokens));
+            }
+        } finally {
+            rw.writeLock().unlock();
+        }
+    }
+
+    private void remover(String chave) {
+        rw.writeLock().lock();
+        try {
+            desindexar(chave);
+        } finally {
+            rw.writeLock().unlock();
+        }
+    }
+
+    private void adicionar(String chave, Doc d) {
+        docs.put(chave, d);
+        for (String termo : d.termos) {
+            termos.computeIfAbsent(termo, t -> {
+                for (String g : trigramasDe(t)) {
+                    trigramas.computeIfAbsent(g, k -> new HashSet<>()).add(t);
+                }
+                return new TreeSet<>(RELEVANCIA);
+            }).add(d);
+        }
+    }
+
+    private void desindexar(String chave) {
+        Doc d = docs.remove(chave);
+        if (d == null) return;
+        for (String termo : d.termos) {
+            NavigableSet<Doc> postings = termos.get(termo);
+            if (postings == null) continue;
+            postings.remove(d);
+            if (postings.isEmpty()) {
+                termos.remove(termo);
+                for (String g : trigramasDe(termo)) {
+                    Set<String> s = trigramas.get(g);
+                    if (s != null && s.remove(termo) && s.isEmpty()) {
+                        trigramas.remove(g);
+                    }
+                }
+            }
+        }
+    }
+
+    // ========== TEXTO ==========
+
+    /**
+     * Mesmo texto depois de normalizado (sem acentos, maiúsculas ou pontuação)
+     */
+    public static boolean mesmoTexto(String a, String b) {
+        return tokenizar(a).equals(tokenizar(b));
+    }
+
+    /**
+     * Minúsculas, sem acentos, separado em termos alfanuméricos ("Revelação 10x15" -> [revelacao, 10x15])
+     */
+    static List<String> tokenizar(String texto) {
+        if (texto == null || texto.isBlank()) {
+            return List.of();
+        }
+        String norm = ACENTOS.matcher(Normalizer.normalize(texto, Normalizer.Form.NFD)).replaceAll("")
+            .toLowerCase(Locale.ROOT);
+        List<String> tokens = new ArrayList<>();
+        for (String t : SEPARADORES.split(norm)) {
+            if (!t.isEmpty()) tokens.add(t);
+        }
+        return tokens;
+    }
+
+    private static Set<String> trigramasDe(String termo) {
+        String s = "$" + termo + "$";
+        Set<String> r = new HashSet<>();
+        for (int i = 0; i + 3 <= s.length(); i++) {
+            r.add(s.substring(i, i + 3));
+        }
+        return r;
+    }
+
+    /**
+     * Distância de Levenshtein com corte: retorna max+1 assim que ultrapassa o limite
+     */
+    private static int distancia(String a, String b, int max) {
+        if (Math.abs(a.length() - b.length()) > max) return max + 1;
+        int[] anterior = new int[b.length() + 1];
+        int[] atual = new int[b.length() + 1];
+        for (int j = 0; j <= b.length(); j++) anterior[j] = j;
+
+        for (int i = 1; i <= a.length(); i++) {
+            atual[0] = i;
+            int menor = atual[0];
+            for (int j = 1; j <= b.length(); j++) {
+                int custo = a.charAt(i - 1) == b.charAt(j - 1) ? 0 : 1;
+                atual[j] = Math.min(Math.min(atual[j - 1] + 1, anterior[j] + 1), anterior[j - 1] + custo);
+                menor = Math.min(menor, atual[j]);
+            }
+            if (menor > max) return max + 1;
+            int[] tmp = anterior; anterior = atual; atual = tmp;
+        }
+        return anterior[b.length()];
+    }
+
+    // ========== TIPOS ==========
+
+    /**
+     * Ordem das listas de cada termo: tipo, mais frequentes, texto mais curto (seq desempata)
+     */
+    private static final Comparator<Doc> RELEVANCIA = Comparator.<Doc>comparingInt(d -> d.tipo.ordinal())
+        .thenComparing(Comparator.<Doc>comparingInt(d -> d.ocorrencias).reversed())
+        .thenComparingInt(d -> d.texto.length())
+        .thenComparingLong(d -> d.seq);
+
+    private static final AtomicLong SEQ = new AtomicLong();
+
+    private static final class Mudanca {
+        final Venda antes;  // null: venda não existia
+        Venda depois;       // null: venda removida
+
+        Mudanca(Venda antes, Venda depois) {
+            this.antes = antes;
+            this.depois = depois;
+        }
+    }
+
+    private static final class Doc {
+        final Tipo tipo;
+        final String[] termos;
+        final long seq = SEQ.incrementAndGet();
+        long id;
+        String texto;
+        int ocorrencias = 1;
+
+        Doc(Tipo tipo, long id, String texto, List<String> tokens) {
+            this.tipo = tipo;
+            this.id = id;
+            this.texto = texto;
+            this.termos = new LinkedHashSet<>(tokens).toArray(new String[0]);
+        }
+    }
+
+    /**
+     * Posição corrente numa lista de termo durante o merge
+     */
+    private static final class Cursor implements Comparable<Cursor> {
+        final Iterator<Doc> it;
+        Doc atual;
+
+        Cursor(Iterator<Doc> it) {
+            this.it = it;
+            this.atual = it.next();
+        }
+
+        boolean avancar() {
+            if (!it.hasNext()) return false;
+            atual = it.next();
+            return true;
+        }
+
+        @Override
+        public int compareTo(Cursor o) {
+            return RELEVANCIA.compare(atual, o.atual);
+        }
+    }
+
+    /**
+     * Item encontrado. Para vendas, id é a venda mais recente com a descrição.
+     */
+    public static class Resultado {
+        private final Tipo tipo;
+        private final long id;
+        private final String texto;
+        private final int ocorrencias;
+        private final boolean aproximado;
+
+        public Resultado(Tipo tipo, long id, String texto, int ocorrencias, boolean aproximado) {
+            this.tipo = tipo;
+            this.id = id;
+            this.texto = texto;
+            this.ocorrencias = ocorrencias;
+            this.aproximado = aproximado;
+        }
+
+        public Tipo getTipo() { return tipo; }
+        public long getId() { return id; }
+        public String getTexto() { return texto; }
+        public int getOcorrencias() { return ocorrencias; }
+        public boolean isAproximado() { return aproximado; }
+
+        @Override
+        public String toString() {
+            return switch (tipo) {
+                case TEMPLATE -> "⚡ " + texto;
+                case ESTOQUE -> "📦 " + texto;
+                case VENDA -> ocorrencias > 1 ? texto + "  (" + ocorrencias + "×)" : texto;
+            };
+        }
+    }
+}
@@ -0,0 +1,219 @@
+package br.com.fotocastro.service;
+
+import br.com.fotocastro.config.AppProperties;
+import br.com.fotocastro.infra.Auditoria;
+import br.com.fotocastro.infra.VendaDaoH2;
+import br.com.fotocastro.infra.VendaDaoH2.TotaisCaixa;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Conferência dos fechamentos de caixa: os totais gravados em fechamento_caixa ficam
+ * congelados, mas vendas do dia podem ser editadas ou removidas depois. Aqui os totais de
+ * cada dia são recalculados (uma consulta agrupada por dia e método por trecho do período)
+ * e comparados com o fechamento.
+ *
+ * O período é dividido ao meio até trechos de {@code conciliacao.diasPorTarefa} dias, que
+ * rodam num ForkJoinPool próprio de {@code conciliacao.paralelismo} threads (cada trecho
+ * ocupa uma conexão do pool enquanto consulta). Roda na abertura e toda noite na virada de dia.
+ */
+public class ConciliacaoService {
+
+    private static final Logger logger = Logger.getLogger(ConciliacaoService.class.getName());
+
+    // Diferenças abaixo de meio centavo são arredondamento
+    private static final double TOLERANCIA = 0.005;
+    private static final DateTimeFormatter DATA = DateTimeFormatter.ofPattern("dd/MM/yyyy");
+
+    private static volatile Resultado ultimoResultado;
+
+    private final VendaDaoH2 vendaDao;
+    private final int diasPorTarefa;
+    private final int paralelismo;
+
+    public ConciliacaoService() {
+        this(new VendaDaoH2(),
+             AppProperties.getInt("conciliacao.diasPorTarefa", 31),
+             AppProperties.getInt("conciliacao.paralelismo",
+                 Math.min(4, Runtime.getRuntime().availableProcessors())));
+    }
+
+    // Construtor para injeção de dependência (testes)
+    public ConciliacaoService(VendaDaoH2 vendaDao, int diasPorTarefa, int paralelismo) {
+        this.vendaDao = vendaDao;
+        this.diasPorTarefa = Math.max(1, diasPorTarefa);
+        this.paralelismo = Math.max(1, paralelismo);
+    }
+
+    /**
+     * Confere todos os dias desde o primeiro fechamento até ontem. Fechamentos da época em que
+     * fechar o caixa apagava as vendas do dia (antes de {@code conciliacao_desde}) ficam de fora.
+     */
+    public Resultado conciliar() {
+        LocalDate hoje = LocalDate.now();
+        LocalDate desde = vendaDao.primeiroFechamento().orElse(hoje);
+        Optional<LocalDate> inicio = vendaDao.getConciliacaoDesde();
+        if (inicio.isPresent() && inicio.get().isAfter(desde)) {
+            desde = inicio.get();
+        }
+        return conciliar(desde, hoje);
+    }
+
+    /**
+     * Confere os dias de [desde, ate)
+     */
+    public Resultado conciliar(LocalDate desde, LocalDate ate) {
+        long inicio = System.nanoTime();
+        List<Divergencia> divergencias;
+        ForkJoinPool pool = new ForkJoinPool(paralelismo);
+        try {
+            divergencias = pool.invoke(new Trecho(desde, ate));
+        } catch (RuntimeException e) {
+            logger.log(Level.SEVERE, "Falha na conciliação dos fechamentos", e);
+            throw e;
+        } finally {
+            pool.shutdown();
+        }
+        divergencias.sort(Comparator.comparing(d -> d.dia));
+
+        long ms = (System.nanoTime() - inicio) / 1_000_000;
+        Resultado r = new Resultado(LocalDateTime.now(), desde, ate, divergencias, ms);
+        ultimoResultado = r;
+
+        if (divergencias.isEmpty()) {
+            logger.info(String.format("Conciliação %s a %s: fechamentos conferem (%d ms)", desde, ate.minusDays(1), ms));
+        } else {
+            logger.warning(String.format("Conciliação %s a %s: %d dia(s) divergente(s) (%d ms)",
+                desde, ate.minusDays(1), divergencias.size(), ms));
+            Auditoria.registrar("CONCILIACAO_DIVERGENTE", "caixa", null,
+                divergencias.size() + " dia(s): " + divergencias.stream().limit(10)
+                    .map(d -> d.dia.toString()).reduce((a, b) -> a + ", " + b).orElse(""));
+        }
+        return r;
+    }
+
+    /**
+     * Resultado da última conferência (null se ainda não rodou)
+     */
+    public static Resultado getUltimoResultado() {
+        return ultimoResultado;
+    }
+
+    // ========== FORK/JOIN ==========
+
+    private class Trecho extends RecursiveTask<List<Divergencia>> {
+        private final LocalDate desde;
+        private final LocalDate ate;
+
+        Trecho(LocalDate desde, LocalDate ate) {
+            this.desde = desde;
+            this.ate = ate;
+        }
+
+        @Override
+        protected List<Divergencia> compute() {
+            long dias = ChronoUnit.DAYS.between(desde, ate);
+            if (dias <= 0) return new ArrayList<>();
+            if (dias <= diasPorTarefa) return comparar(desde, ate);
+
+            LocalDate meio = desde.plusDays(dias / 2);
+            Trecho esquerda = new Trecho(desde, meio);
+            esquerda.fork();
+            List<Divergencia> resultado = new Trecho(meio, ate).compute();
+            resultado.addAll(esquerda.join());
+            return resultado;
+        }
+    }
+
+    private List<Divergencia> comparar(LocalDate desde, LocalDate ate) {
+        Map<LocalDate, TotaisCaixa> fechados = vendaDao.fechamentosPorDia(desde, ate);
+        Map<LocalDate, TotaisCaixa> atuais = vendaDao.totaisPorDia(desde, ate);
+
+        Set<LocalDate> dias = new TreeSet<>(fechados.keySet());
+        dias.addAll(atuais.keySet());
+
+        List<Divergencia> divergencias = new ArrayList<>();
+        for (LocalDate dia : dias) {
+            TotaisCaixa fechado = fechados.get(dia);
+            TotaisCaixa atual = atuais.getOrDefault(dia, new TotaisCaixa());
+            List<String> campos = fechado == null ? List.of() : camposDivergentes(fechado, atual);
+            if (fechado == null || !campos.isEmpty()) {
+                divergencias.add(new Divergencia(dia, fechado, atual, campos));
+            }
+        }
+        return divergencias;
+    }
+
+    private static List<String> camposDivergentes(TotaisCaixa f, TotaisCaixa a) {
+        List<String> campos = new ArrayList<>();
+        if (difere(f.getBruto(), a.getBruto())) campos.add("bruto");
+        if (difere(f.getTaxas(), a.getTaxas())) campos.add("taxas");
+        if (difere(f.getLiquido(), a.getLiquido())) campos.add("líquido");
+        if (difere(f.getDinheiro(), a.getDinheiro())) campos.add("dinheiro");
+        if (difere(f.getCartao(), a.getCartao())) campos.add("cartão");
+        if (difere(f.getPix(), a.getPix())) campos.add("pix");
+        return campos;
+    }
+
+    private static boolean difere(double a, double b) {
+        return Math.abs(a - b) >= TOLERANCIA;
+    }
+
+    // ========== RESULTADO ==========
+
+    public static class Divergencia {
+        public final LocalDate dia;
+        public final TotaisCaixa fechado; // null = dia com vendas e sem fechamento
+        public final TotaisCaixa atual;
+        public final List<String> campos;
+
+        Divergencia(LocalDate dia, TotaisCaixa fechado, TotaisCaixa atual, List<String> campos) {
+            this.dia = dia;
+            this.fechado = fechado;
+            this.atual = atual;
+            this.campos = campos;
+        }
+
+        /**
+         * Texto para a aba Avisos
+         */
+        public String getDescricao() {
+            if (fechado == null) {
+                return String.format("⚠️ %s: vendas de R$ %.2f sem fechamento de caixa",
+                    dia.format(DATA), atual.getBruto());
+            }
+            return String.format("⚖️ %s: fechamento não confere com as vendas (%s) — líquido fechado R$ %.2f, atual R$ %.2f",
+                dia.format(DATA), String.join(", ", campos), fechado.getLiquido(), atual.getLiquido());
+        }
+    }
+
+    public static class Resultado {
+        public final LocalDateTime executadoEm;
+        public final LocalDate desde;
+        public final LocalDate ate;
+        public final List<Divergencia> divergencias;
+        public final long duracaoMs;
+
+        Resultado(LocalDateTime executadoEm, LocalDate desde, LocalDate ate, List<Divergencia> divergencias, long duracaoMs) {
+            this.executadoEm = executadoEm;
+            this.desde = desde;
+            this.ate = ate;
+            this.divergencias = List.copyOf(divergencias);
+            this.duracaoMs = duracaoMs;
+        }
+    }
+}
@@ -1,11 +1,19 @@
 package br.com.fotocastro.service;
 
+import br.com.fotocastro.infra.VendaDaoH2;
+import br.com.fotocastro.infra.VendaDaoH2.Periodo;
+import br.com.fotocastro.infra.VendaDaoH2.Resumo;
+import br.com.fotocastro.infra.VendaDaoH2.ResumoMetodos;
 import br.com.fotocastro.model.ItemEstoque;
+import br.com.fotocastro.model.PaymentMethod;
 import br.com.fotocastro.model.Venda;
 
 import java.time.LocalDate;
+import java.time.YearMonth;
 import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
 import java.util.logging.Logger;
 
 /**
@@ -19,16 +27,19 @@ public class DashboardService {
     
     private final SaleService saleService;
     private final InventoryService inventoryService;
+    private final VendaDaoH2 vendaDao;
     
     public DashboardService() {
         this.saleService = new SaleService();
         this.inventoryService = new InventoryService();
+        this.vendaDao = new VendaDaoH2();
     }
     
     // Construtor para injeção de dependência (testes)
-    public DashboardService(SaleService saleService, InventoryService inventoryService) {
+    public DashboardService(SaleService saleService, InventoryService inventoryService, VendaDaoH2 vendaDao) {
         this.saleService = saleService;
         this.inventoryService = inventoryService;
+        this.vendaDao = vendaDao;
     }
     
     // ========== KPIs PRINCIPAIS ==========
@@ -148,21 +159,47 @@ public class DashboardService {
     // ========== ANÁLISES ==========
     
     /**
-     * Compara vendas de dois períodos
+     * Compara vendas de dois períodos (líquido, numa única consulta)
      */
     public ComparacaoPeriodos compararPeriodos(LocalDate inicio1, LocalDate fim1,
                                                  LocalDate inicio2, LocalDate fim2) {
-        double totalPeriodo1 = saleService.calcularTotalPeriodo(inicio1, fim1);
-        double totalPeriodo2 = saleService.calcularTotalPeriodo(inicio2, fim2);
-        
-        double diferenca = totalPeriodo2 - totalPeriodo1;
-        double percentual = totalPeriodo1 > 0 ? (diferenca / totalPeriodo1) * 100 : 0;
-        
-        return new ComparacaoPeriodos(
-            inicio1, fim1, totalPeriodo1,
-            inicio2, fim2, totalPeriodo2,
-            diferenca, percentual
-        );
+        List<ResumoPeriodo> r = resumirPeriodos(List.of(new Periodo(inicio1, fim1), new Periodo(inicio2, fim2)));
+        return new ComparacaoPeriodos(r.get(0), r.get(1));
+    }
+    
+    /**
+     * Quantidade, bruto, taxas, líquido e divisão por método de cada período, na ordem
+     * recebida, numa única consulta (períodos podem ser arbitrários e se sobrepor)
+     */
+    public List<ResumoPeriodo> resumirPeriodos(List<Periodo> periodos) {
+        long inicio = System.nanoTime();
+        List<ResumoMetodos> resumos = vendaDao.resumoPorPeriodos(periodos);
+        List<ResumoPeriodo> r = new ArrayList<>(periodos.size());
+        for (int i = 0; i < periodos.size(); i++) {
+            r.add(new ResumoPeriodo(periodos.get(i), resumos.get(i)));
+        }
+        logger.fine(() -> String.format("%d período(s) resumidos em %.0f ms", periodos.size(), (System.nanoTime() - inicio) / 1e6));
+        return r;
+    }
+    
+    /**
+     * Cada um dos últimos {@code meses} meses (até o mês atual, inclusive) contra o mesmo
+     * mês do ano anterior; os 2 × meses períodos saem de uma única consulta
+     */
+    public List<ComparacaoPeriodos> compararComAnoAnterior(int meses) {
+        YearMonth atual = YearMonth.now();
+        List<Periodo> periodos = new ArrayList<>(meses * 2);
+        for (int i = meses - 1; i >= 0; i--) {
+            YearMonth mes = atual.minusMonths(i);
+            periodos.add(Periodo.doMes(mes.minusYears(1)));
+            periodos.add(Periodo.doMes(mes));
+        }
+        List<ResumoPeriodo> r = resumirPeriodos(periodos);
+        List<ComparacaoPeriodos> comparacoes = new ArrayList<>(meses);
+        for (int i = 0; i < r.size(); i += 2) {
+            comparacoes.add(new ComparacaoPeriodos(r.get(i), r.get(i + 1)));
+        }
+        return comparacoes;
     }
     
     /**
@@ -337,10 +374,26 @@ public class DashboardService {
         private final double total2;
         private final double diferenca;
         private final double percentual;
+        private final ResumoPeriodo resumo1, resumo2; // null quando montada só com os totais
+        
+        public ComparacaoPeriodos(ResumoPeriodo resumo1, ResumoPeriodo resumo2) {
+            this(resumo1.getInicio(), resumo1.getFim(), resumo1.getLiquido(),
+                 resumo2.getInicio(), resumo2.getFim(), resumo2.getLiquido(),
+                 resumo2.getLiquido() - resumo1.getLiquido(),
+                 resumo1.getLiquido() > 0 ? (resumo2.getLiquido() - resumo1.getLiquido()) / resumo1.getLiquido() * 100 : 0,
+                 resumo1, resumo2);
+        }
         
         public ComparacaoPeriodos(LocalDate inicio1, LocalDate fim1, double total1,
                                   LocalDate inicio2, LocalDate fim2, double total2,
                                   double diferenca, double percentual) {
+            this(inicio1, fim1, total1, inicio2, fim2, total2, diferenca, percentual, null, null);
+        }
+        
+        private ComparacaoPeriodos(LocalDate inicio1, LocalDate fim1, double total1,
+                                   LocalDate inicio2, LocalDate fim2, double total2,
+                                   double diferenca, double percentual,
+                                   ResumoPeriodo resumo1, ResumoPeriodo resumo2) {
             this.inicio1 = inicio1;
             this.fim1 = fim1;
             this.total1 = total1;
@@ -349,6 +402,8 @@ public class DashboardService {
             this.total2 = total2;
             this.diferenca = diferenca;
             this.percentual = percentual;
+            this.resumo1 = resumo1;
+            this.resumo2 = resumo2;
         }
         
         public LocalDate getInicio1() { return inicio1; }
@@ -359,11 +414,51 @@ public class DashboardService {
         public double getTotal2() { return total2; }
         public double getDiferenca() { return diferenca; }
         public double getPercentual() { return percentual; }
+        public ResumoPeriodo getResumo1() { return resumo1; }
+        public ResumoPeriodo getResumo2() { return resumo2; }
         
         public boolean isMelhorou() { return diferenca > 0; }
         public boolean isPiorou() { return diferenca < 0; }
     }
     
+    /**
+     * Totais de um período (pedido dividido conta uma vez) e a divisão por método de pagamento
+     */
+    public static class ResumoPeriodo {
+        private final Periodo periodo;
+        private final Map<PaymentMethod, Resumo> porMetodo;
+        private final long quantidade;
+        private final double bruto;
+        private final double taxas;
+        private final double liquido;
+        
+        public ResumoPeriodo(Periodo periodo, ResumoMetodos resumo) {
+            this.periodo = periodo;
+            this.porMetodo = resumo.getPorMetodo();
+            Resumo total = resumo.getTotal();
+            this.quantidade = total.getQuantidade();
+            this.bruto = total.getBruto();
+            this.taxas = total.getTaxas();
+            this.liquido = total.getLiquido();
+        }
+        
+        public LocalDate getInicio() { return periodo.getInicio(); }
+        public LocalDate getFim() { return periodo.getFim(); }
+        public long getQuantidade() { return quantidade; }
+        public double getBruto() { return bruto; }
+        public double getTaxas() { return taxas; }
+        public double getLiquido() { return liquido; }
+        
+        /**
+         * Resumo do método no período (zerado se não houve venda nele)
+         */
+        public Resumo getMetodo(PaymentMethod metodo) {
+            return porMetodo.getOrDefault(metodo, new Resumo(0, 0, 0, 0));
+        }
+        
+        public Map<PaymentMethod, Resumo> getPorMetodo() { return porMetodo; }
+    }
+    
     /**
      * Alertas do sistema
      */
@@ -0,0 +1,156 @@
+package br.com.fotocastro.service;
+
+import br.com.fotocastro.infra.VendaDaoH2;
+import br.com.fotocastro.utils.CsvEscritor;
+import br.com.fotocastro.utils.EscritorPlanilha;
+import br.com.fotocastro.utils.XlsxEscritor;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.function.DoubleConsumer;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Exportação do ano fiscal (vendas e fechamentos) para o contador, em CSV ou XLSX.
+ * As linhas vêm de cursores do VendaDaoH2 e vão direto para o arquivo:
+ * a memória usada não depende do número de vendas.
+ */
+public class ExportacaoContabilService {
+
+    private static final Logger logger = Logger.getLogger(ExportacaoContabilService.class.getName());
+    private static final int INTERVALO_PROGRESSO = 10_000;
+
+    public enum Formato { CSV, XLSX }
+
+    private static ExecutorService executor;
+
+    private final VendaDaoH2 vendaDao;
+
+    public ExportacaoContabilService() {
+        this.vendaDao = new VendaDaoH2();
+    }
+
+    // Construtor para injeção de dependência (testes)
+    public ExportacaoContabilService(VendaDaoH2 vendaDao) {
+        this.vendaDao = vendaDao;
+    }
+
+    /**
+     * Exporta o ano em segundo plano
+     * @param pasta onde os arquivos são criados (fotocastro_ANO.xlsx ou fotocastro_ANO_vendas/fechamentos.csv)
+     * @param progresso fração concluída (0..1), chamada no worker; pode ser null
+     * @return arquivos gerados
+     */
+    public CompletableFuture<List<Path>> exportarAno(int ano, Formato formato, Path pasta, DoubleConsumer progresso) {
+        return CompletableFuture.supplyAsync(() -> {
+            try {
+                return exportar(ano, formato, pasta, progresso);
+            } catch (IOException e) {
+                logger.log(Level.SEVERE, "Falha na exportação contábil de " + ano, e);
+                throw new UncheckedIOException("Erro ao gravar exportação", e);
+            } catch (RuntimeException e) {
+                logger.log(Level.SEVERE, "Falha na exportação contábil de " + ano, e);
+                throw e;
+            }
+        }, executor());
+    }
+
+    private List<Path> exportar(int ano, Formato formato, Path pasta, DoubleConsumer progresso) throws IOException {
+        long inicioNs = System.nanoTime();
+        LocalDate inicio = LocalDate.of(ano, 1, 1);
+        LocalDate fim = LocalDate.of(ano, 12, 31);
+        String prefixo = "fotocastro_" + ano;
+
+        long total = (long) vendaDao.contarVendas(inicio, fim) + vendaDao.contarFechamentos(inicio, fim);
+        long[] feitos = {0};
+        Runnable avancar = () -> {
+            if (++feitos[0] % INTERVALO_PROGRESSO == 0 && progresso != null && total > 0) {
+                progresso.accept((double) feitos[0] / total);
+            }
+        };
+
+        CsvEscritor csv = formato == Formato.CSV ? new CsvEscritor(pasta, prefixo) : null;
+        Path xlsx = pasta.resolve(prefixo + ".xlsx");
+
+        try (EscritorPlanilha out = csv != null ? csv : new XlsxEscritor(xlsx)) {
+            out.iniciarAba("Vendas", "ID", "Data/Hora", "Descrição", "Método", "Bruto", "Taxa", "Líquido");
+            vendaDao.paraCadaVenda(inicio, fim, v -> {
+                try {
+                    out.numero(v.getId());
+                    out.dataHora(v.getDataHora());
+                    out.texto(v.getDescricao());
+                    out.texto(v.getMetodo().name());
+                    out.valor(v.getValorBruto());
+                    out.valor(v.getTaxa());
+                    out.valor(v.getValorLiquido());
+                    out.fimLinha();
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+                avancar.run();
+            });
+
+            out.iniciarAba("Fechamentos", "Data", "Fechado em", "Bruto", "Líquido", "Pagamentos",
+                           "Contado", "Diferença", "Tipo", "Observação");
+            vendaDao.paraCadaFechamento(inicio, fim, f -> {
+                try {
+                    out.data(f.data);
+                    out.dataHora(f.fechadoEm);
+                    out.valor(f.bruto);
+                    out.valor(f.liquido);
+                    out.valor(f.totalPagamentos);
+                    out.valor(f.valorContado);
+                    out.valor(f.diferenca);
+                    out.texto(f.tipo);
+                    out.texto(f.observacao);
+                    out.fimLinha();
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+                avancar.run();
+            });
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+
+        if (progresso != null) progresso.accept(1.0);
+        logger.info(String.format("Exportação contábil %d (%s): %d linhas em %.0f ms",
+            ano, formato, feitos[0], (System.nanoTime() - inicioNs) / 1e6));
+        return csv != null ? List.copyOf(csv.getArquivos()) : List.of(xlsx);
+    }
+
+    /**
+     * Conclui exportações em andamento e encerra o worker (chamado no shutdown do app)
+     */
+    public static synchronized void encerrar() {
+        if (executor == null) return;
+        executor.shutdown();
+        try {
+            if (!executor.awaitTermination(30, TimeUnit.SECONDS)) {
+                logger.warning("Exportação contábil ainda em andamento no encerramento");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        executor = null;
+    }
+
+    private static synchronized ExecutorService executor() {
+        if (executor == null) {
+            executor = Executors.newSingleThreadExecutor(r -> {
+                Thread t = new Thread(r, "exportacao-contabil");
+                t.setDaemon(true);
+                return t;
+            });
+        }
+        return executor;
+    }
+}
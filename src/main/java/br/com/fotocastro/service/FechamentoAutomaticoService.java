@@ -0,0 +1,83 @@
+package br.com.fotocastro.service;
+
+import br.com.fotocastro.infra.VendaDaoH2;
+import br.com.fotocastro.infra.VendaJournal;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Fechamento automático dos dias que ficaram sem fechar (app fechado na virada, feriado,
+ * vários dias sem abrir): uma consulta agrupada acha todos os dias abertos com vendas e
+ * os fechamentos entram num único lote. Roda na abertura e na virada de dia.
+ *
+ * Cada execução só confere a partir de onde a anterior parou (fechamento_verificado, V19);
+ * a primeira confere o histórico inteiro. Venda gravada depois com data anterior a essa marca
+ * (importação CSV, journal drenado tarde) recua a marca para o dia dela, então o dia que ainda
+ * estiver aberto é fechado na execução seguinte.
+ */
+public class FechamentoAutomaticoService {
+
+    private static final Logger logger = Logger.getLogger(FechamentoAutomaticoService.class.getName());
+
+    // Dias fechados pela última execução que fechou algo, e o "hoje" dela (aviso do Caixa)
+    private static volatile List<LocalDate> ultimosFechados = List.of();
+    private static volatile LocalDate fechadosEm;
+
+    private final VendaDaoH2 vendaDao;
+
+    public FechamentoAutomaticoService() {
+        this(new VendaDaoH2());
+    }
+
+    // Construtor para injeção de dependência (testes)
+    public FechamentoAutomaticoService(VendaDaoH2 vendaDao) {
+        this.vendaDao = vendaDao;
+    }
+
+    /**
+     * Fecha todos os dias anteriores a hoje que tiveram venda e não têm fechamento
+     * @return dias fechados agora (vazio se não havia nenhum)
+     */
+    public List<LocalDate> fecharDiasPendentes() {
+        return fecharDiasPendentes(LocalDate.now());
+    }
+
+    public List<LocalDate> fecharDiasPendentes(LocalDate hoje) {
+        long inicio = System.nanoTime();
+        if (!VendaJournal.drenarPendentes()) {
+            // Vendas do journal ainda fora do banco ficariam fora do fechamento: tenta na próxima execução
+            logger.warning("Fechamento automático adiado: há vendas do journal ainda não gravadas no banco");
+            return List.of();
+        }
+        try {
+            Optional<LocalDate> desde = vendaDao.getFechamentoVerificadoAte().or(vendaDao::primeiroDiaComVenda);
+            if (desde.isEmpty() || !desde.get().isBefore(hoje)) return List.of();
+
+            Map<LocalDate, VendaDaoH2.TotaisCaixa> pendentes = vendaDao.diasSemFechamento(desde.get(), hoje);
+            List<LocalDate> fechados = vendaDao.inserirFechamentosAutomaticos(pendentes, desde.get(), hoje);
+            if (!fechados.isEmpty()) {
+                ultimosFechados = List.copyOf(fechados);
+                fechadosEm = hoje;
+                logger.info(String.format("Fechamento automático: %d dia(s) de %s a %s em %.0f ms",
+                    fechados.size(), fechados.get(0), fechados.get(fechados.size() - 1),
+                    (System.nanoTime() - inicio) / 1e6));
+            }
+            return fechados;
+        } catch (RuntimeException e) {
+            logger.log(Level.SEVERE, "Falha no fechamento automático", e);
+            throw e;
+        }
+    }
+
+    /**
+     * Dias fechados automaticamente hoje (na abertura ou na virada); vazio depois da próxima virada
+     */
+    public static List<LocalDate> getUltimosFechados() {
+        return LocalDate.now().equals(fechadosEm) ? ultimosFechados : List.of();
+    }
+}
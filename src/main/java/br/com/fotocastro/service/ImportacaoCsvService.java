@@ -0,0 +1,516 @@
+package br.com.fotocastro.service;
+
+import br.com.fotocastro.config.AppProperties;
+import br.com.fotocastro.infra.EstoqueDaoH2;
+import br.com.fotocastro.infra.VendaDaoH2;
+import br.com.fotocastro.model.ItemEstoque;
+import br.com.fotocastro.model.PaymentMethod;
+import br.com.fotocastro.model.Venda;
+import br.com.fotocastro.utils.CsvLeitor;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.text.Normalizer;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.function.IntConsumer;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Importação em massa de vendas e itens de estoque a partir de CSV.
+ * Pipeline em três estágios: leitura/conversão e validação na thread chamadora,
+ * lotes de linhas válidas numa fila limitada, e uma thread gravadora que insere
+ * cada lote numa transação (JDBC batch). Erros de linha são coletados sem interromper
+ * a leitura; uma falha no banco interrompe a importação (lotes já gravados permanecem).
+ * Em simulação nada é gravado: serve para conferir o arquivo antes.
+ * Antes de ir para a fila, cada lote passa pelo filtro do conversor (vendas já gravadas,
+ * dias com caixa fechado), também na simulação.
+ */
+public class ImportacaoCsvService {
+
+    private static final Logger logger = Logger.getLogger(ImportacaoCsvService.class.getName());
+    private static final int MAX_ERROS_GUARDADOS = 1000;
+    private static final int LOTES_NA_FILA = 4;
+    private static final String MOTIVO_ESTOQUE = "Importação CSV";
+
+    private static final DateTimeFormatter[] FORMATOS_DATA_HORA = {
+        DateTimeFormatter.ofPattern("dd/MM/yyyy HH:mm:ss"),
+        DateTimeFormatter.ofPattern("dd/MM/yyyy HH:mm"),
+        DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss"),
+        DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm"),
+        DateTimeFormatter.ISO_LOCAL_DATE_TIME
+    };
+    private static final DateTimeFormatter[] FORMATOS_DATA = {
+        DateTimeFormatter.ofPattern("dd/MM/yyyy"),
+        DateTimeFormatter.ISO_LOCAL_DATE
+    };
+
+    private final VendaDaoH2 vendaDao;
+    private final EstoqueDaoH2 estoqueDao;
+    private final SaleService saleService;
+    private final int tamanhoLote;
+
+    public ImportacaoCsvService() {
+        this(new VendaDaoH2(), new EstoqueDaoH2(), AppProperties.getInt("importacao.tamanhoLote", 1000));
+    }
+
+    // Construtor para injeção de dependência (testes)
+    public ImportacaoCsvService(VendaDaoH2 vendaDao, EstoqueDaoH2 estoqueDao, int tamanhoLote) {
+        this.vendaDao = vendaDao;
+        this.estoqueDao = estoqueDao;
+        this.saleService = new SaleService(vendaDao);
+        this.tamanhoLote = Math.max(1, tamanhoLote);
+    }
+
+    // ========== API ==========
+
+    /**
+     * Importa vendas. Colunas: Data/Hora, Descrição, Método, Bruto, [Taxa], [Líquido]
+     * (o mesmo layout da exportação contábil; a coluna ID dela é ignorada). Sem taxa, ela é
+     * calculada pelo método.
+     * <p>
+     * Linha igual (data/hora ao segundo, descrição e bruto) a uma venda que já estava no banco
+     * é contada como duplicada e não entra: reimportar a exportação contábil não duplica nada,
+     * e linhas iguais no próprio arquivo só entram além das que o banco já tinha.
+     * Linhas de dias com caixa fechado são recusadas (o fechamento deixaria de bater).
+     * @param progresso linhas lidas até o momento (chamado na thread chamadora); pode ser null
+     */
+    public Resultado importarVendas(Path arquivo, boolean simulacao, IntConsumer progresso) throws IOException {
+        long ateId = vendaDao.getUltimoIdVenda(); // vendas gravadas por esta importação ficam acima
+        return importar(arquivo, simulacao, progresso, new Conversor<Venda>() {
+            // Dia -> caixa fechado; chave -> vendas do banco já casadas com linhas do arquivo
+            private final Map<LocalDate, Boolean> fechados = new HashMap<>();
+            private final Map<List<Object>, Integer> casadas = new HashMap<>();
+
+            @Override
+            public void verificarCabecalho(CsvLeitor csv) {
+                exigirColunas(csv, "Data/Hora", "datahora", "data");
+                exigirColunas(csv, "Descrição", "descricao");
+                exigirColunas(csv, "Método", "metodo");
+                exigirColunas(csv, "Bruto", "bruto", "valorbruto", "valor");
+            }
+
+            @Override
+            public Venda converter(CsvLeitor csv) {
+                return converterVenda(csv);
+            }
+
+            @Override
+            public void filtrar(List<Venda> lote, List<Integer> linhas, Resultado resultado) {
+                Map<LocalDate, Map<List<Object>, Integer>> existentes = new HashMap<>();
+                int mantidas = 0;
+                for (int i = 0; i < lote.size(); i++) {
+                    Venda v = lote.get(i);
+                    LocalDate dia = v.getDataHora().toLocalDate();
+                    // Duplicada antes de dia fechado: reimportar a exportação não vira uma lista de erros
+                    List<Object> chave = VendaDaoH2.chaveImportacao(v.getDataHora(), v.getDescricao(), v.getValorBruto());
+                    int noBanco = existentes.computeIfAbsent(dia, d -> vendaDao.contarVendasDoDia(d, ateId))
+                        .getOrDefault(chave, 0);
+                    if (casadas.getOrDefault(chave, 0) < noBanco) {
+                        casadas.merge(chave, 1, Integer::sum);
+                        resultado.descartarDuplicada();
+                    } else if (fechados.computeIfAbsent(dia, vendaDao::caixaJaFechado)) {
+                        resultado.recusar(linhas.get(i), "Caixa de " + dia.format(FORMATOS_DATA[0]) + " já fechado");
+                    } else {
+                        lote.set(mantidas, v);
+                        linhas.set(mantidas, linhas.get(i));
+                        mantidas++;
+                    }
+                }
+                lote.subList(mantidas, lote.size()).clear();
+                linhas.subList(mantidas, linhas.size()).clear();
+            }
+
+            @Override
+            public void gravar(List<Venda> lote) {
+                vendaDao.inserirLote(lote);
+            }
+        });
+    }
+
+    /**
+     * Importa itens de estoque. Colunas: Nome, [Cor], [Tamanho], Quantidade, [Custo Total].
+     * Item já cadastrado (mesmo nome/cor/tamanho) recebe entrada; os demais são criados.
+     */
+    public Resultado importarEstoque(Path arquivo, boolean simulacao, IntConsumer progresso) throws IOException {
+        return importar(arquivo, simulacao, progresso, new Conversor<ItemEstoque>() {
+            @Override
+            public void verificarCabecalho(CsvLeitor csv) {
+                exigirColunas(csv, "Nome", "nome");
+                exigirColunas(csv, "Quantidade", "quantidade", "qtd");
+            }
+
+            @Override
+            public ItemEstoque converter(CsvLeitor csv) {
+                return converterItem(csv);
+            }
+
+            @Override
+            public void gravar(List<ItemEstoque> lote) {
+                BuscaIndex indice = BuscaIndex.getInstance();
+                for (ItemEstoque criado : estoqueDao.importarLote(lote, MOTIVO_ESTOQUE)) {
+                    indice.indexarItem(criado);
+                }
+            }
+        });
+    }
+
+    // ========== PIPELINE ==========
+
+    private interface Conversor<T> {
+        void verificarCabecalho(CsvLeitor csv);
+        T converter(CsvLeitor csv);
+
+        /**
+         * Retira do lote (e de {@code linhas}, os números de linha) o que não deve ser gravado
+         */
+        default void filtrar(List<T> lote, List<Integer> linhas, Resultado resultado) {
+        }
+
+        void gravar(List<T> lote);
+    }
+
+    private static final class Lote<T> {
+        final List<T> itens;
+        final int primeiraLinha;
+        final int ultimaLinha;
+
+        Lote(List<T> itens, int primeiraLinha, int ultimaLinha) {
+            this.itens = itens;
+            this.primeiraLinha = primeiraLinha;
+            this.ultimaLinha = ultimaLinha;
+        }
+    }
+
+    private static final Lote<?> FIM = new Lote<>(List.of(), 0, 0);
+
+    private <T> Resultado importar(Path arquivo, boolean simulacao, IntConsumer progresso,
+                                   Conversor<T> conversor) throws IOException {
+        long inicioNs = System.nanoTime();
+        Resultado resultado = new Resultado(arquivo, simulacao);
+
+        BlockingQueue<Lote<?>> fila = new ArrayBlockingQueue<>(LOTES_NA_FILA);
+        Gravador<T> gravador = simulacao ? null : new Gravador<>(fila, conversor, resultado);
+        Thread thread = null;
+        if (gravador != null) {
+            thread = new Thread(gravador, "importacao-csv");
+            thread.setDaemon(true);
+            thread.start();
+        }
+
+        try (CsvLeitor csv = new CsvLeitor(arquivo)) {
+            conversor.verificarCabecalho(csv);
+
+            List<T> atual = new ArrayList<>(tamanhoLote);
+            List<Integer> linhas = new ArrayList<>(tamanhoLote);
+            while (csv.proximo()) {
+                if (gravador != null && gravador.falha != null) break;
+                resultado.lidas++;
+
+                T registro;
+                try {
+                    registro = conversor.converter(csv);
+                } catch (IllegalArgumentException | DateTimeParseException e) {
+                    resultado.registrarErro(csv.getNumeroLinha(), e.getMessage());
+                    continue;
+                }
+                resultado.validas++;
+
+                atual.add(registro);
+                linhas.add(csv.getNumeroLinha());
+                if (atual.size() == tamanhoLote) {
+                    fecharLote(fila, conversor, atual, linhas, resultado, gravador != null);
+                    atual = new ArrayList<>(tamanhoLote);
+                    linhas = new ArrayList<>(tamanhoLote);
+                }
+                if (progresso != null && resultado.lidas % tamanhoLote == 0) {
+                    progresso.accept(resultado.lidas);
+                }
+            }
+            if (!atual.isEmpty()) {
+                fecharLote(fila, conversor, atual, linhas, resultado, gravador != null);
+            }
+        } finally {
+            if (thread != null) {
+                colocar(fila, FIM);
+                try {
+                    thread.join();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+        }
+
+        if (progresso != null) progresso.accept(resultado.lidas);
+        if (gravador != null && gravador.falha != null) {
+            resultado.falha = gravador.falha.getMessage();
+        }
+        logger.info(String.format("Importação CSV %s: %s (%.0f ms)",
+            arquivo.getFileName(), resultado.resumo(), (System.nanoTime() - inicioNs) / 1e6));
+        return resultado;
+    }
+
+    /**
+     * Filtra o lote e, fora da simulação, entrega o que sobrou ao gravador
+     */
+    private static <T> void fecharLote(BlockingQueue<Lote<?>> fila, Conversor<T> conversor, List<T> lote,
+                                       List<Integer> linhas, Resultado resultado, boolean gravar) {
+        conversor.filtrar(lote, linhas, resultado);
+        if (gravar && !lote.isEmpty()) {
+            colocar(fila, new Lote<>(lote, linhas.get(0), linhas.get(linhas.size() - 1)));
+        }
+    }
+
+    private static void colocar(BlockingQueue<Lote<?>> fila, Lote<?> lote) {
+        try {
+            fila.put(lote);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Importação interrompida", e);
+        }
+    }
+
+    /**
+     * Estágio de gravação: consome lotes da fila até o marcador de fim.
+     * Depois de uma falha continua drenando a fila (sem gravar) para não travar o leitor.
+     */
+    private static final class Gravador<T> implements Runnable {
+        private final BlockingQueue<Lote<?>> fila;
+        private final Conversor<T> conversor;
+        private final Resultado resultado;
+        volatile RuntimeException falha;
+
+        Gravador(BlockingQueue<Lote<?>> fila, Conversor<T> conversor, Resultado resultado) {
+            this.fila = fila;
+            this.conversor = conversor;
+            this.resultado = resultado;
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        public void run() {
+            try {
+                while (true) {
+                    Lote<T> lote = (Lote<T>) fila.take();
+                    if (lote == FIM) return;
+                    if (falha != null) continue;
+                    try {
+                        conversor.gravar(lote.itens);
+                        resultado.importadas += lote.itens.size();
+                    } catch (RuntimeException e) {
+                        logger.log(Level.SEVERE, String.format("Falha ao gravar linhas %d-%d",
+                            lote.primeiraLinha, lote.ultimaLinha), e);
+                        falha = new RuntimeException(String.format("Linhas %d-%d: %s",
+                            lote.primeiraLinha, lote.ultimaLinha, e.getMessage()), e);
+                    }
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    // ========== CONVERSÃO ==========
+
+    private Venda converterVenda(CsvLeitor csv) {
+        Venda venda = new Venda();
+        venda.setDataHora(lerDataHora(obrigatorio(csv, "Data/Hora", "datahora", "data")));
+        venda.setDescricao(obrigatorio(csv, "Descrição", "descricao").trim());
+        PaymentMethod metodo = lerMetodo(obrigatorio(csv, "Método", "metodo"));
+        venda.setMetodo(metodo);
+
+        double bruto = lerNumero(obrigatorio(csv, "Bruto", "bruto", "valorbruto", "valor"), "Bruto");
+        String taxaTxt = csv.get("Taxa", "taxa");
+        double taxa = taxaTxt != null ? lerNumero(taxaTxt, "Taxa") : saleService.calcularTaxa(bruto, metodo);
+        String liquidoTxt = csv.get("Líquido", "liquido", "valorliq", "valorliquido");
+        double liquido = liquidoTxt != null ? lerNumero(liquidoTxt, "Líquido") : Math.max(0.0, bruto - taxa);
+
+        venda.setValorBruto(round2(bruto));
+        venda.setTaxa(round2(taxa));
+        venda.setValorLiquido(round2(liquido));
+
+        vendaDao.validateVenda(venda);
+        return venda;
+    }
+
+    private ItemEstoque converterItem(CsvLeitor csv) {
+        String quantidadeTxt = obrigatorio(csv, "Quantidade", "quantidade", "qtd");
+        double quantidade = lerNumero(quantidadeTxt, "Quantidade");
+        if (quantidade != Math.rint(quantidade)) {
+            throw new IllegalArgumentException("Quantidade deve ser inteira: " + quantidadeTxt);
+        }
+        String custoTxt = csv.get("Custo Total", "custototal", "custo");
+
+        ItemEstoque item = new ItemEstoque(
+            obrigatorio(csv, "Nome", "nome").trim(),
+            csv.get("Cor", "cor"),
+            csv.get("Tamanho", "tamanho"),
+            (int) quantidade,
+            custoTxt != null ? round2(lerNumero(custoTxt, "Custo Total")) : 0.0);
+
+        estoqueDao.validateItem(item);
+        return item;
+    }
+
+    private static void exigirColunas(CsvLeitor csv, String rotulo, String... nomes) {
+        if (!csv.temColuna(nomes)) {
+            throw new IllegalArgumentException("Coluna obrigatória ausente no cabeçalho: " + rotulo);
+        }
+    }
+
+    private static String obrigatorio(CsvLeitor csv, String rotulo, String... nomes) {
+        String v = csv.get(nomes);
+        if (v == null) {
+            throw new IllegalArgumentException(rotulo + " não informado(a)");
+        }
+        return v;
+    }
+
+    /**
+     * Aceita "1.234,56", "10,50" e "10.50" (e "R$" na frente)
+     */
+    static double lerNumero(String texto, String rotulo) {
+        String s = texto.replace("R$", "").replace(" ", "").replace("\u00A0", "");
+        int virgula = s.lastIndexOf(',');
+        int ponto = s.lastIndexOf('.');
+        if (virgula >= 0 && ponto >= 0) {
+            // O separador que aparece por último é o decimal
+            s = virgula > ponto ? s.replace(".", "").replace(',', '.') : s.replace(",", "");
+        } else if (virgula >= 0) {
+            s = s.replace(',', '.');
+        }
+        try {
+            return Double.parseDouble(s);
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException(rotulo + " inválido: " + texto);
+        }
+    }
+
+    static LocalDateTime lerDataHora(String texto) {
+        for (DateTimeFormatter f : FORMATOS_DATA_HORA) {
+            try {
+                return LocalDateTime.parse(texto, f);
+            } catch (DateTimeParseException ignored) {
+                // tenta o próximo formato
+            }
+        }
+        for (DateTimeFormatter f : FORMATOS_DATA) {
+            try {
+                return LocalDate.parse(texto, f).atStartOfDay();
+            } catch (DateTimeParseException ignored) {
+                // tenta o próximo formato
+            }
+        }
+        throw new IllegalArgumentException("Data/Hora inválida: " + texto);
+    }
+
+    static PaymentMethod lerMetodo(String texto) {
+        String s = Normalizer.normalize(texto, Normalizer.Form.NFD).replaceAll("\\p{M}", "").trim().toUpperCase();
+        if (s.startsWith("CART")) s = "CARTAO"; // "Cartão de crédito", "Cartao"
+        try {
+            return PaymentMethod.valueOf(s);
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Método de pagamento desconhecido: " + texto);
+        }
+    }
+
+    private static double round2(double valor) {
+        return Math.round(valor * 100.0) / 100.0;
+    }
+
+    // ========== RESULTADO ==========
+
+    public static final class ErroLinha {
+        public final int linha;
+        public final String mensagem;
+
+        ErroLinha(int linha, String mensagem) {
+            this.linha = linha;
+            this.mensagem = mensagem;
+        }
+
+        @Override
+        public String toString() {
+            return "Linha " + linha + ": " + mensagem;
+        }
+    }
+
+    /**
+     * Resumo de uma importação (ou simulação)
+     */
+    public static final class Resultado {
+        public final Path arquivo;
+        public final boolean simulacao;
+        private int lidas;
+        private int validas;
+        private int duplicadas;
+        private volatile int importadas;
+        private int totalErros;
+        private String falha;
+        private final List<ErroLinha> erros = new ArrayList<>();
+
+        Resultado(Path arquivo, boolean simulacao) {
+            this.arquivo = arquivo;
+            this.simulacao = simulacao;
+        }
+
+        void registrarErro(int linha, String mensagem) {
+            totalErros++;
+            if (erros.size() < MAX_ERROS_GUARDADOS) {
+                erros.add(new ErroLinha(linha, mensagem));
+            }
+        }
+
+        /** Linha válida recusada pelo filtro do lote: passa a contar como erro */
+        void recusar(int linha, String mensagem) {
+            validas--;
+            registrarErro(linha, mensagem);
+        }
+
+        /** Linha válida que já estava no banco: não conta como válida nem como erro */
+        void descartarDuplicada() {
+            validas--;
+            duplicadas++;
+        }
+
+        public int getLidas() { return lidas; }
+        public int getValidas() { return validas; }
+        public int getDuplicadas() { return duplicadas; }
+        public int getImportadas() { return importadas; }
+        public int getTotalErros() { return totalErros; }
+
+        /** Primeiros erros de linha (até {@value ImportacaoCsvService#MAX_ERROS_GUARDADOS}) */
+        public List<ErroLinha> getErros() { return erros; }
+
+        /** Falha de gravação que interrompeu a importação, ou null */
+        public String getFalha() { return falha; }
+
+        public boolean isSucesso() { return falha == null; }
+
+        public String resumo() {
+            StringBuilder sb = new StringBuilder();
+            sb.append(String.format("%d linhas lidas, %d válidas, %d com erro", lidas, validas, totalErros));
+            if (duplicadas > 0) {
+                sb.append(String.format(", %d já existentes (ignoradas)", duplicadas));
+            }
+            if (simulacao) {
+                sb.append(" (simulação: nada gravado)");
+            } else {
+                sb.append(String.format(", %d importadas", importadas));
+            }
+            if (falha != null) {
+                sb.append(". Interrompida: ").append(falha);
+            }
+            return sb.toString();
+        }
+    }
+}
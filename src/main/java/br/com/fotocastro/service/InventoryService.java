@@ -2,7 +2,9 @@ package br.com.fotocastro.service;
 
 import br.com.fotocastro.infra.EstoqueDaoH2;
 import br.com.fotocastro.model.ItemEstoque;
+import br.com.fotocastro.model.MovimentoEstoque;
 
+import java.time.LocalDateTime;
 import java.util.List;
 import java.util.Optional;
 import java.util.logging.Logger;
@@ -94,6 +96,7 @@ public class InventoryService {
         }
         
         estoqueDao.remover(id);
+        BomService.invalidarTudo();
         logger.info("Item removido: " + item.getNome());
     }
     
@@ -193,11 +196,29 @@ public class InventoryService {
             novaQuantidade, novoCustoTotal, motivo != null ? motivo : "Não informado"
         ));
         
-        estoqueDao.atualizarQuantidadeECusto(itemId, novaQuantidade, novoCustoTotal);
+        estoqueDao.atualizarQuantidadeECusto(itemId, novaQuantidade, novoCustoTotal,
+            motivo != null ? motivo : "Ajuste manual");
     }
     
     // ========== CONSULTAS E RELATÓRIOS ==========
     
+    /**
+     * Quantidade e custo do item num instante passado (reconstruídos pelo ledger)
+     */
+    public Optional<ItemEstoque> posicaoEm(Long itemId, LocalDateTime instante) {
+        if (itemId == null || instante == null) {
+            throw new IllegalArgumentException("Item e instante são obrigatórios");
+        }
+        return estoqueDao.posicaoEm(itemId, instante);
+    }
+    
+    /**
+     * Últimas movimentações do item (entradas, saídas e ajustes)
+     */
+    public List<MovimentoEstoque> listarMovimentos(Long itemId, int limite) {
+        return estoqueDao.listarMovimentos(itemId, limite);
+    }
+    
     /**
      * Lista itens com estoque baixo (abaixo do mínimo)
      */
@@ -0,0 +1,129 @@
+package br.com.fotocastro.service;
+
+import br.com.fotocastro.infra.VendaDaoH2;
+import br.com.fotocastro.infra.VendaDaoH2.FechamentoResumo;
+import br.com.fotocastro.utils.PdfExporter;
+
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.time.format.DateTimeFormatter;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.DoubleConsumer;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Fila de exportações PDF fora da thread da UI.
+ * Um único worker processa os pedidos em ordem; cada pedido devolve um
+ * CompletableFuture com o arquivo gerado (ou a falha) e pode informar progresso.
+ * Os callbacks rodam no worker: a UI deve repassar via Platform.runLater.
+ */
+public class PdfExportService {
+
+    private static final Logger logger = Logger.getLogger(PdfExportService.class.getName());
+
+    private static ExecutorService executor;
+    private static final AtomicInteger pendentes = new AtomicInteger();
+
+    private final VendaDaoH2 vendaDao;
+
+    public PdfExportService() {
+        this.vendaDao = new VendaDaoH2();
+    }
+
+    // Construtor para injeção de dependência (testes)
+    public PdfExportService(VendaDaoH2 vendaDao) {
+        this.vendaDao = vendaDao;
+    }
+
+    /**
+     * PDF de um fechamento
+     */
+    public CompletableFuture<Path> exportarFechamento(FechamentoResumo fechamento, Path destino) {
+        return enfileirar("fechamento " + fechamento.getData(), () -> {
+            PdfExporter.exportFechamentoToPdf(fechamento, destino.toString());
+            return destino;
+        });
+    }
+
+    /**
+     * Relatório de todos os fechamentos do mês, em tabela grande gravada aos poucos
+     * @param progresso fração concluída (0..1), chamada no worker; pode ser null
+     */
+    public CompletableFuture<Path> exportarRelatorioMensal(YearMonth mes, Path destino, DoubleConsumer progresso) {
+        LocalDate inicio = mes.atDay(1);
+        LocalDate fim = mes.atEndOfMonth();
+        String titulo = "RELATÓRIO DE FECHAMENTOS - " + mes.format(DateTimeFormatter.ofPattern("MM/yyyy"));
+
+        return enfileirar("relatório " + mes, () -> {
+            int total = vendaDao.contarFechamentos(inicio, fim);
+            PdfExporter.exportFechamentosToPdf(titulo,
+                saida -> vendaDao.paraCadaFechamento(inicio, fim, saida),
+                destino.toString(),
+                feitos -> {
+                    if (progresso != null) progresso.accept(total > 0 ? Math.min(1.0, (double) feitos / total) : 1.0);
+                });
+            return destino;
+        });
+    }
+
+    /**
+     * Exportações na fila ou em andamento
+     */
+    public static int getPendentes() {
+        return pendentes.get();
+    }
+
+    /**
+     * Conclui o que já foi pedido e encerra o worker (chamado no shutdown do app)
+     */
+    public static synchronized void encerrar() {
+        if (executor == null) return;
+        executor.shutdown();
+        try {
+            if (!executor.awaitTermination(30, TimeUnit.SECONDS)) {
+                logger.warning("Exportações PDF ainda em andamento no encerramento: " + pendentes.get());
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        executor = null;
+    }
+
+    private static synchronized ExecutorService executor() {
+        if (executor == null) {
+            executor = Executors.newSingleThreadExecutor(r -> {
+                Thread t = new Thread(r, "pdf-export");
+                t.setDaemon(true);
+                return t;
+            });
+        }
+        return executor;
+    }
+
+    private interface Job {
+        Path executar();
+    }
+
+    private CompletableFuture<Path> enfileirar(String nome, Job job) {
+        pendentes.incrementAndGet();
+        return CompletableFuture.supplyAsync(() -> {
+            long inicio = System.nanoTime();
+            try {
+                Path p = job.executar();
+                logger.info(String.format("Exportação PDF (%s) concluída em %.0f ms", nome, (System.nanoTime() - inicio) / 1e6));
+                return p;
+            } catch (RuntimeException e) {
+                logger.log(Level.SEVERE, "Falha na exportação PDF (" + nome + ")", e);
+                throw e;
+            } finally {
+                pendentes.decrementAndGet();
+            }
+        }, executor());
+    }
+}
@@ -0,0 +1,153 @@
+package br.com.fotocastro.service;
+
+import br.com.fotocastro.infra.Auditoria;
+import br.com.fotocastro.infra.PedidoDaoH2;
+import br.com.fotocastro.model.Pagamento;
+import br.com.fotocastro.model.Pedido;
+import br.com.fotocastro.model.Venda;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.logging.Logger;
+
+/**
+ * Finalização do carrinho do caixa: vários templates, um pedido, uma transação.
+ * Cada item vira uma linha em venda (relatórios, contadores e sincronização continuam iguais)
+ * e as baixas de todos os itens são somadas numa única passada pelo estoque.
+ */
+public class PedidoService {
+
+    private static final Logger logger = Logger.getLogger(PedidoService.class.getName());
+
+    private final PedidoDaoH2 pedidoDao;
+    private final BomService bomService;
+    private final SaleService saleService;
+
+    public PedidoService() {
+        this.pedidoDao = new PedidoDaoH2();
+        this.bomService = new BomService();
+        this.saleService = new SaleService();
+    }
+
+    // Construtor para injeção de dependência (testes)
+    public PedidoService(PedidoDaoH2 pedidoDao, BomService bomService, SaleService saleService) {
+        this.pedidoDao = pedidoDao;
+        this.bomService = bomService;
+        this.saleService = saleService;
+    }
+
+    /**
+     * Taxa de cada pagamento conforme o método
+     */
+    public void calcularTaxas(Pedido pedido) {
+        for (Pagamento p : pedido.getPagamentos()) {
+            p.setTaxa(p.getMetodo() != null ? saleService.calcularTaxa(p.getValor(), p.getMetodo()) : 0.0);
+        }
+    }
+
+    /**
+     * Grava o pedido com itens, pagamentos, vendas e baixas de estoque atomicamente
+     * @return ID do pedido
+     * @throws IllegalArgumentException pedido inválido ou componente sem saldo
+     */
+    public Long finalizar(Pedido pedido) {
+        validar(pedido);
+        calcularTaxas(pedido);
+
+        // Consumo somado de todos os itens: um lock por item de estoque, sempre na ordem de ID
+        Map<Long, Integer> consumo = new TreeMap<>();
+        for (Pedido.Item item : pedido.getItens()) {
+            bomService.expandir(item.getTemplate(), item.getQuantidade())
+                .forEach((estoqueId, qtd) -> consumo.merge(estoqueId, qtd, Math::addExact));
+        }
+
+        List<Venda> vendas = gerarVendas(pedido);
+        Long id = pedidoDao.registrar(pedido, vendas, consumo);
+
+        Auditoria.registrar("PEDIDO_REGISTRADO", "pedido", id, descreverPedido(pedido));
+        logger.info(String.format("Pedido %d finalizado: %d unidade(s), R$ %.2f",
+            id, pedido.getQuantidadeTotal(), pedido.getTotalBruto()));
+        return id;
+    }
+
+    private void validar(Pedido pedido) {
+        if (pedido.isVazio()) {
+            throw new IllegalArgumentException("Pedido sem itens");
+        }
+        for (Pedido.Item item : pedido.getItens()) {
+            if (item.getQuantidade() <= 0) {
+                throw new IllegalArgumentException("Quantidade deve ser maior que zero: " + item.getTemplate().getNome());
+            }
+        }
+        if (pedido.getPagamentos().isEmpty()) {
+            throw new IllegalArgumentException("Informe a forma de pagamento");
+        }
+
+        long pago = 0;
+        for (Pagamento p : pedido.getPagamentos()) {
+            if (p.getMetodo() == null) {
+                throw new IllegalArgumentException("Método de pagamento é obrigatório");
+            }
+            if (p.getValor() <= 0) {
+                throw new IllegalArgumentException("Valor do pagamento deve ser maior que zero");
+            }
+            pago += Math.round(p.getValor() * 100);
+        }
+        long total = Math.round(pedido.getTotalBruto() * 100);
+        if (pago != total) {
+            throw new IllegalArgumentException(String.format(
+                "Pagamentos (R$ %.2f) não fecham com o total do pedido (R$ %.2f)", pago / 100.0, total / 100.0));
+        }
+    }
+
+    /**
+     * Uma venda por item. Com mais de um pagamento a venda leva o método de maior valor
+     * e as taxas são rateadas pelo valor dos itens (a sobra de arredondamento fica no último).
+     */
+    private List<Venda> gerarVendas(Pedido pedido) {
+        Pagamento principal = pedido.getPagamentos().get(0);
+        for (Pagamento p : pedido.getPagamentos()) {
+            if (p.getValor() > principal.getValor()) principal = p;
+        }
+
+        double totalBruto = pedido.getTotalBruto();
+        double totalTaxas = pedido.getTotalTaxas();
+        double taxasRateadas = 0;
+
+        List<Pedido.Item> itens = pedido.getItens();
+        List<Venda> vendas = new ArrayList<>(itens.size());
+        for (int i = 0; i < itens.size(); i++) {
+            Pedido.Item item = itens.get(i);
+            double bruto = item.getTotal();
+            double taxa = i < itens.size() - 1
+                ? Math.round(bruto * totalTaxas / totalBruto * 100.0) / 100.0
+                : Math.round((totalTaxas - taxasRateadas) * 100.0) / 100.0;
+            taxasRateadas += taxa;
+
+            Venda v = new Venda();
+            v.setDescricao(item.isAvulso() ? item.getTemplate().getNome()
+                : String.format("%s × %d", item.getTemplate().getDescricaoCompleta(), item.getQuantidade()));
+            v.setValorBruto(bruto);
+            v.setMetodo(principal.getMetodo());
+            v.setTaxa(taxa);
+            v.setValorLiquido(Math.max(0.0, bruto - taxa));
+            vendas.add(v);
+        }
+        return vendas;
+    }
+
+    public static String descreverPedido(Pedido p) {
+        StringBuilder sb = new StringBuilder();
+        for (Pedido.Item item : p.getItens()) {
+            if (sb.length() > 0) sb.append(", ");
+            sb.append(item.getTemplate().getNome()).append(" × ").append(item.getQuantidade());
+        }
+        sb.append(String.format(" - R$ %.2f", p.getTotalBruto()));
+        for (Pagamento pg : p.getPagamentos()) {
+            sb.append(String.format(" %s %.2f", pg.getMetodo(), pg.getValor()));
+        }
+        return sb.toString();
+    }
+}
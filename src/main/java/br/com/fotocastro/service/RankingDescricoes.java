@@ -0,0 +1,214 @@
+package br.com.fotocastro.service;
+
+import br.com.fotocastro.infra.VendaDaoH2;
+import br.com.fotocastro.infra.VendaListener;
+import br.com.fotocastro.model.Venda;
+
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.util.*;
+import java.util.logging.Logger;
+
+/**
+ * Ranking das descrições mais vendidas, mantido incrementalmente.
+ * O total geral fica num conjunto ordenado por contagem (top-k em O(k));
+ * as janelas (hoje, semana, mês) somam os contadores diários em memória
+ * dos últimos {@value #DIAS_EM_MEMORIA} dias. Espelha a tabela venda_descricao_dia.
+ */
+public class RankingDescricoes implements VendaListener {
+
+    private static final Logger logger = Logger.getLogger(RankingDescricoes.class.getName());
+    private static final int DIAS_EM_MEMORIA = 31;
+
+    public enum Janela { HOJE, SEMANA, MES, TUDO }
+
+    private static RankingDescricoes instance;
+
+    // Total geral: descrição -> contagem, e o mesmo par ordenado por contagem desc
+    private final Map<String, Long> totais = new HashMap<>();
+    private final TreeSet<Map.Entry<String, Long>> ordenado = new TreeSet<>(
+        Comparator.<Map.Entry<String, Long>>comparingLong(Map.Entry::getValue).reversed()
+            .thenComparing(Map.Entry::getKey));
+
+    // Contadores dos últimos dias: dia -> (descrição -> contagem)
+    private final TreeMap<LocalDate, Map<String, Long>> porDia = new TreeMap<>();
+
+    // Vendas que mudaram durante a carga, por id (null depois da carga)
+    private Map<Long, Mudanca> mudancasNaCarga = new LinkedHashMap<>();
+    private long semId; // chaves negativas para vendas sem id
+
+    private RankingDescricoes() {
+    }
+
+    public static synchronized RankingDescricoes getInstance() {
+        if (instance == null) {
+            RankingDescricoes r = new RankingDescricoes();
+            // Listener antes da carga: venda gravada durante a leitura não se perde
+            VendaDaoH2.adicionarListener(r);
+            r.carregar(new VendaDaoH2());
+            instance = r;
+        }
+        return instance;
+    }
+
+    /**
+     * Lê os contadores sem segurar o lock (quem grava não espera a carga). Os contadores são
+     * somas, então os eventos da carga não podem ser aplicados às cegas: no fim, cada venda que
+     * mudou troca o que a leitura via dela (mesma transação) pelo estado do último evento.
+     */
+    private void carregar(VendaDaoH2 dao) {
+        Map<String, Long> lidos = new HashMap<>();
+        TreeMap<LocalDate, Map<String, Long>> lidosPorDia = new TreeMap<>();
+        Set<Long> conferidas = new HashSet<>();
+        Map<Long, Venda> comoLidas = new HashMap<>();
+        dao.lerContagensDescricao(LocalDate.now().minusDays(DIAS_EM_MEMORIA - 1),
+            lidos::put,
+            (dia, descricao, qtd) -> lidosPorDia.computeIfAbsent(dia, d -> new HashMap<>()).put(descricao, qtd),
+            () -> {
+                synchronized (this) {
+                    mudancasNaCarga.keySet().stream().filter(id -> id > 0).forEach(conferidas::add);
+                }
+                return conferidas;
+            },
+            v -> comoLidas.put(v.getId(), v));
+
+        synchronized (this) {
+            lidos.forEach(this::ajustarTotal);
+            porDia.putAll(lidosPorDia);
+            // Vendas conferidas partem do que a leitura via; as que mudaram depois, do estado antes do 1º evento
+            mudancasNaCarga.forEach((id, m) -> {
+                Venda base = conferidas.contains(id) ? comoLidas.get(id) : m.antes;
+                if (base != null) contar(base, -1);
+                if (m.depois != null) contar(m.depois, 1);
+            });
+            mudancasNaCarga = null;
+            logger.info("Ranking de descrições carregado: " + totais.size() + " descrições");
+        }
+    }
+
+    /**
+     * Durante a carga só registra a mudança da venda (estado antes do primeiro evento e depois do último)
+     */
+    private boolean registrarDuranteCarga(Venda antes, Venda depois) {
+        if (mudancasNaCarga == null) return false;
+        Venda v = depois != null ? depois : antes;
+        Long id = v.getId() != null ? v.getId() : --semId;
+        Mudanca m = mudancasNaCarga.get(id);
+        if (m == null) {
+            mudancasNaCarga.put(id, new Mudanca(antes, depois));
+        } else {
+            m.depois = depois;
+        }
+        return true;
+    }
+
+    // ========== CONSULTA ==========
+
+    /**
+     * As N descrições mais vendidas na janela
+     */
+    public synchronized List<Map.Entry<String, Long>> top(int limite, Janela janela) {
+        if (janela == Janela.TUDO) {
+            List<Map.Entry<String, Long>> r = new ArrayList<>(Math.min(limite, ordenado.size()));
+            for (Map.Entry<String, Long> e : ordenado) {
+                if (r.size() == limite) break;
+                r.add(e);
+            }
+            return r;
+        }
+
+        LocalDate hoje = LocalDate.now();
+        LocalDate inicio = switch (janela) {
+            case HOJE -> hoje;
+            case SEMANA -> hoje.with(DayOfWeek.MONDAY);
+            default -> hoje.withDayOfMonth(1);
+        };
+
+        Map<String, Long> soma = new HashMap<>();
+        for (Map<String, Long> dia : porDia.subMap(inicio, true, hoje, true).values()) {
+            dia.forEach((descricao, qtd) -> soma.merge(descricao, qtd, Long::sum));
+        }
+
+        // Top-k por heap (menor no topo)
+        PriorityQueue<Map.Entry<String, Long>> heap = new PriorityQueue<>(Map.Entry.comparingByValue());
+        for (Map.Entry<String, Long> e : soma.entrySet()) {
+            heap.offer(e);
+            if (heap.size() > limite) heap.poll();
+        }
+        List<Map.Entry<String, Long>> r = new ArrayList<>(heap.size());
+        while (!heap.isEmpty()) {
+            Map.Entry<String, Long> e = heap.poll();
+            r.add(Map.entry(e.getKey(), e.getValue()));
+        }
+        Collections.reverse(r);
+        return r;
+    }
+
+    // ========== ATUALIZAÇÃO ==========
+
+    @Override
+    public synchronized void vendasInseridas(List<Venda> vendas) {
+        for (Venda v : vendas) {
+            if (!registrarDuranteCarga(null, v)) contar(v, 1);
+        }
+        descartarDiasAntigos();
+    }
+
+    @Override
+    public synchronized void vendaAtualizada(Venda anterior, Venda atual) {
+        if (registrarDuranteCarga(anterior, atual)) return;
+        if (!Objects.equals(anterior.getDescricao(), atual.getDescricao())) {
+            contar(anterior, -1);
+            contar(atual, 1);
+        }
+    }
+
+    @Override
+    public synchronized void vendasRemovidas(List<Venda> vendas) {
+        for (Venda v : vendas) {
+            if (!registrarDuranteCarga(v, null)) contar(v, -1);
+        }
+    }
+
+    private void contar(Venda v, long delta) {
+        String descricao = v.getDescricao();
+        if (descricao == null || descricao.isBlank() || v.getDataHora() == null) return;
+
+        ajustarTotal(descricao, delta);
+
+        LocalDate dia = v.getDataHora().toLocalDate();
+        if (dia.isBefore(LocalDate.now().minusDays(DIAS_EM_MEMORIA - 1))) return;
+        Map<String, Long> contagens = porDia.computeIfAbsent(dia, d -> new HashMap<>());
+        if (contagens.merge(descricao, delta, Long::sum) <= 0) {
+            contagens.remove(descricao);
+        }
+    }
+
+    private void ajustarTotal(String descricao, long delta) {
+        Long atual = totais.get(descricao);
+        if (atual != null) {
+            ordenado.remove(Map.entry(descricao, atual));
+        }
+        long novo = (atual != null ? atual : 0) + delta;
+        if (novo > 0) {
+            totais.put(descricao, novo);
+            ordenado.add(Map.entry(descricao, novo));
+        } else {
+            totais.remove(descricao);
+        }
+    }
+
+    private void descartarDiasAntigos() {
+        porDia.headMap(LocalDate.now().minusDays(DIAS_EM_MEMORIA - 1)).clear();
+    }
+
+    private static final class Mudanca {
+        final Venda antes;  // null: venda não existia
+        Venda depois;       // null: venda removida
+
+        Mudanca(Venda antes, Venda depois) {
+            this.antes = antes;
+            this.depois = depois;
+        }
+    }
+}
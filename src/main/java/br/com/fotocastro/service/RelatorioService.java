@@ -0,0 +1,369 @@
+package br.com.fotocastro.service;
+
+import br.com.fotocastro.infra.VendaDaoH2;
+import br.com.fotocastro.infra.VendaListener;
+import br.com.fotocastro.model.PaymentMethod;
+import br.com.fotocastro.model.Venda;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+import java.util.logging.Logger;
+
+/**
+ * Relatórios da aba Relatórios da Home. Cada relatório é declarado como uma agregação
+ * (colunas e a consulta que a calcula no banco: agrupada por dia ou método, ou o rollup
+ * venda_descricao_dia), sem carregar as vendas em memória.
+ *
+ * O período é calculado em duas partes, cada uma em cache por (relatório, dias): os dias já
+ * encerrados (até ontem) e o dia aberto (hoje em diante), somadas na hora de montar o resultado.
+ * Uma parte sai do cache quando uma venda de um dos seus dias é inserida, editada ou removida
+ * ({@link VendaListener}, inclusive as vindas de outros terminais); assim uma venda de hoje só
+ * refaz a consulta do dia aberto, e o ano até ontem continua vindo do cache.
+ */
+public class RelatorioService implements VendaListener {
+
+    private static final Logger logger = Logger.getLogger(RelatorioService.class.getName());
+    private static final DateTimeFormatter DATA = DateTimeFormatter.ofPattern("dd/MM/yyyy");
+    private static final int MAX_EM_CACHE = 64;
+    private static final int LIMITE_MAIS_VENDIDOS = 20;
+
+    private static RelatorioService instance;
+
+    public enum Coluna {
+        QUANTIDADE("Qtd"), BRUTO("Bruto"), TAXAS("Taxas"), LIQUIDO("Líquido");
+
+        private final String titulo;
+
+        Coluna(String titulo) {
+            this.titulo = titulo;
+        }
+
+        public String getTitulo() { return titulo; }
+    }
+
+    @FunctionalInterface
+    private interface Agregacao {
+        Parte calcular(VendaDaoH2 dao, LocalDate inicio, LocalDate fim);
+    }
+
+    public enum Relatorio {
+        VENDAS_POR_DIA("Vendas por dia", EnumSet.allOf(Coluna.class), true, null, 0,
+            (dao, inicio, fim) -> {
+                Map<String, Linha> linhas = linhas(dao.resumoPorDia(inicio, fim), dia -> DATA.format(dia));
+                return new Parte(linhas, total(linhas.values()));
+            }),
+        POR_METODO("Vendas por método de pagamento", EnumSet.allOf(Coluna.class), true,
+            Comparator.comparing(l -> PaymentMethod.valueOf(l.getRotulo())), 0,
+            (dao, inicio, fim) -> {
+                // Pedido dividido conta em cada método; o total conta uma vez
+                VendaDaoH2.ResumoMetodos resumo = dao.resumoPorMetodo(inicio, fim);
+                return new Parte(linhas(resumo.getPorMetodo(), PaymentMethod::name), linha("Total", resumo.getTotal()));
+            }),
+        // Cada parte guarda todas as descrições: o corte nas mais vendidas só vale depois da soma
+        MAIS_VENDIDOS("Mais vendidos", EnumSet.of(Coluna.QUANTIDADE), false,
+            Comparator.comparingLong(Linha::getQuantidade).reversed().thenComparing(Linha::getRotulo), LIMITE_MAIS_VENDIDOS,
+            (dao, inicio, fim) -> {
+                Map<String, Linha> r = new HashMap<>();
+                dao.contagemPorDescricao(inicio, fim).forEach((d, qtd) -> r.put(d, new Linha(d, qtd, 0, 0, 0)));
+                return new Parte(r, null);
+            });
+
+        private final String titulo;
+        private final Set<Coluna> colunas;
+        private final boolean comTotal;
+        private final Comparator<Linha> ordem; // null: ordem da consulta (dias em ordem)
+        private final int limite; // 0: todas as linhas
+        private final Agregacao agregacao;
+
+        Relatorio(String titulo, Set<Coluna> colunas, boolean comTotal, Comparator<Linha> ordem, int limite,
+                  Agregacao agregacao) {
+            this.titulo = titulo;
+            this.colunas = Collections.unmodifiableSet(colunas);
+            this.comTotal = comTotal;
+            this.ordem = ordem;
+            this.limite = limite;
+            this.agregacao = agregacao;
+        }
+
+        public String getTitulo() { return titulo; }
+        public Set<Coluna> getColunas() { return colunas; }
+    }
+
+    private final VendaDaoH2 vendaDao;
+
+    // LRU das partes por (relatório, dias); acesso sempre sincronizado no próprio mapa
+    private final Map<Chave, Parte> cache = new LinkedHashMap<>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Chave, Parte> eldest) {
+            return size() > MAX_EM_CACHE;
+        }
+    };
+    // Muda a cada invalidação: parte calculada enquanto uma venda entrava não vai para o cache
+    private final AtomicLong geracao = new AtomicLong();
+
+    private RelatorioService(VendaDaoH2 vendaDao) {
+        this.vendaDao = vendaDao;
+    }
+
+    public static synchronized RelatorioService getInstance() {
+        if (instance == null) {
+            RelatorioService r = new RelatorioService(new VendaDaoH2());
+            VendaDaoH2.adicionarListener(r);
+            instance = r;
+        }
+        return instance;
+    }
+
+    // ========== CONSULTA ==========
+
+    /**
+     * Relatório do período [inicio, fim]: dias encerrados e dia aberto, cada parte do cache quando já calculada
+     */
+    public Resultado gerar(Relatorio relatorio, LocalDate inicio, LocalDate fim) {
+        if (inicio == null || fim == null) {
+            throw new IllegalArgumentException("Datas não podem ser nulas");
+        }
+        if (inicio.isAfter(fim)) {
+            throw new IllegalArgumentException("Data inicial deve ser anterior à final");
+        }
+
+        long t0 = System.nanoTime();
+        LocalDate hoje = LocalDate.now();
+        List<Parte> partes = new ArrayList<>(2);
+        if (inicio.isBefore(hoje)) {
+            LocalDate ontem = hoje.minusDays(1);
+            partes.add(parte(relatorio, inicio, fim.isBefore(ontem) ? fim : ontem));
+        }
+        if (!fim.isBefore(hoje)) {
+            partes.add(parte(relatorio, inicio.isAfter(hoje) ? inicio : hoje, fim));
+        }
+
+        Map<String, Linha> porRotulo = new LinkedHashMap<>();
+        List<Linha> totais = new ArrayList<>(2);
+        for (Parte p : partes) {
+            p.linhas.forEach((rotulo, l) -> porRotulo.merge(rotulo, l, RelatorioService::somar));
+            if (p.total != null) totais.add(p.total);
+        }
+        List<Linha> linhas = new ArrayList<>(porRotulo.values());
+        if (relatorio.ordem != null) linhas.sort(relatorio.ordem);
+        if (relatorio.limite > 0 && linhas.size() > relatorio.limite) linhas = linhas.subList(0, relatorio.limite);
+        Resultado r = new Resultado(relatorio, inicio, fim, linhas,
+            relatorio.comTotal ? total(totais) : null, LocalDateTime.now(), (System.nanoTime() - t0) / 1_000_000);
+        logger.fine(() -> String.format("Relatório %s %s a %s: %d linhas em %d ms",
+            relatorio, inicio, fim, r.linhas.size(), r.duracaoMs));
+        return r;
+    }
+
+    private Parte parte(Relatorio relatorio, LocalDate inicio, LocalDate fim) {
+        Chave chave = new Chave(relatorio, inicio, fim);
+        synchronized (cache) {
+            Parte p = cache.get(chave);
+            if (p != null) return p;
+        }
+
+        long versao = geracao.get();
+        Parte p = relatorio.agregacao.calcular(vendaDao, inicio, fim);
+        synchronized (cache) {
+            if (geracao.get() == versao) cache.put(chave, p);
+        }
+        return p;
+    }
+
+    /**
+     * Calcula os relatórios dos botões da Home para a primeira abertura já sair do cache
+     */
+    public void preCarregar() {
+        LocalDate hoje = LocalDate.now();
+        gerar(Relatorio.VENDAS_POR_DIA, hoje, hoje);
+        gerar(Relatorio.VENDAS_POR_DIA, hoje.minusDays(6), hoje);
+        gerar(Relatorio.VENDAS_POR_DIA, hoje.withDayOfMonth(1), hoje);
+        gerar(Relatorio.VENDAS_POR_DIA, hoje.withDayOfYear(1), hoje);
+        gerar(Relatorio.MAIS_VENDIDOS, hoje.minusDays(29), hoje);
+        gerar(Relatorio.POR_METODO, hoje.withDayOfMonth(1), hoje);
+    }
+
+    public int getEmCache() {
+        synchronized (cache) {
+            return cache.size();
+        }
+    }
+
+    private static <K> Map<String, Linha> linhas(Map<K, VendaDaoH2.Resumo> grupos, Function<K, String> rotulo) {
+        Map<String, Linha> r = new LinkedHashMap<>();
+        grupos.forEach((k, v) -> {
+            String nome = rotulo.apply(k);
+            r.put(nome, linha(nome, v));
+        });
+        return r;
+    }
+
+    private static Linha linha(String rotulo, VendaDaoH2.Resumo v) {
+        return new Linha(rotulo, v.getQuantidade(), v.getBruto(), v.getTaxas(), v.getLiquido());
+    }
+
+    private static Linha somar(Linha a, Linha b) {
+        return new Linha(a.rotulo, a.quantidade + b.quantidade, a.bruto + b.bruto, a.taxas + b.taxas, a.liquido + b.liquido);
+    }
+
+    private static Linha total(Collection<Linha> linhas) {
+        Linha t = new Linha("Total", 0, 0, 0, 0);
+        for (Linha l : linhas) t = somar(t, l);
+        return t;
+    }
+
+    // ========== INVALIDAÇÃO ==========
+
+    @Override
+    public void vendasInseridas(List<Venda> vendas) {
+        for (Venda v : vendas) invalidar(v);
+    }
+
+    @Override
+    public void vendaAtualizada(Venda anterior, Venda atual) {
+        invalidar(anterior);
+        invalidar(atual);
+    }
+
+    @Override
+    public void vendasRemovidas(List<Venda> vendas) {
+        for (Venda v : vendas) invalidar(v);
+    }
+
+    /**
+     * Tira do cache as partes que contêm o dia da venda (sem data: tudo)
+     */
+    private void invalidar(Venda v) {
+        LocalDate dia = v != null && v.getDataHora() != null ? v.getDataHora().toLocalDate() : null;
+        synchronized (cache) {
+            geracao.incrementAndGet();
+            if (dia == null) {
+                cache.clear();
+                return;
+            }
+            Iterator<Chave> it = cache.keySet().iterator();
+            while (it.hasNext()) {
+                Chave c = it.next();
+                if (!dia.isBefore(c.inicio) && !dia.isAfter(c.fim)) it.remove();
+            }
+        }
+    }
+
+    // ========== MODELO ==========
+
+    /**
+     * Linhas de uma parte do período, por rótulo (partes de dias diferentes se somam pelo rótulo),
+     * e o total da parte (null nos relatórios sem total)
+     */
+    private static final class Parte {
+        final Map<String, Linha> linhas;
+        final Linha total;
+
+        Parte(Map<String, Linha> linhas, Linha total) {
+            this.linhas = Collections.unmodifiableMap(linhas);
+            this.total = total;
+        }
+    }
+
+    private static final class Chave {
+        final Relatorio relatorio;
+        final LocalDate inicio;
+        final LocalDate fim;
+
+        Chave(Relatorio relatorio, LocalDate inicio, LocalDate fim) {
+            this.relatorio = relatorio;
+            this.inicio = inicio;
+            this.fim = fim;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (!(o instanceof Chave c)) return false;
+            return relatorio == c.relatorio && inicio.equals(c.inicio) && fim.equals(c.fim);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(relatorio, inicio, fim);
+        }
+    }
+
+    public static class Linha {
+        private final String rotulo;
+        private final long quantidade;
+        private final double bruto;
+        private final double taxas;
+        private final double liquido;
+
+        public Linha(String rotulo, long quantidade, double bruto, double taxas, double liquido) {
+            this.rotulo = rotulo;
+            this.quantidade = quantidade;
+            this.bruto = bruto;
+            this.taxas = taxas;
+            this.liquido = liquido;
+        }
+
+        public String getRotulo() { return rotulo; }
+        public long getQuantidade() { return quantidade; }
+        public double getBruto() { return bruto; }
+        public double getTaxas() { return taxas; }
+        public double getLiquido() { return liquido; }
+
+        public String valor(Coluna coluna) {
+            return switch (coluna) {
+                case QUANTIDADE -> String.valueOf(quantidade);
+                case BRUTO -> String.format("R$ %.2f", bruto);
+                case TAXAS -> String.format("R$ %.2f", taxas);
+                case LIQUIDO -> String.format("R$ %.2f", liquido);
+            };
+        }
+    }
+
+    public static class Resultado {
+        public final Relatorio relatorio;
+        public final LocalDate inicio;
+        public final LocalDate fim;
+        public final List<Linha> linhas;
+        public final Linha total; // null nos relatórios sem total
+        public final LocalDateTime geradoEm;
+        public final long duracaoMs;
+
+        Resultado(Relatorio relatorio, LocalDate inicio, LocalDate fim, List<Linha> linhas, Linha total,
+                  LocalDateTime geradoEm, long duracaoMs) {
+            this.relatorio = relatorio;
+            this.inicio = inicio;
+            this.fim = fim;
+            this.linhas = List.copyOf(linhas);
+            this.total = total;
+            this.geradoEm = geradoEm;
+            this.duracaoMs = duracaoMs;
+        }
+
+        /**
+         * Líquido médio por dia do período (dias sem venda contam)
+         */
+        public double getMediaDiaria() {
+            long dias = ChronoUnit.DAYS.between(inicio, fim) + 1;
+            return total != null && dias > 0 ? total.getLiquido() / dias : 0;
+        }
+
+        public String getPeriodo() {
+            return inicio.equals(fim) ? DATA.format(inicio) : DATA.format(inicio) + " a " + DATA.format(fim);
+        }
+    }
+}
@@ -1,5 +1,6 @@
 package br.com.fotocastro.service;
 
+import br.com.fotocastro.infra.ConflitoDeVersao;
 import br.com.fotocastro.infra.VendaDaoH2;
 import br.com.fotocastro.model.PaymentMethod;
 import br.com.fotocastro.model.Venda;
@@ -7,6 +8,7 @@ import br.com.fotocastro.model.Venda;
 import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 import java.util.logging.Logger;
 
@@ -22,6 +24,9 @@ public class SaleService {
     private static final double TAXA_CARTAO_PERCENT = 0.0533333333; // ~5.33%
     private static final double TAXA_PIX_PERCENT = 0.00;
     private static final double TAXA_DINHEIRO_PERCENT = 0.00;
+
+    // Releituras de atualizarVenda quando outro terminal grava a mesma venda no meio
+    private static final int TENTATIVAS_CONFLITO = 3;
     
     private final VendaDaoH2 vendaDao;
     
@@ -82,23 +87,39 @@ public class SaleService {
             throw new IllegalArgumentException("ID da venda não pode ser nulo");
         }
         
-        // Verifica se a venda existe
-        Venda vendaExistente = vendaDao.buscarPorId(id).orElseThrow(
-            () -> new IllegalArgumentException("Venda não encontrada: " + id)
-        );
-        
         // Recalcula taxa e valor líquido
         double taxa = calcularTaxa(valorBruto, metodo);
         double valorLiquido = Math.max(0.0, valorBruto - taxa);
         
-        // Atualiza dados
-        vendaExistente.setDescricao(descricao.trim());
-        vendaExistente.setValorBruto(round2(valorBruto));
-        vendaExistente.setMetodo(metodo);
-        vendaExistente.setTaxa(round2(taxa));
-        vendaExistente.setValorLiquido(round2(valorLiquido));
-        
-        vendaDao.atualizar(vendaExistente);
+        // Todos os campos editáveis vêm do chamador: num conflito de versão basta reler e regravar
+        for (int tentativa = 1; ; tentativa++) {
+            // Verifica se a venda existe
+            Venda vendaExistente = vendaDao.buscarPorId(id).orElseThrow(
+                () -> new IllegalArgumentException("Venda não encontrada: " + id)
+            );
+            
+            // Atualiza dados (venda de pedido: valor, método e taxa vêm dos pagamentos do pedido)
+            vendaExistente.setDescricao(descricao.trim());
+            if (vendaExistente.getPedidoId() != null) {
+                if (round2(valorBruto) != vendaExistente.getValorBruto() || metodo != vendaExistente.getMetodo()) {
+                    throw new IllegalArgumentException("Venda do pedido #" + vendaExistente.getPedidoId()
+                        + ": valor e método não podem ser alterados");
+                }
+            } else {
+                vendaExistente.setValorBruto(round2(valorBruto));
+                vendaExistente.setMetodo(metodo);
+                vendaExistente.setTaxa(round2(taxa));
+                vendaExistente.setValorLiquido(round2(valorLiquido));
+            }
+            
+            try {
+                vendaDao.atualizar(vendaExistente);
+                break;
+            } catch (ConflitoDeVersao e) {
+                if (tentativa >= TENTATIVAS_CONFLITO) throw e;
+                logger.fine("Venda " + id + " alterada em outro terminal, relendo (tentativa " + tentativa + ")");
+            }
+        }
         logger.info("Venda atualizada: ID=" + id);
     }
     
@@ -111,7 +132,7 @@ public class SaleService {
         }
         
         // Verifica se existe antes de remover
-        vendaDao.buscarPorId(id).orElseThrow(
+        Venda venda = vendaDao.buscarPorId(id).orElseThrow(
             () -> new IllegalArgumentException("Venda não encontrada: " + id)
         );
         
@@ -222,9 +243,10 @@ public class SaleService {
         double totalTaxas = vendaDao.somaTaxas();
         double totalLiquido = vendaDao.somaLiquido();
         
-        double liquidoDinheiro = vendaDao.somaPorMetodo(PaymentMethod.DINHEIRO);
-        double liquidoCartao = vendaDao.somaPorMetodo(PaymentMethod.CARTAO);
-        double liquidoPix = vendaDao.somaPorMetodo(PaymentMethod.PIX);
+        Map<PaymentMethod, Double> porMetodo = vendaDao.somaPorMetodo();
+        double liquidoDinheiro = porMetodo.get(PaymentMethod.DINHEIRO);
+        double liquidoCartao = porMetodo.get(PaymentMethod.CARTAO);
+        double liquidoPix = porMetodo.get(PaymentMethod.PIX);
         
         return new ResumoFinanceiro(
             totalBruto, totalTaxas, totalLiquido,
@@ -237,15 +259,11 @@ public class SaleService {
      */
     public ResumoVendasHoje gerarResumoHoje() {
         int quantidade = vendaDao.contarVendasHoje();
-        double liquidoHoje = vendaDao.somaLiquidoHoje();
-        
-        double liquidoDinheiro = vendaDao.somaPorMetodoHoje(PaymentMethod.DINHEIRO);
-        double liquidoCartao = vendaDao.somaPorMetodoHoje(PaymentMethod.CARTAO);
-        double liquidoPix = vendaDao.somaPorMetodoHoje(PaymentMethod.PIX);
+        VendaDaoH2.TotaisCaixa hoje = vendaDao.totaisDeHoje();
         
         return new ResumoVendasHoje(
-            quantidade, liquidoHoje,
-            liquidoDinheiro, liquidoCartao, liquidoPix
+            quantidade, hoje.getLiquido(),
+            hoje.getDinheiro(), hoje.getCartao(), hoje.getPix()
         );
     }
     
@@ -0,0 +1,569 @@
+package br.com.fotocastro.service;
+
+import br.com.fotocastro.config.AppProperties;
+import br.com.fotocastro.infra.ReplicacaoDaoH2;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.math.BigDecimal;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.FileTime;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.*;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Sincronização entre filiais por arquivos (chaves filial.*).
+ *
+ * Exportação: os registros que mudaram desde o último lote (tabela alteracao, V14) são relidos
+ * no estado atual e gravados num lote gzip em pasta/&lt;filial&gt;/; cada registro vai uma vez,
+ * mesmo que tenha mudado várias vezes, então o custo acompanha o número de alterações e não o
+ * tamanho das tabelas. O primeiro lote (ou depois de {@link #solicitarExportacaoCompleta()}) é completo.
+ *
+ * Importação: os lotes das outras filiais (demais subpastas) são aplicados em ordem nas tabelas
+ * filial_* (V16). Cada trecho é um MERGE por filial + id, então um lote interrompido pode ser
+ * reaplicado; o número do lote só é registrado no fim.
+ *
+ * Cada filial publica em pasta/&lt;filial&gt;/recebidos.properties o último lote aplicado de cada
+ * origem. Quem exporta confere esses números: se uma filial (nova ou parada por mais tempo que a
+ * retenção) precisa de lotes que já foram apagados, o próximo lote sai completo sozinho.
+ *
+ * A pasta pode ser local, um compartilhamento de rede ou uma pasta sincronizada na nuvem:
+ * os lotes são gravados com outro nome e renomeados só quando completos.
+ */
+public class SincronizacaoFilialService {
+
+    private static final Logger logger = Logger.getLogger(SincronizacaoFilialService.class.getName());
+
+    private static final int MAGICO = 0x46434443; // "FCDC"
+    private static final int VERSAO_FORMATO = 1;
+    private static final String EXTENSAO = ".cdc.gz";
+    private static final String RECEBIDOS = "recebidos.properties";
+
+    // Registros do lote
+    private static final byte LINHA = 'U';
+    private static final byte REMOVIDO = 'D';
+    private static final byte FIM = 0;
+
+    // Tipos de valor
+    private static final byte NULO = 0;
+    private static final byte LONGO = 1;
+    private static final byte INTEIRO = 2;
+    private static final byte DECIMAL = 3;
+    private static final byte TEXTO = 4;
+    private static final byte DATA_HORA = 5;
+    private static final byte DATA = 6;
+    private static final byte LOGICO = 7;
+
+    private static ScheduledExecutorService executor;
+
+    private final ReplicacaoDaoH2 dao;
+    private final String filial;
+    private final Path pasta;
+    private final long margemMs;
+    private final int tamanhoTrecho;
+    private final int retencaoDias;
+    private final int retencaoAlteracoesHoras;
+
+    public SincronizacaoFilialService() {
+        this(new ReplicacaoDaoH2(),
+             AppProperties.get("filial.nome", "").trim(),
+             Path.of(AppProperties.get("filial.pasta", "./data/filiais")),
+             AppProperties.getLong("filial.margemSeg", 10) * 1000,
+             AppProperties.getInt("filial.tamanhoLote", 1000),
+             AppProperties.getInt("filial.retencaoDias", 30),
+             AppProperties.getInt("terminal.retencaoHoras", 24));
+    }
+
+    // Construtor para injeção de dependência (testes)
+    public SincronizacaoFilialService(ReplicacaoDaoH2 dao, String filial, Path pasta, long margemMs,
+                                      int tamanhoTrecho, int retencaoDias, int retencaoAlteracoesHoras) {
+        this.dao = dao;
+        this.filial = filial;
+        this.pasta = pasta;
+        this.margemMs = margemMs;
+        this.tamanhoTrecho = tamanhoTrecho;
+        this.retencaoDias = retencaoDias;
+        this.retencaoAlteracoesHoras = retencaoAlteracoesHoras;
+    }
+
+    public String getFilial() {
+        return filial;
+    }
+
+    /**
+     * Vendas do período por filial: esta e as importadas das outras
+     */
+    public List<ReplicacaoDaoH2.ResumoFilial> resumoPorFilial(LocalDate inicio, LocalDate fim) {
+        return dao.resumoPorFilial(filial, inicio, fim);
+    }
+
+    /**
+     * Sincronização ligada quando esta instalação tem nome de filial
+     */
+    public static boolean habilitada() {
+        return !AppProperties.get("filial.nome", "").isBlank();
+    }
+
+    // ========== AGENDAMENTO ==========
+
+    /**
+     * Exporta e importa a cada filial.intervaloMin minutos (0 desliga)
+     */
+    public static synchronized void agendar() {
+        int minutos = AppProperties.getInt("filial.intervaloMin", 15);
+        if (!habilitada() || minutos <= 0 || executor != null) return;
+        SincronizacaoFilialService service = new SincronizacaoFilialService();
+        executor = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "sincronizacao-filial");
+            t.setDaemon(true);
+            return t;
+        });
+        executor.scheduleWithFixedDelay(service::sincronizar, 1, minutos, TimeUnit.MINUTES);
+        logger.info("Sincronização da filial " + service.filial + " a cada " + minutos + " min em " + service.pasta);
+    }
+
+    public static synchronized void encerrar() {
+        if (executor == null) return;
+        executor.shutdown(); // o ciclo em curso termina (lote parcial não é publicado)
+        try {
+            executor.awaitTermination(30, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        executor = null;
+    }
+
+    /**
+     * Um ciclo: exporta o que mudou aqui e importa o que chegou das outras filiais
+     */
+    public void sincronizar() {
+        try {
+            exportar();
+        } catch (RuntimeException e) {
+            logger.log(Level.WARNING, "Falha ao exportar alterações da filial", e);
+        }
+        try {
+            importar();
+        } catch (RuntimeException e) {
+            logger.log(Level.WARNING, "Falha ao importar lotes de outras filiais", e);
+        }
+    }
+
+    // ========== EXPORTAÇÃO ==========
+
+    /**
+     * Grava um lote com o que mudou desde o anterior
+     * @return arquivo gravado, ou null se não havia alterações
+     */
+    public synchronized Path exportar() {
+        String atrasada = filialSemLotes();
+        if (atrasada != null) {
+            logger.info("Filial " + atrasada + " precisa de lotes que já foram apagados; exportando tudo");
+            dao.reiniciarExportacao();
+        }
+
+        Long exportado = dao.getSeqExportado();
+        boolean completo = exportado == null || exportado < 0;
+        long lote = dao.getUltimoLoteExportado() + 1;
+
+        // Completo: o estado de agora já inclui tudo até o último seq
+        long ate = completo ? dao.getUltimoSeq() : Math.max(exportado, dao.getSeqEstavel(margemMs));
+        Map<String, Set<Long>> alterados = completo ? Map.of() : dao.alteradosEntre(exportado, ate);
+        if (!completo && alterados.values().stream().allMatch(Set::isEmpty)) {
+            if (ate > exportado) dao.registrarExportacao(ate, lote - 1);
+            podarAlteracoes(ate);
+            return null;
+        }
+
+        Path destino = pasta.resolve(filial).resolve(nomeLote(filial, lote));
+        Path parcial = destino.resolveSibling(destino.getFileName() + ".parcial");
+        long inicio = System.nanoTime();
+        int[] contagem = new int[2];
+        try {
+            Files.createDirectories(destino.getParent());
+            try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(
+                    new GZIPOutputStream(Files.newOutputStream(parcial), 1 << 16)))) {
+                out.writeInt(MAGICO);
+                out.writeInt(VERSAO_FORMATO);
+                out.writeUTF(filial);
+                out.writeLong(lote);
+                out.writeBoolean(completo);
+                out.writeLong(ate);
+
+                for (String tabela : ReplicacaoDaoH2.COLUNAS.keySet()) {
+                    if (completo) {
+                        dao.paraCadaLinha(tabela, v -> escreverLinha(out, tabela, v, contagem));
+                        continue;
+                    }
+                    Set<Long> ids = alterados.get(tabela);
+                    if (ids.isEmpty()) continue;
+                    Set<Long> restantes = new HashSet<>(ids);
+                    dao.paraCadaLinha(tabela, ids, v -> {
+                        restantes.remove(((Number) v[0]).longValue());
+                        escreverLinha(out, tabela, v, contagem);
+                    });
+                    for (Long id : restantes) {
+                        out.writeByte(REMOVIDO);
+                        out.writeUTF(tabela);
+                        out.writeLong(id);
+                        contagem[1]++;
+                    }
+                }
+                out.writeByte(FIM);
+            }
+            Files.move(parcial, destino, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Erro ao gravar lote " + destino, e);
+        } catch (UncheckedIOException e) {
+            throw new UncheckedIOException("Erro ao gravar lote " + destino, e.getCause());
+        } finally {
+            try {
+                Files.deleteIfExists(parcial);
+            } catch (IOException ignored) {
+            }
+        }
+
+        dao.registrarExportacao(ate, lote);
+        podarAlteracoes(ate);
+        apagarLotesAntigos();
+        logger.info(String.format("Lote %d%s exportado: %d linhas, %d remoções, %.0f ms (%s)",
+            lote, completo ? " (completo)" : "", contagem[0], contagem[1],
+            (System.nanoTime() - inicio) / 1e6, destino.getFileName()));
+        return destino;
+    }
+
+    /**
+     * O próximo lote leva todas as linhas (filial nova entrou ou lotes antigos já foram apagados)
+     */
+    public void solicitarExportacaoCompleta() {
+        dao.reiniciarExportacao();
+    }
+
+    /**
+     * Filial que aplicou menos lotes daqui do que os que ainda estão na pasta, sem um lote completo
+     * depois do último que ela aplicou: ficaria esperando para sempre.
+     * @return nome da filial, ou null se todas conseguem seguir
+     */
+    private String filialSemLotes() {
+        List<Path> lotes = listarLotes(pasta.resolve(filial));
+        if (lotes.isEmpty()) return null;
+        long primeiro = numeroLote(lotes.get(0));
+
+        for (Map.Entry<String, Map<String, Long>> e : lerRecebidosDasFiliais().entrySet()) {
+            long aplicado = e.getValue().getOrDefault(filial, 0L);
+            if (aplicado >= primeiro - 1 || temLoteCompletoDepois(lotes, aplicado)) continue;
+            return e.getKey();
+        }
+        return null;
+    }
+
+    private boolean temLoteCompletoDepois(List<Path> lotes, long aplicado) {
+        for (int i = lotes.size() - 1; i >= 0 && numeroLote(lotes.get(i)) > aplicado; i--) {
+            try (DataInputStream in = new DataInputStream(new GZIPInputStream(Files.newInputStream(lotes.get(i))))) {
+                if (in.readInt() != MAGICO || in.readInt() != VERSAO_FORMATO) continue;
+                in.readUTF();
+                in.readLong();
+                if (in.readBoolean()) return true;
+            } catch (IOException e) {
+                logger.fine("Não foi possível ler o cabeçalho de " + lotes.get(i) + ": " + e.getMessage());
+            }
+        }
+        return false;
+    }
+
+    private static void escreverLinha(DataOutputStream out, String tabela, Object[] valores, int[] contagem) {
+        try {
+            out.writeByte(LINHA);
+            out.writeUTF(tabela);
+            for (Object v : valores) escreverValor(out, v);
+            contagem[0]++;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static void escreverValor(DataOutputStream out, Object v) throws IOException {
+        if (v == null) {
+            out.writeByte(NULO);
+        } else if (v instanceof Long l) {
+            out.writeByte(LONGO);
+            out.writeLong(l);
+        } else if (v instanceof Integer || v instanceof Short || v instanceof Byte) {
+            out.writeByte(INTEIRO);
+            out.writeInt(((Number) v).intValue());
+        } else if (v instanceof BigDecimal d) {
+            out.writeByte(DECIMAL);
+            out.writeUTF(d.toPlainString());
+        } else if (v instanceof LocalDateTime dt) {
+            out.writeByte(DATA_HORA);
+            out.writeUTF(dt.toString());
+        } else if (v instanceof LocalDate d) {
+            out.writeByte(DATA);
+            out.writeLong(d.toEpochDay());
+        } else if (v instanceof Boolean b) {
+            out.writeByte(LOGICO);
+            out.writeBoolean(b);
+        } else {
+            out.writeByte(TEXTO);
+            out.writeUTF(v.toString());
+        }
+    }
+
+    /**
+     * Alterações já exportadas saem da tabela depois da retenção do multi-terminal
+     */
+    private void podarAlteracoes(long ate) {
+        dao.podarAlteracoes(ate, LocalDateTime.now().minusHours(retencaoAlteracoesHoras));
+    }
+
+    /**
+     * Lotes além da retenção saem da pasta; filial que ainda precisava deles recebe um lote
+     * completo (ver {@link #filialSemLotes()})
+     */
+    private void apagarLotesAntigos() {
+        Instant limite = Instant.now().minus(retencaoDias, ChronoUnit.DAYS);
+        List<Path> lotes = listarLotes(pasta.resolve(filial));
+        // O último fica sempre: é o que mostra às outras filiais até onde a numeração foi
+        for (Path p : lotes.subList(0, Math.max(0, lotes.size() - 1))) {
+            try {
+                FileTime modificado = Files.getLastModifiedTime(p);
+                if (modificado.toInstant().isBefore(limite)) Files.delete(p);
+            } catch (IOException e) {
+                logger.fine("Não foi possível apagar o lote " + p + ": " + e.getMessage());
+            }
+        }
+    }
+
+    // ========== IMPORTAÇÃO ==========
+
+    /**
+     * Aplica os lotes novos de cada outra filial encontrada na pasta
+     * @return lotes aplicados
+     */
+    public synchronized int importar() {
+        if (!Files.isDirectory(pasta)) return 0;
+        int aplicados = 0;
+        Map<String, Long> recebidos = new TreeMap<>();
+        try (DirectoryStream<Path> ds = Files.newDirectoryStream(pasta, Files::isDirectory)) {
+            for (Path dir : ds) {
+                String origem = dir.getFileName().toString();
+                if (origem.equals(filial)) continue;
+                aplicados += importarOrigem(origem, dir);
+                recebidos.put(origem, dao.getUltimoLoteImportado(origem));
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Erro ao listar " + pasta, e);
+        }
+        publicarRecebidos(recebidos);
+        return aplicados;
+    }
+
+    /**
+     * Grava em pasta/&lt;filial&gt;/ o último lote aplicado de cada origem (só quando muda, para não
+     * reenviar o arquivo a cada ciclo numa pasta sincronizada)
+     */
+    private void publicarRecebidos(Map<String, Long> recebidos) {
+        Path arquivo = pasta.resolve(filial).resolve(RECEBIDOS);
+        if (recebidos.equals(lerRecebidos(arquivo))) return;
+        Properties p = new Properties();
+        recebidos.forEach((origem, lote) -> p.setProperty(origem, String.valueOf(lote)));
+        Path parcial = arquivo.resolveSibling(RECEBIDOS + ".parcial");
+        try {
+            Files.createDirectories(arquivo.getParent());
+            try (var out = Files.newBufferedWriter(parcial)) {
+                p.store(out, "Último lote aplicado de cada filial");
+            }
+            Files.move(parcial, arquivo, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            logger.log(Level.WARNING, "Não foi possível publicar os lotes recebidos em " + arquivo, e);
+        }
+    }
+
+    /**
+     * recebidos.properties das outras filiais (as que ainda não publicaram ficam de fora)
+     */
+    private Map<String, Map<String, Long>> lerRecebidosDasFiliais() {
+        Map<String, Map<String, Long>> r = new TreeMap<>();
+        if (!Files.isDirectory(pasta)) return r;
+        try (DirectoryStream<Path> ds = Files.newDirectoryStream(pasta, Files::isDirectory)) {
+            for (Path dir : ds) {
+                String outra = dir.getFileName().toString();
+                if (outra.equals(filial) || !Files.isRegularFile(dir.resolve(RECEBIDOS))) continue;
+                r.put(outra, lerRecebidos(dir.resolve(RECEBIDOS)));
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Erro ao listar " + pasta, e);
+        }
+        return r;
+    }
+
+    private static Map<String, Long> lerRecebidos(Path arquivo) {
+        Map<String, Long> r = new TreeMap<>();
+        if (!Files.isRegularFile(arquivo)) return r;
+        Properties p = new Properties();
+        try (var in = Files.newBufferedReader(arquivo)) {
+            p.load(in);
+        } catch (IOException e) {
+            logger.fine("Não foi possível ler " + arquivo + ": " + e.getMessage());
+            return r;
+        }
+        for (String origem : p.stringPropertyNames()) {
+            try {
+                r.put(origem, Long.parseLong(p.getProperty(origem).trim()));
+            } catch (NumberFormatException ignored) {
+            }
+        }
+        return r;
+    }
+
+    private int importarOrigem(String origem, Path dir) {
+        long ultimo = dao.getUltimoLoteImportado(origem);
+        long recusado = 0;
+        int aplicados = 0;
+        for (Path arquivo : listarLotes(dir)) {
+            long lote = numeroLote(arquivo);
+            if (lote <= ultimo) continue;
+            try {
+                if (!aplicarLote(origem, arquivo, ultimo)) {
+                    // Incremental depois de uma lacuna: só um lote completo mais adiante resolve
+                    recusado = lote;
+                    continue;
+                }
+            } catch (IOException | RuntimeException e) {
+                logger.log(Level.WARNING, "Lote " + arquivo + " não aplicado; tenta de novo no próximo ciclo", e);
+                break;
+            }
+            ultimo = lote;
+            aplicados++;
+        }
+        if (recusado > ultimo) {
+            logger.warning("Filial " + origem + ": faltam lotes depois do " + ultimo
+                + "; aguardando a exportação completa que a origem gera ao ler recebidos.properties");
+        }
+        return aplicados;
+    }
+
+    /**
+     * Lê e aplica um lote em trechos de {@code tamanhoTrecho} registros
+     * @return false se o lote é incremental e não vem logo depois do último aplicado (nada foi feito)
+     */
+    private boolean aplicarLote(String origem, Path arquivo, long ultimoAplicado) throws IOException {
+        long inicio = System.nanoTime();
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(
+                new GZIPInputStream(Files.newInputStream(arquivo), 1 << 16)))) {
+            if (in.readInt() != MAGICO || in.readInt() != VERSAO_FORMATO) {
+                throw new IOException("Formato de lote desconhecido: " + arquivo.getFileName());
+            }
+            String filialLote = in.readUTF();
+            long lote = in.readLong();
+            boolean completo = in.readBoolean();
+            in.readLong(); // seq da origem (só informativo)
+            if (!filialLote.equals(origem)) {
+                throw new IOException("Lote da filial " + filialLote + " na pasta de " + origem);
+            }
+            if (!completo && lote != ultimoAplicado + 1) return false;
+
+            if (completo) dao.limparReplica(origem);
+            Map<String, List<Object[]>> linhas = new LinkedHashMap<>();
+            Map<String, List<Long>> removidos = new LinkedHashMap<>();
+            int noTrecho = 0;
+            int total = 0;
+            while (true) {
+                byte tipo = in.readByte();
+                if (tipo == FIM) break;
+                String tabela = in.readUTF();
+                List<String> colunas = ReplicacaoDaoH2.COLUNAS.get(tabela);
+                if (colunas == null) throw new IOException("Tabela desconhecida no lote: " + tabela);
+                if (tipo == LINHA) {
+                    Object[] v = new Object[colunas.size()];
+                    for (int i = 0; i < v.length; i++) v[i] = lerValor(in);
+                    linhas.computeIfAbsent(tabela, k -> new ArrayList<>()).add(v);
+                } else if (tipo == REMOVIDO) {
+                    removidos.computeIfAbsent(tabela, k -> new ArrayList<>()).add(in.readLong());
+                } else {
+                    throw new IOException("Registro inválido no lote: " + tipo);
+                }
+                total++;
+                if (++noTrecho >= tamanhoTrecho) {
+                    dao.aplicar(origem, linhas, removidos);
+                    linhas.clear();
+                    removidos.clear();
+                    noTrecho = 0;
+                }
+            }
+            dao.aplicar(origem, linhas, removidos);
+            dao.registrarImportacao(origem, lote);
+            logger.info(String.format("Lote %d da filial %s aplicado%s: %d registros em %.0f ms",
+                lote, origem, completo ? " (completo)" : "", total, (System.nanoTime() - inicio) / 1e6));
+            return true;
+        } catch (EOFException e) {
+            throw new IOException("Lote truncado: " + arquivo.getFileName(), e);
+        }
+    }
+
+    private static Object lerValor(DataInputStream in) throws IOException {
+        byte tipo = in.readByte();
+        return switch (tipo) {
+            case NULO -> null;
+            case LONGO -> in.readLong();
+            case INTEIRO -> in.readInt();
+            case DECIMAL -> new BigDecimal(in.readUTF());
+            case TEXTO -> in.readUTF();
+            case DATA_HORA -> LocalDateTime.parse(in.readUTF());
+            case DATA -> LocalDate.ofEpochDay(in.readLong());
+            case LOGICO -> in.readBoolean();
+            default -> throw new IOException("Tipo de valor inválido no lote: " + tipo);
+        };
+    }
+
+    // ========== ARQUIVOS ==========
+
+    private static String nomeLote(String filial, long lote) {
+        return String.format("%s_%010d%s", filial, lote, EXTENSAO);
+    }
+
+    private static long numeroLote(Path arquivo) {
+        String nome = arquivo.getFileName().toString();
+        String numero = nome.substring(nome.lastIndexOf('_') + 1, nome.length() - EXTENSAO.length());
+        try {
+            return Long.parseLong(numero);
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+
+    /**
+     * Lotes da pasta em ordem de número (ignora parciais e nomes estranhos)
+     */
+    private static List<Path> listarLotes(Path dir) {
+        List<Path> lotes = new ArrayList<>();
+        if (!Files.isDirectory(dir)) return lotes;
+        try (DirectoryStream<Path> ds = Files.newDirectoryStream(dir, "*" + EXTENSAO)) {
+            for (Path p : ds) {
+                if (numeroLote(p) > 0) lotes.add(p);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Erro ao listar lotes em " + dir, e);
+        }
+        lotes.sort(Comparator.comparingLong(SincronizacaoFilialService::numeroLote));
+        return lotes;
+    }
+}
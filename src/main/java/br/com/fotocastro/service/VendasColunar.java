@@ -0,0 +1,289 @@
+package br.com.fotocastro.service;
+
+import br.com.fotocastro.infra.VendaDaoH2;
+import br.com.fotocastro.infra.VendaListener;
+import br.com.fotocastro.model.Venda;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.*;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.logging.Logger;
+
+/**
+ * Cópia colunar das vendas em memória para os gráficos do Dashboard.
+ * Cada coluna é um array primitivo indexado pela linha (ordem de ID):
+ * horário local em segundos, bruto/líquido em centavos e método. Carregada uma vez
+ * e mantida via {@link VendaListener}; as agregações são laços sobre os arrays,
+ * sem acesso ao banco. (O ranking de descrições fica no {@link RankingDescricoes}.)
+ */
+public class VendasColunar implements VendaListener {
+
+    private static final Logger logger = Logger.getLogger(VendasColunar.class.getName());
+    private static final byte REMOVIDA = -1;
+
+    private static VendasColunar instance;
+
+    // Colunas (válidas até "tamanho")
+    private long[] ids = new long[1024];
+    private long[] segundos = new long[1024];      // horário local como epoch UTC (sem fuso)
+    private long[] brutoCentavos = new long[1024];
+    private long[] liquidoCentavos = new long[1024];
+    private byte[] metodos = new byte[1024];       // ordinal de PaymentMethod ou REMOVIDA
+    private int tamanho;
+
+    private final ReentrantReadWriteLock rw = new ReentrantReadWriteLock();
+
+    // Eventos recebidos durante a carga, aplicados no fim dela (null depois da carga)
+    private List<Runnable> adiados = new ArrayList<>();
+
+    private VendasColunar() {
+    }
+
+    public static synchronized VendasColunar getInstance() {
+        if (instance == null) {
+            VendasColunar v = new VendasColunar();
+            // Listener antes da carga: venda gravada durante a leitura não se perde
+            VendaDaoH2.adicionarListener(v);
+            v.carregar();
+            instance = v;
+        }
+        return instance;
+    }
+
+    /**
+     * Lê todas as vendas e depois aplica os eventos que chegaram durante a leitura. Os eventos
+     * são idempotentes sobre as linhas (anexar() regrava a linha já lida), então tanto faz se
+     * a leitura já via a venda; e quem grava não fica esperando a carga terminar.
+     */
+    private void carregar() {
+        long inicio = System.nanoTime();
+        rw.writeLock().lock();
+        try {
+            new VendaDaoH2().paraCadaVenda(this::acrescentar);
+            intercalarPorId();
+            synchronized (this) {
+                List<Runnable> eventos = adiados;
+                adiados = null;
+                eventos.forEach(Runnable::run);
+            }
+        } finally {
+            rw.writeLock().unlock();
+        }
+        logger.info(String.format("Cache colunar de vendas: %d linhas (%.0f ms)",
+            tamanho, (System.nanoTime() - inicio) / 1e6));
+    }
+
+    // ========== AGREGAÇÕES ==========
+
+    /**
+     * Líquido por dia das vendas nos últimos N dias (janela móvel a partir de agora), dia mais recente primeiro
+     */
+    public Map<LocalDate, Double> liquidoPorDia(int dias) {
+        long agora = LocalDateTime.now().toEpochSecond(ZoneOffset.UTC);
+        long corte = agora - dias * 86_400L;
+        long diaCorte = Math.floorDiv(corte, 86_400L);
+
+        long[] totais = new long[dias + 2];
+        boolean[] presente = new boolean[dias + 2];
+
+        rw.readLock().lock();
+        try {
+            for (int i = 0; i < tamanho; i++) {
+                long s = segundos[i];
+                if (s < corte || metodos[i] == REMOVIDA) continue;
+                int d = (int) (Math.floorDiv(s, 86_400L) - diaCorte);
+                if (d < 0 || d >= totais.length) continue;
+                totais[d] += liquidoCentavos[i];
+                presente[d] = true;
+            }
+        } finally {
+            rw.readLock().unlock();
+        }
+
+        Map<LocalDate, Double> r = new LinkedHashMap<>();
+        for (int d = totais.length - 1; d >= 0; d--) {
+            if (presente[d]) {
+                r.put(LocalDate.ofEpochDay(diaCorte + d), totais[d] / 100.0);
+            }
+        }
+        return r;
+    }
+
+    /**
+     * Líquido por hora do dia sobre todo o histórico (só horas com venda)
+     */
+    public Map<Integer, Double> liquidoPorHora() {
+        long[] totais = new long[24];
+        int[] contagem = new int[24];
+
+        rw.readLock().lock();
+        try {
+            for (int i = 0; i < tamanho; i++) {
+                if (metodos[i] == REMOVIDA) continue;
+                int h = (int) (Math.floorMod(segundos[i], 86_400L) / 3600);
+                totais[h] += liquidoCentavos[i];
+                contagem[h]++;
+            }
+        } finally {
+            rw.readLock().unlock();
+        }
+
+        Map<Integer, Double> r = new LinkedHashMap<>();
+        for (int h = 0; h < 24; h++) {
+            if (contagem[h] > 0) r.put(h, totais[h] / 100.0);
+        }
+        return r;
+    }
+
+    public int getTamanho() {
+        return tamanho;
+    }
+
+    // ========== ATUALIZAÇÃO ==========
+
+    @Override
+    public void vendasInseridas(List<Venda> vendas) {
+        if (adiarDuranteCarga(() -> vendasInseridas(vendas))) return;
+        rw.writeLock().lock();
+        try {
+            for (Venda v : vendas) anexar(v);
+        } finally {
+            rw.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public void vendaAtualizada(Venda anterior, Venda atual) {
+        if (adiarDuranteCarga(() -> vendaAtualizada(anterior, atual))) return;
+        rw.writeLock().lock();
+        try {
+            int i = linhaDe(atual.getId());
+            if (i >= 0) gravar(i, atual);
+        } finally {
+            rw.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public void vendasRemovidas(List<Venda> vendas) {
+        if (adiarDuranteCarga(() -> vendasRemovidas(vendas))) return;
+        rw.writeLock().lock();
+        try {
+            for (Venda v : vendas) {
+                int i = linhaDe(v.getId());
+                if (i >= 0) metodos[i] = REMOVIDA;
+            }
+        } finally {
+            rw.writeLock().unlock();
+        }
+    }
+
+    private synchronized boolean adiarDuranteCarga(Runnable evento) {
+        if (adiados == null) return false;
+        adiados.add(evento);
+        return true;
+    }
+
+    /**
+     * Acrescenta no fim sem manter a ordem (só na carga, seguida de intercalarPorId()).
+     * Exige o write lock.
+     */
+    private void acrescentar(Venda v) {
+        if (v.getId() == null) return;
+        if (tamanho == ids.length) crescer();
+        ids[tamanho] = v.getId();
+        gravar(tamanho, v);
+        tamanho++;
+    }
+
+    /**
+     * Põe em ordem de ID as linhas da carga. Arquivo e tabela quente vêm cada um em ordem, mas
+     * os IDs de um podem passar os do outro (venda importada com data antiga vai para o arquivo
+     * com ID alto): intercala as sequências já ordenadas em vez de inserir linha a linha no meio
+     * dos arrays, que com um arquivo grande custava minutos. Exige o write lock.
+     */
+    private void intercalarPorId() {
+        int fimA = 1;
+        while (fimA < tamanho && ids[fimA - 1] <= ids[fimA]) fimA++;
+        while (fimA < tamanho) {
+            int fimB = fimA + 1;
+            while (fimB < tamanho && ids[fimB - 1] <= ids[fimB]) fimB++;
+
+            // [0, fimA) e [fimA, fimB) ordenados: ordem das linhas intercaladas
+            int[] ordem = new int[fimB];
+            int a = 0, b = fimA;
+            for (int k = 0; k < fimB; k++) {
+                ordem[k] = b >= fimB || (a < fimA && ids[a] <= ids[b]) ? a++ : b++;
+            }
+            ids = permutar(ids, ordem);
+            segundos = permutar(segundos, ordem);
+            brutoCentavos = permutar(brutoCentavos, ordem);
+            liquidoCentavos = permutar(liquidoCentavos, ordem);
+            byte[] m = Arrays.copyOf(metodos, metodos.length);
+            for (int k = 0; k < fimB; k++) m[k] = metodos[ordem[k]];
+            metodos = m;
+            fimA = fimB;
+        }
+    }
+
+    private static long[] permutar(long[] coluna, int[] ordem) {
+        long[] r = Arrays.copyOf(coluna, coluna.length);
+        for (int k = 0; k < ordem.length; k++) r[k] = coluna[ordem[k]];
+        return r;
+    }
+
+    /**
+     * Acrescenta mantendo as linhas em ordem de ID (commits concorrentes podem chegar fora de ordem).
+     * Exige o write lock.
+     */
+    private void anexar(Venda v) {
+        if (v.getId() == null) return;
+        long id = v.getId();
+
+        if (tamanho == ids.length) crescer();
+
+        int pos = tamanho;
+        if (tamanho > 0 && ids[tamanho - 1] >= id) {
+            int achado = Arrays.binarySearch(ids, 0, tamanho, id);
+            if (achado >= 0) {
+                gravar(achado, v); // já carregada
+                return;
+            }
+            pos = -achado - 1;
+            int n = tamanho - pos;
+            System.arraycopy(ids, pos, ids, pos + 1, n);
+            System.arraycopy(segundos, pos, segundos, pos + 1, n);
+            System.arraycopy(brutoCentavos, pos, brutoCentavos, pos + 1, n);
+            System.arraycopy(liquidoCentavos, pos, liquidoCentavos, pos + 1, n);
+            System.arraycopy(metodos, pos, metodos, pos + 1, n);
+        }
+        ids[pos] = id;
+        gravar(pos, v);
+        tamanho++;
+    }
+
+    private void gravar(int i, Venda v) {
+        LocalDateTime dh = v.getDataHora() != null ? v.getDataHora() : LocalDateTime.now();
+        segundos[i] = dh.toEpochSecond(ZoneOffset.UTC);
+        brutoCentavos[i] = Math.round(v.getValorBruto() * 100);
+        liquidoCentavos[i] = Math.round(v.getValorLiquido() * 100);
+        metodos[i] = (byte) v.getMetodo().ordinal();
+    }
+
+    private int linhaDe(Long id) {
+        if (id == null) return -1;
+        int i = Arrays.binarySearch(ids, 0, tamanho, id);
+        return i >= 0 ? i : -1;
+    }
+
+    private void crescer() {
+        int nova = ids.length * 2;
+        ids = Arrays.copyOf(ids, nova);
+        segundos = Arrays.copyOf(segundos, nova);
+        brutoCentavos = Arrays.copyOf(brutoCentavos, nova);
+        liquidoCentavos = Arrays.copyOf(liquidoCentavos, nova);
+        metodos = Arrays.copyOf(metodos, nova);
+    }
+}
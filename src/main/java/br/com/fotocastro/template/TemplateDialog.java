@@ -7,7 +7,9 @@ import javafx.collections.FXCollections;
 import javafx.geometry.Insets;
 import javafx.scene.control.*;
 import javafx.scene.layout.GridPane;
+import javafx.scene.layout.HBox;
 
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Optional;
 
@@ -29,6 +31,9 @@ public class TemplateDialog {
     private TextField txtTag;
     private ComboBox<ItemEstoque> cbEstoque;
     private Spinner<Integer> spnQuantidade;
+    private ListView<TemplateVenda.Componente> lstExtras;
+    private ComboBox<ItemEstoque> cbExtra;
+    private Spinner<Integer> spnExtra;
     
     private EstoqueDaoH2 estoqueDao;
     
@@ -169,10 +174,53 @@ public class TemplateDialog {
         if (isEdit) spnQuantidade.getValueFactory().setValue(template.getQuantidadeUso());
         grid.add(spnQuantidade, 1, row++);
         
+        // Componentes adicionais (BOM): ex. foto + moldura
+        grid.add(new Label("Outros itens:"), 0, row);
+        lstExtras = new ListView<>();
+        lstExtras.setPrefHeight(90);
+        lstExtras.setCellFactory(lv -> new ListCell<>() {
+            @Override
+            protected void updateItem(TemplateVenda.Componente c, boolean empty) {
+                super.updateItem(c, empty);
+                setText(empty || c == null ? null : String.format("%s × %d", nomeDoItem(c.getEstoqueId()), c.getQuantidade()));
+            }
+        });
+        if (isEdit) {
+            // O componente principal é o "Produto" acima; os demais vão para a lista
+            for (TemplateVenda.Componente c : template.getComponentes()) {
+                if (!c.getEstoqueId().equals(template.getEstoqueItemId())) {
+                    lstExtras.getItems().add(c);
+                }
+            }
+        }
+        grid.add(lstExtras, 1, row++);
+        
+        cbExtra = new ComboBox<>(FXCollections.observableArrayList(itensEstoque));
+        cbExtra.setPromptText("Item");
+        cbExtra.setPrefWidth(140);
+        cbExtra.setConverter(cbEstoque.getConverter());
+        spnExtra = new Spinner<>(1, 100, 1);
+        spnExtra.setEditable(true);
+        spnExtra.setPrefWidth(70);
+        Button btnAddExtra = new Button("＋");
+        btnAddExtra.setOnAction(e -> {
+            ItemEstoque item = cbExtra.getValue();
+            if (item != null) {
+                lstExtras.getItems().add(new TemplateVenda.Componente(item.getId(), spnExtra.getValue()));
+                cbExtra.setValue(null);
+            }
+        });
+        Button btnRemExtra = new Button("－");
+        btnRemExtra.setOnAction(e -> {
+            TemplateVenda.Componente sel = lstExtras.getSelectionModel().getSelectedItem();
+            if (sel != null) lstExtras.getItems().remove(sel);
+        });
+        grid.add(new HBox(6, cbExtra, spnExtra, btnAddExtra, btnRemExtra), 1, row++);
+        
         // Nota explicativa
         Label lblNota = new Label(
-            "Ao vender este template, a quantidade\n" +
-            "será automaticamente descontada do estoque."
+            "Ao vender este template, as quantidades de todos\n" +
+            "os itens serão descontadas do estoque."
         );
         lblNota.setStyle("-fx-font-size: 10px; -fx-text-fill: #6b7280;");
         lblNota.setWrapText(true);
@@ -252,9 +300,25 @@ public class TemplateDialog {
         
         t.setQuantidadeUso(spnQuantidade.getValue());
         
+        // Composição: produto principal + outros itens
+        List<TemplateVenda.Componente> componentes = new ArrayList<>();
+        if (itemEstoque != null) {
+            componentes.add(new TemplateVenda.Componente(itemEstoque.getId(), spnQuantidade.getValue()));
+        }
+        componentes.addAll(lstExtras.getItems());
+        t.setComponentes(componentes);
+        
         return t;
     }
     
+    private String nomeDoItem(Long estoqueId) {
+        return cbEstoque.getItems().stream()
+            .filter(i -> i != null && i.getId().equals(estoqueId))
+            .map(i -> i.getTamanho() != null ? i.getNome() + " " + i.getTamanho() : i.getNome())
+            .findFirst()
+            .orElse("Item " + estoqueId);
+    }
+    
     private void showError(String message) {
         Alert alert = new Alert(Alert.AlertType.ERROR);
         alert.setTitle("Erro de Validação");
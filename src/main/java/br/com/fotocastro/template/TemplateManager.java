@@ -1,11 +1,16 @@
 package br.com.fotocastro.template;
 
-import br.com.fotocastro.infra.EstoqueDaoH2;
 import br.com.fotocastro.infra.TemplateDaoH2;
-import br.com.fotocastro.infra.VendaDaoH2;
+import br.com.fotocastro.model.Pagamento;
 import br.com.fotocastro.model.PaymentMethod;
+import br.com.fotocastro.model.Pedido;
 import br.com.fotocastro.model.TemplateVenda;
 import br.com.fotocastro.model.Venda;
+import br.com.fotocastro.service.BomService;
+import br.com.fotocastro.service.BuscaIndex;
+import br.com.fotocastro.service.PedidoService;
+import br.com.fotocastro.ui.ConflitoDialogo;
+import br.com.fotocastro.ui.PagamentoDialogo;
 import javafx.scene.control.*;
 import javafx.scene.layout.*;
 
@@ -33,15 +38,20 @@ public class TemplateManager {
     private static final double DIN_PERCENT = 0.00;
 
     private final TemplateDaoH2 templateDao;
-    private final EstoqueDaoH2 estoqueDao;
-    private final VendaDaoH2 vendaDao;
+    private final BomService bomService;
+    private final PedidoService pedidoService;
 
     private Runnable onVendaRealizada;
 
+    // Carrinho: com o modo ligado, o clique no card adiciona em vez de vender
+    private final Pedido carrinho = new Pedido();
+    private boolean modoCarrinho;
+    private Runnable onCarrinhoAlterado;
+
     public TemplateManager() {
         this.templateDao = new TemplateDaoH2();
-        this.estoqueDao = new EstoqueDaoH2();
-        this.vendaDao = new VendaDaoH2();
+        this.bomService = new BomService();
+        this.pedidoService = new PedidoService();
     }
 
     // ========== CARREGAR TEMPLATES ==========
@@ -60,7 +70,10 @@ public class TemplateManager {
 
         for (TemplateVenda template : templates) {
             TemplateCard card = new TemplateCard(template);
-            card.setOnClick(() -> venderTemplate(template));
+            card.setOnClick(() -> {
+                if (modoCarrinho) adicionarAoCarrinho(template);
+                else venderTemplate(template);
+            });
             configurarDragParaRemocao(card, btnRemover, track);
             track.getChildren().add(card);
         }
@@ -103,6 +116,8 @@ public class TemplateManager {
                 confirm.showAndWait().ifPresent(res -> {
                     if (res == ButtonType.YES) {
                         templateDao.remover(template.getId());
+                        BomService.invalidar(template.getId());
+                        BuscaIndex.getInstance().removerTemplate(template.getId());
                         track.getChildren().remove(sourceCard);
                         showInfo("Template removido!");
                     }
@@ -127,6 +142,7 @@ public class TemplateManager {
             try {
                 Long id = templateDao.inserir(template);
                 template.setId(id);
+                BuscaIndex.getInstance().indexarTemplate(template);
                 logger.info("Template criado com sucesso: " + template.getNome());
                 showInfo("Template criado com sucesso!");
             } catch (Exception e) {
@@ -141,21 +157,62 @@ public class TemplateManager {
     public Optional<TemplateVenda> editarTemplate(TemplateVenda template) {
         if (template == null) return Optional.empty();
 
+        // Carrega a composição atual para o diálogo não sobrescrever componentes extras
+        template.setComponentes(templateDao.listarComponentes(template.getId()));
+        // O diálogo altera o próprio objeto: guarda como estava para mesclar num conflito de versão
+        TemplateVenda original = copiar(template);
+
         TemplateDialog dialog = new TemplateDialog(template);
         Optional<TemplateVenda> resultado = dialog.showAndWait();
+        if (resultado.isEmpty()) return resultado;
 
-        resultado.ifPresent(templateEditado -> {
-            try {
-                templateDao.atualizar(templateEditado);
-                logger.info("Template atualizado: " + templateEditado.getNome());
+        try {
+            Optional<TemplateVenda> gravado = ConflitoDialogo.gravar("Template \"" + original.getNome() + "\"",
+                    original, resultado.get(), CAMPOS_TEMPLATE, templateDao::atualizar, () -> recarregar(original.getId()), null);
+            gravado.ifPresent(t -> {
+                BomService.invalidar(t.getId());
+                BuscaIndex.getInstance().indexarTemplate(t);
+                logger.info("Template atualizado: " + t.getNome());
                 showInfo("Template atualizado com sucesso!");
-            } catch (Exception e) {
-                logger.severe("Erro ao atualizar template: " + e.getMessage());
-                showError("Erro ao atualizar template: " + e.getMessage());
-            }
-        });
+            });
+            return gravado;
+        } catch (Exception e) {
+            logger.severe("Erro ao atualizar template: " + e.getMessage());
+            showError("Erro ao atualizar template: " + e.getMessage());
+            return Optional.empty();
+        }
+    }
 
-        return resultado;
+    private static final List<ConflitoDialogo.Campo<TemplateVenda, ?>> CAMPOS_TEMPLATE = List.of(
+            new ConflitoDialogo.Campo<>("nome", TemplateVenda::getNome, TemplateVenda::setNome),
+            new ConflitoDialogo.Campo<>("preço", TemplateVenda::getPreco, TemplateVenda::setPreco),
+            new ConflitoDialogo.Campo<>("tamanho", TemplateVenda::getTamanho, TemplateVenda::setTamanho),
+            new ConflitoDialogo.Campo<>("ícone", TemplateVenda::getIcone, TemplateVenda::setIcone),
+            new ConflitoDialogo.Campo<>("tag", TemplateVenda::getTag, TemplateVenda::setTag),
+            new ConflitoDialogo.Campo<>("item de estoque", TemplateVenda::getEstoqueItemId, TemplateVenda::setEstoqueItemId),
+            new ConflitoDialogo.Campo<>("quantidade", TemplateVenda::getQuantidadeUso, TemplateVenda::setQuantidadeUso),
+            new ConflitoDialogo.Campo<>("composição", TemplateVenda::getComponentes, TemplateVenda::setComponentes),
+            new ConflitoDialogo.Campo<>("ativo", TemplateVenda::isAtivo, TemplateVenda::setAtivo));
+
+    /**
+     * Versão atual do template com a composição, como o diálogo a vê
+     */
+    private Optional<TemplateVenda> recarregar(Long id) {
+        Optional<TemplateVenda> atual = templateDao.buscarPorId(id);
+        atual.ifPresent(t -> t.setComponentes(templateDao.listarComponentes(id)));
+        return atual;
+    }
+
+    private static TemplateVenda copiar(TemplateVenda t) {
+        TemplateVenda c = new TemplateVenda(t.getNome(), t.getPreco(), t.getTamanho(), t.getIcone());
+        c.setId(t.getId());
+        c.setTag(t.getTag());
+        c.setEstoqueItemId(t.getEstoqueItemId());
+        c.setQuantidadeUso(t.getQuantidadeUso());
+        c.setAtivo(t.isAtivo());
+        c.setVersao(t.getVersao());
+        c.setComponentes(List.copyOf(t.getComponentes()));
+        return c;
     }
 
     public boolean removerTemplate(TemplateVenda template) {
@@ -171,6 +228,8 @@ public class TemplateManager {
         if (result.isPresent() && result.get() == ButtonType.YES) {
             try {
                 templateDao.remover(template.getId());
+                BomService.invalidar(template.getId());
+                BuscaIndex.getInstance().removerTemplate(template.getId());
                 logger.info("Template removido: " + template.getNome());
                 showInfo("Template removido com sucesso!");
                 return true;
@@ -189,15 +248,7 @@ public class TemplateManager {
         int quantidade = perguntarQuantidade(template);
         if (quantidade <= 0) return;
 
-        if (template.temEstoqueVinculado()) {
-            int necessario = template.calcularConsumoEstoque(quantidade);
-            if (!template.temEstoqueSuficiente(quantidade)) {
-                showError(String.format(
-                        "Estoque insuficiente!\n\nNecessário: %d unidades\nDisponível: %d unidades",
-                        necessario, template.getEstoqueDisponivel()));
-                return;
-            }
-        }
+        // Componentes sem saldo são validados juntos, na mesma transação da venda
 
         PaymentMethod metodo = perguntarMetodoPagamento();
         if (metodo == null) return;
@@ -225,12 +276,8 @@ public class TemplateManager {
             venda.setTaxa(taxa);
             venda.setValorLiquido(valorLiquido);
 
-            vendaDao.inserir(venda);
-
-            if (template.temEstoqueVinculado()) {
-                int consumo = template.calcularConsumoEstoque(quantidade);
-                estoqueDao.saidaConsumo(template.getEstoqueItemId(), consumo);
-            }
+            // Venda + baixa de todos os componentes da BOM numa única transação
+            bomService.venderComConsumo(venda, template, quantidade);
 
             logger.info("Venda realizada: " + venda.getDescricao());
             showInfo("Venda registrada com sucesso!");
@@ -239,12 +286,110 @@ public class TemplateManager {
                 onVendaRealizada.run();
             }
 
+        } catch (IllegalArgumentException e) {
+            showError(e.getMessage());
         } catch (Exception e) {
             logger.severe("Erro ao processar venda: " + e.getMessage());
             showError("Erro ao processar venda: " + e.getMessage());
         }
     }
 
+    // ========== CARRINHO ==========
+
+    public void setModoCarrinho(boolean ligado) {
+        this.modoCarrinho = ligado;
+    }
+
+    public boolean isModoCarrinho() {
+        return modoCarrinho;
+    }
+
+    /**
+     * Unidades no carrinho (para o rótulo do botão de finalizar)
+     */
+    public int getQuantidadeCarrinho() {
+        return carrinho.getQuantidadeTotal();
+    }
+
+    public double getTotalCarrinho() {
+        return carrinho.getTotalBruto();
+    }
+
+    private void adicionarAoCarrinho(TemplateVenda template) {
+        int quantidade = perguntarQuantidade(template);
+        if (quantidade <= 0) return;
+
+        carrinho.adicionar(template, quantidade);
+        if (onCarrinhoAlterado != null) {
+            onCarrinhoAlterado.run();
+        }
+    }
+
+    public void limparCarrinho() {
+        carrinho.limpar();
+        if (onCarrinhoAlterado != null) {
+            onCarrinhoAlterado.run();
+        }
+    }
+
+    /**
+     * Fecha o carrinho num único pedido: uma confirmação, uma transação e uma atualização da tela
+     */
+    public void finalizarCarrinho() {
+        if (carrinho.isVazio()) {
+            showInfo("O carrinho está vazio.\nCom o modo pedido ligado, clique nos templates para adicionar.");
+            return;
+        }
+
+        // Pagamento pode ser dividido entre métodos (ex.: parte em dinheiro, parte no PIX)
+        Optional<List<Pagamento>> partes = PagamentoDialogo.perguntar(carrinho.getTotalBruto(), PaymentMethod.DINHEIRO);
+        if (partes.isEmpty()) return;
+        carrinho.getPagamentos().clear();
+        carrinho.getPagamentos().addAll(partes.get());
+        pedidoService.calcularTaxas(carrinho);
+
+        StringBuilder itens = new StringBuilder();
+        for (Pedido.Item item : carrinho.getItens()) {
+            itens.append(String.format("%s × %d = R$ %.2f%n",
+                    item.getTemplate().getDescricaoCompleta(), item.getQuantidade(), item.getTotal()));
+        }
+        StringBuilder pagamentos = new StringBuilder();
+        for (Pagamento p : carrinho.getPagamentos()) {
+            pagamentos.append(String.format("%s: R$ %.2f%n", p.getMetodo(), p.getValor()));
+        }
+        String confirmacao = String.format(
+                "Confirmar pedido?\n\n%s\nTotal: R$ %.2f\n%sTaxa: R$ %.2f\nLíquido: R$ %.2f",
+                itens, carrinho.getTotalBruto(), pagamentos, carrinho.getTotalTaxas(), carrinho.getTotalLiquido());
+
+        ButtonType esvaziar = new ButtonType("Esvaziar carrinho", ButtonBar.ButtonData.LEFT);
+        Alert confirm = new Alert(Alert.AlertType.CONFIRMATION, confirmacao, ButtonType.OK, ButtonType.CANCEL, esvaziar);
+        confirm.setHeaderText("Finalizar Pedido");
+
+        Optional<ButtonType> result = confirm.showAndWait();
+        if (result.isPresent() && result.get() == esvaziar) {
+            limparCarrinho();
+            return;
+        }
+        if (result.isEmpty() || result.get() != ButtonType.OK) return;
+
+        try {
+            Long id = pedidoService.finalizar(carrinho);
+            logger.info("Pedido realizado: " + id);
+            limparCarrinho();
+            showInfo("Pedido registrado com sucesso!");
+
+            if (onVendaRealizada != null) {
+                onVendaRealizada.run();
+            }
+
+        } catch (IllegalArgumentException e) {
+            showError(e.getMessage());
+        } catch (Exception e) {
+            logger.severe("Erro ao processar pedido: " + e.getMessage());
+            showError("Erro ao processar pedido: " + e.getMessage());
+        }
+    }
+
     // ========== DIALOGS AUXILIARES ==========
 
     private int perguntarQuantidade(TemplateVenda template) {
@@ -293,4 +438,8 @@ public class TemplateManager {
     public void setOnVendaRealizada(Runnable callback) {
         this.onVendaRealizada = callback;
     }
+
+    public void setOnCarrinhoAlterado(Runnable callback) {
+        this.onCarrinhoAlterado = callback;
+    }
 }
\ No newline at end of file
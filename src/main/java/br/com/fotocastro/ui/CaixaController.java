@@ -1,14 +1,25 @@
 package br.com.fotocastro.ui;
 
+import br.com.fotocastro.infra.DAOBase;
+import br.com.fotocastro.infra.TemplateDaoH2;
 import br.com.fotocastro.infra.VendaDaoH2;
+import br.com.fotocastro.infra.VendaJournal;
+import br.com.fotocastro.model.Pagamento;
 import br.com.fotocastro.model.PaymentMethod;
+import br.com.fotocastro.model.Pedido;
+import br.com.fotocastro.model.TemplateVenda;
 import br.com.fotocastro.model.Venda;
+import br.com.fotocastro.service.BuscaIndex;
+import br.com.fotocastro.service.FechamentoAutomaticoService;
+import br.com.fotocastro.service.PedidoService;
+import br.com.fotocastro.service.SaleService;
 import br.com.fotocastro.template.TemplateManager;
 import javafx.animation.TranslateTransition;
 import javafx.application.Platform;
 import javafx.collections.FXCollections;
 import javafx.collections.ObservableList;
 import javafx.fxml.FXML;
+import javafx.geometry.Side;
 import javafx.scene.control.*;
 import javafx.scene.control.cell.PropertyValueFactory;
 import javafx.scene.layout.HBox;
@@ -17,8 +28,9 @@ import javafx.util.Duration;
 import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
-import java.util.Timer;
-import java.util.TimerTask;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
 
 /**
  * Controller do Caixa - VERSÃO COM CARROSSEL DE VERDADE (FUNCIONANDO)
@@ -33,7 +45,10 @@ public class CaixaController {
     // UI geral
     @FXML private Label lblStatus;
     @FXML private Label lblCaixaStatus;
+    @FXML private Label lblPendentes;
     @FXML private Button btnRemoverTemplate;
+    @FXML private ToggleButton tglPedido;
+    @FXML private Button btnFinalizarPedido;
 
     // Carrossel
     @FXML private HBox carouselTrack;
@@ -64,8 +79,13 @@ public class CaixaController {
     // Dados
     private final ObservableList<Venda> vendas = FXCollections.observableArrayList();
     private VendaDaoH2 vendaDao;
+    private VendaJournal journal;
+    private Runnable journalListener;
     private TemplateManager templateManager;
-    private Timer autoCloseTimer;
+    private PedidoService pedidoService;
+    private TemplateDaoH2 templateDao;
+    private ContextMenu sugestoes;
+    private boolean aplicandoSugestao;
     private LocalDate ultimoDiaVerificado;
 
     // Carrossel
@@ -79,6 +99,8 @@ public class CaixaController {
     public void initialize() {
         vendaDao = new VendaDaoH2();
         templateManager = new TemplateManager();
+        pedidoService = new PedidoService();
+        templateDao = new TemplateDaoH2();
         ultimoDiaVerificado = LocalDate.now();
 
         templateManager.setOnVendaRealizada(() -> {
@@ -87,6 +109,7 @@ public class CaixaController {
             carregarTemplates();
             status("✓ Venda registrada via template");
         });
+        templateManager.setOnCarrinhoAlterado(this::atualizarBotaoPedido);
 
         cbMetodo.setItems(FXCollections.observableArrayList(PaymentMethod.values()));
         cbMetodo.setValue(PaymentMethod.DINHEIRO);
@@ -106,8 +129,19 @@ public class CaixaController {
         colLiq.setCellValueFactory(new PropertyValueFactory<>("valorLiquido"));
 
         setupResizeListener();
+        configurarJournal();
+        configurarSugestoes();
 
-        verificarFechamentoAutomatico();
+        mostrarFechamentoAutomatico();
+        if (vendaDao.caixaJaFechado(ultimoDiaVerificado)) mostrarCaixaFechado();
+        // Vendas, fechamento e templates gravados em outro terminal (ou pelo fechamento automático)
+        VendaEventBus.ouvirEnquantoVisivel(lblCaixaStatus, VendaEventBus.vendaAtualizadaProperty(), (obs, oldV, newV) -> {
+            recarregarVendas();
+            atualizarDashboard();
+            mostrarFechamentoAutomatico();
+            if (vendaDao.caixaJaFechado(LocalDate.now())) mostrarCaixaFechado();
+        });
+        VendaEventBus.ouvirEnquantoVisivel(lblCaixaStatus, VendaEventBus.catalogoAtualizadoProperty(), (obs, oldV, newV) -> carregarTemplates());
         iniciarMonitoramentoDia();
         carregarTemplates();
         recarregarVendas();
@@ -166,6 +200,24 @@ public class CaixaController {
         updateCarouselPosition();
     }
 
+    @FXML
+    private void handleModoPedido() {
+        templateManager.setModoCarrinho(tglPedido.isSelected());
+        status(tglPedido.isSelected() ? "🛒 Modo pedido: clique nos templates para adicionar" : "");
+    }
+
+    @FXML
+    private void handleFinalizarPedido() {
+        templateManager.finalizarCarrinho();
+    }
+
+    private void atualizarBotaoPedido() {
+        int unidades = templateManager.getQuantidadeCarrinho();
+        btnFinalizarPedido.setText(unidades == 0 ? "Finalizar (0)"
+                : String.format("Finalizar (%d) R$ %.2f", unidades, templateManager.getTotalCarrinho()));
+        btnFinalizarPedido.setDisable(unidades == 0);
+    }
+
     @FXML
     private void handleNovoTemplate() {
         templateManager.criarNovoTemplate().ifPresent(t -> {
@@ -179,16 +231,8 @@ public class CaixaController {
         TextInputDialog dialog = new TextInputDialog();
         dialog.setHeaderText("Nome do template para editar:");
         dialog.showAndWait().ifPresent(nome -> {
-            var templates = new br.com.fotocastro.infra.TemplateDaoH2().listar();
-            var alvo = templates.stream()
-                    .filter(t -> t.getNome().equalsIgnoreCase(nome.trim()))
-                    .findFirst()
-                    .orElse(null);
-
-            if (alvo == null) {
-                alert("Template não encontrado.");
-                return;
-            }
+            var alvo = localizarTemplate(nome).orElse(null);
+            if (alvo == null) return;
 
             templateManager.editarTemplate(alvo).ifPresent(t -> {
                 carregarTemplates();
@@ -202,16 +246,8 @@ public class CaixaController {
         TextInputDialog dialog = new TextInputDialog();
         dialog.setHeaderText("Nome do template para remover:");
         dialog.showAndWait().ifPresent(nome -> {
-            var templates = new br.com.fotocastro.infra.TemplateDaoH2().listar();
-            var alvo = templates.stream()
-                    .filter(t -> t.getNome().equalsIgnoreCase(nome.trim()))
-                    .findFirst()
-                    .orElse(null);
-
-            if (alvo == null) {
-                alert("Template não encontrado.");
-                return;
-            }
+            var alvo = localizarTemplate(nome).orElse(null);
+            if (alvo == null) return;
 
             if (templateManager.removerTemplate(alvo)) {
                 carregarTemplates();
@@ -220,47 +256,120 @@ public class CaixaController {
         });
     }
 
-    /* ===== FECHAMENTO AUTOMÁTICO ===== */
+    /**
+     * Template com o nome digitado. Sem nome exato, o melhor resultado do índice de busca
+     * (prefixo ou aproximado) só vale se o usuário confirmar o nome encontrado; vazio se
+     * nada foi encontrado (já avisado) ou o usuário recusou.
+     */
+    private Optional<TemplateVenda> localizarTemplate(String nome) {
+        List<BuscaIndex.Resultado> encontrados = BuscaIndex.getInstance().buscar(nome, 10, BuscaIndex.Tipo.TEMPLATE);
+        if (encontrados.isEmpty()) {
+            alert("Template não encontrado.");
+            return Optional.empty();
+        }
 
-    private void verificarFechamentoAutomatico() {
-        LocalDate hoje = LocalDate.now();
-        LocalDate ontem = hoje.minusDays(1);
-
-        if (!vendaDao.caixaJaFechado(ontem)) {
-            double bruto = vendaDao.somaBrutoPorDia(ontem);
-            if (bruto > 0) {
-                double taxas = vendaDao.somaTaxasPorDia(ontem);
-                double liquido = vendaDao.somaLiquidoPorDia(ontem);
-                double dinheiro = vendaDao.somaPorMetodoPorDia(PaymentMethod.DINHEIRO, ontem);
-                double cartao = vendaDao.somaPorMetodoPorDia(PaymentMethod.CARTAO, ontem);
-                double pix = vendaDao.somaPorMetodoPorDia(PaymentMethod.PIX, ontem);
-
-                vendaDao.inserirFechamentoAutomatico(ontem, bruto, taxas, liquido, dinheiro, cartao, pix);
-
-                Platform.runLater(() -> {
-                    lblCaixaStatus.setText("⚠️ Caixa de " + ontem + " fechado automaticamente");
-                    lblCaixaStatus.setStyle("-fx-text-fill: #f59e0b;");
+        for (BuscaIndex.Resultado r : encontrados) {
+            Optional<TemplateVenda> t = templateDao.buscarPorId(r.getId());
+            if (t.isPresent() && (BuscaIndex.mesmoTexto(nome, t.get().getNome())
+                    || BuscaIndex.mesmoTexto(nome, t.get().getDescricaoCompleta()))) {
+                return t;
+            }
+        }
+
+        Optional<TemplateVenda> melhor = templateDao.buscarPorId(encontrados.get(0).getId());
+        if (melhor.isEmpty()) {
+            alert("Template não encontrado.");
+            return melhor;
+        }
+        Alert a = new Alert(Alert.AlertType.CONFIRMATION,
+                "Nenhum template se chama \"" + nome.trim() + "\".\nUsar \"" + melhor.get().getDescricaoCompleta() + "\"?",
+                ButtonType.OK, ButtonType.CANCEL);
+        a.setHeaderText("Template aproximado");
+        return a.showAndWait().filter(bt -> bt == ButtonType.OK).flatMap(bt -> melhor);
+    }
+
+    /* ===== SUGESTÕES (TYPE-AHEAD) ===== */
+
+    private void configurarSugestoes() {
+        sugestoes = new ContextMenu();
+
+        txtDesc.textProperty().addListener((obs, antigo, texto) -> {
+            if (aplicandoSugestao || !txtDesc.isFocused() || texto == null || texto.trim().length() < 2) {
+                sugestoes.hide();
+                return;
+            }
+
+            List<BuscaIndex.Resultado> encontrados = BuscaIndex.getInstance()
+                    .buscar(texto, 8, BuscaIndex.Tipo.TEMPLATE, BuscaIndex.Tipo.VENDA);
+            if (encontrados.isEmpty()) {
+                sugestoes.hide();
+                return;
+            }
+
+            List<MenuItem> itens = new ArrayList<>(encontrados.size());
+            for (BuscaIndex.Resultado r : encontrados) {
+                MenuItem mi = new MenuItem(r.toString());
+                mi.setOnAction(e -> aplicarSugestao(r));
+                itens.add(mi);
+            }
+            sugestoes.getItems().setAll(itens);
+            if (!sugestoes.isShowing()) {
+                sugestoes.show(txtDesc, Side.BOTTOM, 0, 0);
+            }
+        });
+
+        txtDesc.focusedProperty().addListener((obs, antigo, focado) -> {
+            if (!focado) sugestoes.hide();
+        });
+    }
+
+    private void aplicarSugestao(BuscaIndex.Resultado r) {
+        aplicandoSugestao = true;
+        try {
+            if (r.getTipo() == BuscaIndex.Tipo.TEMPLATE) {
+                templateDao.buscarPorId(r.getId()).ifPresent(t -> {
+                    txtDesc.setText(t.getDescricaoCompleta());
+                    txtPreco.setText(String.format("%.2f", t.getPreco()));
                 });
+            } else {
+                txtDesc.setText(r.getTexto());
+                vendaDao.buscarPorId(r.getId())
+                        .ifPresent(v -> txtPreco.setText(String.format("%.2f", v.getValorBruto())));
             }
+            txtPreco.requestFocus();
+        } finally {
+            aplicandoSugestao = false;
         }
     }
 
+    /* ===== FECHAMENTO AUTOMÁTICO ===== */
+
+    /**
+     * Os fechamentos são feitos pelo FechamentoAutomaticoService (abertura e virada de dia);
+     * aqui só o aviso dos dias que ele fechou
+     */
+    private void mostrarFechamentoAutomatico() {
+        List<LocalDate> dias = FechamentoAutomaticoService.getUltimosFechados();
+        if (dias.isEmpty() || vendaDao.caixaJaFechado(LocalDate.now())) return;
+        lblCaixaStatus.setText(dias.size() == 1
+                ? "⚠️ Caixa de " + dias.get(0) + " fechado automaticamente"
+                : "⚠️ " + dias.size() + " dias fechados automaticamente (" + dias.get(0) + " a " + dias.get(dias.size() - 1) + ")");
+        lblCaixaStatus.setStyle("-fx-text-fill: #f59e0b;");
+    }
+
+    /**
+     * Virada de dia vem do AgendadorService (uma thread para o app todo) via VendaEventBus
+     */
     private void iniciarMonitoramentoDia() {
-        autoCloseTimer = new Timer(true);
-        autoCloseTimer.scheduleAtFixedRate(new TimerTask() {
-            @Override
-            public void run() {
-                LocalDate agora = LocalDate.now();
-                if (!agora.equals(ultimoDiaVerificado)) {
-                    Platform.runLater(() -> {
-                        verificarFechamentoAutomatico();
-                        ultimoDiaVerificado = agora;
-                        recarregarVendas();
-                        atualizarDashboard();
-                    });
-                }
-            }
-        }, 60000, 60000);
+        VendaEventBus.ouvirEnquantoVisivel(lblCaixaStatus, VendaEventBus.diaProperty(), (obs, anterior, dia) -> {
+            ultimoDiaVerificado = dia;
+            lblCaixaStatus.setText("🟢 Caixa Aberto");
+            lblCaixaStatus.setStyle("");
+            mostrarFechamentoAutomatico();
+            if (vendaDao.caixaJaFechado(dia)) mostrarCaixaFechado();
+            recarregarVendas();
+            atualizarDashboard();
+        });
     }
 
     /* ===== VENDAS ===== */
@@ -287,6 +396,48 @@ public class CaixaController {
         txtPreco.clear();
     }
 
+    /**
+     * Venda manual paga com mais de um método: vira um pedido de um item com os pagamentos divididos
+     */
+    @FXML
+    private void handleDividirPagamento() {
+        String desc = txtDesc.getText() == null ? "" : txtDesc.getText().trim();
+        double preco;
+        try {
+            preco = Double.parseDouble(txtPreco.getText().replace(",", ".").trim());
+        } catch (Exception e) {
+            alert("Preço inválido.");
+            return;
+        }
+        if (desc.isBlank() || preco <= 0) {
+            alert("Informe descrição e valor.");
+            return;
+        }
+
+        Optional<List<Pagamento>> partes = PagamentoDialogo.perguntar(preco, cbMetodo.getValue());
+        if (partes.isEmpty()) return;
+
+        if (partes.get().size() == 1) {
+            inserirVenda(desc, preco, partes.get().get(0).getMetodo());
+        } else {
+            Pedido pedido = new Pedido();
+            pedido.adicionarAvulso(desc, preco);
+            pedido.getPagamentos().addAll(partes.get());
+            try {
+                pedidoService.finalizar(pedido);
+            } catch (IllegalArgumentException e) {
+                alert(e.getMessage());
+                return;
+            }
+            recarregarVendas();
+            atualizarDashboard();
+            status("✓ Venda adicionada (pagamento dividido)");
+        }
+
+        txtDesc.clear();
+        txtPreco.clear();
+    }
+
     private void inserirVenda(String descricao, double valorBruto, PaymentMethod metodo) {
         double taxa = calcularTaxa(valorBruto, metodo);
         Venda v = new Venda();
@@ -297,12 +448,47 @@ public class CaixaController {
         v.setTaxa(taxa);
         v.setValorLiquido(Math.max(0.0, valorBruto - taxa));
 
+        if (journal != null && journal.registrar(v)) {
+            // Write-behind: confirmada no journal, a lista atualiza quando o lote chegar ao banco
+            atualizarPendentes();
+            status("✓ Venda adicionada");
+            return;
+        }
+
         vendaDao.inserir(v);
         recarregarVendas();
         atualizarDashboard();
         status("✓ Venda adicionada");
     }
 
+    /* ===== WRITE-BEHIND ===== */
+
+    private void configurarJournal() {
+        if (!VendaJournal.habilitado()) return;
+
+        journal = VendaJournal.getInstance();
+        journalListener = () -> Platform.runLater(() -> {
+            atualizarPendentes();
+            recarregarVendas();
+            atualizarDashboard();
+        });
+        journal.adicionarListener(journalListener);
+
+        // Remove o listener quando a tela do caixa sai de cena
+        lblStatus.sceneProperty().addListener((obs, antiga, nova) -> {
+            if (nova == null) journal.removerListener(journalListener);
+        });
+
+        atualizarPendentes();
+    }
+
+    private void atualizarPendentes() {
+        int n = journal != null ? journal.getPendentes() : 0;
+        lblPendentes.setText("⏳ " + n + (n == 1 ? " venda aguardando gravação" : " vendas aguardando gravação"));
+        lblPendentes.setVisible(n > 0);
+        lblPendentes.setManaged(n > 0);
+    }
+
     @FXML
     private void handleEditarVenda() {
         Venda sel = tblVendas.getSelectionModel().getSelectedItem();
@@ -313,6 +499,17 @@ public class CaixaController {
         var o1 = d1.showAndWait();
         if (o1.isEmpty()) return;
 
+        // Valor e método de venda de pedido vêm dos pagamentos do pedido: só a descrição muda
+        if (sel.getPedidoId() != null) {
+            Venda original = copiar(sel);
+            sel.setDescricao(o1.get().trim());
+            var gravada = ConflitoDialogo.gravar("Venda #" + sel.getId(), original, sel, CAMPOS_VENDA,
+                    vendaDao::atualizar, () -> vendaDao.buscarPorId(sel.getId()), null);
+            recarregarVendas();
+            status(gravada.isPresent() ? "✓ Venda atualizada" : "Edição descartada");
+            return;
+        }
+
         TextInputDialog d2 = new TextInputDialog(String.format("%.2f", sel.getValorBruto()));
         d2.setHeaderText("Editar valor bruto (R$)");
         var o2 = d2.showAndWait();
@@ -331,26 +528,51 @@ public class CaixaController {
             return;
         }
 
-        PaymentMethod metodo = o3.get();
-        double taxa = calcularTaxa(bruto, metodo);
-
+        Venda original = copiar(sel);
         sel.setDescricao(o1.get().trim());
         sel.setValorBruto(bruto);
-        sel.setMetodo(metodo);
-        sel.setTaxa(taxa);
-        sel.setValorLiquido(Math.max(0.0, bruto - taxa));
+        sel.setMetodo(o3.get());
+        recalcularTaxa(sel);
 
-        vendaDao.atualizar(sel);
+        // Outro terminal pode ter editado a mesma venda: mescla e tenta de novo
+        var gravada = ConflitoDialogo.gravar("Venda #" + sel.getId(), original, sel, CAMPOS_VENDA,
+                vendaDao::atualizar, () -> vendaDao.buscarPorId(sel.getId()), this::recalcularTaxa);
         recarregarVendas();
         atualizarDashboard();
-        status("✓ Venda atualizada");
+        status(gravada.isPresent() ? "✓ Venda atualizada" : "Edição descartada");
+    }
+
+    private static final List<ConflitoDialogo.Campo<Venda, ?>> CAMPOS_VENDA = List.of(
+            new ConflitoDialogo.Campo<>("descrição", Venda::getDescricao, Venda::setDescricao),
+            new ConflitoDialogo.Campo<>("valor", Venda::getValorBruto, Venda::setValorBruto),
+            new ConflitoDialogo.Campo<>("método", Venda::getMetodo, Venda::setMetodo));
+
+    private void recalcularTaxa(Venda v) {
+        double taxa = calcularTaxa(v.getValorBruto(), v.getMetodo());
+        v.setTaxa(taxa);
+        v.setValorLiquido(Math.max(0.0, v.getValorBruto() - taxa));
+    }
+
+    private static Venda copiar(Venda v) {
+        Venda c = new Venda();
+        c.setId(v.getId());
+        c.setDataHora(v.getDataHora());
+        c.setDescricao(v.getDescricao());
+        c.setValorBruto(v.getValorBruto());
+        c.setMetodo(v.getMetodo());
+        c.setTaxa(v.getTaxa());
+        c.setValorLiquido(v.getValorLiquido());
+        c.setVersao(v.getVersao());
+        return c;
     }
 
     @FXML
     private void handleRemoverVenda() {
         Venda sel = tblVendas.getSelectionModel().getSelectedItem();
         if (sel == null) return;
-        Alert a = new Alert(Alert.AlertType.CONFIRMATION, "Remover venda selecionada?", ButtonType.OK, ButtonType.CANCEL);
+        String pergunta = sel.getPedidoId() == null ? "Remover venda selecionada?"
+                : "Esta venda faz parte do pedido #" + sel.getPedidoId() + ".\nRemover o pedido inteiro (todos os itens e pagamentos)?";
+        Alert a = new Alert(Alert.AlertType.CONFIRMATION, pergunta, ButtonType.OK, ButtonType.CANCEL);
         a.showAndWait().ifPresent(bt -> {
             if (bt == ButtonType.OK) {
                 vendaDao.remover(sel.getId());
@@ -363,6 +585,10 @@ public class CaixaController {
 
     @FXML
     private void handleLimparVendasHoje() {
+        if (vendaDao.caixaJaFechado(LocalDate.now())) {
+            alert("O caixa de hoje já foi fechado; as vendas não podem ser limpas.");
+            return;
+        }
         Alert confirm = new Alert(Alert.AlertType.WARNING,
                 "Deseja realmente limpar TODAS as vendas de hoje?\n\nEsta ação NÃO pode ser desfeita!",
                 ButtonType.YES, ButtonType.NO);
@@ -370,7 +596,12 @@ public class CaixaController {
 
         confirm.showAndWait().ifPresent(bt -> {
             if (bt == ButtonType.YES) {
-                vendaDao.limparVendasHoje();
+                try {
+                    vendaDao.limparVendasHoje();
+                } catch (DAOBase.DAOException e) {
+                    alert(e.getMessage());
+                    return;
+                }
                 recarregarVendas();
                 atualizarDashboard();
                 status("✓ Vendas de hoje limpas");
@@ -386,13 +617,20 @@ public class CaixaController {
             alert("O caixa de hoje já foi fechado.");
             return;
         }
+        // Vendas do journal (write-behind) ainda não gravadas ficariam fora do fechamento
+        if (!VendaJournal.drenarPendentes()) {
+            alert("Há vendas ainda não gravadas no banco. Tente fechar o caixa novamente em instantes.");
+            return;
+        }
 
-        double bruto = vendaDao.somaBrutoHoje();
-        double taxas = vendaDao.somaTaxasHoje();
-        double liquido = vendaDao.somaLiquidoHoje();
-        double dinheiro = vendaDao.somaPorMetodoHoje(PaymentMethod.DINHEIRO);
-        double cartao = vendaDao.somaPorMetodoHoje(PaymentMethod.CARTAO);
-        double pix = vendaDao.somaPorMetodoHoje(PaymentMethod.PIX);
+        // Uma consulta agrupada por método (pagamentos divididos contam em cada método)
+        VendaDaoH2.TotaisCaixa t = vendaDao.totaisDeHoje();
+        double bruto = t.getBruto();
+        double taxas = t.getTaxas();
+        double liquido = t.getLiquido();
+        double dinheiro = t.getDinheiro();
+        double cartao = t.getCartao();
+        double pix = t.getPix();
 
         String resumo = "═══════════════════════════════\n" +
                 "  FECHAMENTO DE CAIXA - " + hoje + "\n" +
@@ -412,18 +650,24 @@ public class CaixaController {
 
         confirm.showAndWait().ifPresent(bt -> {
             if (bt == ButtonType.OK) {
+                // Venda lançada com o resumo aberto: mostra o resumo de novo com ela
+                if (!VendaJournal.drenarPendentes() || vendaDao.totaisDeHoje().getBruto() != bruto) {
+                    alert("Entraram vendas enquanto o resumo estava aberto. Confira o fechamento novamente.");
+                    return;
+                }
+                // Só registra o fechamento (marca do dia); as vendas ficam para relatórios e conferência
                 vendaDao.inserirFechamento(hoje, bruto, taxas, liquido, dinheiro, cartao, pix);
-                lblCaixaStatus.setText("🔒 Caixa Fechado");
-                lblCaixaStatus.setStyle("-fx-text-fill: #ef4444;");
+                mostrarCaixaFechado();
                 status("✓ Caixa fechado com sucesso");
-
-                vendaDao.limparVendasHoje();
-                recarregarVendas();
-                atualizarDashboard();
             }
         });
     }
 
+    private void mostrarCaixaFechado() {
+        lblCaixaStatus.setText("🔒 Caixa Fechado");
+        lblCaixaStatus.setStyle("-fx-text-fill: #ef4444;");
+    }
+
     private void recarregarVendas() {
         vendas.setAll(vendaDao.listarHoje());
         tblVendas.setItems(vendas);
@@ -434,21 +678,16 @@ public class CaixaController {
     }
 
     private void atualizarDashboard() {
-        double brutoHoje = vendaDao.somaBrutoHoje();
-        double taxasHoje = vendaDao.somaTaxasHoje();
-        double liqHoje = vendaDao.somaLiquidoHoje();
+        VendaDaoH2.TotaisCaixa hoje = vendaDao.totaisDeHoje();
+        double liqHoje = hoje.getLiquido();
 
-        lblBrutoHoje.setText(fmt(brutoHoje));
-        lblTaxasHoje.setText(fmt(taxasHoje));
+        lblBrutoHoje.setText(fmt(hoje.getBruto()));
+        lblTaxasHoje.setText(fmt(hoje.getTaxas()));
         lblLiquidoHoje.setText(fmt(liqHoje));
 
-        double dinHoje = vendaDao.somaPorMetodoHoje(PaymentMethod.DINHEIRO);
-        double cartHoje = vendaDao.somaPorMetodoHoje(PaymentMethod.CARTAO);
-        double pixHoje = vendaDao.somaPorMetodoHoje(PaymentMethod.PIX);
-
-        lblDinheiroHoje.setText(fmt(dinHoje));
-        lblCartaoHoje.setText(fmt(cartHoje));
-        lblPixHoje.setText(fmt(pixHoje));
+        lblDinheiroHoje.setText(fmt(hoje.getDinheiro()));
+        lblCartaoHoje.setText(fmt(hoje.getCartao()));
+        lblPixHoje.setText(fmt(hoje.getPix()));
 
         LocalDate ontem = LocalDate.now().minusDays(1);
         double liqOntem = vendaDao.somaLiquidoPorDia(ontem);
@@ -493,10 +732,4 @@ public class CaixaController {
     private void status(String s) {
         if (lblStatus != null) lblStatus.setText(s);
     }
-
-    public void cleanup() {
-        if (autoCloseTimer != null) {
-            autoCloseTimer.cancel();
-        }
-    }
 }
\ No newline at end of file
@@ -0,0 +1,122 @@
+package br.com.fotocastro.ui;
+
+import br.com.fotocastro.infra.ConflitoDeVersao;
+import javafx.scene.control.Alert;
+import javafx.scene.control.ButtonBar;
+import javafx.scene.control.ButtonType;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * Edição que esbarrou em {@link ConflitoDeVersao}: mescla em três vias
+ * (valor lido, valor editado, valor atual no banco) e só pergunta ao usuário quando os dois
+ * terminais mudaram o mesmo campo para valores diferentes.
+ */
+public final class ConflitoDialogo {
+
+    /**
+     * Tentativas de gravar a mescla antes de desistir (cada uma relê a versão atual)
+     */
+    public static final int TENTATIVAS = 3;
+
+    /**
+     * Campo mesclável de T
+     */
+    public static final class Campo<T, V> {
+        private final String nome;
+        private final Function<T, V> ler;
+        private final BiConsumer<T, V> gravar;
+
+        public Campo(String nome, Function<T, V> ler, BiConsumer<T, V> gravar) {
+            this.nome = nome;
+            this.ler = ler;
+            this.gravar = gravar;
+        }
+    }
+
+    private ConflitoDialogo() {
+    }
+
+    /**
+     * Grava a edição; se outro terminal gravou antes, mescla sobre a versão atual e tenta de novo
+     * @param aposMesclar recalcula campos derivados na versão mesclada (pode ser null)
+     * @return o que foi gravado, ou vazio se o usuário descartou ou o registro foi removido
+     */
+    public static <T> Optional<T> gravar(String registro, T original, T editado, List<Campo<T, ?>> campos,
+                                         Consumer<T> salvar, Supplier<Optional<T>> recarregar,
+                                         Consumer<T> aposMesclar) {
+        T alvo = editado;
+        for (int i = 0; i < TENTATIVAS; i++) {
+            try {
+                salvar.accept(alvo);
+                return Optional.of(alvo);
+            } catch (ConflitoDeVersao e) {
+                Optional<T> atual = recarregar.get();
+                if (atual.isEmpty()) {
+                    new Alert(Alert.AlertType.WARNING, registro + " foi removido em outro terminal.").showAndWait();
+                    return Optional.empty();
+                }
+                alvo = atual.get();
+                List<String> divergentes = mesclar(original, editado, alvo, campos);
+                if (!divergentes.isEmpty() && !confirmarSobrescrita(registro, divergentes)) {
+                    return Optional.empty();
+                }
+                if (aposMesclar != null) aposMesclar.accept(alvo);
+            }
+        }
+        avisarDesistencia(registro);
+        return Optional.empty();
+    }
+
+    /**
+     * Copia para "atual" os campos que o usuário mudou em relação a "original"; os demais ficam
+     * como o outro terminal deixou.
+     * @return nomes dos campos mudados pelos dois lados com valores diferentes (na mescla vale o do usuário)
+     */
+    private static <T> List<String> mesclar(T original, T editado, T atual, List<Campo<T, ?>> campos) {
+        List<String> divergentes = new ArrayList<>();
+        for (Campo<T, ?> c : campos) {
+            mesclarCampo(c, original, editado, atual, divergentes);
+        }
+        return divergentes;
+    }
+
+    private static <T, V> void mesclarCampo(Campo<T, V> c, T original, T editado, T atual, List<String> divergentes) {
+        V antes = c.ler.apply(original);
+        V meu = c.ler.apply(editado);
+        V deles = c.ler.apply(atual);
+        if (Objects.equals(meu, antes)) return;
+        if (!Objects.equals(deles, antes) && !Objects.equals(deles, meu)) {
+            divergentes.add(c.nome);
+        }
+        c.gravar.accept(atual, meu);
+    }
+
+    /**
+     * Pergunta se a edição deve sobrescrever os campos que o outro terminal também mudou
+     * @return true = gravar a edição do usuário; false = descartar e ficar com a versão atual
+     */
+    private static boolean confirmarSobrescrita(String registro, List<String> divergentes) {
+        ButtonType manter = new ButtonType("Gravar minha edição", ButtonBar.ButtonData.OK_DONE);
+        ButtonType descartar = new ButtonType("Descartar", ButtonBar.ButtonData.CANCEL_CLOSE);
+        Alert a = new Alert(Alert.AlertType.WARNING,
+                registro + " foi alterado em outro terminal enquanto você editava.\n\n"
+                + "Campos alterados nos dois: " + String.join(", ", divergentes) + ".\n"
+                + "Os demais campos já foram combinados.",
+                manter, descartar);
+        a.setHeaderText("Conflito de edição");
+        return a.showAndWait().orElse(descartar) == manter;
+    }
+
+    private static void avisarDesistencia(String registro) {
+        new Alert(Alert.AlertType.ERROR, registro + " continua sendo alterado em outro terminal. Tente de novo.")
+                .showAndWait();
+    }
+}
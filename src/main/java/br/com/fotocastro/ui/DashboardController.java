@@ -1,26 +1,72 @@
 package br.com.fotocastro.ui;
 
 import br.com.fotocastro.infra.VendaDaoH2;
+import br.com.fotocastro.model.MapaCalorVendas;
+import br.com.fotocastro.service.RankingDescricoes;
+import br.com.fotocastro.service.VendasColunar;
 import javafx.fxml.FXML;
 import javafx.scene.chart.*;
+import javafx.scene.control.ComboBox;
+import javafx.scene.control.Label;
+import javafx.scene.control.Tooltip;
+import javafx.scene.layout.GridPane;
+import javafx.scene.layout.Region;
+import javafx.util.StringConverter;
 import javafx.collections.ObservableList;
 import javafx.collections.FXCollections;
 
+import java.time.DayOfWeek;
+import java.time.YearMonth;
+import java.util.Locale;
+
 public class DashboardController {
 
     @FXML private LineChart<String, Number> chartVendasDiarias;
     @FXML private BarChart<String, Number> chartPorHora;
     @FXML private PieChart chartTopTemplates;
+    @FXML private ComboBox<RankingDescricoes.Janela> cbJanelaTop;
+    @FXML private ComboBox<String> cbPeriodoHeatmap;
+    @FXML private ComboBox<String> cbMetricaHeatmap;
+    @FXML private GridPane gridHeatmap;
+
+    // Agregações em memória (cache colunar mantido pelos listeners do VendaDaoH2)
+    private final VendasColunar vendas = VendasColunar.getInstance();
+    private final RankingDescricoes ranking = RankingDescricoes.getInstance();
+    private final VendaDaoH2 vendaDao = new VendaDaoH2();
 
-    private VendaDaoH2 vendaDao = new VendaDaoH2();
+    private static final String[] DIAS = {"Seg", "Ter", "Qua", "Qui", "Sex", "Sáb", "Dom"};
 
     @FXML
     private void initialize() {
+        cbJanelaTop.getItems().setAll(RankingDescricoes.Janela.values());
+        cbJanelaTop.setConverter(new StringConverter<>() {
+            @Override public String toString(RankingDescricoes.Janela j) {
+                if (j == null) return "";
+                return switch (j) {
+                    case HOJE -> "Hoje";
+                    case SEMANA -> "Esta semana";
+                    case MES -> "Este mês";
+                    case TUDO -> "Todo o período";
+                };
+            }
+            @Override public RankingDescricoes.Janela fromString(String s) { return null; }
+        });
+        cbJanelaTop.setValue(RankingDescricoes.Janela.TUDO);
+        cbJanelaTop.valueProperty().addListener((obs, oldV, newV) -> carregarTopTemplates());
+
+        cbPeriodoHeatmap.getItems().setAll("Este mês", "Últimos 3 meses", "Últimos 12 meses", "Todo o período");
+        cbPeriodoHeatmap.setValue("Últimos 3 meses");
+        cbPeriodoHeatmap.valueProperty().addListener((obs, oldV, newV) -> carregarHeatmap());
+        cbMetricaHeatmap.getItems().setAll("Quantidade", "Líquido");
+        cbMetricaHeatmap.setValue("Quantidade");
+        cbMetricaHeatmap.valueProperty().addListener((obs, oldV, newV) -> carregarHeatmap());
+
         carregarTudo();
 
-        VendaEventBus.vendaAtualizadaProperty().addListener((obs, oldV, newV) -> {
+        VendaEventBus.ouvirEnquantoVisivel(gridHeatmap, VendaEventBus.vendaAtualizadaProperty(), (obs, oldV, newV) -> {
             atualizarDashboard();
         });
+        VendaEventBus.ouvirEnquantoVisivel(gridHeatmap, VendaEventBus.diaProperty(), (obs, oldV, newV) -> atualizarDashboard());
     }
 
     private void limparGraficos() {
@@ -38,26 +84,68 @@ public class DashboardController {
         carregarVendasDiarias();
         carregarPorHora();
         carregarTopTemplates();
+        carregarHeatmap();
     }
 
         private void carregarVendasDiarias() {
         XYChart.Series<String, Number> series = new XYChart.Series<>();
-        vendaDao.vendasLiquidasPorDiaUltimos30().forEach((data, valor) ->
+        vendas.liquidoPorDia(30).forEach((data, valor) ->
             series.getData().add(new XYChart.Data<>(data.toString(), valor)));
         chartVendasDiarias.getData().add(series);
     }
 
     private void carregarPorHora() {
         XYChart.Series<String, Number> series = new XYChart.Series<>();
-        vendaDao.vendasPorHora().forEach((hora, valor) ->
+        vendas.liquidoPorHora().forEach((hora, valor) ->
             series.getData().add(new XYChart.Data<>(hora + "h", valor)));
         chartPorHora.getData().add(series);
     }
 
     private void carregarTopTemplates() {
         ObservableList<PieChart.Data> pieData = FXCollections.observableArrayList();
-        vendaDao.topDescricoes(10).forEach(entry ->
+        ranking.top(10, cbJanelaTop.getValue()).forEach(entry ->
             pieData.add(new PieChart.Data(entry.getKey() + " (" + entry.getValue() + ")", entry.getValue())));
         chartTopTemplates.setData(pieData);
     }
-}
\ No newline at end of file
+
+    private void carregarHeatmap() {
+        YearMonth atual = YearMonth.now();
+        YearMonth inicio = switch (cbPeriodoHeatmap.getValue()) {
+            case "Este mês" -> atual;
+            case "Últimos 3 meses" -> atual.minusMonths(2);
+            case "Últimos 12 meses" -> atual.minusMonths(11);
+            default -> null;
+        };
+        boolean porValor = "Líquido".equals(cbMetricaHeatmap.getValue());
+
+        MapaCalorVendas mapa = vendaDao.mapaCalor(inicio, atual);
+        double maximo = porValor ? mapa.getMaiorLiquido() : mapa.getMaiorQuantidade();
+
+        gridHeatmap.getChildren().clear();
+        for (int hora = 0; hora < 24; hora++) {
+            Label lbl = new Label(hora + "h");
+            lbl.setStyle("-fx-font-size: 10;");
+            gridHeatmap.add(lbl, hora + 1, 0);
+        }
+        for (DayOfWeek dia : DayOfWeek.values()) {
+            int linha = dia.getValue();
+            gridHeatmap.add(new Label(DIAS[linha - 1]), 0, linha);
+
+            for (int hora = 0; hora < 24; hora++) {
+                long qtd = mapa.getQuantidade(dia, hora);
+                double liquido = mapa.getLiquido(dia, hora);
+                double valor = porValor ? liquido : qtd;
+                double intensidade = maximo > 0 ? valor / maximo : 0;
+
+                Region celula = new Region();
+                celula.setPrefSize(28, 22);
+                celula.setStyle(String.format(Locale.ROOT,
+                    "-fx-background-color: rgba(220, 60, 30, %.2f); -fx-background-radius: 3; -fx-border-color: rgba(128,128,128,0.25); -fx-border-radius: 3;",
+                    0.05 + 0.95 * intensidade));
+                Tooltip.install(celula, new Tooltip(String.format("%s %02dh: %d venda(s), R$ %.2f",
+                    DIAS[linha - 1], hora, qtd, liquido)));
+                gridHeatmap.add(celula, hora + 1, linha);
+            }
+        }
+    }
+}
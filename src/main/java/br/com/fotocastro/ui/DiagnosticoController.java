@@ -0,0 +1,167 @@
+package br.com.fotocastro.ui;
+
+import br.com.fotocastro.config.DatabaseConfig;
+import br.com.fotocastro.config.PoolMetrics;
+import br.com.fotocastro.service.BackupService;
+import javafx.animation.KeyFrame;
+import javafx.animation.Timeline;
+import javafx.application.Platform;
+import javafx.fxml.FXML;
+import javafx.scene.chart.LineChart;
+import javafx.scene.chart.NumberAxis;
+import javafx.scene.chart.XYChart;
+import javafx.scene.control.Alert;
+import javafx.scene.control.Button;
+import javafx.scene.control.ButtonType;
+import javafx.scene.control.ChoiceDialog;
+import javafx.scene.control.Label;
+import javafx.util.Duration;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Tela de diagnóstico: utilização do pool, percentis de espera e rotatividade de conexões,
+ * mais backup manual e restauração.
+ * Atualiza a cada segundo enquanto estiver visível.
+ */
+public class DiagnosticoController {
+
+    private static final int JANELA_SEGUNDOS = 60;
+
+    @FXML private Label lblConfig;
+    @FXML private Label lblAtivas, lblOciosas, lblAguardando, lblUtilizacao;
+    @FXML private Label lblP50, lblP95, lblP99, lblMax;
+    @FXML private Label lblCriadas, lblCriadasMin, lblCriacaoMedia, lblTimeouts;
+    @FXML private Label lblAquisicoes, lblUsoMedio;
+    @FXML private LineChart<Number, Number> chartUtilizacao;
+    @FXML private NumberAxis eixoTempo;
+    @FXML private Button btnBackup, btnRestaurar;
+    @FXML private Label lblBackup;
+
+    private final DatabaseConfig db = DatabaseConfig.getInstance();
+    private final BackupService backupService = new BackupService();
+    private final XYChart.Series<Number, Number> serieAtivas = new XYChart.Series<>();
+    private Timeline timer;
+    private long segundos = 0;
+
+    @FXML
+    private void initialize() {
+        lblConfig.setText(String.format("máx. %d conexões · mín. ociosas %d",
+                db.getMaximumPoolSize(), db.getMinimumIdle()));
+
+        serieAtivas.setName("Ativas");
+        chartUtilizacao.getData().add(serieAtivas);
+
+        btnBackup.setOnAction(e -> fazerBackup());
+        btnRestaurar.setOnAction(e -> restaurar());
+        List<Path> backups = backupService.listarBackups();
+        lblBackup.setText(backups.isEmpty() ? "Nenhum backup ainda" : "Último: " + backups.get(0).getFileName());
+
+        atualizar();
+        timer = new Timeline(new KeyFrame(Duration.seconds(1), e -> atualizar()));
+        timer.setCycleCount(Timeline.INDEFINITE);
+        timer.play();
+
+        // Para o timer quando a tela sai de cena (navegação)
+        chartUtilizacao.sceneProperty().addListener((obs, antiga, nova) -> {
+            if (nova == null && timer != null) timer.stop();
+        });
+    }
+
+    private void atualizar() {
+        int ativas = db.getActiveConnections();
+        int total = db.getTotalConnections();
+        int max = db.getMaximumPoolSize();
+
+        lblAtivas.setText(ativas + " / " + total);
+        lblOciosas.setText(String.valueOf(db.getIdleConnections()));
+        lblAguardando.setText(String.valueOf(db.getThreadsAguardando()));
+        lblUtilizacao.setText(String.format("%.0f%%", max > 0 ? 100.0 * ativas / max : 0.0));
+
+        PoolMetrics.Snapshot m = db.getMetrics().snapshot();
+        lblP50.setText(ms(m.esperaP50Ms));
+        lblP95.setText(ms(m.esperaP95Ms));
+        lblP99.setText(ms(m.esperaP99Ms));
+        lblMax.setText(ms(m.esperaMaxMs));
+
+        lblCriadas.setText(String.valueOf(m.conexoesCriadas));
+        lblCriadasMin.setText(String.format("%.2f", m.criadasPorMinuto));
+        lblCriacaoMedia.setText(ms(m.criacaoMediaMs));
+        lblTimeouts.setText(String.valueOf(m.timeouts));
+
+        lblAquisicoes.setText(String.valueOf(m.aquisicoes));
+        lblUsoMedio.setText(ms(m.usoMedioMs));
+
+        // Série deslizante: x = segundos relativos ao instante atual
+        segundos++;
+        serieAtivas.getData().add(new XYChart.Data<>(segundos, ativas));
+        if (serieAtivas.getData().size() > JANELA_SEGUNDOS) {
+            serieAtivas.getData().remove(0);
+        }
+        eixoTempo.setLowerBound(segundos - JANELA_SEGUNDOS);
+        eixoTempo.setUpperBound(segundos);
+    }
+
+    private void fazerBackup() {
+        btnBackup.setDisable(true);
+        lblBackup.setText("Gerando backup (o caixa continua funcionando)...");
+        backupService.fazerBackup().whenComplete((r, erro) -> Platform.runLater(() -> {
+            btnBackup.setDisable(false);
+            if (erro != null) {
+                Throwable causa = erro.getCause() != null ? erro.getCause() : erro;
+                lblBackup.setText("Falha no backup");
+                new Alert(Alert.AlertType.ERROR, "Falha no backup: " + causa.getMessage()).showAndWait();
+                return;
+            }
+            lblBackup.setText(r.resumo());
+        }));
+    }
+
+    /**
+     * Escolhe um backup; ele é conferido e aplicado ao reiniciar o sistema
+     */
+    private void restaurar() {
+        List<Path> backups = backupService.listarBackups();
+        if (backups.isEmpty()) {
+            new Alert(Alert.AlertType.INFORMATION, "Nenhum backup encontrado.").showAndWait();
+            return;
+        }
+        ChoiceDialog<Path> dlg = new ChoiceDialog<>(backups.get(0), backups);
+        dlg.setTitle("Restaurar backup");
+        dlg.setHeaderText("Os dados atuais serão substituídos na próxima abertura do sistema\n"
+                + "(o banco atual é guardado ao lado, sem ser apagado).");
+        dlg.showAndWait().ifPresent(backup -> {
+            Alert confirmar = new Alert(Alert.AlertType.CONFIRMATION,
+                    "Restaurar " + backup.getFileName() + " ao reiniciar?", ButtonType.OK, ButtonType.CANCEL);
+            if (confirmar.showAndWait().orElse(ButtonType.CANCEL) != ButtonType.OK) return;
+            btnRestaurar.setDisable(true);
+            lblBackup.setText("Conferindo " + backup.getFileName() + "...");
+            CompletableFuture.runAsync(() -> {
+                try {
+                    backupService.agendarRestauracao(backup);
+                } catch (IOException ex) {
+                    throw new UncheckedIOException(ex);
+                }
+            }).whenComplete((ok, erro) -> Platform.runLater(() -> {
+                btnRestaurar.setDisable(false);
+                if (erro != null) {
+                    Throwable causa = erro.getCause() != null ? erro.getCause() : erro;
+                    lblBackup.setText("Backup inválido");
+                    new Alert(Alert.AlertType.ERROR, "Backup inválido: " + causa.getMessage()).showAndWait();
+                    return;
+                }
+                lblBackup.setText("Restauração agendada: " + backup.getFileName());
+                new Alert(Alert.AlertType.INFORMATION,
+                        "Backup conferido. Feche e abra o sistema para concluir a restauração.").showAndWait();
+            }));
+        });
+    }
+
+    private static String ms(double v) {
+        return String.format("%.2f ms", v);
+    }
+}
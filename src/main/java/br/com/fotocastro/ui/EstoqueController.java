@@ -2,6 +2,9 @@ package br.com.fotocastro.ui;
 
 import br.com.fotocastro.infra.EstoqueDaoH2;
 import br.com.fotocastro.model.ItemEstoque;
+import br.com.fotocastro.service.BomService;
+import br.com.fotocastro.service.BuscaIndex;
+import br.com.fotocastro.service.ImportacaoCsvService;
 import javafx.collections.FXCollections;
 import javafx.collections.ObservableList;
 import javafx.fxml.FXML;
@@ -10,6 +13,9 @@ import javafx.scene.control.*;
 import javafx.scene.control.cell.PropertyValueFactory;
 
 import java.net.URL;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
 
 public class EstoqueController {
 
@@ -20,6 +26,7 @@ public class EstoqueController {
     @FXML private TableColumn<ItemEstoque, Integer> colQtd;
     @FXML private TableColumn<ItemEstoque, Double> colCusto;
     @FXML private TableColumn<ItemEstoque, Double> colUnit;
+    @FXML private TextField txtBusca;
 
     private final ObservableList<ItemEstoque> dados = FXCollections.observableArrayList();
     private EstoqueDaoH2 dao;
@@ -35,19 +42,39 @@ public class EstoqueController {
         colCusto.setCellValueFactory(new PropertyValueFactory<>("custoTotal"));
         colUnit.setCellValueFactory(c -> new javafx.beans.property.SimpleObjectProperty<>(c.getValue().getCustoUnitario()));
 
+        txtBusca.textProperty().addListener((obs, antigo, texto) -> aplicarFiltro());
+        VendaEventBus.ouvirEnquantoVisivel(tblEstoque, VendaEventBus.catalogoAtualizadoProperty(), (obs, antigo, novo) -> recarregar());
+
         recarregar();
     }
 
     private void recarregar() {
         dados.setAll(dao.listarTodos());
-        tblEstoque.setItems(dados);
+        aplicarFiltro();
+    }
+
+    /**
+     * Filtra a tabela pelo índice de busca (prefixo/aproximada sobre nome, cor e tamanho)
+     */
+    private void aplicarFiltro() {
+        String texto = txtBusca.getText();
+        if (texto == null || texto.isBlank()) {
+            tblEstoque.setItems(dados);
+            return;
+        }
+        Set<Long> ids = new HashSet<>();
+        for (BuscaIndex.Resultado r : BuscaIndex.getInstance().buscar(texto, dados.size() + 1, BuscaIndex.Tipo.ESTOQUE)) {
+            ids.add(r.getId());
+        }
+        tblEstoque.setItems(dados.filtered(i -> ids.contains(i.getId())));
     }
 
     @FXML
     private void handleNovo() {
         ItemEstoque novo = openDialogAndGet(null, false);
         if (novo == null) return;
-        dao.adicionar(novo);
+        novo.setId(dao.adicionar(novo));
+        BuscaIndex.getInstance().indexarItem(novo);
         recarregar();
     }
 
@@ -55,27 +82,30 @@ public class EstoqueController {
     private void handleEditar() {
         ItemEstoque sel = tblEstoque.getSelectionModel().getSelectedItem();
         if (sel == null) return;
+        ItemEstoque original = copy(sel);
         ItemEstoque editado = openDialogAndGet(copy(sel), false);
         if (editado == null) return;
 
-        // Atualiza cadastro: nome/cor/tamanho
-        sel.setNome(editado.getNome());
-        sel.setCor(editado.getCor());
-        sel.setTamanho(editado.getTamanho());
-        // opcional: permitir edição direta de quantidade/custo_total
-        sel.setQuantidade(editado.getQuantidade());
-        sel.setCustoTotal(editado.getCustoTotal());
-
-        dao.atualizarCadastro(sel);
-        // se mudou quantidade/custo_total pelo diálogo, persiste com uma atualização adicional:
-        // (reuso da atualizarCadastro só faz nome/cor/tamanho — então pode criar outro método, ou,
-        // aqui por simplicidade, removo e insiro novamente. Melhor criar um método dedicado:)
-        // Vamos criar um método rápido:
-        atualizarQuantidadeECusto(sel.getId(), sel.getQuantidade(), sel.getCustoTotal());
+        // Atualiza cadastro: nome/cor/tamanho (mesclando se outro terminal editou o item)
+        ConflitoDialogo.gravar("Item " + original.getNome(), original, editado, CAMPOS_ITEM,
+                dao::atualizarCadastro, () -> dao.buscarPorId(sel.getId()), null)
+            .ifPresent(BuscaIndex.getInstance()::indexarItem);
+
+        // Quantidade/custo editados pelo diálogo entram no ledger como ajuste; sem mudança não
+        // regrava o saldo lido (baixas de vendas feitas enquanto o diálogo estava aberto ficam)
+        if (editado.getQuantidade() != original.getQuantidade()
+                || Double.compare(editado.getCustoTotal(), original.getCustoTotal()) != 0) {
+            dao.atualizarQuantidadeECusto(sel.getId(), editado.getQuantidade(), editado.getCustoTotal(), "Ajuste pela edição");
+        }
 
         recarregar();
     }
 
+    private static final List<ConflitoDialogo.Campo<ItemEstoque, ?>> CAMPOS_ITEM = List.of(
+            new ConflitoDialogo.Campo<>("nome", ItemEstoque::getNome, ItemEstoque::setNome),
+            new ConflitoDialogo.Campo<>("cor", ItemEstoque::getCor, ItemEstoque::setCor),
+            new ConflitoDialogo.Campo<>("tamanho", ItemEstoque::getTamanho, ItemEstoque::setTamanho));
+
     @FXML
     private void handleEntradaLote() {
         ItemEstoque sel = tblEstoque.getSelectionModel().getSelectedItem();
@@ -115,11 +145,23 @@ public class EstoqueController {
         a.showAndWait().ifPresent(bt -> {
             if (bt == ButtonType.OK) {
                 dao.remover(sel.getId());
+                BomService.invalidarTudo(); // BOM dos templates perde o item em cascata
+                BuscaIndex.getInstance().removerItem(sel.getId());
                 recarregar();
             }
         });
     }
 
+    /**
+     * Importa itens de um CSV (Nome; Cor; Tamanho; Quantidade; Custo Total).
+     * Itens já cadastrados recebem entrada; os demais são criados.
+     */
+    @FXML
+    private void handleImportar() {
+        ImportacaoCsvDialogo.executar(tblEstoque.getScene().getWindow(), "Importar estoque (CSV)",
+                new ImportacaoCsvService()::importarEstoque, null, r -> recarregar());
+    }
+
     // ===== Helpers =====
 
     private ItemEstoque openDialogAndGet(ItemEstoque base, boolean entradaDeLote) {
@@ -177,18 +219,7 @@ public class EstoqueController {
         c.setTamanho(i.getTamanho());
         c.setQuantidade(i.getQuantidade());
         c.setCustoTotal(i.getCustoTotal());
+        c.setVersao(i.getVersao());
         return c;
     }
-
-    private void atualizarQuantidadeECusto(Long id, int novaQtd, double novoCusto) {
-        // método pequeno e direto no lugar: UPDATE total
-        final String sql = "UPDATE estoque SET quantidade=?, custo_total=? WHERE id=?";
-        try (var c = java.sql.DriverManager.getConnection("jdbc:h2:file:./data/fotocastro;AUTO_SERVER=TRUE;DB_CLOSE_DELAY=-1", "sa", "");
-             var ps = c.prepareStatement(sql)) {
-            ps.setInt(1, novaQtd);
-            ps.setDouble(2, novoCusto);
-            ps.setLong(3, id);
-            ps.executeUpdate();
-        } catch (Exception e) { e.printStackTrace(); }
-    }
 }
@@ -1,15 +1,34 @@
 package br.com.fotocastro.ui;
 
+import br.com.fotocastro.infra.ReplicacaoDaoH2;
 import br.com.fotocastro.infra.VendaDaoH2;
 import br.com.fotocastro.infra.VendaDaoH2.FechamentoResumo; // Import da classe correta
-import br.com.fotocastro.utils.PdfExporter;
+import br.com.fotocastro.service.ConciliacaoService;
+import br.com.fotocastro.service.ExportacaoContabilService;
+import br.com.fotocastro.service.ImportacaoCsvService;
+import br.com.fotocastro.service.PdfExportService;
+import br.com.fotocastro.service.RelatorioService;
+import br.com.fotocastro.service.RelatorioService.Relatorio;
+import br.com.fotocastro.service.SincronizacaoFilialService;
+import javafx.application.Platform;
+import javafx.beans.property.ReadOnlyStringWrapper;
 import javafx.collections.FXCollections;
 import javafx.fxml.FXML;
 import javafx.scene.control.*;
 import javafx.scene.control.cell.PropertyValueFactory;
 import javafx.scene.layout.VBox;
 
+import java.nio.file.Path;
 import java.time.LocalDate;
+import java.time.YearMonth;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.stream.Collectors;
 
 public class HomeController {
 
@@ -23,21 +42,37 @@ public class HomeController {
     @FXML private TableView<FechamentoResumo> tableFechamentos;
     @FXML private Button btnVerDetalhes;
     @FXML private Button btnExportarPDF;
+    @FXML private Button btnRelatorioMensalPDF;
+    @FXML private ProgressBar progressExportacao;
+    @FXML private Label lblExportacao;
 
     // Aba Avisos
     @FXML private ListView<String> listAvisos;
     @FXML private Button btnLimparAvisos;
+    @FXML private Button btnConciliar;
+    @FXML private Label lblConciliacao;
 
     // Aba Relatórios
     @FXML private Button btnRelHoje;
     @FXML private Button btnRelSemana;
     @FXML private Button btnRelMes;
+    @FXML private Button btnRelAno;
     @FXML private Button btnTopTemplates;
     @FXML private Button btnRelMetodos;
+    @FXML private Button btnExportarContador;
+    @FXML private ProgressBar progressContador;
+    @FXML private Button btnImportarVendas;
+    @FXML private Button btnRelFiliais;
+    @FXML private Button btnExportacaoCompleta;
     @FXML private Label lblRelatorioStatus;
     @FXML private VBox relatorioContent;
 
     private final VendaDaoH2 vendaDao = new VendaDaoH2();
+    private final PdfExportService pdfService = new PdfExportService();
+    private final ExportacaoContabilService exportacaoContabil = new ExportacaoContabilService();
+
+    // Avisos da última conferência dos fechamentos (substituídos a cada conferência)
+    private List<String> avisosConciliacao = List.of();
 
     @FXML
     private void initialize() {
@@ -45,17 +80,43 @@ public class HomeController {
         configurarTableFechamentos();
         carregarFechamentos(); // Agora usa DAO real (comente se quiser exemplo)
         carregarAvisosExemplo();
+        mostrarConciliacao();
 
         btnVerDetalhes.setOnAction(e -> verDetalhesFechamento());
         btnExportarPDF.setOnAction(e -> exportarPDF());
+        btnRelatorioMensalPDF.setOnAction(e -> exportarRelatorioMensal());
         btnLimparAvisos.setOnAction(e -> limparAvisos());
-
-        btnRelHoje.setOnAction(e -> mostrarRelatorio("Vendas Hoje"));
-        btnRelSemana.setOnAction(e -> mostrarRelatorio("Vendas Semana"));
-        // ... outros botões iguais
+        btnConciliar.setOnAction(e -> conciliar());
+
+        btnRelHoje.setOnAction(e -> mostrarRelatorio(Relatorio.VENDAS_POR_DIA, LocalDate.now(), LocalDate.now()));
+        btnRelSemana.setOnAction(e -> mostrarRelatorio(Relatorio.VENDAS_POR_DIA, LocalDate.now().minusDays(6), LocalDate.now()));
+        btnRelMes.setOnAction(e -> mostrarRelatorio(Relatorio.VENDAS_POR_DIA, LocalDate.now().withDayOfMonth(1), LocalDate.now()));
+        btnRelAno.setOnAction(e -> mostrarRelatorio(Relatorio.VENDAS_POR_DIA, LocalDate.now().withDayOfYear(1), LocalDate.now()));
+        btnTopTemplates.setOnAction(e -> mostrarRelatorio(Relatorio.MAIS_VENDIDOS, LocalDate.now().minusDays(29), LocalDate.now()));
+        btnRelMetodos.setOnAction(e -> mostrarRelatorio(Relatorio.POR_METODO, LocalDate.now().withDayOfMonth(1), LocalDate.now()));
+        btnExportarContador.setOnAction(e -> exportarParaContador());
+        btnImportarVendas.setOnAction(e -> importarVendas());
+
+        boolean filiais = SincronizacaoFilialService.habilitada();
+        for (Button b : List.of(btnRelFiliais, btnExportacaoCompleta)) {
+            b.setVisible(filiais);
+            b.setManaged(filiais);
+        }
+        btnRelFiliais.setOnAction(e -> mostrarVendasPorFilial(LocalDate.now().withDayOfMonth(1), LocalDate.now()));
+        btnExportacaoCompleta.setOnAction(e -> solicitarExportacaoCompleta());
 
         btnAbrirCaixa.setVisible(false);
         btnFecharCaixa.setVisible(false);
+
+        VendaEventBus.ouvirEnquantoVisivel(lblStatusCaixa, VendaEventBus.vendaAtualizadaProperty(), (obs, oldV, newV) -> {
+            atualizarStatusCaixa();
+            carregarFechamentos();
+        });
+        VendaEventBus.ouvirEnquantoVisivel(lblStatusCaixa, VendaEventBus.diaProperty(), (obs, oldV, newV) -> {
+            atualizarStatusCaixa();
+            carregarFechamentos();
+        });
+        VendaEventBus.ouvirEnquantoVisivel(lblStatusCaixa, VendaEventBus.conciliacaoProperty(), (obs, oldV, newV) -> mostrarConciliacao());
     }
 
     private void atualizarStatusCaixa() {
@@ -152,25 +213,245 @@ public class HomeController {
         }
 
         String fileName = "fechamento_" + selected.getData().replace("/", "-") + ".pdf";
-        String path = System.getProperty("user.home") + "/Desktop/" + fileName;
-
-        try {
-            PdfExporter.exportFechamentoToPdf(selected, path);
-            new Alert(Alert.AlertType.INFORMATION, "PDF exportado com sucesso!\nSalvo em: " + path).showAndWait();
-        } catch (Exception e) {
-            new Alert(Alert.AlertType.ERROR, "Falha ao gerar PDF: " + e.getMessage()).showAndWait();
-            e.printStackTrace();
+        Path path = Path.of(System.getProperty("user.home"), "Desktop", fileName);
+
+        iniciarExportacao("Gerando PDF...");
+        pdfService.exportarFechamento(selected, path)
+            .whenComplete((p, erro) -> Platform.runLater(() -> concluirExportacao(p, erro)));
+    }
+
+    /**
+     * Relatório de todos os fechamentos do mês do item selecionado (ou do mês atual)
+     */
+    private void exportarRelatorioMensal() {
+        FechamentoResumo selected = tableFechamentos.getSelectionModel().getSelectedItem();
+        YearMonth mes = selected != null ? YearMonth.from(selected.data) : YearMonth.now();
+
+        String fileName = "fechamentos_" + mes + ".pdf";
+        Path path = Path.of(System.getProperty("user.home"), "Desktop", fileName);
+
+        iniciarExportacao("Gerando relatório " + mes + "...");
+        progressExportacao.setProgress(0);
+        pdfService.exportarRelatorioMensal(mes, path,
+                fracao -> Platform.runLater(() -> progressExportacao.setProgress(fracao)))
+            .whenComplete((p, erro) -> Platform.runLater(() -> concluirExportacao(p, erro)));
+    }
+
+    private void iniciarExportacao(String mensagem) {
+        progressExportacao.setProgress(ProgressBar.INDETERMINATE_PROGRESS);
+        progressExportacao.setVisible(true);
+        lblExportacao.setText(mensagem);
+    }
+
+    private void concluirExportacao(Path path, Throwable erro) {
+        if (PdfExportService.getPendentes() == 0) {
+            progressExportacao.setVisible(false);
+        }
+        if (erro != null) {
+            Throwable causa = erro.getCause() != null ? erro.getCause() : erro;
+            lblExportacao.setText("Falha na exportação");
+            new Alert(Alert.AlertType.ERROR, "Falha ao gerar PDF: " + causa.getMessage()).showAndWait();
+            return;
+        }
+        lblExportacao.setText("PDF salvo em: " + path);
+        new Alert(Alert.AlertType.INFORMATION, "PDF exportado com sucesso!\nSalvo em: " + path).show();
+    }
+
+    /**
+     * Vendas e fechamentos do ano escolhido em CSV/XLSX, gerados em segundo plano
+     */
+    private void exportarParaContador() {
+        int anoAtual = LocalDate.now().getYear();
+        ChoiceDialog<Integer> dlgAno = new ChoiceDialog<>(anoAtual - 1,
+                List.of(anoAtual, anoAtual - 1, anoAtual - 2, anoAtual - 3, anoAtual - 4));
+        dlgAno.setTitle("Exportar para o contador");
+        dlgAno.setHeaderText("Ano fiscal");
+        Optional<Integer> ano = dlgAno.showAndWait();
+        if (ano.isEmpty()) return;
+
+        ChoiceDialog<ExportacaoContabilService.Formato> dlgFormato = new ChoiceDialog<>(
+                ExportacaoContabilService.Formato.XLSX, ExportacaoContabilService.Formato.values());
+        dlgFormato.setTitle("Exportar para o contador");
+        dlgFormato.setHeaderText("Formato do arquivo");
+        Optional<ExportacaoContabilService.Formato> formato = dlgFormato.showAndWait();
+        if (formato.isEmpty()) return;
+
+        Path pasta = Path.of(System.getProperty("user.home"), "Desktop");
+
+        btnExportarContador.setDisable(true);
+        progressContador.setProgress(0);
+        progressContador.setVisible(true);
+        lblRelatorioStatus.setText("Exportando " + ano.get() + " (" + formato.get() + ")...");
+
+        exportacaoContabil.exportarAno(ano.get(), formato.get(), pasta,
+                fracao -> Platform.runLater(() -> progressContador.setProgress(fracao)))
+            .whenComplete((arquivos, erro) -> Platform.runLater(() -> {
+                btnExportarContador.setDisable(false);
+                progressContador.setVisible(false);
+                if (erro != null) {
+                    Throwable causa = erro.getCause() != null ? erro.getCause() : erro;
+                    lblRelatorioStatus.setText("Falha na exportação");
+                    new Alert(Alert.AlertType.ERROR, "Falha ao exportar: " + causa.getMessage()).showAndWait();
+                    return;
+                }
+                lblRelatorioStatus.setText("Exportação concluída: " + arquivos.size() + " arquivo(s) em " + pasta);
+                new Alert(Alert.AlertType.INFORMATION, "Arquivos gerados:\n" + arquivos.stream()
+                        .map(Path::toString).collect(Collectors.joining("\n"))).show();
+            }));
+    }
+
+    /**
+     * Vendas de um CSV (mesmo layout da exportação para o contador), com simulação antes
+     */
+    private void importarVendas() {
+        ImportacaoCsvDialogo.executar(btnImportarVendas.getScene().getWindow(), "Importar vendas (CSV)",
+                new ImportacaoCsvService()::importarVendas, lblRelatorioStatus::setText, r -> {
+                    if (r.getImportadas() > 0) VendaEventBus.notificarVenda();
+                });
+    }
+
+    /**
+     * Divergências da última conferência no topo da lista de avisos
+     */
+    private void mostrarConciliacao() {
+        ConciliacaoService.Resultado r = ConciliacaoService.getUltimoResultado();
+        if (r == null) {
+            lblConciliacao.setText("Fechamentos ainda não conferidos");
+            return;
         }
+        listAvisos.getItems().removeAll(avisosConciliacao);
+        avisosConciliacao = r.divergencias.stream()
+                .map(ConciliacaoService.Divergencia::getDescricao)
+                .collect(Collectors.toList());
+        listAvisos.getItems().addAll(0, avisosConciliacao);
+        lblConciliacao.setText(String.format("Fechamentos conferidos em %s: %s",
+                r.executadoEm.format(DateTimeFormatter.ofPattern("dd/MM HH:mm")),
+                r.divergencias.isEmpty() ? "tudo confere" : r.divergencias.size() + " dia(s) divergente(s)"));
+    }
+
+    /**
+     * Conferência sob demanda (a automática roda na abertura e na virada de dia)
+     */
+    private void conciliar() {
+        btnConciliar.setDisable(true);
+        lblConciliacao.setText("Conferindo fechamentos...");
+        CompletableFuture.runAsync(() -> new ConciliacaoService().conciliar())
+            .whenComplete((v, erro) -> Platform.runLater(() -> {
+                btnConciliar.setDisable(false);
+                if (erro != null) {
+                    Throwable causa = erro.getCause() != null ? erro.getCause() : erro;
+                    lblConciliacao.setText("Falha na conferência");
+                    new Alert(Alert.AlertType.ERROR, "Falha ao conferir fechamentos: " + causa.getMessage()).showAndWait();
+                    return;
+                }
+                VendaEventBus.notificarConciliacao();
+            }));
     }
 
     private void limparAvisos() {
         listAvisos.getItems().clear();
+        avisosConciliacao = List.of();
         new Alert(Alert.AlertType.INFORMATION, "Avisos limpos.").show();
     }
 
-    private void mostrarRelatorio(String tipo) {
-        lblRelatorioStatus.setText("Gerando: " + tipo + "...");
-        Label placeholder = new Label("Relatório " + tipo + " em desenvolvimento");
-        relatorioContent.getChildren().setAll(placeholder);
+    /**
+     * Relatório calculado fora da thread do JavaFX (instantâneo quando já está no cache)
+     */
+    private void mostrarRelatorio(Relatorio relatorio, LocalDate inicio, LocalDate fim) {
+        lblRelatorioStatus.setText("Gerando: " + relatorio.getTitulo() + "...");
+        CompletableFuture.supplyAsync(() -> RelatorioService.getInstance().gerar(relatorio, inicio, fim))
+            .whenComplete((r, erro) -> Platform.runLater(() -> {
+                if (erro != null) {
+                    Throwable causa = erro.getCause() != null ? erro.getCause() : erro;
+                    lblRelatorioStatus.setText("Falha no relatório");
+                    new Alert(Alert.AlertType.ERROR, "Falha ao gerar relatório: " + causa.getMessage()).showAndWait();
+                    return;
+                }
+                exibirRelatorio(r);
+            }));
+    }
+
+    private void exibirRelatorio(RelatorioService.Resultado r) {
+        Label titulo = new Label(r.relatorio.getTitulo() + " — " + r.getPeriodo());
+        titulo.getStyleClass().add("section-title");
+
+        List<RelatorioService.Linha> linhas = new ArrayList<>(r.linhas);
+        if (r.total != null) linhas.add(r.total);
+        TableView<RelatorioService.Linha> tabela = tabelaRelatorio(
+                r.relatorio == Relatorio.MAIS_VENDIDOS ? "Descrição" : r.relatorio == Relatorio.POR_METODO ? "Método" : "Dia",
+                r.relatorio.getColunas(), linhas);
+
+        relatorioContent.getChildren().setAll(titulo, tabela);
+        if (r.total != null) {
+            relatorioContent.getChildren().add(new Label(String.format("Média diária (líquido): R$ %.2f", r.getMediaDiaria())));
+        }
+        lblRelatorioStatus.setText(String.format("Calculado às %s em %d ms",
+                r.geradoEm.format(DateTimeFormatter.ofPattern("HH:mm:ss")), r.duracaoMs));
+    }
+
+    private static TableView<RelatorioService.Linha> tabelaRelatorio(String rotulo, Set<RelatorioService.Coluna> colunas,
+                                                                    List<RelatorioService.Linha> linhas) {
+        TableView<RelatorioService.Linha> tabela = new TableView<>();
+        tabela.setColumnResizePolicy(TableView.CONSTRAINED_RESIZE_POLICY);
+        TableColumn<RelatorioService.Linha, String> colRotulo = new TableColumn<>(rotulo);
+        colRotulo.setCellValueFactory(new PropertyValueFactory<>("rotulo"));
+        tabela.getColumns().add(colRotulo);
+        for (RelatorioService.Coluna c : colunas) {
+            TableColumn<RelatorioService.Linha, String> col = new TableColumn<>(c.getTitulo());
+            col.setCellValueFactory(d -> new ReadOnlyStringWrapper(d.getValue().valor(c)));
+            tabela.getColumns().add(col);
+        }
+        tabela.getItems().setAll(linhas);
+        tabela.setPrefHeight(Math.min(420, 32 + 26 * Math.max(1, tabela.getItems().size())));
+        tabela.setPlaceholder(new Label("Nenhuma venda no período"));
+        return tabela;
+    }
+
+    /**
+     * Consolidado das filiais (vendas desta + as importadas das outras); sem cache, porque
+     * lotes de outras filiais mudam dias já fechados aqui
+     */
+    private void mostrarVendasPorFilial(LocalDate inicio, LocalDate fim) {
+        lblRelatorioStatus.setText("Gerando: Vendas por filial...");
+        long t0 = System.nanoTime();
+        CompletableFuture.supplyAsync(() -> new SincronizacaoFilialService().resumoPorFilial(inicio, fim))
+            .whenComplete((resumos, erro) -> Platform.runLater(() -> {
+                if (erro != null) {
+                    Throwable causa = erro.getCause() != null ? erro.getCause() : erro;
+                    lblRelatorioStatus.setText("Falha no relatório");
+                    new Alert(Alert.AlertType.ERROR, "Falha ao gerar relatório: " + causa.getMessage()).showAndWait();
+                    return;
+                }
+                List<RelatorioService.Linha> linhas = new ArrayList<>();
+                long qtd = 0;
+                double bruto = 0, liquido = 0;
+                for (ReplicacaoDaoH2.ResumoFilial f : resumos) {
+                    linhas.add(new RelatorioService.Linha(f.filial, f.quantidade, f.bruto, f.bruto - f.liquido, f.liquido));
+                    qtd += f.quantidade;
+                    bruto += f.bruto;
+                    liquido += f.liquido;
+                }
+                if (!linhas.isEmpty()) linhas.add(new RelatorioService.Linha("Total", qtd, bruto, bruto - liquido, liquido));
+
+                DateTimeFormatter fmt = DateTimeFormatter.ofPattern("dd/MM/yyyy");
+                Label titulo = new Label("Vendas por filial — " + inicio.format(fmt) + " a " + fim.format(fmt));
+                titulo.getStyleClass().add("section-title");
+                relatorioContent.getChildren().setAll(titulo,
+                        tabelaRelatorio("Filial", EnumSet.allOf(RelatorioService.Coluna.class), linhas));
+                lblRelatorioStatus.setText(String.format("Calculado em %.0f ms", (System.nanoTime() - t0) / 1e6));
+            }));
+    }
+
+    /**
+     * Próximo lote desta filial leva todas as linhas (filial nova ou que perdeu lotes)
+     */
+    private void solicitarExportacaoCompleta() {
+        Alert confirmar = new Alert(Alert.AlertType.CONFIRMATION,
+                "O próximo lote enviado às outras filiais levará todos os dados desta filial.\nContinuar?",
+                ButtonType.OK, ButtonType.CANCEL);
+        confirmar.setHeaderText("Reenviar tudo às filiais");
+        if (confirmar.showAndWait().orElse(ButtonType.CANCEL) != ButtonType.OK) return;
+        new SincronizacaoFilialService().solicitarExportacaoCompleta();
+        lblRelatorioStatus.setText("Exportação completa agendada para o próximo ciclo de sincronização");
     }
 }
\ No newline at end of file
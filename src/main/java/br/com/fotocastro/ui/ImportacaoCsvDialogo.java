@@ -0,0 +1,133 @@
+package br.com.fotocastro.ui;
+
+import br.com.fotocastro.service.ImportacaoCsvService.ErroLinha;
+import br.com.fotocastro.service.ImportacaoCsvService.Resultado;
+import javafx.application.Platform;
+import javafx.scene.control.Alert;
+import javafx.scene.control.ButtonType;
+import javafx.scene.control.TextArea;
+import javafx.stage.FileChooser;
+import javafx.stage.Window;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Consumer;
+import java.util.function.IntConsumer;
+
+/**
+ * Fluxo de importação CSV na UI: escolhe o arquivo, simula (sem gravar),
+ * mostra o resumo com os primeiros erros e, se confirmado, importa.
+ * O trabalho roda fora da thread da UI.
+ */
+final class ImportacaoCsvDialogo {
+
+    private static final int ERROS_EXIBIDOS = 50;
+
+    @FunctionalInterface
+    interface Importador {
+        Resultado importar(Path arquivo, boolean simulacao, IntConsumer progresso) throws IOException;
+    }
+
+    private ImportacaoCsvDialogo() {
+    }
+
+    /**
+     * @param status recebe mensagens de andamento (na thread da UI); pode ser null
+     * @param aoConcluir chamado na thread da UI após a importação real
+     */
+    static void executar(Window dono, String titulo, Importador importador,
+                         Consumer<String> status, Consumer<Resultado> aoConcluir) {
+        FileChooser fc = new FileChooser();
+        fc.setTitle(titulo);
+        fc.getExtensionFilters().add(new FileChooser.ExtensionFilter("CSV", "*.csv", "*.txt"));
+        File arquivo = fc.showOpenDialog(dono);
+        if (arquivo == null) return;
+        Path path = arquivo.toPath();
+
+        avisar(status, "Verificando " + arquivo.getName() + "...");
+        rodar(importador, path, true, status).whenComplete((simulado, erro) -> Platform.runLater(() -> {
+            if (erro != null) {
+                falhou(status, erro);
+                return;
+            }
+            avisar(status, simulado.resumo());
+            if (simulado.getValidas() == 0) {
+                mostrar(Alert.AlertType.WARNING, titulo, "Nenhuma linha válida para importar.", simulado);
+                return;
+            }
+
+            Alert confirmar = criarAlerta(Alert.AlertType.CONFIRMATION, titulo,
+                    "Importar " + simulado.getValidas() + " linha(s) válida(s)?"
+                    + (simulado.getTotalErros() > 0 ? " As linhas com erro serão ignoradas." : ""), simulado);
+            confirmar.getButtonTypes().setAll(ButtonType.OK, ButtonType.CANCEL);
+            if (confirmar.showAndWait().orElse(ButtonType.CANCEL) != ButtonType.OK) {
+                avisar(status, "Importação cancelada");
+                return;
+            }
+
+            avisar(status, "Importando " + arquivo.getName() + "...");
+            rodar(importador, path, false, status).whenComplete((r, erro2) -> Platform.runLater(() -> {
+                if (erro2 != null) {
+                    falhou(status, erro2);
+                    return;
+                }
+                avisar(status, r.resumo());
+                mostrar(r.isSucesso() ? Alert.AlertType.INFORMATION : Alert.AlertType.ERROR, titulo,
+                        r.isSucesso() ? "Importação concluída." : "Importação interrompida.", r);
+                if (aoConcluir != null) aoConcluir.accept(r);
+            }));
+        }));
+    }
+
+    private static CompletableFuture<Resultado> rodar(Importador importador, Path path, boolean simulacao,
+                                                     Consumer<String> status) {
+        return CompletableFuture.supplyAsync(() -> {
+            try {
+                return importador.importar(path, simulacao,
+                        lidas -> Platform.runLater(() -> avisar(status, lidas + " linhas lidas...")));
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        });
+    }
+
+    private static void falhou(Consumer<String> status, Throwable erro) {
+        Throwable causa = erro.getCause() != null ? erro.getCause() : erro;
+        avisar(status, "Falha na importação");
+        new Alert(Alert.AlertType.ERROR, "Falha ao importar: " + causa.getMessage()).showAndWait();
+    }
+
+    private static void mostrar(Alert.AlertType tipo, String titulo, String cabecalho, Resultado r) {
+        criarAlerta(tipo, titulo, cabecalho, r).showAndWait();
+    }
+
+    private static Alert criarAlerta(Alert.AlertType tipo, String titulo, String cabecalho, Resultado r) {
+        Alert a = new Alert(tipo, r.resumo());
+        a.setTitle(titulo);
+        a.setHeaderText(cabecalho);
+        if (r.getTotalErros() > 0) {
+            StringBuilder sb = new StringBuilder();
+            int n = 0;
+            for (ErroLinha e : r.getErros()) {
+                if (n++ == ERROS_EXIBIDOS) break;
+                sb.append(e).append('\n');
+            }
+            if (r.getTotalErros() > ERROS_EXIBIDOS) {
+                sb.append("... e mais ").append(r.getTotalErros() - ERROS_EXIBIDOS).append(" erro(s)");
+            }
+            TextArea detalhes = new TextArea(sb.toString());
+            detalhes.setEditable(false);
+            detalhes.setWrapText(true);
+            a.getDialogPane().setExpandableContent(detalhes);
+            a.getDialogPane().setExpanded(true);
+        }
+        return a;
+    }
+
+    private static void avisar(Consumer<String> status, String mensagem) {
+        if (status != null) status.accept(mensagem);
+    }
+}
@@ -17,9 +17,19 @@ import java.net.URL;
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
 import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
 
 import br.com.fotocastro.config.DatabaseConfig;
+import br.com.fotocastro.config.ModoTerminal;
+import br.com.fotocastro.infra.Auditoria;
+import br.com.fotocastro.infra.MonitorAlteracoes;
+import br.com.fotocastro.infra.VendaJournal;
+import br.com.fotocastro.service.AgendadorService;
+import br.com.fotocastro.service.BackupService;
+import br.com.fotocastro.service.ExportacaoContabilService;
+import br.com.fotocastro.service.PdfExportService;
+import br.com.fotocastro.service.SincronizacaoFilialService;
 
 public class MainController {
 
@@ -39,6 +49,9 @@ public class MainController {
     private void initialize() {
         safeSetText(lblStatus, "Pronto.");
         startClock();
+        if (DatabaseConfig.getInstance().getModo() != ModoTerminal.LOCAL) {
+            MonitorAlteracoes.getInstance().adicionarOuvinte(this::alteracoesDeOutroTerminal);
+        }
 
         // configura a navegação e contentRoot após a cena estar pronta
         Platform.runLater(() -> {
@@ -54,6 +67,25 @@ public class MainController {
         });
     }
 
+    /**
+     * Telas abertas se atualizam pelos eventos; chamado na thread do monitor
+     */
+    private void alteracoesDeOutroTerminal(List<MonitorAlteracoes.Alteracao> alteracoes) {
+        boolean vendas = false, catalogo = false;
+        for (MonitorAlteracoes.Alteracao a : alteracoes) {
+            switch (a.getTabela()) {
+                case "estoque", "sale_templates" -> catalogo = true;
+                default -> vendas = true;
+            }
+        }
+        boolean v = vendas, c = catalogo;
+        Platform.runLater(() -> {
+            if (v) VendaEventBus.notificarVenda();
+            if (c) VendaEventBus.notificarCatalogo();
+            safeSetText(lblStatus, "Atualizado por outro terminal.");
+        });
+    }
+
     private void startClock() {
         safeSetText(lblDateTime, LocalDateTime.now().format(fmt));
         clock = new Timeline(new KeyFrame(Duration.seconds(1),
@@ -93,6 +125,12 @@ public class MainController {
         safeSetText(lblStatus, "Dashboard.");
     }
 
+    @FXML
+    public void showDiagnostico() {
+        setCenter(loadView("/ui/DiagnosticoView.fxml"));
+        safeSetText(lblStatus, "Diagnóstico.");
+    }
+
     @FXML
     public void toggleTheme() {
         if (contentRoot == null || contentRoot.getScene() == null) return;
@@ -144,6 +182,7 @@ public class MainController {
             case "CAIXA" -> showCaixa();
             case "ESTOQUE" -> showEstoque();
             case "DASHBOARD" -> showDashboard();
+            case "DIAGNOSTICO" -> showDiagnostico();
             case "CAIXA_FECHAMENTO" -> showCaixa(); // depois pode ter tela própria
             default -> showHome();
         }
@@ -200,6 +239,14 @@ public class MainController {
     @FXML
     public void handleExit() {
         if (clock != null) clock.stop();
+        MonitorAlteracoes.encerrar();
+        VendaJournal.encerrar();
+        PdfExportService.encerrar();
+        ExportacaoContabilService.encerrar();
+        BackupService.encerrar();
+        SincronizacaoFilialService.encerrar();
+        AgendadorService.encerrar();
+        Auditoria.encerrar();
         DatabaseConfig.getInstance().shutdown();
         Platform.exit();
     }
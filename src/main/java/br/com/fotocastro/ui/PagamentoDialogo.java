@@ -0,0 +1,97 @@
+package br.com.fotocastro.ui;
+
+import br.com.fotocastro.model.Pagamento;
+import br.com.fotocastro.model.PaymentMethod;
+import javafx.scene.Node;
+import javafx.scene.control.ButtonType;
+import javafx.scene.control.Dialog;
+import javafx.scene.control.Label;
+import javafx.scene.control.TextField;
+import javafx.scene.layout.GridPane;
+
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * Forma de pagamento de uma venda, com o valor dividido entre os métodos
+ * (ex.: parte em dinheiro e parte no PIX). Só confirma quando as partes fecham com o total.
+ */
+public final class PagamentoDialogo {
+
+    private PagamentoDialogo() {
+    }
+
+    /**
+     * @param inicial método que começa com o valor inteiro
+     * @return partes com valor maior que zero, ou vazio se o usuário cancelou
+     */
+    public static Optional<List<Pagamento>> perguntar(double total, PaymentMethod inicial) {
+        long totalCentavos = Math.round(total * 100);
+
+        Dialog<List<Pagamento>> dialog = new Dialog<>();
+        dialog.setTitle("Pagamento");
+        dialog.setHeaderText(String.format("Total: R$ %.2f", total));
+        dialog.getDialogPane().getButtonTypes().addAll(ButtonType.OK, ButtonType.CANCEL);
+
+        GridPane grid = new GridPane();
+        grid.setHgap(10);
+        grid.setVgap(8);
+
+        Map<PaymentMethod, TextField> campos = new EnumMap<>(PaymentMethod.class);
+        int linha = 0;
+        for (PaymentMethod m : PaymentMethod.values()) {
+            TextField tf = new TextField(m == inicial ? String.format("%.2f", total) : "");
+            tf.setPromptText("0,00");
+            tf.setPrefWidth(110);
+            campos.put(m, tf);
+            grid.addRow(linha++, new Label(m.name()), tf);
+        }
+        Label lblRestante = new Label();
+        grid.add(lblRestante, 0, linha, 2, 1);
+        dialog.getDialogPane().setContent(grid);
+
+        Node ok = dialog.getDialogPane().lookupButton(ButtonType.OK);
+        Runnable atualizar = () -> {
+            long pago = 0;
+            boolean valido = true;
+            for (TextField tf : campos.values()) {
+                Long c = centavos(tf.getText());
+                if (c == null || c < 0) valido = false;
+                else pago += c;
+            }
+            long restante = totalCentavos - pago;
+            lblRestante.setText(!valido ? "Valor inválido"
+                    : restante == 0 ? "✓ Fecha com o total"
+                    : String.format("%s: R$ %.2f", restante > 0 ? "Falta" : "Sobra", Math.abs(restante) / 100.0));
+            ok.setDisable(!valido || restante != 0);
+        };
+        campos.values().forEach(tf -> tf.textProperty().addListener((obs, a, b) -> atualizar.run()));
+        atualizar.run();
+
+        dialog.setResultConverter(bt -> {
+            if (bt != ButtonType.OK) return null;
+            List<Pagamento> partes = new ArrayList<>();
+            campos.forEach((m, tf) -> {
+                Long c = centavos(tf.getText());
+                if (c != null && c > 0) partes.add(new Pagamento(m, c / 100.0));
+            });
+            return partes;
+        });
+        return dialog.showAndWait();
+    }
+
+    /**
+     * Valor digitado em centavos (vazio = 0); null se não for número
+     */
+    private static Long centavos(String texto) {
+        if (texto == null || texto.isBlank()) return 0L;
+        try {
+            return Math.round(Double.parseDouble(texto.replace(",", ".").trim()) * 100);
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+}
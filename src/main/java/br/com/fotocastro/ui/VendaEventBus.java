@@ -1,13 +1,32 @@
 package br.com.fotocastro.ui;
 
 import javafx.beans.property.BooleanProperty;
+import javafx.beans.property.ObjectProperty;
 import javafx.beans.property.SimpleBooleanProperty;
+import javafx.beans.property.SimpleObjectProperty;
+import javafx.beans.value.ChangeListener;
+import javafx.beans.value.ObservableValue;
+import javafx.scene.Node;
+
+import java.time.LocalDate;
 
 public class VendaEventBus {
 
     private static final BooleanProperty VENDA_ATUALIZADA =
             new SimpleBooleanProperty(false);
 
+    // Estoque e templates alterados em outro terminal (multi-terminal)
+    private static final BooleanProperty CATALOGO_ATUALIZADO =
+            new SimpleBooleanProperty(false);
+
+    // Nova conferência dos fechamentos (ConciliacaoService.getUltimoResultado())
+    private static final BooleanProperty CONCILIACAO =
+            new SimpleBooleanProperty(false);
+
+    // Dia corrente: muda à meia-noite (AgendadorService), sempre na thread do JavaFX
+    private static final ObjectProperty<LocalDate> DIA =
+            new SimpleObjectProperty<>(LocalDate.now());
+
     public static BooleanProperty vendaAtualizadaProperty() {
         return VENDA_ATUALIZADA;
     }
@@ -15,4 +34,40 @@ public class VendaEventBus {
     public static void notificarVenda() {
         VENDA_ATUALIZADA.set(!VENDA_ATUALIZADA.get());
     }
+
+    public static BooleanProperty conciliacaoProperty() {
+        return CONCILIACAO;
+    }
+
+    public static void notificarConciliacao() {
+        CONCILIACAO.set(!CONCILIACAO.get());
+    }
+
+    public static BooleanProperty catalogoAtualizadoProperty() {
+        return CATALOGO_ATUALIZADO;
+    }
+
+    public static void notificarCatalogo() {
+        CATALOGO_ATUALIZADO.set(!CATALOGO_ATUALIZADO.get());
+    }
+
+    public static ObjectProperty<LocalDate> diaProperty() {
+        return DIA;
+    }
+
+    public static void notificarDia(LocalDate dia) {
+        DIA.set(dia);
+    }
+
+    /**
+     * Liga o listener ao evento só enquanto a tela do nó estiver em cena.
+     * O MainController recarrega o FXML a cada navegação; sem isso cada controller
+     * descartado continuaria preso às propriedades estáticas deste barramento.
+     */
+    public static <T> void ouvirEnquantoVisivel(Node tela, ObservableValue<T> evento, ChangeListener<? super T> listener) {
+        evento.addListener(listener);
+        tela.sceneProperty().addListener((obs, antiga, nova) -> {
+            if (nova == null) evento.removeListener(listener);
+        });
+    }
 }
@@ -0,0 +1,151 @@
+package br.com.fotocastro.utils;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * CSV no padrão do Excel pt-BR: separador ';', vírgula decimal, datas dd/MM/yyyy e BOM UTF-8.
+ * Cada aba vira um arquivo "prefixo_aba.csv" na pasta informada.
+ */
+public class CsvEscritor implements EscritorPlanilha {
+
+    private static final int TAMANHO_BUFFER = 256 * 1024;
+
+    private final Path pasta;
+    private final String prefixo;
+    private final List<Path> arquivos = new ArrayList<>();
+    private final StringBuilder linha = new StringBuilder(256);
+
+    private Writer saida;
+    private boolean primeiraCelula = true;
+
+    public CsvEscritor(Path pasta, String prefixo) {
+        this.pasta = pasta;
+        this.prefixo = prefixo;
+    }
+
+    /**
+     * Arquivos gerados até agora
+     */
+    public List<Path> getArquivos() {
+        return arquivos;
+    }
+
+    @Override
+    public void iniciarAba(String nome, String... cabecalhos) throws IOException {
+        fecharArquivo();
+        Files.createDirectories(pasta);
+        Path arquivo = pasta.resolve(prefixo + "_" + nome.toLowerCase() + ".csv");
+        FileChannel canal = FileChannel.open(arquivo, StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE);
+        saida = Channels.newWriter(canal, StandardCharsets.UTF_8.newEncoder(), TAMANHO_BUFFER);
+        saida.write('\uFEFF'); // BOM: Excel reconhece UTF-8
+        arquivos.add(arquivo);
+
+        for (String c : cabecalhos) texto(c);
+        fimLinha();
+    }
+
+    @Override
+    public void texto(String valor) {
+        separador();
+        if (valor == null) return;
+        if (valor.indexOf(';') < 0 && valor.indexOf('"') < 0 && valor.indexOf('\n') < 0 && valor.indexOf('\r') < 0) {
+            linha.append(valor);
+            return;
+        }
+        linha.append('"');
+        for (int i = 0; i < valor.length(); i++) {
+            char ch = valor.charAt(i);
+            if (ch == '"') linha.append('"');
+            linha.append(ch);
+        }
+        linha.append('"');
+    }
+
+    @Override
+    public void numero(long valor) {
+        separador();
+        linha.append(valor);
+    }
+
+    @Override
+    public void valor(double valor) {
+        separador();
+        long centavos = Math.round(valor * 100);
+        if (centavos < 0) {
+            linha.append('-');
+            centavos = -centavos;
+        }
+        linha.append(centavos / 100).append(',');
+        long resto = centavos % 100;
+        if (resto < 10) linha.append('0');
+        linha.append(resto);
+    }
+
+    @Override
+    public void data(LocalDate valor) {
+        separador();
+        if (valor != null) appendData(valor);
+    }
+
+    @Override
+    public void dataHora(LocalDateTime valor) {
+        separador();
+        if (valor == null) return;
+        appendData(valor.toLocalDate());
+        linha.append(' ');
+        doisDigitos(valor.getHour());
+        linha.append(':');
+        doisDigitos(valor.getMinute());
+        linha.append(':');
+        doisDigitos(valor.getSecond());
+    }
+
+    @Override
+    public void fimLinha() throws IOException {
+        linha.append("\r\n");
+        saida.append(linha);
+        linha.setLength(0);
+        primeiraCelula = true;
+    }
+
+    @Override
+    public void close() throws IOException {
+        fecharArquivo();
+    }
+
+    private void fecharArquivo() throws IOException {
+        if (saida != null) {
+            saida.close();
+            saida = null;
+        }
+    }
+
+    private void separador() {
+        if (!primeiraCelula) linha.append(';');
+        primeiraCelula = false;
+    }
+
+    private void appendData(LocalDate d) {
+        doisDigitos(d.getDayOfMonth());
+        linha.append('/');
+        doisDigitos(d.getMonthValue());
+        linha.append('/').append(d.getYear());
+    }
+
+    private void doisDigitos(int v) {
+        if (v < 10) linha.append('0');
+        linha.append(v);
+    }
+}
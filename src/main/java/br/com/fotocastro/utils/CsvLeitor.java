@@ -0,0 +1,165 @@
+package br.com.fotocastro.utils;
+
+import java.io.BufferedReader;
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Leitura de CSV em fluxo, um registro por vez.
+ * Detecta o separador (';' ou ',') pelo cabeçalho, aceita campos entre aspas
+ * (inclusive com quebra de linha) e ignora o BOM UTF-8. Lê o que o CsvEscritor grava.
+ */
+public class CsvLeitor implements Closeable {
+
+    private final BufferedReader entrada;
+    private final char separador;
+    private final Map<String, Integer> colunas = new HashMap<>();
+    private final List<String> campos = new ArrayList<>();
+    private final StringBuilder campo = new StringBuilder();
+
+    private int numeroLinha;     // linha física do arquivo onde o registro atual começa
+    private int proximaLinha = 1;
+
+    public CsvLeitor(Path arquivo) throws IOException {
+        this.entrada = Files.newBufferedReader(arquivo, StandardCharsets.UTF_8);
+
+        String cabecalho = entrada.readLine();
+        if (cabecalho == null) {
+            throw new IOException("Arquivo vazio: " + arquivo);
+        }
+        proximaLinha++;
+        if (!cabecalho.isEmpty() && cabecalho.charAt(0) == '\uFEFF') {
+            cabecalho = cabecalho.substring(1);
+        }
+
+        long pontoVirgula = cabecalho.chars().filter(c -> c == ';').count();
+        long virgula = cabecalho.chars().filter(c -> c == ',').count();
+        this.separador = pontoVirgula >= virgula ? ';' : ',';
+
+        List<String> nomes = dividir(cabecalho);
+        for (int i = 0; i < nomes.size(); i++) {
+            colunas.putIfAbsent(normalizarNome(nomes.get(i)), i);
+        }
+    }
+
+    /**
+     * Avança para o próximo registro
+     * @return false no fim do arquivo
+     */
+    public boolean proximo() throws IOException {
+        String linha;
+        do {
+            linha = entrada.readLine();
+            if (linha == null) return false;
+            numeroLinha = proximaLinha++;
+        } while (linha.isBlank());
+
+        campos.clear();
+        campo.setLength(0);
+        boolean aspas = false;
+
+        while (true) {
+            for (int i = 0; i < linha.length(); i++) {
+                char ch = linha.charAt(i);
+                if (aspas) {
+                    if (ch == '"') {
+                        if (i + 1 < linha.length() && linha.charAt(i + 1) == '"') {
+                            campo.append('"');
+                            i++;
+                        } else {
+                            aspas = false;
+                        }
+                    } else {
+                        campo.append(ch);
+                    }
+                } else if (ch == '"') {
+                    aspas = true;
+                } else if (ch == separador) {
+                    campos.add(campo.toString());
+                    campo.setLength(0);
+                } else {
+                    campo.append(ch);
+                }
+            }
+            if (!aspas) break;
+
+            // Campo entre aspas continua na linha seguinte
+            linha = entrada.readLine();
+            if (linha == null) break;
+            proximaLinha++;
+            campo.append('\n');
+        }
+        campos.add(campo.toString());
+        return true;
+    }
+
+    /**
+     * Linha do arquivo (1 = cabeçalho) onde começa o registro atual
+     */
+    public int getNumeroLinha() {
+        return numeroLinha;
+    }
+
+    /**
+     * Existe alguma das colunas (nomes alternativos) no cabeçalho?
+     */
+    public boolean temColuna(String... nomes) {
+        return indice(nomes) >= 0;
+    }
+
+    /**
+     * Valor da primeira coluna encontrada entre os nomes alternativos (aparado), ou null se vazio/ausente.
+     * Nomes comparados sem acento, caixa, espaço ou pontuação: "Data/Hora" = "data_hora".
+     */
+    public String get(String... nomes) {
+        int i = indice(nomes);
+        if (i < 0 || i >= campos.size()) return null;
+        String v = campos.get(i).trim();
+        return v.isEmpty() ? null : v;
+    }
+
+    @Override
+    public void close() throws IOException {
+        entrada.close();
+    }
+
+    private int indice(String... nomes) {
+        for (String nome : nomes) {
+            Integer i = colunas.get(normalizarNome(nome));
+            if (i != null) return i;
+        }
+        return -1;
+    }
+
+    private List<String> dividir(String linha) {
+        List<String> r = new ArrayList<>();
+        StringBuilder sb = new StringBuilder();
+        boolean aspas = false;
+        for (int i = 0; i < linha.length(); i++) {
+            char ch = linha.charAt(i);
+            if (ch == '"') {
+                aspas = !aspas;
+            } else if (ch == separador && !aspas) {
+                r.add(sb.toString());
+                sb.setLength(0);
+            } else {
+                sb.append(ch);
+            }
+        }
+        r.add(sb.toString());
+        return r;
+    }
+
+    private static String normalizarNome(String nome) {
+        String semAcento = Normalizer.normalize(nome, Normalizer.Form.NFD).replaceAll("\\p{M}", "");
+        return semAcento.toLowerCase().replaceAll("[^a-z0-9]", "");
+    }
+}
@@ -0,0 +1,30 @@
+package br.com.fotocastro.utils;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+
+/**
+ * Escrita sequencial de tabelas (CSV ou XLSX), linha a linha, sem manter as linhas em memória.
+ * Uso: iniciarAba, depois células seguidas de fimLinha para cada linha; close finaliza o arquivo.
+ */
+public interface EscritorPlanilha extends Closeable {
+
+    void iniciarAba(String nome, String... cabecalhos) throws IOException;
+
+    void texto(String valor) throws IOException;
+
+    void numero(long valor) throws IOException;
+
+    /**
+     * Valor monetário (duas casas)
+     */
+    void valor(double valor) throws IOException;
+
+    void data(LocalDate valor) throws IOException;
+
+    void dataHora(LocalDateTime valor) throws IOException;
+
+    void fimLinha() throws IOException;
+}
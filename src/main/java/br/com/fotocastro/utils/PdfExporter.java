@@ -1,9 +1,13 @@
 package br.com.fotocastro.utils;
 
 import br.com.fotocastro.infra.VendaDaoH2.FechamentoResumo;
+import com.itextpdf.io.font.FontProgram;
+import com.itextpdf.io.font.FontProgramFactory;
+import com.itextpdf.io.font.PdfEncodings;
 import com.itextpdf.io.font.constants.StandardFonts;
 import com.itextpdf.kernel.font.PdfFont;
 import com.itextpdf.kernel.font.PdfFontFactory;
+import com.itextpdf.kernel.geom.PageSize;
 import com.itextpdf.kernel.pdf.PdfDocument;
 import com.itextpdf.kernel.pdf.PdfWriter;
 import com.itextpdf.layout.Document;
@@ -13,40 +17,58 @@ import com.itextpdf.layout.element.Table;
 import com.itextpdf.layout.properties.TextAlignment;
 import com.itextpdf.layout.properties.UnitValue;
 
-import java.io.FileNotFoundException;
-import java.io.FileOutputStream;
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.time.format.DateTimeFormatter;
 import java.time.LocalDateTime;
+import java.util.function.Consumer;
+import java.util.function.IntConsumer;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
 public class PdfExporter {
 
+    private static final Logger logger = Logger.getLogger(PdfExporter.class.getName());
     private static final DateTimeFormatter FMT = DateTimeFormatter.ofPattern("dd/MM/yyyy HH:mm");
-    private static final String FONT = StandardFonts.HELVETICA;
+    private static final int TAMANHO_BUFFER = 64 * 1024;
+    private static final int LINHAS_POR_FLUSH = 50; // tabela grande: páginas prontas são escritas e descartadas
+
+    // Programas de fonte carregados uma vez; o PdfFont é por documento, mas sai barato a partir deles
+    private static final FontProgram FONTE_REGULAR = carregarFonte(StandardFonts.HELVETICA);
+    private static final FontProgram FONTE_NEGRITO = carregarFonte(StandardFonts.HELVETICA_BOLD);
+
+    /**
+     * Origem de fechamentos para relatórios: entrega as linhas uma a uma ao destino
+     */
+    @FunctionalInterface
+    public interface FonteFechamentos {
+        void paraCada(Consumer<FechamentoResumo> destino);
+    }
 
     public static void exportFechamentoToPdf(FechamentoResumo fechamento, String filePath) {
         if (fechamento == null) {
             throw new IllegalArgumentException("Fechamento não pode ser nulo");
         }
 
-        try {
-            PdfWriter writer = new PdfWriter(new FileOutputStream(filePath));
-            PdfDocument pdf = new PdfDocument(writer);
-            Document doc = new Document(pdf);
+        try (OutputStream out = abrir(filePath);
+             Document doc = new Document(new PdfDocument(new PdfWriter(out)))) {
 
-            PdfFont font = PdfFontFactory.createFont(FONT);
+            Fontes fontes = new Fontes();
 
             // Cabeçalho
-            Paragraph title = new Paragraph("FECHAMENTO DE CAIXA - FotoCastro")
-                    .setFont(font)
+            doc.add(new Paragraph("FECHAMENTO DE CAIXA - FotoCastro")
+                    .setFont(fontes.negrito)
                     .setFontSize(18)
-                    .setBold()
-                    .setTextAlignment(TextAlignment.CENTER);
-            doc.add(title);
+                    .setTextAlignment(TextAlignment.CENTER));
 
-            Paragraph data = new Paragraph("Data: " + fechamento.getData() + "   Fechado em: " + fechamento.getFechadoEm())
-                    .setFont(font)
+            doc.add(new Paragraph("Data: " + fechamento.getData() + "   Fechado em: " + fechamento.getFechadoEm())
+                    .setFont(fontes.regular)
                     .setFontSize(12)
-                    .setTextAlignment(TextAlignment.CENTER);
-            doc.add(data);
+                    .setTextAlignment(TextAlignment.CENTER));
 
             doc.add(new Paragraph("\n")); // espaçamento
 
@@ -55,42 +77,140 @@ public class PdfExporter {
             Table table = new Table(UnitValue.createPointArray(columnWidths))
                     .setWidth(UnitValue.createPercentValue(100));
 
-            // Linhas da tabela
-            addRow(table, "Bruto:", fechamento.getBruto());
-            addRow(table, "Líquido:", fechamento.getLiquido());
-            addRow(table, "Total Pagamentos (Din + Cart + Pix):", fechamento.getTotalPagamentos());
-            addRow(table, "Valor Contado:", "R$ " + String.format("%.2f", fechamento.valorContado));
-            addRow(table, "Diferença:", fechamento.getDiferenca());
-            addRow(table, "Tipo:", fechamento.getTipo());
-            addRow(table, "Observação:", fechamento.getObservacao());
+            addRow(table, fontes, "Bruto:", fechamento.getBruto());
+            addRow(table, fontes, "Líquido:", fechamento.getLiquido());
+            addRow(table, fontes, "Total Pagamentos (Din + Cart + Pix):", fechamento.getTotalPagamentos());
+            addRow(table, fontes, "Valor Contado:", "R$ " + String.format("%.2f", fechamento.valorContado));
+            addRow(table, fontes, "Diferença:", fechamento.getDiferenca());
+            addRow(table, fontes, "Tipo:", fechamento.getTipo());
+            addRow(table, fontes, "Observação:", fechamento.getObservacao());
+
+            doc.add(table);
+
+            rodape(doc, fontes);
 
+        } catch (IOException e) {
+            logger.log(Level.SEVERE, "Erro ao gerar PDF: " + filePath, e);
+            throw new UncheckedIOException("Erro ao gravar arquivo PDF", e);
+        }
+
+        logger.info("PDF gerado: " + filePath);
+    }
+
+    /**
+     * Relatório com vários fechamentos em tabela grande (iText large table):
+     * as linhas são lidas da fonte e descarregadas no arquivo a cada {@value #LINHAS_POR_FLUSH},
+     * sem montar o layout do documento inteiro em memória.
+     *
+     * @param progresso recebe o número de linhas já escritas (pode ser null)
+     * @return quantidade de fechamentos no relatório
+     */
+    public static int exportFechamentosToPdf(String titulo, FonteFechamentos fonte, String filePath, IntConsumer progresso) {
+        int[] linhas = {0};
+        double[] totais = new double[4]; // bruto, líquido, contado, diferença
+
+        try (OutputStream out = abrir(filePath);
+             Document doc = new Document(new PdfDocument(new PdfWriter(out)), PageSize.A4.rotate())) {
+
+            Fontes fontes = new Fontes();
+
+            doc.add(new Paragraph(titulo)
+                    .setFont(fontes.negrito)
+                    .setFontSize(16)
+                    .setTextAlignment(TextAlignment.CENTER));
+
+            Table table = new Table(UnitValue.createPercentArray(new float[]{10, 14, 11, 11, 11, 11, 11, 9, 12}), true)
+                    .setWidth(UnitValue.createPercentValue(100));
+            for (String h : new String[]{"Data", "Fechado em", "Bruto", "Líquido", "Pagamentos",
+                                         "Contado", "Diferença", "Tipo", "Observação"}) {
+                table.addHeaderCell(new Cell().add(new Paragraph(h).setFont(fontes.negrito).setFontSize(9)));
+            }
             doc.add(table);
 
-            // Rodapé
-            doc.add(new Paragraph("\n"));
-            Paragraph footer = new Paragraph("Gerado em: " + LocalDateTime.now().format(FMT))
-                    .setFont(font)
-                    .setFontSize(10)
-                    .setTextAlignment(TextAlignment.CENTER);
-            doc.add(footer);
+            fonte.paraCada(f -> {
+                celula(table, fontes, f.getData(), false);
+                celula(table, fontes, f.getFechadoEm(), false);
+                celula(table, fontes, f.getBruto(), true);
+                celula(table, fontes, f.getLiquido(), true);
+                celula(table, fontes, f.getTotalPagamentos(), true);
+                celula(table, fontes, String.format("R$ %.2f", f.valorContado), true);
+                celula(table, fontes, f.getDiferenca(), true);
+                celula(table, fontes, f.getTipo(), false);
+                celula(table, fontes, f.getObservacao() != null ? f.getObservacao() : "", false);
+
+                totais[0] += f.bruto;
+                totais[1] += f.liquido;
+                totais[2] += f.valorContado;
+                totais[3] += f.diferenca;
+
+                if (++linhas[0] % LINHAS_POR_FLUSH == 0) {
+                    table.flush();
+                    if (progresso != null) progresso.accept(linhas[0]);
+                }
+            });
+
+            // Linha de totais
+            table.addCell(new Cell(1, 2).add(new Paragraph("TOTAL (" + linhas[0] + ")").setFont(fontes.negrito).setFontSize(9)));
+            for (String v : new String[]{String.format("R$ %.2f", totais[0]), String.format("R$ %.2f", totais[1]), "",
+                                         String.format("R$ %.2f", totais[2]), String.format("R$ %.2f", totais[3])}) {
+                table.addCell(new Cell().add(new Paragraph(v).setFont(fontes.negrito).setFontSize(9))
+                        .setTextAlignment(TextAlignment.RIGHT));
+            }
+            table.addCell(new Cell(1, 2));
+            table.complete();
+            if (progresso != null) progresso.accept(linhas[0]);
+
+            rodape(doc, fontes);
+
+        } catch (IOException e) {
+            logger.log(Level.SEVERE, "Erro ao gerar PDF: " + filePath, e);
+            throw new UncheckedIOException("Erro ao gravar arquivo PDF", e);
+        }
+
+        logger.info("Relatório PDF gerado: " + filePath + " (" + linhas[0] + " fechamentos)");
+        return linhas[0];
+    }
 
-            doc.close();
+    private static OutputStream abrir(String filePath) throws IOException {
+        Path path = Path.of(filePath);
+        if (path.getParent() != null) {
+            Files.createDirectories(path.getParent());
+        }
+        return new BufferedOutputStream(Files.newOutputStream(path), TAMANHO_BUFFER);
+    }
 
-            System.out.println("PDF gerado com sucesso: " + filePath);
+    private static void rodape(Document doc, Fontes fontes) {
+        doc.add(new Paragraph("\n"));
+        doc.add(new Paragraph("Gerado em: " + LocalDateTime.now().format(FMT))
+                .setFont(fontes.regular)
+                .setFontSize(10)
+                .setTextAlignment(TextAlignment.CENTER));
+    }
 
-        } catch (FileNotFoundException e) {
-            e.printStackTrace();
-            throw new RuntimeException("Erro ao criar arquivo PDF", e);
-        } catch (Exception e) {
-            e.printStackTrace();
-            throw new RuntimeException("Erro geral na geração de PDF", e);
+    private static void addRow(Table table, Fontes fontes, String label, String value) {
+        table.addCell(new Cell().add(new Paragraph(label).setFont(fontes.negrito)));
+        table.addCell(new Cell().add(new Paragraph(value != null ? value : "").setFont(fontes.regular)));
+    }
+
+    private static void celula(Table table, Fontes fontes, String valor, boolean numero) {
+        Cell cell = new Cell().add(new Paragraph(valor).setFont(fontes.regular).setFontSize(9));
+        if (numero) cell.setTextAlignment(TextAlignment.RIGHT);
+        table.addCell(cell);
+    }
+
+    private static FontProgram carregarFonte(String nome) {
+        try {
+            return FontProgramFactory.createFont(nome);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Fonte PDF indisponível: " + nome, e);
         }
     }
 
-    private static void addRow(Table table, String label, String value) {
-        Cell cellLabel = new Cell().add(new Paragraph(label).setBold());
-        Cell cellValue = new Cell().add(new Paragraph(value));
-        table.addCell(cellLabel);
-        table.addCell(cellValue);
+    /**
+     * Fontes de um documento (PdfFont não pode ser compartilhado entre documentos)
+     */
+    private static class Fontes {
+        final PdfFont regular = PdfFontFactory.createFont(FONTE_REGULAR, PdfEncodings.WINANSI);
+        final PdfFont negrito = PdfFontFactory.createFont(FONTE_NEGRITO, PdfEncodings.WINANSI);
     }
-}
\ No newline at end of file
+}
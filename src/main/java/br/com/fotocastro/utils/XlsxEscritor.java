@@ -0,0 +1,272 @@
+package br.com.fotocastro.utils;
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.Deflater;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+/**
+ * XLSX mínimo (SpreadsheetML) escrito em fluxo: cada aba é uma entrada do zip gravada
+ * linha a linha com strings inline, sem tabela de strings compartilhadas nem DOM.
+ * Células vão em sequência sem referência (A1...), vazias como {@code <c/>}, para reduzir o XML.
+ * O workbook e os relacionamentos são gravados no fechamento, quando as abas já são conhecidas.
+ * Abas que passam do limite de linhas do Excel continuam em "Nome (2)", "Nome (3)"...
+ */
+public class XlsxEscritor implements EscritorPlanilha {
+
+    private static final int TAMANHO_BUFFER = 256 * 1024;
+    private static final int MAX_LINHAS_ABA = 1_048_576;
+    private static final long EXCEL_EPOCH_OFFSET = 25569; // 1970-01-01 no calendário do Excel
+
+    // Índices de estilo em styles.xml
+    private static final int ESTILO_DATA_HORA = 1;
+    private static final int ESTILO_DATA = 2;
+    private static final int ESTILO_VALOR = 3;
+    private static final int ESTILO_CABECALHO = 4;
+
+    private final ZipOutputStream zip;
+    private final Writer saida;
+    private final List<String> abas = new ArrayList<>();
+    private final StringBuilder linha = new StringBuilder(512);
+
+    private String abaAtual;
+    private String[] cabecalhosAtuais;
+    private int partes;
+    private boolean abaAberta;
+    private int numeroLinha;
+    private int coluna;
+
+    public XlsxEscritor(Path arquivo) throws IOException {
+        if (arquivo.getParent() != null) {
+            Files.createDirectories(arquivo.getParent());
+        }
+        FileChannel canal = FileChannel.open(arquivo, StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE);
+        this.zip = new ZipOutputStream(new BufferedOutputStream(Channels.newOutputStream(canal), TAMANHO_BUFFER));
+        this.zip.setLevel(Deflater.BEST_SPEED);
+        this.saida = new OutputStreamWriter(zip, StandardCharsets.UTF_8);
+    }
+
+    @Override
+    public void iniciarAba(String nome, String... cabecalhos) throws IOException {
+        abaAtual = nome;
+        cabecalhosAtuais = cabecalhos;
+        partes = 0;
+        abrirParte();
+    }
+
+    private void abrirParte() throws IOException {
+        fecharAba();
+        partes++;
+        String nome = partes == 1 ? abaAtual : abaAtual + " (" + partes + ")";
+        abas.add(nome);
+
+        zip.putNextEntry(new ZipEntry("xl/worksheets/sheet" + abas.size() + ".xml"));
+        saida.write("<?xml version=\"1.0\" encoding=\"UTF-8\" standalone=\"yes\"?>\n"
+                + "<worksheet xmlns=\"http://schemas.openxmlformats.org/spreadsheetml/2006/main\">"
+                + "<sheetViews><sheetView workbookViewId=\"0\"><pane ySplit=\"1\" topLeftCell=\"A2\" activePane=\"bottomLeft\" state=\"frozen\"/></sheetView></sheetViews>"
+                + "<sheetData>");
+        abaAberta = true;
+        numeroLinha = 0;
+
+        for (String c : cabecalhosAtuais) {
+            abrirCelula("inlineStr", ESTILO_CABECALHO);
+            linha.append("<is><t>");
+            escapar(c);
+            linha.append("</t></is></c>");
+        }
+        fimLinha();
+    }
+
+    @Override
+    public void texto(String valor) throws IOException {
+        continuarSeCheia();
+        if (valor == null || valor.isEmpty()) {
+            vazia();
+            return;
+        }
+        abrirCelula("inlineStr", 0);
+        boolean preservar = Character.isWhitespace(valor.charAt(0)) || Character.isWhitespace(valor.charAt(valor.length() - 1));
+        linha.append(preservar ? "<is><t xml:space=\"preserve\">" : "<is><t>");
+        escapar(valor);
+        linha.append("</t></is></c>");
+    }
+
+    @Override
+    public void numero(long valor) throws IOException {
+        continuarSeCheia();
+        abrirCelula(null, 0);
+        linha.append("<v>").append(valor).append("</v></c>");
+    }
+
+    @Override
+    public void valor(double valor) throws IOException {
+        continuarSeCheia();
+        abrirCelula(null, ESTILO_VALOR);
+        linha.append("<v>").append(Math.round(valor * 100) / 100.0).append("</v></c>");
+    }
+
+    @Override
+    public void data(LocalDate valor) throws IOException {
+        continuarSeCheia();
+        if (valor == null) {
+            vazia();
+            return;
+        }
+        abrirCelula(null, ESTILO_DATA);
+        linha.append("<v>").append(valor.toEpochDay() + EXCEL_EPOCH_OFFSET).append("</v></c>");
+    }
+
+    @Override
+    public void dataHora(LocalDateTime valor) throws IOException {
+        continuarSeCheia();
+        if (valor == null) {
+            vazia();
+            return;
+        }
+        double serial = valor.toLocalDate().toEpochDay() + EXCEL_EPOCH_OFFSET
+                + valor.toLocalTime().toSecondOfDay() / 86400.0;
+        abrirCelula(null, ESTILO_DATA_HORA);
+        linha.append("<v>").append(serial).append("</v></c>");
+    }
+
+    @Override
+    public void fimLinha() throws IOException {
+        numeroLinha++;
+        saida.append("<row r=\"").append(String.valueOf(numeroLinha)).append("\">");
+        saida.append(linha);
+        saida.append("</row>");
+        linha.setLength(0);
+        coluna = 0;
+    }
+
+    @Override
+    public void close() throws IOException {
+        fecharAba();
+        escreverEstrutura();
+        saida.flush();
+        zip.close();
+    }
+
+    private void fecharAba() throws IOException {
+        if (!abaAberta) return;
+        saida.write("</sheetData></worksheet>");
+        saida.flush();
+        zip.closeEntry();
+        abaAberta = false;
+    }
+
+    /**
+     * No início de uma linha, se a aba chegou ao limite do Excel, abre a continuação
+     */
+    private void continuarSeCheia() throws IOException {
+        if (coluna == 0 && numeroLinha >= MAX_LINHAS_ABA) {
+            abrirParte();
+        }
+    }
+
+    private void vazia() {
+        linha.append("<c/>");
+        coluna++;
+    }
+
+    private void abrirCelula(String tipo, int estilo) {
+        linha.append("<c");
+        coluna++;
+        if (tipo != null) linha.append(" t=\"").append(tipo).append('"');
+        if (estilo != 0) linha.append(" s=\"").append(estilo).append('"');
+        linha.append('>');
+    }
+
+    private void escapar(String s) {
+        for (int i = 0; i < s.length(); i++) {
+            char ch = s.charAt(i);
+            switch (ch) {
+                case '<' -> linha.append("&lt;");
+                case '>' -> linha.append("&gt;");
+                case '&' -> linha.append("&amp;");
+                case '"' -> linha.append("&quot;");
+                default -> {
+                    // Caracteres de controle não são válidos em XML 1.0
+                    if (ch >= 0x20 || ch == '\t' || ch == '\n' || ch == '\r') linha.append(ch);
+                }
+            }
+        }
+    }
+
+    private void escreverEstrutura() throws IOException {
+        StringBuilder tipos = new StringBuilder("<?xml version=\"1.0\" encoding=\"UTF-8\" standalone=\"yes\"?>\n"
+                + "<Types xmlns=\"http://schemas.openxmlformats.org/package/2006/content-types\">"
+                + "<Default Extension=\"rels\" ContentType=\"application/vnd.openxmlformats-package.relationships+xml\"/>"
+                + "<Default Extension=\"xml\" ContentType=\"application/xml\"/>"
+                + "<Override PartName=\"/xl/workbook.xml\" ContentType=\"application/vnd.openxmlformats-officedocument.spreadsheetml.sheet.main+xml\"/>"
+                + "<Override PartName=\"/xl/styles.xml\" ContentType=\"application/vnd.openxmlformats-officedocument.spreadsheetml.styles+xml\"/>");
+        StringBuilder planilhas = new StringBuilder();
+        StringBuilder relacoes = new StringBuilder("<?xml version=\"1.0\" encoding=\"UTF-8\" standalone=\"yes\"?>\n"
+                + "<Relationships xmlns=\"http://schemas.openxmlformats.org/package/2006/relationships\">");
+
+        for (int i = 1; i <= abas.size(); i++) {
+            tipos.append("<Override PartName=\"/xl/worksheets/sheet").append(i)
+                 .append(".xml\" ContentType=\"application/vnd.openxmlformats-officedocument.spreadsheetml.worksheet+xml\"/>");
+            linha.setLength(0);
+            escapar(abas.get(i - 1));
+            planilhas.append("<sheet name=\"").append(linha).append("\" sheetId=\"").append(i)
+                     .append("\" r:id=\"rId").append(i).append("\"/>");
+            relacoes.append("<Relationship Id=\"rId").append(i)
+                    .append("\" Type=\"http://schemas.openxmlformats.org/officeDocument/2006/relationships/worksheet\" Target=\"worksheets/sheet")
+                    .append(i).append(".xml\"/>");
+        }
+        linha.setLength(0);
+        relacoes.append("<Relationship Id=\"rId").append(abas.size() + 1)
+                .append("\" Type=\"http://schemas.openxmlformats.org/officeDocument/2006/relationships/styles\" Target=\"styles.xml\"/>")
+                .append("</Relationships>");
+        tipos.append("</Types>");
+
+        entrada("[Content_Types].xml", tipos.toString());
+        entrada("_rels/.rels", "<?xml version=\"1.0\" encoding=\"UTF-8\" standalone=\"yes\"?>\n"
+                + "<Relationships xmlns=\"http://schemas.openxmlformats.org/package/2006/relationships\">"
+                + "<Relationship Id=\"rId1\" Type=\"http://schemas.openxmlformats.org/officeDocument/2006/relationships/officeDocument\" Target=\"xl/workbook.xml\"/>"
+                + "</Relationships>");
+        entrada("xl/workbook.xml", "<?xml version=\"1.0\" encoding=\"UTF-8\" standalone=\"yes\"?>\n"
+                + "<workbook xmlns=\"http://schemas.openxmlformats.org/spreadsheetml/2006/main\" "
+                + "xmlns:r=\"http://schemas.openxmlformats.org/officeDocument/2006/relationships\">"
+                + "<sheets>" + planilhas + "</sheets></workbook>");
+        entrada("xl/_rels/workbook.xml.rels", relacoes.toString());
+        entrada("xl/styles.xml", "<?xml version=\"1.0\" encoding=\"UTF-8\" standalone=\"yes\"?>\n"
+                + "<styleSheet xmlns=\"http://schemas.openxmlformats.org/spreadsheetml/2006/main\">"
+                + "<numFmts count=\"2\"><numFmt numFmtId=\"164\" formatCode=\"dd/mm/yyyy hh:mm:ss\"/>"
+                + "<numFmt numFmtId=\"165\" formatCode=\"dd/mm/yyyy\"/></numFmts>"
+                + "<fonts count=\"2\"><font><sz val=\"11\"/><name val=\"Calibri\"/></font>"
+                + "<font><b/><sz val=\"11\"/><name val=\"Calibri\"/></font></fonts>"
+                + "<fills count=\"2\"><fill><patternFill patternType=\"none\"/></fill><fill><patternFill patternType=\"gray125\"/></fill></fills>"
+                + "<borders count=\"1\"><border><left/><right/><top/><bottom/><diagonal/></border></borders>"
+                + "<cellStyleXfs count=\"1\"><xf numFmtId=\"0\" fontId=\"0\" fillId=\"0\" borderId=\"0\"/></cellStyleXfs>"
+                + "<cellXfs count=\"5\">"
+                + "<xf numFmtId=\"0\" fontId=\"0\" fillId=\"0\" borderId=\"0\" xfId=\"0\"/>"
+                + "<xf numFmtId=\"164\" fontId=\"0\" fillId=\"0\" borderId=\"0\" xfId=\"0\" applyNumberFormat=\"1\"/>"
+                + "<xf numFmtId=\"165\" fontId=\"0\" fillId=\"0\" borderId=\"0\" xfId=\"0\" applyNumberFormat=\"1\"/>"
+                + "<xf numFmtId=\"4\" fontId=\"0\" fillId=\"0\" borderId=\"0\" xfId=\"0\" applyNumberFormat=\"1\"/>"
+                + "<xf numFmtId=\"0\" fontId=\"1\" fillId=\"0\" borderId=\"0\" xfId=\"0\" applyFont=\"1\"/>"
+                + "</cellXfs></styleSheet>");
+    }
+
+    private void entrada(String nome, String conteudo) throws IOException {
+        zip.putNextEntry(new ZipEntry(nome));
+        saida.write(conteudo);
+        saida.flush();
+        zip.closeEntry();
+    }
+}
@@ -0,0 +1,23 @@
+-- ========================================
+-- V10: Composição (BOM) dos templates de venda
+-- ========================================
+-- Um template pode consumir vários itens de estoque (ex.: foto 10x15 + moldura).
+-- A tabela bom de V1 referencia items, que o app não usa; esta referencia estoque.
+-- estoque_item_id/quantidade_uso em sale_templates ficam como componente principal.
+
+CREATE TABLE IF NOT EXISTS sale_template_bom (
+    template_id BIGINT NOT NULL,
+    estoque_id  BIGINT NOT NULL,
+    quantidade  INT NOT NULL,
+    PRIMARY KEY (template_id, estoque_id),
+    CONSTRAINT fk_stb_template FOREIGN KEY (template_id) REFERENCES sale_templates(id) ON DELETE CASCADE,
+    CONSTRAINT fk_stb_estoque  FOREIGN KEY (estoque_id)  REFERENCES estoque(id) ON DELETE CASCADE,
+    CONSTRAINT ck_stb_qtd CHECK (quantidade > 0)
+);
+CREATE INDEX IF NOT EXISTS ix_stb_estoque ON sale_template_bom(estoque_id);
+
+-- Templates existentes: o item único vira o primeiro componente
+INSERT INTO sale_template_bom (template_id, estoque_id, quantidade)
+SELECT id, estoque_item_id, GREATEST(quantidade_uso, 1)
+FROM sale_templates
+WHERE estoque_item_id IS NOT NULL;
@@ -0,0 +1,21 @@
+-- ========================================
+-- V11: Contagem de vendas por descrição e dia
+-- ========================================
+-- Mantida pelo VendaDaoH2 na mesma transação de cada INSERT/UPDATE/DELETE em venda.
+-- "Mais vendidos" (total, hoje, semana, mês) soma poucas linhas daqui
+-- em vez de agrupar a tabela venda inteira.
+
+CREATE TABLE IF NOT EXISTS venda_descricao_dia (
+    dia        DATE NOT NULL,
+    descricao  VARCHAR(200) NOT NULL,
+    quantidade BIGINT NOT NULL,
+    PRIMARY KEY (dia, descricao)
+);
+CREATE INDEX IF NOT EXISTS ix_vdd_descricao ON venda_descricao_dia(descricao);
+
+-- Carga inicial a partir das vendas existentes
+INSERT INTO venda_descricao_dia (dia, descricao, quantidade)
+SELECT CAST(data_hora AS DATE), descricao, COUNT(*)
+FROM venda
+WHERE descricao IS NOT NULL AND TRIM(descricao) != ''
+GROUP BY CAST(data_hora AS DATE), descricao;
@@ -0,0 +1,23 @@
+-- ========================================
+-- V12: Mapa de calor de vendas (mês × dia da semana × hora)
+-- ========================================
+-- Mantida pelo VendaDaoH2 na transação de cada venda: um MERGE por venda.
+-- dia_semana segue ISO (1 = segunda ... 7 = domingo); mes é o primeiro dia do mês.
+
+CREATE TABLE IF NOT EXISTS venda_heatmap (
+    mes        DATE NOT NULL,
+    dia_semana TINYINT NOT NULL,
+    hora       TINYINT NOT NULL,
+    quantidade BIGINT NOT NULL,
+    liquido    DECIMAL(14,2) NOT NULL,
+    PRIMARY KEY (mes, dia_semana, hora),
+    CONSTRAINT ck_vh_dia CHECK (dia_semana BETWEEN 1 AND 7),
+    CONSTRAINT ck_vh_hora CHECK (hora BETWEEN 0 AND 23)
+);
+
+-- Carga inicial a partir das vendas existentes
+INSERT INTO venda_heatmap (mes, dia_semana, hora, quantidade, liquido)
+SELECT CAST(DATE_TRUNC('MONTH', data_hora) AS DATE), ISO_DAY_OF_WEEK(data_hora), HOUR(data_hora),
+       COUNT(*), SUM(valor_liq)
+FROM venda
+GROUP BY CAST(DATE_TRUNC('MONTH', data_hora) AS DATE), ISO_DAY_OF_WEEK(data_hora), HOUR(data_hora);
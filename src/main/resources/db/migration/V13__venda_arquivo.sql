@@ -0,0 +1,27 @@
+-- ========================================
+-- V13: Arquivo de vendas antigas
+-- ========================================
+-- Vendas de meses encerrados saem de venda para venda_arquivo (mesmo ID), em lotes.
+-- venda_arquivo_corte guarda a data a partir da qual o arquivo não tem linhas:
+-- consultas de períodos que começam no corte ou depois leem só a tabela venda.
+
+CREATE TABLE IF NOT EXISTS venda_arquivo (
+    id          BIGINT PRIMARY KEY,
+    data_hora   TIMESTAMP     NOT NULL,
+    descricao   VARCHAR(200)  NOT NULL,
+    valor_bruto DECIMAL(10,2) NOT NULL,
+    metodo      VARCHAR(20)   NOT NULL,
+    taxa        DECIMAL(10,2) NOT NULL,
+    valor_liq   DECIMAL(10,2) NOT NULL,
+    observacao  VARCHAR(500)
+);
+
+CREATE INDEX IF NOT EXISTS idx_venda_arquivo_data ON venda_arquivo(data_hora);
+
+CREATE TABLE IF NOT EXISTS venda_arquivo_corte (
+    id    TINYINT PRIMARY KEY,
+    corte DATE NOT NULL,
+    CONSTRAINT ck_vac_unico CHECK (id = 1)
+);
+
+MERGE INTO venda_arquivo_corte (id, corte) KEY (id) VALUES (1, DATE '1970-01-01');
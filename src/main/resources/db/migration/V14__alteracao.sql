@@ -0,0 +1,30 @@
+-- ========================================
+-- V14: Sequência de alterações (multi-terminal)
+-- ========================================
+-- Triggers gravam uma linha por registro alterado, com o terminal de origem (@TERMINAL da sessão).
+-- Os outros terminais leem a partir do último seq visto e atualizam caches e telas.
+-- Sessões sem @TERMINAL (modo local) ou com @SEM_ALTERACAO (arquivamento) não gravam nada.
+
+CREATE TABLE IF NOT EXISTS alteracao (
+    seq                IDENTITY PRIMARY KEY,
+    tabela             VARCHAR(40)  NOT NULL,
+    operacao           CHAR(1)      NOT NULL,
+    registro_id        BIGINT,
+    terminal           VARCHAR(60)  NOT NULL,
+    descricao_anterior VARCHAR(200),
+    data_hora_anterior TIMESTAMP,
+    em                 TIMESTAMP    DEFAULT CURRENT_TIMESTAMP
+);
+
+CREATE TRIGGER IF NOT EXISTS trg_alteracao_venda AFTER INSERT, UPDATE, DELETE ON venda
+    FOR EACH ROW CALL 'br.com.fotocastro.infra.AlteracaoTrigger';
+CREATE TRIGGER IF NOT EXISTS trg_alteracao_venda_arquivo AFTER INSERT, UPDATE, DELETE ON venda_arquivo
+    FOR EACH ROW CALL 'br.com.fotocastro.infra.AlteracaoTrigger';
+CREATE TRIGGER IF NOT EXISTS trg_alteracao_estoque AFTER INSERT, UPDATE, DELETE ON estoque
+    FOR EACH ROW CALL 'br.com.fotocastro.infra.AlteracaoTrigger';
+CREATE TRIGGER IF NOT EXISTS trg_alteracao_fechamento AFTER INSERT, UPDATE, DELETE ON fechamento_caixa
+    FOR EACH ROW CALL 'br.com.fotocastro.infra.AlteracaoTrigger';
+CREATE TRIGGER IF NOT EXISTS trg_alteracao_templates AFTER INSERT, UPDATE, DELETE ON sale_templates
+    FOR EACH ROW CALL 'br.com.fotocastro.infra.AlteracaoTrigger';
+CREATE TRIGGER IF NOT EXISTS trg_alteracao_corte AFTER UPDATE ON venda_arquivo_corte
+    FOR EACH ROW CALL 'br.com.fotocastro.infra.AlteracaoTrigger';
@@ -0,0 +1,11 @@
+-- ========================================
+-- V15: Controle otimista de concorrência
+-- ========================================
+-- Cada edição de cadastro grava com "WHERE id = ? AND versao = ?" e incrementa versao.
+-- Zero linhas afetadas = outro terminal alterou o registro depois da leitura (ConflitoDeVersao).
+-- venda_arquivo também recebe a coluna: o arquivamento copia a versão junto com a venda.
+
+ALTER TABLE venda          ADD COLUMN IF NOT EXISTS versao INT NOT NULL DEFAULT 0;
+ALTER TABLE venda_arquivo  ADD COLUMN IF NOT EXISTS versao INT NOT NULL DEFAULT 0;
+ALTER TABLE estoque        ADD COLUMN IF NOT EXISTS versao INT NOT NULL DEFAULT 0;
+ALTER TABLE sale_templates ADD COLUMN IF NOT EXISTS versao INT NOT NULL DEFAULT 0;
@@ -0,0 +1,81 @@
+-- ========================================
+-- V16: Sincronização entre filiais (CDC)
+-- ========================================
+-- As alterações registradas pelos triggers de V14 (tabela alteracao) são exportadas em lotes
+-- compactados para uma pasta compartilhada; cada filial importa os lotes das outras.
+-- Os dados das outras filiais ficam em tabelas filial_* (chave: filial + id de origem),
+-- separadas das tabelas locais: não disparam triggers e não colidem com IDs daqui.
+
+-- Exportação desta filial: último seq de alteracao exportado e número do último lote gravado
+CREATE TABLE IF NOT EXISTS filial_exportacao (
+    id          TINYINT PRIMARY KEY,
+    ultimo_seq  BIGINT    NOT NULL,
+    ultimo_lote BIGINT    NOT NULL,
+    exportado_em TIMESTAMP DEFAULT CURRENT_TIMESTAMP,
+    CONSTRAINT ck_fexp_unico CHECK (id = 1)
+);
+
+-- Importação: último lote aplicado de cada filial de origem
+CREATE TABLE IF NOT EXISTS filial_importacao (
+    origem      VARCHAR(60) PRIMARY KEY,
+    ultimo_lote BIGINT    NOT NULL,
+    importado_em TIMESTAMP DEFAULT CURRENT_TIMESTAMP
+);
+
+CREATE TABLE IF NOT EXISTS filial_venda (
+    filial      VARCHAR(60)   NOT NULL,
+    id          BIGINT        NOT NULL,
+    data_hora   TIMESTAMP     NOT NULL,
+    descricao   VARCHAR(200)  NOT NULL,
+    valor_bruto DECIMAL(10,2) NOT NULL,
+    metodo      VARCHAR(20)   NOT NULL,
+    taxa        DECIMAL(10,2) NOT NULL,
+    valor_liq   DECIMAL(10,2) NOT NULL,
+    observacao  VARCHAR(500),
+    PRIMARY KEY (filial, id)
+);
+CREATE INDEX IF NOT EXISTS idx_filial_venda_data ON filial_venda(data_hora);
+
+CREATE TABLE IF NOT EXISTS filial_estoque (
+    filial      VARCHAR(60)   NOT NULL,
+    id          BIGINT        NOT NULL,
+    nome        VARCHAR(100)  NOT NULL,
+    cor         VARCHAR(50),
+    tamanho     VARCHAR(50),
+    quantidade  INT           NOT NULL,
+    custo_total DECIMAL(10,2) NOT NULL,
+    PRIMARY KEY (filial, id)
+);
+
+CREATE TABLE IF NOT EXISTS filial_fechamento (
+    filial        VARCHAR(60)   NOT NULL,
+    id            BIGINT        NOT NULL,
+    data          DATE          NOT NULL,
+    bruto         DECIMAL(12,2) NOT NULL,
+    taxas         DECIMAL(12,2) NOT NULL,
+    liquido       DECIMAL(12,2) NOT NULL,
+    dinheiro      DECIMAL(12,2) NOT NULL,
+    cartao        DECIMAL(12,2) NOT NULL,
+    pix           DECIMAL(12,2) NOT NULL,
+    valor_contado DECIMAL(12,2),
+    diferenca     DECIMAL(12,2),
+    observacao    VARCHAR(255),
+    fechado_em    TIMESTAMP,
+    PRIMARY KEY (filial, id)
+);
+CREATE INDEX IF NOT EXISTS idx_filial_fechamento_data ON filial_fechamento(data);
+
+CREATE TABLE IF NOT EXISTS filial_template (
+    filial VARCHAR(60)   NOT NULL,
+    id     BIGINT        NOT NULL,
+    name   VARCHAR(100)  NOT NULL,
+    price  DECIMAL(10,2) NOT NULL,
+    size   VARCHAR(40),
+    icon   VARCHAR(20),
+    tag    VARCHAR(60),
+    active BOOLEAN,
+    PRIMARY KEY (filial, id)
+);
+
+-- Poda da tabela alteracao usa seq <= exportado e data: índice pela data
+CREATE INDEX IF NOT EXISTS idx_alteracao_em ON alteracao(em);
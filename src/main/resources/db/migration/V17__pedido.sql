@@ -0,0 +1,14 @@
+-- ========================================
+-- V17: Pedidos com vários itens (carrinho)
+-- ========================================
+-- O pedido grava o cabeçalho em sales, os itens em sale_items e os pagamentos em payments (V1).
+-- Cada item também vira uma linha em venda, que continua sendo a base de relatórios, contadores
+-- e sincronização; sale_id liga essas linhas ao pedido (null nas vendas avulsas).
+-- venda_arquivo recebe a coluna porque o arquivamento copia a venda inteira.
+
+ALTER TABLE venda         ADD COLUMN IF NOT EXISTS sale_id BIGINT;
+ALTER TABLE venda_arquivo ADD COLUMN IF NOT EXISTS sale_id BIGINT;
+CREATE INDEX IF NOT EXISTS idx_venda_sale ON venda(sale_id);
+
+-- Template vendido (item_id continua reservado ao catálogo items)
+ALTER TABLE sale_items ADD COLUMN IF NOT EXISTS template_id BIGINT;
@@ -0,0 +1,22 @@
+-- ========================================
+-- V18: Pagamentos divididos no fechamento
+-- ========================================
+-- Os totais por método do fechamento (dinheiro, cartao, pix) vêm dos pagamentos dos pedidos
+-- somados às vendas avulsas (sale_id nulo, um método só), numa consulta agrupada por método.
+-- payments ganha a data e a taxa de cada parte; o índice cobre a consulta inteira
+-- (faixa de data_hora, e method/amount/taxa lidos do próprio índice).
+
+ALTER TABLE payments ADD COLUMN IF NOT EXISTS data_hora TIMESTAMP;
+ALTER TABLE payments ADD COLUMN IF NOT EXISTS taxa DECIMAL(12,2) NOT NULL DEFAULT 0;
+
+UPDATE payments p SET data_hora = (SELECT s.created_at FROM sales s WHERE s.id = p.sale_id) WHERE data_hora IS NULL;
+
+-- Pedidos gravados antes desta versão: taxa do cartão rateada das linhas de venda do pedido
+UPDATE payments p SET taxa = (
+    SELECT COALESCE(SUM(v.taxa), 0) FROM venda v WHERE v.sale_id = p.sale_id
+) WHERE p.method IN ('CREDIT', 'DEBIT')
+  AND (SELECT COUNT(*) FROM payments q WHERE q.sale_id = p.sale_id) = 1;
+
+ALTER TABLE payments ALTER COLUMN data_hora SET NOT NULL;
+
+CREATE INDEX IF NOT EXISTS ix_pay_data_metodo ON payments(data_hora, method, amount, taxa);
@@ -0,0 +1,14 @@
+-- ========================================
+-- V19: Fechamento automático com recuperação
+-- ========================================
+-- Na abertura e na virada de dia, todos os dias anteriores sem fechamento e com vendas são
+-- fechados num lote só. Esta tabela guarda até onde isso já foi feito: a próxima execução
+-- só agrupa as vendas a partir daí, em vez de varrer o histórico inteiro a cada abertura.
+-- Sem linha (instalação existente), a primeira execução confere desde a primeira venda.
+
+CREATE TABLE IF NOT EXISTS fechamento_verificado (
+    id            TINYINT PRIMARY KEY,
+    ate           DATE      NOT NULL,
+    verificado_em TIMESTAMP DEFAULT CURRENT_TIMESTAMP,
+    CONSTRAINT ck_fver_unico CHECK (id = 1)
+);
@@ -0,0 +1,16 @@
+-- ========================================
+-- V20: Ordem dos componentes da BOM
+-- ========================================
+-- O primeiro componente é o "Produto" do template (estoque_item_id); os demais são os extras.
+-- Sem uma ordem gravada a lista saía por estoque_id e um extra de id menor que o principal
+-- passava a ser tratado como principal ao editar o template.
+
+ALTER TABLE sale_template_bom ADD COLUMN IF NOT EXISTS ordem INT NOT NULL DEFAULT 0;
+
+-- Existentes: principal primeiro, extras depois na ordem de estoque_id (como eram listados)
+UPDATE sale_template_bom b SET ordem = CASE
+    WHEN b.estoque_id = (SELECT t.estoque_item_id FROM sale_templates t WHERE t.id = b.template_id) THEN 0
+    ELSE 1 + (SELECT COUNT(*) FROM sale_template_bom o
+              WHERE o.template_id = b.template_id AND o.estoque_id < b.estoque_id
+                AND o.estoque_id <> (SELECT COALESCE(t.estoque_item_id, -1) FROM sale_templates t WHERE t.id = b.template_id))
+END;
@@ -0,0 +1,18 @@
+-- ========================================
+-- V21: Início da conciliação dos fechamentos
+-- ========================================
+-- Até a versão que passou a manter as vendas no fechamento, fechar o caixa apagava as vendas
+-- do dia: esses fechamentos não têm vendas para conferir e apareceriam todos como divergentes.
+-- A conciliação só confere fechamentos a partir do dia em que essa versão entrou, que é o dia
+-- em que V14 (da mesma leva) foi aplicada; em instalação nova, hoje.
+
+CREATE TABLE IF NOT EXISTS conciliacao_desde (
+    id    TINYINT PRIMARY KEY,
+    desde DATE NOT NULL,
+    CONSTRAINT ck_cdesde_unico CHECK (id = 1)
+);
+
+INSERT INTO conciliacao_desde (id, desde)
+SELECT 1, COALESCE(CAST(MIN("installed_on") AS DATE), CURRENT_DATE)
+FROM "flyway_schema_history"
+WHERE "success" AND "version" IS NOT NULL AND CAST("version" AS INT) >= 14;
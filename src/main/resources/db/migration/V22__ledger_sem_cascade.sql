@@ -0,0 +1,9 @@
+-- ========================================
+-- V22: Histórico do ledger sobrevive à remoção do item
+-- ========================================
+-- Com ON DELETE CASCADE, remover um item de "estoque" apagava todos os seus
+-- movimentos. A FK sai e estoque_id passa a ser só referência histórica
+-- (IDENTITY não reaproveita ids); a remoção grava um ADJUST de fechamento.
+-- estoque_snapshot continua em cascata: é só cache, reconstruível pelos movimentos.
+
+ALTER TABLE stock_movements DROP CONSTRAINT IF EXISTS fk_sm_estoque;
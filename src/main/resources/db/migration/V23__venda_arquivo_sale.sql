@@ -0,0 +1,7 @@
+-- ========================================
+-- V23: Índice de pedido no arquivo de vendas
+-- ========================================
+-- V17 indexou venda(sale_id) mas não venda_arquivo: remover uma venda de pedido arquivada
+-- lê as linhas do pedido (SELECT ... WHERE sale_id = ? FOR UPDATE) varrendo o arquivo inteiro.
+
+CREATE INDEX IF NOT EXISTS idx_venda_arquivo_sale ON venda_arquivo(sale_id);
@@ -0,0 +1,40 @@
+-- ========================================
+-- V9: Ledger de movimentações do estoque
+-- ========================================
+-- Toda alteração de quantidade/custo em "estoque" passa a gerar uma linha em
+-- stock_movements (mesma transação). A tabela estoque vira a projeção atual
+-- e estoque_snapshot guarda fotos periódicas para reconstrução no tempo.
+
+-- 1. stock_movements passa a referenciar estoque (item_id de V1 fica opcional)
+ALTER TABLE stock_movements ALTER COLUMN item_id SET NULL;
+ALTER TABLE stock_movements ADD COLUMN IF NOT EXISTS estoque_id BIGINT;
+ALTER TABLE stock_movements ADD CONSTRAINT fk_sm_estoque
+    FOREIGN KEY (estoque_id) REFERENCES estoque(id) ON DELETE CASCADE;
+
+-- quantity/total_cost são deltas com sinal (OUT negativo, ADJUST qualquer sinal)
+CREATE INDEX IF NOT EXISTS ix_sm_estoque ON stock_movements(estoque_id, id);
+
+-- 2. Snapshots periódicos por item
+CREATE TABLE IF NOT EXISTS estoque_snapshot (
+    id                  IDENTITY PRIMARY KEY,
+    estoque_id          BIGINT NOT NULL,
+    ultimo_movimento_id BIGINT NOT NULL,       -- movimentos com id <= este já estão somados
+    quantidade          INT NOT NULL,
+    custo_total         DECIMAL(12,4) NOT NULL,
+    ate                 TIMESTAMP NOT NULL,    -- created_at do último movimento somado
+    CONSTRAINT fk_snap_estoque FOREIGN KEY (estoque_id) REFERENCES estoque(id) ON DELETE CASCADE
+);
+CREATE INDEX IF NOT EXISTS ix_snap_estoque ON estoque_snapshot(estoque_id, ate);
+
+-- 3. Saldo de abertura: um ADJUST por item existente + snapshot inicial
+INSERT INTO stock_movements (estoque_id, mtype, quantity, unit_cost, total_cost, reason)
+SELECT id, 'ADJUST', quantidade,
+       CASE WHEN quantidade > 0 THEN custo_total / quantidade ELSE 0 END,
+       custo_total, 'Saldo de abertura'
+FROM estoque;
+
+INSERT INTO estoque_snapshot (estoque_id, ultimo_movimento_id, quantidade, custo_total, ate)
+SELECT m.estoque_id, m.id, e.quantidade, e.custo_total, m.created_at
+FROM stock_movements m
+INNER JOIN estoque e ON e.id = m.estoque_id
+WHERE m.reason = 'Saldo de abertura';